@@ -1,6 +1,13 @@
 package com.mevanalytics.platform.config;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mevanalytics.platform.dto.ProtectionRuleSet;
+import com.mevanalytics.platform.repository.ApiCustomerRepository;
+import com.mevanalytics.platform.service.AlertJournal;
+import com.mevanalytics.platform.service.OutboundFrame;
 import com.mevanalytics.platform.service.RealTimeProtectionService;
+import com.mevanalytics.platform.service.SessionSendQueueService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.*;
@@ -8,6 +15,10 @@ import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
 @Configuration
 @EnableWebSocket
 public class WebSocketConfig implements WebSocketConfigurer {
@@ -15,6 +26,15 @@ public class WebSocketConfig implements WebSocketConfigurer {
     @Autowired
     private RealTimeProtectionService protectionService;
     
+    @Autowired
+    private SessionSendQueueService sendQueueService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private ApiCustomerRepository apiCustomerRepository;
+    
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(new ProtectionWebSocketHandler(), "/ws/protection/*")
@@ -26,25 +46,70 @@ public class WebSocketConfig implements WebSocketConfigurer {
         @Override
         public void afterConnectionEstablished(WebSocketSession session) throws Exception {
             String contractAddress = extractContractAddress(session.getUri().getPath());
-            if (contractAddress != null) {
-                protectionService.enableProtection(contractAddress, session);
-                System.out.println("🔗 WebSocket connected for contract: " + contractAddress);
-                
-                // Send welcome message
-                session.sendMessage(new TextMessage("""
-                    {
-                        "type": "CONNECTION_ESTABLISHED",
-                        "message": "Real-time protection enabled",
-                        "contractAddress": "%s"
-                    }
-                    """.formatted(contractAddress)));
+            if (contractAddress == null) {
+                session.close(CloseStatus.BAD_DATA.withReason("Invalid contract address"));
+                return;
             }
+            
+            // All writes to the session go through its send queue from here on
+            String query = session.getUri().getQuery();
+            sendQueueService.register(session,
+                parseParam(query, "overflow", SessionSendQueueService.OverflowPolicy.class),
+                parseParam(query, "encoding", OutboundFrame.Encoding.class));
+            
+            // Send welcome message
+            sendQueueService.enqueue(session, sendQueueService.frame(Map.of(
+                "type", "CONNECTION_ESTABLISHED",
+                "message", "Real-time protection enabled",
+                "contractAddress", contractAddress
+            )));
+            
+            // "?lastAlertId=N" replays alerts journaled after N, ahead of live ones
+            protectionService.enableProtection(contractAddress, session, parseLong(query, "lastAlertId"));
+            System.out.println("🔗 WebSocket connected for contract: " + contractAddress);
         }
         
         @Override
         public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
-            // Handle incoming messages from frontend if needed
-            System.out.println("📨 Received WebSocket message: " + message.getPayload());
+            String contractAddress = extractContractAddress(session.getUri().getPath());
+            if (contractAddress == null || !(message instanceof TextMessage text)) return;
+            
+            // {"type":"SET_RULES","apiKey":"...","alertOnUnusualGas":false,"rules":[...]} replaces the
+            // contract's rules for every subscriber, so only the owner's API key is accepted
+            Map<String, Object> reply;
+            try {
+                JsonNode request = objectMapper.readTree(text.getPayload());
+                String type = request.path("type").asText();
+                if ("SET_RULES".equals(type)) {
+                    reply = setRules(contractAddress, request);
+                } else if ("GET_RULES".equals(type)) {
+                    reply = new HashMap<>(protectionService.getRules(contractAddress).orElse(Map.of()));
+                    reply.put("type", "RULES");
+                } else {
+                    reply = Map.of("type", "ERROR", "error", "Unknown message type: " + type);
+                }
+            } catch (Exception e) {
+                reply = Map.of("type", "ERROR", "error", String.valueOf(e.getMessage()));
+            }
+            sendQueueService.enqueue(session, sendQueueService.frame(reply));
+        }
+        
+        private Map<String, Object> setRules(String contractAddress, JsonNode request) throws Exception {
+            Optional<ApiCustomerRepository.ApiCustomer> customer = apiCustomerRepository.findCustomer(request.path("apiKey").asText(null));
+            if (customer.isEmpty()) {
+                return Map.of("type", "ERROR", "status", 401, "error", "A valid apiKey is required to change rules");
+            }
+            RealTimeProtectionService.Access access = protectionService.getAccess(contractAddress, customer.get().id());
+            if (access == RealTimeProtectionService.Access.UNPROTECTED) {
+                return Map.of("type", "ERROR", "status", 404, "error", "Protection is not enabled for this contract");
+            }
+            if (access != RealTimeProtectionService.Access.OWNER) {
+                return Map.of("type", "ERROR", "status", 403, "error", "Only the owner of this contract's protection can change its rules");
+            }
+            ProtectionRuleSet ruleSet = objectMapper.treeToValue(request, ProtectionRuleSet.class);
+            Map<String, Object> reply = new HashMap<>(protectionService.updateRules(contractAddress, ruleSet));
+            reply.put("type", "RULES_UPDATED");
+            return reply;
         }
         
         @Override
@@ -52,6 +117,7 @@ public class WebSocketConfig implements WebSocketConfigurer {
             String contractAddress = extractContractAddress(session.getUri().getPath());
             if (contractAddress != null) {
                 protectionService.disableProtection(contractAddress, session);
+                sendQueueService.unregister(session);
                 System.out.println("🔌 WebSocket disconnected for contract: " + contractAddress);
             }
         }
@@ -67,9 +133,40 @@ public class WebSocketConfig implements WebSocketConfigurer {
         }
         
         private String extractContractAddress(String path) {
-            // Extract contract address from path like "/ws/protection/0x123..."
+            // Extract contract address from path like "/ws/protection/0x123...", null unless it is one
             String[] parts = path.split("/");
-            return parts.length >= 3 ? parts[parts.length - 1] : null;
+            if (parts.length < 3) return null;
+            String address = parts[parts.length - 1].toLowerCase();
+            return AlertJournal.isValidAddress(address) ? address : null;
+        }
+        
+        private <E extends Enum<E>> E parseParam(String query, String name, Class<E> type) {
+            // Optional "?overflow=drop|coalesce|disconnect&encoding=json|cbor", otherwise the configured default
+            if (query == null) return null;
+            for (String param : query.split("&")) {
+                if (param.startsWith(name + "=")) {
+                    try {
+                        return Enum.valueOf(type, param.substring(name.length() + 1).toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+        
+        private Long parseLong(String query, String name) {
+            if (query == null) return null;
+            for (String param : query.split("&")) {
+                if (param.startsWith(name + "=")) {
+                    try {
+                        return Long.parseLong(param.substring(name.length() + 1));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+            }
+            return null;
         }
     }
 }
@@ -1,16 +1,27 @@
 package com.mevanalytics.platform.controller;
 
+import com.mevanalytics.platform.dto.BatchScanRequest;
 import com.mevanalytics.platform.dto.ScanRequest;
 import com.mevanalytics.platform.dto.ScanResult;
+import com.mevanalytics.platform.repository.ApiCustomerRepository;
+import com.mevanalytics.platform.service.BatchScanService;
 import com.mevanalytics.platform.service.ContractScannerService;
+import com.mevanalytics.platform.service.ContractWatchService;
+import com.mevanalytics.platform.service.ScanScheduler;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/v1/scanner")
@@ -20,16 +31,70 @@ public class ContractScannerController {
     @Autowired
     private ContractScannerService scannerService;
     
+    @Autowired
+    private BatchScanService batchScanService;
+    
+    @Autowired
+    private ContractWatchService watchService;
+    
+    @Autowired
+    private ApiCustomerRepository apiCustomerRepository;
+    
+    /**
+     * Queue a scan and return 202 with the PENDING result; poll GET /scan/{scanId}.
+     * The X-API-Key's subscription tier picks the priority lane.
+     */
     @PostMapping("/scan")
-    public CompletableFuture<ResponseEntity<ScanResult>> scanContract(@Valid @RequestBody ScanRequest request) {
+    public ResponseEntity<?> scanContract(
+            @Valid @RequestBody ScanRequest request,
+            @RequestHeader(value = "X-API-Key", required = false) String apiKey) {
         System.out.println("🔍 API: Received scan request for contract: " + request.getContractAddress());
         
-        return scannerService.scanContractAsync(request)
-            .thenApply(result -> ResponseEntity.ok(result))
-            .exceptionally(throwable -> {
-                System.err.println("❌ API: Scan failed: " + throwable.getMessage());
-                return ResponseEntity.internalServerError().build();
-            });
+        ScanScheduler.Tier tier = ScanScheduler.Tier.of(apiCustomerRepository.findSubscriptionTier(apiKey).orElse(null));
+        try {
+            ScanResult pending = scannerService.submitScan(request, tier);
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/scanner/scan/" + pending.getScanId()))
+                .body(pending);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", "5")
+                .body(Map.of(
+                    "success", false,
+                    "error", e.getMessage(),
+                    "tier", tier.name()
+                ));
+        }
+    }
+    
+    /**
+     * Scan many addresses at once. Each address's ScanResult is streamed back as an NDJSON
+     * line when its scan finishes, so results arrive in completion order, not request order.
+     * The stream is written from an async thread, and analyses queue in the key's tier lane.
+     */
+    @PostMapping("/scan/batch")
+    public ResponseEntity<?> scanContracts(
+            @Valid @RequestBody BatchScanRequest request,
+            @RequestHeader(value = "X-API-Key", required = false) String apiKey) {
+        Optional<String> subscriptionTier = apiCustomerRepository.findSubscriptionTier(apiKey);
+        if (subscriptionTier.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of("success", false, "error", "A valid X-API-Key is required for batch scans"));
+        }
+        System.out.println("🔍 API: Received batch scan request for " + request.getContractAddresses().size() + " contracts");
+        
+        BatchScanService.Batch batch;
+        try {
+            batch = batchScanService.admit(request, ScanScheduler.Tier.of(subscriptionTier.get()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", "5")
+                .body(Map.of("success", false, "error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "error", e.getMessage()));
+        }
+        StreamingResponseBody body = batch::writeTo;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
     
     @GetMapping("/scan/{scanId}")
@@ -48,9 +113,78 @@ public class ContractScannerController {
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getScanStats() {
         Map<String, Object> stats = scannerService.getScanStats();
+        stats.put("batch", batchScanService.getStats());
+        stats.put("watch", watchService.getStats());
         return ResponseEntity.ok(stats);
     }
     
+    /**
+     * Add a contract to the caller's watch list. It is rescanned only when an upgrade
+     * event or a code or implementation change is seen in processed blocks.
+     */
+    @PostMapping("/watch")
+    public ResponseEntity<?> watchContract(
+            @Valid @RequestBody ScanRequest request,
+            @RequestHeader(value = "X-API-Key", required = false) String apiKey) {
+        Optional<ApiCustomerRepository.ApiCustomer> customer = apiCustomerRepository.findCustomer(apiKey);
+        if (customer.isEmpty()) {
+            return watchUnauthorized();
+        }
+        try {
+            return ResponseEntity.ok(watchService.watch(customer.get().id(), request.getContractAddress(),
+                customer.get().subscriptionTier()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("success", false, "error", e.getMessage()));
+        }
+    }
+    
+    @DeleteMapping("/watch/{address}")
+    public ResponseEntity<?> unwatchContract(
+            @PathVariable String address,
+            @RequestHeader(value = "X-API-Key", required = false) String apiKey) {
+        Optional<ApiCustomerRepository.ApiCustomer> customer = apiCustomerRepository.findCustomer(apiKey);
+        if (customer.isEmpty()) {
+            return watchUnauthorized();
+        }
+        if (!watchService.unwatch(customer.get().id(), address)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("success", true, "contractAddress", address.toLowerCase()));
+    }
+    
+    @GetMapping("/watch")
+    public ResponseEntity<?> getWatchedContracts(@RequestHeader(value = "X-API-Key", required = false) String apiKey) {
+        Optional<ApiCustomerRepository.ApiCustomer> customer = apiCustomerRepository.findCustomer(apiKey);
+        if (customer.isEmpty()) {
+            return watchUnauthorized();
+        }
+        return ResponseEntity.ok(watchService.getWatches(customer.get().id()));
+    }
+    
+    /**
+     * Server-sent "contract-change" events for the caller's watched contracts, optionally for one address
+     */
+    @GetMapping(value = "/watch/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamContractChanges(
+            @RequestParam(required = false) String address,
+            @RequestHeader(value = "X-API-Key", required = false) String apiKey) {
+        Optional<ApiCustomerRepository.ApiCustomer> customer = apiCustomerRepository.findCustomer(apiKey);
+        if (customer.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        SseEmitter emitter = watchService.subscribe(customer.get().id(), address);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+    
+    private static ResponseEntity<Map<String, Object>> watchUnauthorized() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+            .body(Map.of("success", false, "error", "A valid X-API-Key is required for watch lists"));
+    }
+    
     @GetMapping("/test")
     public ResponseEntity<String> test() {
         return ResponseEntity.ok("Contract Scanner API is running!");
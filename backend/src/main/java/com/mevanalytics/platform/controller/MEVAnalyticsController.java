@@ -1,18 +1,32 @@
 package com.mevanalytics.platform.controller;
 
+import com.mevanalytics.platform.dto.MEVEventPage;
+import com.mevanalytics.platform.dto.MEVEventQuery;
+import com.mevanalytics.platform.service.ColumnarAnalyticsService;
+import com.mevanalytics.platform.service.DetectionStreamService;
 import com.mevanalytics.platform.service.EthereumService;
+import com.mevanalytics.platform.service.GasPriceStatsService;
 import com.mevanalytics.platform.service.MEVDetectionService;
+import com.mevanalytics.platform.service.MEVEventService;
+import com.mevanalytics.platform.service.MEVExportService;
+import com.mevanalytics.platform.repository.ApiCustomerRepository;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -25,6 +39,24 @@ public class MEVAnalyticsController {
     @Autowired
     private MEVDetectionService mevDetectionService;
     
+    @Autowired
+    private DetectionStreamService detectionStreamService;
+    
+    @Autowired
+    private MEVEventService mevEventService;
+    
+    @Autowired
+    private ColumnarAnalyticsService columnarAnalyticsService;
+    
+    @Autowired
+    private MEVExportService mevExportService;
+    
+    @Autowired
+    private ApiCustomerRepository apiCustomerRepository;
+    
+    @Autowired
+    private GasPriceStatsService gasPriceStatsService;
+    
     @GetMapping("/analytics/dashboard")
     public ResponseEntity<Map<String, Object>> getDashboardData(
             @RequestHeader(value = "X-API-Key", required = false) String apiKey) {
@@ -44,11 +76,8 @@ public class MEVAnalyticsController {
             dashboard.put("arbitrageOps", arbitrageOps);
             dashboard.put("lastProcessedBlock", lastBlock.toString());
             
-            // Get current gas price
-            ethereumService.getGasPrice().thenAccept(gasPrice -> {
-                BigDecimal gasPriceGwei = new BigDecimal(gasPrice).divide(BigDecimal.valueOf(1_000_000_000));
-                dashboard.put("avgGasPrice", gasPriceGwei.doubleValue());
-            });
+            // Current gas price from the cached chain head
+            dashboard.put("avgGasPrice", ethereumService.getChainHead().gasPriceGwei());
             
             // For now, use sample daily data (this would come from database in production)
             List<Map<String, Object>> dailyData = Arrays.asList(
@@ -88,15 +117,16 @@ public class MEVAnalyticsController {
             dashboard.put("topExtractors", topExtractors);
             
             // Blockchain status
-            dashboard.put("blockchainConnected", ethereumService.isConnected());
-            dashboard.put("connectionStatus", ethereumService.getConnectionStatus());
+            EthereumService.ChainHead head = ethereumService.getChainHead();
+            dashboard.put("blockchainConnected", head.connected());
+            dashboard.put("connectionStatus", head.connectionStatus());
             dashboard.put("rpcProvider", ethereumService.getRpcUrl());
             
             // API metadata
             dashboard.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
             dashboard.put("version", "1.0.0");
             dashboard.put("status", "active");
-            dashboard.put("dataSource", ethereumService.isConnected() ? "live-blockchain" : "demo");
+            dashboard.put("dataSource", head.connected() ? "live-blockchain" : "demo");
             
             return ResponseEntity.ok(dashboard);
             
@@ -110,29 +140,31 @@ public class MEVAnalyticsController {
     
     @GetMapping("/blockchain/status")
     public ResponseEntity<Map<String, Object>> getBlockchainStatus() {
+        // Served entirely from the chain head snapshot - no RPC on the request thread
+        EthereumService.ChainHead head = ethereumService.getChainHead();
         Map<String, Object> status = new HashMap<>();
         
-        status.put("connected", ethereumService.isConnected());
-        status.put("connectionStatus", ethereumService.getConnectionStatus());
+        status.put("connected", head.connected());
+        status.put("connectionStatus", head.connectionStatus());
         status.put("rpcProvider", ethereumService.getRpcUrl());
+        status.put("updatedAt", head.updatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
         
-        if (ethereumService.isConnected()) {
-            // Get latest block asynchronously
-            CompletableFuture<BigInteger> latestBlock = ethereumService.getLatestBlockNumber();
-            CompletableFuture<BigInteger> gasPrice = ethereumService.getGasPrice();
-            
-            try {
-                status.put("latestBlock", latestBlock.get().toString());
-                status.put("gasPriceWei", gasPrice.get().toString());
-                status.put("gasPriceGwei", new BigDecimal(gasPrice.get()).divide(BigDecimal.valueOf(1_000_000_000)).doubleValue());
-            } catch (Exception e) {
-                status.put("error", "Failed to fetch blockchain data: " + e.getMessage());
-            }
+        if (head.blockNumber().signum() > 0) {
+            status.put("latestBlock", head.blockNumber().toString());
+            status.put("baseFeeWei", head.baseFeePerGas().toString());
+            status.put("baseFeeGwei", head.baseFeeGwei());
+            status.put("gasPriceWei", head.gasPrice().toString());
+            status.put("gasPriceGwei", head.gasPriceGwei());
         }
         
         return ResponseEntity.ok(status);
     }
     
+    @GetMapping("/gas/stats")
+    public ResponseEntity<Map<String, Object>> getGasStats() {
+        return ResponseEntity.ok(gasPriceStatsService.getGasStats());
+    }
+    
     @GetMapping("/mev/stats")
     public ResponseEntity<Map<String, Object>> getMEVStats() {
         Map<String, Object> stats = new HashMap<>();
@@ -146,6 +178,197 @@ public class MEVAnalyticsController {
         return ResponseEntity.ok(stats);
     }
     
+    /**
+     * Search individual detections, newest first, with cursor pagination
+     */
+    @GetMapping("/mev/events")
+    public ResponseEntity<?> searchEvents(
+            @RequestParam(required = false) Long fromBlock,
+            @RequestParam(required = false) Long toBlock,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "type", required = false) List<String> types,
+            @RequestParam(required = false) String searcher,
+            @RequestParam(required = false) String victim,
+            @RequestParam(required = false) String dex,
+            @RequestParam(required = false) String tokenPair,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        
+        MEVEventQuery query = MEVEventQuery.builder()
+            .fromBlock(fromBlock)
+            .toBlock(toBlock)
+            .fromTime(from)
+            .toTime(to)
+            .mevTypes(types == null ? null : types.stream().map(String::toUpperCase).toList())
+            .searcherAddress(searcher == null ? null : searcher.toLowerCase())
+            .victimAddress(victim == null ? null : victim.toLowerCase())
+            .dexName(dex)
+            .tokenPair(tokenPair)
+            .limit(limit)
+            .build();
+        
+        try {
+            MEVEventPage page = mevEventService.search(query, cursor);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("❌ Error searching MEV events: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to search MEV events", "message", e.getMessage()));
+        }
+    }
+    
+    /**
+     * Bulk export of historical detections (ENTERPRISE tier). Streams NDJSON or CSV
+     * straight from a database cursor; an interrupted export is resumed with
+     * "Range: blocks=<from>-<to>" starting after the last fully received block.
+     */
+    @GetMapping("/mev/events/export")
+    public void exportEvents(
+            @RequestHeader(value = "X-API-Key", required = false) String apiKey,
+            @RequestHeader(value = "Range", required = false) String range,
+            @RequestParam(required = false) Long fromBlock,
+            @RequestParam(required = false) Long toBlock,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+        
+        String tier = apiCustomerRepository.findSubscriptionTier(apiKey).orElse(null);
+        if (tier == null) {
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), "Valid X-API-Key required");
+            return;
+        }
+        if (!"ENTERPRISE".equals(tier)) {
+            response.sendError(HttpStatus.FORBIDDEN.value(), "Bulk export requires the ENTERPRISE tier");
+            return;
+        }
+        
+        MEVExportService.ExportFormat exportFormat;
+        try {
+            exportFormat = MEVExportService.ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "format must be ndjson or csv");
+            return;
+        }
+        
+        boolean partial = false;
+        if (range != null && range.startsWith("blocks=")) {
+            String[] bounds = range.substring("blocks=".length()).split("-", 2);
+            try {
+                if (!bounds[0].isBlank()) fromBlock = Long.parseLong(bounds[0].trim());
+                if (bounds.length > 1 && !bounds[1].isBlank()) toBlock = Long.parseLong(bounds[1].trim());
+                partial = true;
+            } catch (NumberFormatException e) {
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), "Invalid block range");
+                return;
+            }
+        }
+        
+        // Pin an open-ended export to the current tip so a resumed export sees the same range
+        long from = fromBlock != null ? fromBlock : 0;
+        long to = toBlock != null ? toBlock : mevExportService.getLatestStoredBlock();
+        if (from > to) {
+            response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), "Empty block range");
+            return;
+        }
+        
+        String extension = exportFormat == MEVExportService.ExportFormat.CSV ? "csv" : "ndjson";
+        response.setStatus(partial ? HttpStatus.PARTIAL_CONTENT.value() : HttpStatus.OK.value());
+        response.setContentType(exportFormat == MEVExportService.ExportFormat.CSV ? "text/csv" : "application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Accept-Ranges", "blocks");
+        response.setHeader("Content-Range", "blocks " + from + "-" + to);
+        response.setHeader("Content-Disposition",
+            "attachment; filename=\"mev-events-" + from + "-" + to + "." + extension + (gzip ? ".gz" : "") + "\"");
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+        
+        long rows = mevExportService.export(from, to, exportFormat, gzip, response.getOutputStream());
+        System.out.println("📦 Exported " + rows + " MEV events (blocks " + from + "-" + to + ", " + extension + ")");
+    }
+    
+    /**
+     * Ad-hoc group-by over the in-memory columnar store, e.g. groupBy=dex,hour
+     */
+    @GetMapping("/mev/analytics/aggregate")
+    public ResponseEntity<Map<String, Object>> aggregateDetections(
+            @RequestParam(value = "groupBy", required = false) List<String> groupBy,
+            @RequestParam(required = false) Long fromBlock,
+            @RequestParam(required = false) Long toBlock,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "30") int days,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String dex,
+            @RequestParam(required = false) String searcher,
+            @RequestParam(required = false) String tokenPair,
+            @RequestParam(defaultValue = "100") int limit) {
+        
+        try {
+            ColumnarAnalyticsService.AggregationQuery query = new ColumnarAnalyticsService.AggregationQuery();
+            if (groupBy != null) {
+                query.groupBy = groupBy.stream()
+                    .map(d -> ColumnarAnalyticsService.Dimension.valueOf(d.toUpperCase().replace('-', '_')))
+                    .toList();
+            }
+            LocalDateTime fromTime = from != null ? from : LocalDateTime.now(ZoneOffset.UTC).minusDays(days);
+            query.fromTime = fromTime.toEpochSecond(ZoneOffset.UTC);
+            query.toTime = to != null ? to.toEpochSecond(ZoneOffset.UTC) : null;
+            query.fromBlock = fromBlock;
+            query.toBlock = toBlock;
+            query.mevType = type;
+            query.dexName = dex;
+            query.searcherAddress = searcher;
+            query.tokenPair = tokenPair;
+            query.limit = Math.max(1, Math.min(limit, 10_000));
+            
+            return ResponseEntity.ok(columnarAnalyticsService.aggregate(query));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/mev/analytics/store")
+    public ResponseEntity<Map<String, Object>> getAnalyticsStoreStats() {
+        return ResponseEntity.ok(columnarAnalyticsService.getStoreStats());
+    }
+    
+    /**
+     * Live detection stream (Server-Sent Events) with server-side filters
+     */
+    @GetMapping(value = "/mev/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDetections(
+            @RequestParam(value = "type", required = false) List<String> types,
+            @RequestParam(value = "dex", required = false) List<String> dexes,
+            @RequestParam(value = "minProfit", required = false) BigDecimal minProfit,
+            @RequestParam(value = "searcher", required = false) String searcher,
+            @RequestParam(value = "overflow", defaultValue = "DROP_OLDEST") DetectionStreamService.OverflowPolicy overflow) {
+        
+        DetectionStreamService.StreamFilter filter = new DetectionStreamService.StreamFilter();
+        if (types != null) {
+            filter.mevTypes = types.stream().map(String::toUpperCase).collect(Collectors.toSet());
+        }
+        if (dexes != null) {
+            filter.dexNames = dexes.stream().map(String::toLowerCase).collect(Collectors.toSet());
+        }
+        filter.minProfitUsd = minProfit;
+        filter.searcherAddress = searcher;
+        
+        SseEmitter emitter = detectionStreamService.subscribe(filter, overflow);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+    
+    @GetMapping("/mev/stream/stats")
+    public ResponseEntity<Map<String, Object>> getStreamStats() {
+        return ResponseEntity.ok(detectionStreamService.getStreamStats());
+    }
+    
     @GetMapping("/health")
     public ResponseEntity<Map<String, Object>> health() {
         Map<String, Object> health = new HashMap<>();
@@ -153,7 +376,11 @@ public class MEVAnalyticsController {
         health.put("service", "MEV Analytics Platform");
         health.put("version", "1.0.0");
         health.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-        health.put("blockchain", ethereumService.isConnected() ? "Connected" : "Disconnected");
+        EthereumService.ChainHead head = ethereumService.getChainHead();
+        health.put("blockchain", head.connected() ? "Connected" : "Disconnected");
+        health.put("latestBlock", head.blockNumber().toString());
+        health.put("headUpdatedAt", head.updatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        health.put("mempoolSubscription", ethereumService.getMempoolSubscription());
         health.put("mevDetection", "Active");
         health.put("environment", "development");
         
@@ -177,32 +404,31 @@ public class MEVAnalyticsController {
     public ResponseEntity<Map<String, Object>> simulateThreat(@PathVariable String contractAddress) {
         Map<String, Object> threat = Map.of(
             "type", "SANDWICH_ATTACK",
-	    "contractAddress", contractAddress,
-	    "threatLevel", "HIGH",
-	    "description", "Simulated sandwich attack detected",
-	    "estimatedLoss", "1,250",
-	    "gasPrice", "45 gwei",
-	    "timestamp", "LocalDateTime.now().toString()
-	);
-	return ReponseEntity.ok(threat);
+            "contractAddress", contractAddress,
+            "threatLevel", "HIGH",
+            "description", "Simulated sandwich attack detected",
+            "estimatedLoss", "1,250",
+            "gasPrice", "45 gwei",
+            "timestamp", LocalDateTime.now().toString()
+        );
+        return ResponseEntity.ok(threat);
     }
 
     @PostMapping("/protection/enable")
-    public ResponsibleEntity<Map<SString, Object>> enableProtectionEndpoint(@RequestBody Map<String, String> request) {
-	String contractAddress = request.get("contractAddress");
-
-	if(contractAddress == null || contractAddress.isEmpty()) {
-	    return ResponseEntity.badRequest().body(Map.of("error", "Contract address required"));
-	}
+    public ResponseEntity<Map<String, Object>> enableProtectionEndpoint(@RequestBody Map<String, String> request) {
+        String contractAddress = request.get("contractAddress");
 
-	Map<String, Object> response = Map.of(
-	    "success", true,
-	    "message", "Protection enabled for " + contractAddress,
-	    "websocketUrl", "ws://localhost:8080/ws/protection/" + contractAddress,
-	    "status", "monitoring"
-	);
+        if (contractAddress == null || contractAddress.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Contract address required"));
+        }
 
-	return ResponseEntity.ok(response);
+        Map<String, Object> response = Map.of(
+            "success", true,
+            "message", "Protection enabled for " + contractAddress,
+            "websocketUrl", "ws://localhost:8080/ws/protection/" + contractAddress,
+            "status", "monitoring"
+        );
 
+        return ResponseEntity.ok(response);
     }
 }
@@ -1,11 +1,20 @@
 package com.mevanalytics.platform.controller;
 
+import com.mevanalytics.platform.dto.PreflightRequest;
+import com.mevanalytics.platform.dto.ProtectionRuleSet;
+import com.mevanalytics.platform.repository.ApiCustomerRepository;
+import com.mevanalytics.platform.service.AlertJournal;
+import com.mevanalytics.platform.service.MempoolMonitorService;
+import com.mevanalytics.platform.service.PreflightSimulationService;
 import com.mevanalytics.platform.service.RealTimeProtectionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/protection")
@@ -15,22 +24,49 @@ public class ProtectionController {
     @Autowired
     private RealTimeProtectionService protectionService;
     
+    @Autowired
+    private MempoolMonitorService mempoolMonitorService;
+    
+    @Autowired
+    private PreflightSimulationService preflightSimulationService;
+    
+    @Autowired
+    private ApiCustomerRepository apiCustomerRepository;
+    
+    /**
+     * Subscribe the caller to a contract's protection; the first subscriber owns its rules
+     */
     @PostMapping("/enable/{contractAddress}")
-    public ResponseEntity<Map<String, Object>> enableProtection(@PathVariable String contractAddress) {
+    public ResponseEntity<Map<String, Object>> enableProtection(
+            @PathVariable String contractAddress,
+            @RequestHeader(value = "X-API-Key", required = false) String apiKey) {
+        ResponseEntity<Map<String, Object>> invalid = invalidAddress(contractAddress);
+        if (invalid != null) return invalid;
+        Optional<ApiCustomerRepository.ApiCustomer> customer = apiCustomerRepository.findCustomer(apiKey);
+        if (customer.isEmpty()) {
+            return protectionUnauthorized();
+        }
         try {
-            // For HTTP requests, we can't maintain WebSocket connection
-            // So we'll enable protection and provide WebSocket connection info
+            // Protection is persisted and evaluated from now on; alerts raised while no
+            // client is connected are journaled and replayed with ?lastAlertId=
+            RealTimeProtectionService.Access access = protectionService.enableProtection(contractAddress, customer.get().id());
             
             Map<String, Object> response = Map.of(
                 "success", true,
                 "message", "Protection monitoring enabled for " + contractAddress,
                 "contractAddress", contractAddress,
-                "websocketUrl", "ws://localhost:8080/ws/protection/" + contractAddress,
-                "instructions", "Connect to WebSocket URL for real-time alerts"
+                "owner", access == RealTimeProtectionService.Access.OWNER,
+                "websocketUrl", "ws://localhost:8080/ws/protection/" + contractAddress + "?lastAlertId=0",
+                "instructions", "Connect to WebSocket URL for real-time alerts; reconnect with the last alertId received"
             );
             
             return ResponseEntity.ok(response);
             
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "success", false,
+                "error", e.getMessage()
+            ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                 "success", false,
@@ -39,15 +75,142 @@ public class ProtectionController {
         }
     }
     
+    /**
+     * Drop the caller's subscription; protection ends when its last subscriber leaves
+     */
+    @DeleteMapping("/{contractAddress}")
+    public ResponseEntity<Map<String, Object>> removeProtection(
+            @PathVariable String contractAddress,
+            @RequestHeader(value = "X-API-Key", required = false) String apiKey) {
+        ResponseEntity<Map<String, Object>> invalid = invalidAddress(contractAddress);
+        if (invalid != null) return invalid;
+        Optional<ApiCustomerRepository.ApiCustomer> customer = apiCustomerRepository.findCustomer(apiKey);
+        if (customer.isEmpty()) {
+            return protectionUnauthorized();
+        }
+        try {
+            RealTimeProtectionService.Access access = protectionService.getAccess(contractAddress, customer.get().id());
+            if (access == RealTimeProtectionService.Access.UNPROTECTED) {
+                return ResponseEntity.notFound().build();
+            }
+            if (access == RealTimeProtectionService.Access.NONE
+                    || !protectionService.removeProtection(contractAddress, customer.get().id())) {
+                return protectionForbidden("Only subscribers of this contract's protection can remove it");
+            }
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "contractAddress", contractAddress.toLowerCase()
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "error", e.getMessage()
+            ));
+        }
+    }
+    
+    /**
+     * Replace a contract's rules and alert flags; they apply to every subscriber, so only the owner may
+     */
+    @PutMapping("/{contractAddress}/rules")
+    public ResponseEntity<Map<String, Object>> updateRules(
+            @PathVariable String contractAddress,
+            @RequestBody ProtectionRuleSet ruleSet,
+            @RequestHeader(value = "X-API-Key", required = false) String apiKey) {
+        ResponseEntity<Map<String, Object>> invalid = invalidAddress(contractAddress);
+        if (invalid != null) return invalid;
+        Optional<ApiCustomerRepository.ApiCustomer> customer = apiCustomerRepository.findCustomer(apiKey);
+        if (customer.isEmpty()) {
+            return protectionUnauthorized();
+        }
+        try {
+            RealTimeProtectionService.Access access = protectionService.getAccess(contractAddress, customer.get().id());
+            if (access == RealTimeProtectionService.Access.UNPROTECTED) {
+                return ResponseEntity.notFound().build();
+            }
+            if (access != RealTimeProtectionService.Access.OWNER) {
+                return protectionForbidden("Only the owner of this contract's protection can change its rules");
+            }
+            return ResponseEntity.ok(protectionService.updateRules(contractAddress, ruleSet));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "error", String.valueOf(e.getMessage())
+            ));
+        }
+    }
+    
+    @GetMapping("/{contractAddress}/rules")
+    public ResponseEntity<Map<String, Object>> getRules(@PathVariable String contractAddress) {
+        ResponseEntity<Map<String, Object>> invalid = invalidAddress(contractAddress);
+        if (invalid != null) return invalid;
+        return protectionService.getRules(contractAddress)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+    
     @GetMapping("/status/{contractAddress}")
     public ResponseEntity<Map<String, Object>> getProtectionStatus(@PathVariable String contractAddress) {
+        ResponseEntity<Map<String, Object>> invalid = invalidAddress(contractAddress);
+        if (invalid != null) return invalid;
         Map<String, Object> status = protectionService.getProtectionStatus(contractAddress);
         return ResponseEntity.ok(status);
     }
     
+    /**
+     * 400 unless the path holds a 0x-prefixed 20-byte hex address; it names journal files downstream
+     */
+    private static ResponseEntity<Map<String, Object>> invalidAddress(String contractAddress) {
+        if (AlertJournal.isValidAddress(contractAddress.toLowerCase())) return null;
+        return ResponseEntity.badRequest().body(Map.of(
+            "success", false,
+            "error", "Invalid Ethereum address format"
+        ));
+    }
+    
+    private static ResponseEntity<Map<String, Object>> protectionUnauthorized() {
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+            .body(Map.of("success", false, "error", "A valid X-API-Key is required to manage protection"));
+    }
+    
+    private static ResponseEntity<Map<String, Object>> protectionForbidden(String error) {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("success", false, "error", error));
+    }
+    
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getProtectionStats() {
         Map<String, Object> stats = protectionService.getProtectionStats();
         return ResponseEntity.ok(stats);
     }
+    
+    /**
+     * Simulate an unsigned swap against current pool state and the pending mempool
+     */
+    @PostMapping("/preflight")
+    public ResponseEntity<?> preflight(@Valid @RequestBody PreflightRequest request) {
+        try {
+            return ResponseEntity.ok(preflightSimulationService.simulate(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "error", e.getMessage()
+            ));
+        } catch (IllegalStateException e) {
+            // Head or pool state not loaded; the request itself was fine
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of(
+                "success", false,
+                "error", e.getMessage()
+            ));
+        }
+    }
+    
+    @GetMapping("/preflight/stats")
+    public ResponseEntity<Map<String, Object>> getPreflightStats() {
+        return ResponseEntity.ok(preflightSimulationService.getStats());
+    }
+    
+    @GetMapping("/mempool/stats")
+    public ResponseEntity<Map<String, Object>> getMempoolStats() {
+        return ResponseEntity.ok(mempoolMonitorService.getStats());
+    }
 }
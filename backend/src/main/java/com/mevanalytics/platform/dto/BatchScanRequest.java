@@ -0,0 +1,19 @@
+package com.mevanalytics.platform.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchScanRequest {
+    
+    @NotEmpty(message = "At least one contract address is required")
+    private List<String> contractAddresses;
+    private Boolean includeGasAnalysis;
+    private Boolean includeMempoolAnalysis = false;
+}
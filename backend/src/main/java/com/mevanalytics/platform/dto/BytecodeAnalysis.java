@@ -0,0 +1,33 @@
+package com.mevanalytics.platform.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The part of a scan that depends only on the deployed bytecode, shared by every
+ * contract with the same code hash
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BytecodeAnalysis {
+    
+    private String codeHash;
+    private Integer codeSize;
+    private Integer analyzerVersion;
+    private List<ScanResult.VulnerabilityDetail> vulnerabilities;
+    private Integer riskScore;
+    private String riskLevel;
+    private ScanResult.GasAnalysisResult gasAnalysis;
+    private ScanResult.ProtectionRecommendations protectionRecommendations;
+    private List<ScanResult.FunctionSummary> functions;
+    private String proxyKind; // EIP1167, EIP1967, EIP1822 or BEACON if the code forwards to another contract
+    private String proxyImplementation; // set when the implementation address is in the code itself
+    private LocalDateTime analyzedAt;
+}
@@ -0,0 +1,40 @@
+package com.mevanalytics.platform.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * What changed when a watched contract was rescanned after its code or proxy
+ * implementation moved
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContractChange {
+    
+    private String contractAddress;
+    private String reason; // UPGRADED, BEACON_UPGRADED, CODE_CHANGED, IMPLEMENTATION_CHANGED, BASELINE_FAILED
+    private Long blockNumber;
+    
+    private Long previousScanId;
+    private Long scanId;
+    private String previousCodeHash;
+    private String codeHash;
+    private String previousImplementation;
+    private String implementation;
+    private String previousRiskLevel;
+    private String riskLevel;
+    private Integer previousRiskScore;
+    private Integer riskScore;
+    
+    private List<ScanResult.VulnerabilityDetail> addedVulnerabilities;
+    private List<ScanResult.VulnerabilityDetail> removedVulnerabilities;
+    private String error; // set when the rescan failed
+    private LocalDateTime detectedAt;
+}
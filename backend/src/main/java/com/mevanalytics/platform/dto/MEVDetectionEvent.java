@@ -0,0 +1,35 @@
+package com.mevanalytics.platform.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MEVDetectionEvent {
+    
+    private Long id;
+    private String transactionHash;
+    private Long blockNumber;
+    private LocalDateTime blockTimestamp;
+    private String mevType; // ARBITRAGE, SANDWICH, LIQUIDATION, FRONTRUN, BACKRUN
+    
+    private String searcherAddress;
+    private String toAddress;
+    private String victimAddress;
+    private String victimTransactionHash;
+    private String backrunTransactionHash;
+    
+    private String dexName;
+    private String tokenPair;
+    private BigDecimal extractedValueUsd;
+    private Long gasPrice;
+    
+    private LocalDateTime detectedAt;
+}
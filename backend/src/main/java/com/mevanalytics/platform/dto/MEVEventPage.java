@@ -0,0 +1,19 @@
+package com.mevanalytics.platform.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MEVEventPage {
+    
+    private List<MEVDetectionEvent> events;
+    private String nextCursor;
+    private Boolean hasMore;
+}
@@ -0,0 +1,31 @@
+package com.mevanalytics.platform.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MEVEventQuery {
+    
+    private Long fromBlock;
+    private Long toBlock;
+    private LocalDateTime fromTime;
+    private LocalDateTime toTime;
+    private List<String> mevTypes;
+    private String searcherAddress;
+    private String victimAddress;
+    private String dexName;
+    private String tokenPair;
+    
+    // Keyset position: return rows strictly after (cursorBlock, cursorId) in descending order
+    private Long cursorBlock;
+    private Long cursorId;
+    private int limit;
+}
@@ -0,0 +1,32 @@
+package com.mevanalytics.platform.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+
+/**
+ * An unsigned transaction to simulate. Quantities are decimal or 0x-prefixed hex.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PreflightRequest {
+    
+    private String from;
+    
+    @NotBlank(message = "Router address is required")
+    @Pattern(regexp = "^0x[a-fA-F0-9]{40}$", message = "Invalid Ethereum address format")
+    private String to;
+    
+    @NotBlank(message = "Calldata is required")
+    private String data;
+    
+    private String value;
+    private String gasPrice;
+    private String maxFeePerGas;
+    private String maxPriorityFeePerGas;
+}
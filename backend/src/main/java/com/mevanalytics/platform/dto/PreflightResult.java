@@ -0,0 +1,45 @@
+package com.mevanalytics.platform.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Sandwich exposure of a simulated swap. Amounts are raw token units of the path's
+ * output token unless noted otherwise.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PreflightResult {
+    
+    private String router;
+    private String function;
+    private List<String> path;
+    private List<String> pairs;
+    private BigInteger amountIn;
+    private BigInteger amountOutMin;
+    private BigInteger expectedAmountOut;
+    private int slippageToleranceBps;
+    private int pendingSwapsAhead;
+    
+    // Most profitable sandwich the submitted slippage allows
+    private boolean sandwichProfitable;
+    private String exposedPair;
+    private BigInteger frontRunAmountIn; // in the exposed pair's input token
+    private BigInteger attackerProfit;   // in the exposed pair's input token
+    private BigInteger worstCaseLoss;
+    private int worstCaseLossBps;
+    
+    private int safeSlippageBps;
+    private BigInteger safeAmountOutMin;
+    private String route; // PRIVATE or PUBLIC
+    private String reason;
+    private long reservesBlock;
+    private long simulationMicros;
+}
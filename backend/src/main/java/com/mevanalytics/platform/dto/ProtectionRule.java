@@ -0,0 +1,29 @@
+package com.mevanalytics.platform.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One protection rule. Every condition that is set must match (empty lists match anything).
+ * SUPPRESS rules drop matching alerts; once a contract has ALERT rules for an alert
+ * type, only alerts matching one of them are sent.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProtectionRule {
+    
+    private String id;
+    private String action; // ALERT (default) or SUPPRESS
+    private List<String> alertTypes; // SANDWICH_ATTACK, FRONTRUN_ATTEMPT, UNUSUAL_GAS
+    private List<String> selectors; // 4-byte function selectors, e.g. 0x38ed1739
+    private List<String> searchers; // searcher / sender addresses
+    private BigDecimal minValueAtRiskUsd;
+    private String level; // optional severity override for ALERT rules
+}
@@ -0,0 +1,23 @@
+package com.mevanalytics.platform.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Rules and alert flags submitted for a contract. Null fields keep their current value.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProtectionRuleSet {
+    
+    private Boolean alertOnSandwich;
+    private Boolean alertOnFrontrun;
+    private Boolean alertOnUnusualGas;
+    private List<ProtectionRule> rules;
+}
@@ -18,7 +18,10 @@ public class ScanResult {
     private Long scanId;
     private String contractAddress;
     private String contractName;
+    private String codeHash; // of the analyzed code: the implementation when a proxy was resolved
+    private String analysisSource; // MEMORY, DATABASE or COMPUTED
     private String status; // PENDING, RUNNING, COMPLETED, FAILED
+    private String error;
     private String riskLevel; // LOW, MEDIUM, HIGH, CRITICAL
     private Integer riskScore;
     
@@ -26,11 +29,14 @@ public class ScanResult {
     private GasAnalysisResult gasAnalysis;
     private MempoolAnalysisResult mempoolAnalysis;
     private ProtectionRecommendations protectionRecommendations;
+    private List<FunctionSummary> functions;
+    private ProxyInfo proxy;
     
     private BigDecimal mlConfidenceScore;
     private Integer scanDurationMs;
     private Integer attackCountLast30d;
     
+    private LocalDateTime queuedAt;
     private LocalDateTime startedAt;
     private LocalDateTime completedAt;
     
@@ -62,6 +68,31 @@ public class ScanResult {
         private String recommendedFix;
     }
     
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProxyInfo {
+        private String kind; // EIP1167, EIP1967, EIP1822, BEACON
+        private String proxyCodeHash;
+        private String implementationAddress;
+        private String beaconAddress;
+        private Boolean resolved; // false if the findings are for the proxy itself
+    }
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FunctionSummary {
+        private String selector;
+        private Integer entryPc;
+        private Integer externalCalls;
+        private Boolean stateWriteAfterCall;
+        private Boolean uncheckedCallResult;
+        private Boolean complete; // false if the flow budget ran out
+    }
+    
     @Data
     @Builder
     @NoArgsConstructor
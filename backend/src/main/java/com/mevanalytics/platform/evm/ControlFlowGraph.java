@@ -0,0 +1,114 @@
+package com.mevanalytics.platform.evm;
+
+import java.util.*;
+
+/**
+ * Basic blocks of a disassembly. A block starts at pc 0, at every JUMPDEST and after
+ * every jump or halting instruction. Jump targets are not stored here: most EVM jumps
+ * take their target from the stack, so FlowAnalysis resolves them while it tracks
+ * pushed jump destinations.
+ */
+public final class ControlFlowGraph {
+    
+    private final Disassembly code;
+    private final int[] blockStart;
+    private final int[] blockEnd;
+    private final int[] blockOfInstruction;
+    private final Map<Integer, Integer> functionEntries;
+    
+    private ControlFlowGraph(Disassembly code) {
+        this.code = code;
+        int n = code.size();
+        this.blockOfInstruction = new int[n];
+        
+        int[] starts = new int[n + 1];
+        int blocks = 0;
+        for (int i = 0; i < n; i++) {
+            boolean leader = i == 0 || code.opcode(i) == Opcodes.JUMPDEST;
+            if (i > 0) {
+                int previous = code.opcode(i - 1);
+                leader |= previous == Opcodes.JUMPI || Opcodes.isTerminator(previous);
+            }
+            if (leader) starts[blocks++] = i;
+            blockOfInstruction[i] = blocks - 1;
+        }
+        this.blockStart = Arrays.copyOf(starts, blocks);
+        this.blockEnd = new int[blocks];
+        for (int b = 0; b < blocks; b++) {
+            blockEnd[b] = b + 1 < blocks ? blockStart[b + 1] : n;
+        }
+        this.functionEntries = findFunctionEntries();
+    }
+    
+    public static ControlFlowGraph build(Disassembly code) {
+        return new ControlFlowGraph(code);
+    }
+    
+    /**
+     * Selector dispatch of the form [DUPn] PUSH4 selector [DUPn] EQ PUSHn dest JUMPI
+     */
+    private Map<Integer, Integer> findFunctionEntries() {
+        Map<Integer, Integer> entries = new LinkedHashMap<>();
+        for (int i = 0; i + 4 < code.size(); i++) {
+            if (code.opcode(i) != Opcodes.PUSH4) continue;
+            int j = i + 1;
+            if (isDup(code.opcode(j))) j++;
+            if (j + 2 >= code.size() || code.opcode(j) != Opcodes.EQ) continue;
+            int push = code.opcode(j + 1);
+            if (push < Opcodes.PUSH1 || push > Opcodes.PUSH1 + 2 || code.opcode(j + 2) != Opcodes.JUMPI) continue;
+            int dest = (int) code.pushLong(j + 1);
+            if (code.isJumpDest(dest)) entries.putIfAbsent((int) code.pushLong(i), dest);
+        }
+        return entries;
+    }
+    
+    private static boolean isDup(int opcode) {
+        return opcode >= Opcodes.DUP1 && opcode <= Opcodes.DUP16;
+    }
+    
+    public Disassembly getCode() {
+        return code;
+    }
+    
+    public int blockCount() {
+        return blockStart.length;
+    }
+    
+    /**
+     * First instruction index of a block
+     */
+    public int start(int block) {
+        return blockStart[block];
+    }
+    
+    /**
+     * Instruction index one past the block's last instruction
+     */
+    public int end(int block) {
+        return blockEnd[block];
+    }
+    
+    /**
+     * Block beginning at a valid jump destination, or -1 if the pc is not one
+     */
+    public int blockAt(int pc) {
+        if (pc < 0 || !code.isJumpDest(pc)) return -1;
+        return blockOfInstruction[code.indexOf(pc)];
+    }
+    
+    /**
+     * The block execution falls into after this one, or -1 if it always jumps or halts
+     */
+    public int fallthrough(int block) {
+        if (block + 1 >= blockStart.length) return -1;
+        int last = code.opcode(blockEnd[block] - 1);
+        return Opcodes.isTerminator(last) ? -1 : block + 1;
+    }
+    
+    /**
+     * Function selectors and the pc their dispatch jumps to, in dispatcher order
+     */
+    public Map<Integer, Integer> getFunctionEntries() {
+        return functionEntries;
+    }
+}
@@ -0,0 +1,170 @@
+package com.mevanalytics.platform.evm;
+
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.BitSet;
+
+/**
+ * Runtime bytecode decoded in one linear pass into an instruction stream.
+ *
+ * Instructions are kept as parallel primitive arrays (program counter and opcode per
+ * instruction) so detectors walk them without allocating. PUSH immediates are skipped,
+ * never decoded as opcodes, and are read back on demand from the code. Valid jump
+ * destinations are JUMPDEST bytes that begin an instruction, as the EVM defines them.
+ * A trailing Solidity CBOR metadata section is excluded from the stream.
+ */
+public final class Disassembly {
+    
+    private final byte[] code;
+    private final int codeLength;
+    private final int[] pcs;
+    private final byte[] opcodes;
+    private final int count;
+    private final BitSet jumpDests;
+    private final int[] histogram = new int[256];
+    
+    private Disassembly(byte[] code) {
+        this.code = code;
+        this.codeLength = code.length - metadataLength(code);
+        
+        int[] pcs = new int[Math.max(16, codeLength)];
+        byte[] ops = new byte[pcs.length];
+        BitSet jumpDests = new BitSet(codeLength);
+        int n = 0;
+        for (int pc = 0; pc < codeLength; ) {
+            int op = code[pc] & 0xff;
+            pcs[n] = pc;
+            ops[n] = (byte) op;
+            n++;
+            histogram[op]++;
+            if (op == Opcodes.JUMPDEST) jumpDests.set(pc);
+            pc += 1 + Opcodes.immediateSize(op);
+        }
+        this.pcs = pcs;
+        this.opcodes = ops;
+        this.count = n;
+        this.jumpDests = jumpDests;
+    }
+    
+    public static Disassembly of(byte[] code) {
+        return new Disassembly(code);
+    }
+    
+    public static Disassembly ofHex(String hex) {
+        return new Disassembly(Numeric.hexStringToByteArray(hex == null ? "" : hex));
+    }
+    
+    /**
+     * Length of the Solidity metadata trailer: a CBOR map followed by its 2-byte length
+     */
+    static int metadataLength(byte[] code) {
+        if (code.length < 2) return 0;
+        int length = ((code[code.length - 2] & 0xff) << 8) | (code[code.length - 1] & 0xff);
+        int start = code.length - 2 - length;
+        if (length == 0 || start < 0) return 0;
+        int first = code[start] & 0xff;
+        return first >= 0xa1 && first <= 0xa5 ? length + 2 : 0;
+    }
+    
+    /**
+     * Number of instructions
+     */
+    public int size() {
+        return count;
+    }
+    
+    public int opcode(int index) {
+        return opcodes[index] & 0xff;
+    }
+    
+    public int pc(int index) {
+        return pcs[index];
+    }
+    
+    /**
+     * Instruction index at a program counter, or -1 if the pc is not an instruction start
+     */
+    public int indexOf(int pc) {
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (pcs[mid] < pc) lo = mid + 1;
+            else if (pcs[mid] > pc) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+    
+    public boolean isJumpDest(int pc) {
+        return jumpDests.get(pc);
+    }
+    
+    public int jumpDestCount() {
+        return jumpDests.cardinality();
+    }
+    
+    /**
+     * How often an opcode occurs in the instruction stream
+     */
+    public int count(int opcode) {
+        return histogram[opcode & 0xff];
+    }
+    
+    /**
+     * Immediate of a PUSH instruction; a PUSH truncated by the end of code is zero-padded
+     */
+    public BigInteger pushValue(int index) {
+        int size = Opcodes.immediateSize(opcode(index));
+        if (size == 0) return BigInteger.ZERO;
+        byte[] value = new byte[size];
+        int start = pcs[index] + 1;
+        System.arraycopy(code, start, value, 0, Math.max(0, Math.min(size, codeLength - start)));
+        return new BigInteger(1, value);
+    }
+    
+    /**
+     * Low 64 bits of a PUSH immediate, without allocating
+     */
+    public long pushLong(int index) {
+        int size = Opcodes.immediateSize(opcode(index));
+        int start = pcs[index] + 1;
+        long value = 0;
+        for (int i = Math.max(0, size - 8); i < size; i++) {
+            int b = start + i < codeLength ? code[start + i] & 0xff : 0;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+    
+    /**
+     * Code size in bytes, excluding the metadata trailer
+     */
+    public int codeLength() {
+        return codeLength;
+    }
+    
+    public int getMetadataLength() {
+        return code.length - codeLength;
+    }
+    
+    public byte[] getCode() {
+        return code;
+    }
+    
+    /**
+     * Human-readable listing, one instruction per line
+     */
+    public String toListing() {
+        StringBuilder listing = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            int op = opcode(i);
+            String name = Opcodes.name(op);
+            listing.append(String.format("%05x  %s", pcs[i], name != null ? name : String.format("INVALID(0x%02x)", op)));
+            if (Opcodes.immediateSize(op) > 0) listing.append(" 0x").append(pushValue(i).toString(16));
+            listing.append('\n');
+        }
+        return listing.toString();
+    }
+}
@@ -0,0 +1,339 @@
+package com.mevanalytics.platform.evm;
+
+import java.util.*;
+
+/**
+ * Worklist dataflow over a control-flow graph. Two questions are answered here: can a
+ * storage write follow an external call on some path, and is each call's success flag
+ * ever used.
+ *
+ * Each context is a block paired with an abstract stack. The stack holds small
+ * constants, which are the candidate jump targets, plus call results and unknowns.
+ * Because the context includes the stack, jump targets come from the stack itself. An
+ * internal function therefore returns only to the caller that pushed its return
+ * address, and paths through shared helpers never cross between functions. The facts
+ * carried per context:
+ * - whether a reentrancy-capable call may already have happened;
+ * - the constant storage slots read on every path before that call;
+ * - the slots among those set to a constant on every path before that call.
+ * A slot read and then set to a constant before the call is a reentrancy guard
+ * (nonReentrant's status flag). A call made while a guard is held cannot re-enter,
+ * so storage writes after it are not reported.
+ *
+ * Results are memoized per entry pc. A block-visit budget shared by every entry keeps
+ * the analysis bounded and deterministic. When the budget runs out, the result is
+ * marked incomplete.
+ */
+public final class FlowAnalysis {
+    
+    public record Reentrancy(int callPc, int sstorePc) {}
+    
+    public record Result(List<Reentrancy> reentrancy, List<Integer> uncheckedCalls, int externalCalls,
+                         int blocksVisited, int unresolvedJumps, boolean complete) {}
+    
+    private static final int UNKNOWN = -1;
+    private static final int MAX_STACK = 64;
+    private static final int MAX_CONTEXTS_PER_BLOCK = 32;
+    // Gas stipend of transfer()/send(): too little gas to re-enter
+    private static final long CALL_STIPEND = 0x08fc;
+    private static final int[] EMPTY = new int[0];
+    
+    private final ControlFlowGraph cfg;
+    private final Disassembly code;
+    private final int[] callOrdinal;
+    private final int[] callPcs;
+    private final Map<Integer, Result> memo = new HashMap<>();
+    private int remainingVisits;
+    
+    public FlowAnalysis(ControlFlowGraph cfg, int maxBlockVisits) {
+        this.cfg = cfg;
+        this.code = cfg.getCode();
+        this.remainingVisits = maxBlockVisits;
+        this.callOrdinal = new int[code.size()];
+        List<Integer> pcs = new ArrayList<>();
+        for (int i = 0; i < code.size(); i++) {
+            callOrdinal[i] = Opcodes.isExternalCall(code.opcode(i)) ? pcs.size() : -1;
+            if (callOrdinal[i] >= 0) pcs.add(code.pc(i));
+        }
+        this.callPcs = pcs.stream().mapToInt(Integer::intValue).toArray();
+    }
+    
+    private static final class Context {
+        final int block;
+        final int[] stack;
+        final int hash;
+        
+        Context(int block, int[] stack) {
+            this.block = block;
+            this.stack = stack;
+            this.hash = 31 * block + Arrays.hashCode(stack);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Context c && c.hash == hash && c.block == block && Arrays.equals(c.stack, stack);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    
+    private record Facts(int callPc, long[] loaded, long[] guards) {
+        static final Facts INITIAL = new Facts(-1, new long[0], new long[0]);
+        
+        Facts join(Facts other) {
+            if (sameAs(other)) return this;
+            int call = callPc < 0 ? other.callPc : other.callPc < 0 ? callPc : Math.min(callPc, other.callPc);
+            return new Facts(call, intersect(loaded, other.loaded), intersect(guards, other.guards));
+        }
+        
+        private static long[] intersect(long[] a, long[] b) {
+            if (Arrays.equals(a, b)) return a;
+            long[] common = new long[Math.min(a.length, b.length)];
+            int n = 0;
+            for (long slot : a) {
+                if (Arrays.binarySearch(b, slot) >= 0) common[n++] = slot;
+            }
+            return n == common.length ? common : Arrays.copyOf(common, n);
+        }
+        
+        boolean sameAs(Facts other) {
+            return other != null && callPc == other.callPc
+                && Arrays.equals(loaded, other.loaded) && Arrays.equals(guards, other.guards);
+        }
+    }
+    
+    /**
+     * Facts reaching a context, and whether it is waiting on the worklist
+     */
+    private static final class State {
+        final Context context;
+        Facts facts;
+        boolean queued;
+        
+        State(Context context) {
+            this.context = context;
+        }
+    }
+    
+    /**
+     * Analysis of everything reachable from a pc, not entering the blocks at stopAt
+     */
+    public Result analyze(int entryPc, Set<Integer> stopAt) {
+        Result cached = memo.get(entryPc);
+        if (cached != null) return cached;
+        int entryBlock = entryPc == 0 ? 0 : cfg.blockAt(entryPc);
+        if (entryBlock < 0 || cfg.blockCount() == 0) {
+            return new Result(List.of(), List.of(), 0, 0, 0, true);
+        }
+        Set<Integer> stopBlocks = new HashSet<>();
+        for (int pc : stopAt) {
+            if (cfg.blockAt(pc) >= 0 && pc != entryPc) stopBlocks.add(cfg.blockAt(pc));
+        }
+        Result result = new Run(stopBlocks).run(entryBlock);
+        memo.put(entryPc, result);
+        return result;
+    }
+    
+    public int getRemainingVisits() {
+        return remainingVisits;
+    }
+    
+    private final class Run {
+        
+        private final Set<Integer> stopBlocks;
+        private final Map<Context, State> states = new HashMap<>();
+        private final Deque<State> worklist = new ArrayDeque<>();
+        private final int[] contextsPerBlock = new int[cfg.blockCount()];
+        private final BitSet visitedBlocks = new BitSet();
+        private final BitSet unresolvedJumps = new BitSet();
+        private final boolean[] reached = new boolean[callPcs.length];
+        private final boolean[] used = new boolean[callPcs.length];
+        private final Set<Reentrancy> reentrancy = new TreeSet<>(
+            Comparator.comparingInt(Reentrancy::sstorePc).thenComparingInt(Reentrancy::callPc));
+        
+        // Stack of the block being simulated; top is at size - 1
+        private int[] stack = new int[MAX_STACK];
+        private int size;
+        
+        Run(Set<Integer> stopBlocks) {
+            this.stopBlocks = stopBlocks;
+        }
+        
+        Result run(int entryBlock) {
+            boolean complete = true;
+            propagate(entryBlock, EMPTY, Facts.INITIAL);
+            while (!worklist.isEmpty()) {
+                if (remainingVisits <= 0) {
+                    complete = false;
+                    break;
+                }
+                remainingVisits--;
+                State state = worklist.poll();
+                state.queued = false;
+                visitedBlocks.set(state.context.block);
+                simulate(state.context, state.facts);
+            }
+            
+            List<Integer> unchecked = new ArrayList<>();
+            int externalCalls = 0;
+            for (int ordinal = 0; ordinal < callPcs.length; ordinal++) {
+                if (!reached[ordinal]) continue;
+                externalCalls++;
+                // A result consumed in an unexplored context would look unchecked
+                if (complete && !used[ordinal]) unchecked.add(callPcs[ordinal]);
+            }
+            return new Result(List.copyOf(reentrancy), unchecked, externalCalls,
+                visitedBlocks.cardinality(), unresolvedJumps.cardinality(), complete);
+        }
+        
+        private void simulate(Context context, Facts in) {
+            int block = context.block;
+            System.arraycopy(context.stack, 0, stack, 0, context.stack.length);
+            size = context.stack.length;
+            int callPc = in.callPc();
+            long[] loaded = in.loaded();
+            long[] guards = in.guards();
+            
+            int start = cfg.start(block);
+            int end = cfg.end(block);
+            for (int i = start; i < end; i++) {
+                int op = code.opcode(i);
+                int pc = code.pc(i);
+                if (op == Opcodes.PUSH0) {
+                    push(0);
+                } else if (op >= Opcodes.PUSH1 && op <= Opcodes.PUSH32) {
+                    long value = code.pushLong(i);
+                    push(op <= Opcodes.PUSH1 + 2 ? (int) value : UNKNOWN);
+                } else if (op >= Opcodes.DUP1 && op <= Opcodes.DUP16) {
+                    push(peek(op - Opcodes.DUP1 + 1));
+                } else if (op >= Opcodes.SWAP1 && op <= Opcodes.SWAP16) {
+                    swap(op - Opcodes.SWAP1 + 1);
+                } else if (op == Opcodes.POP) {
+                    pop();
+                } else if (op == Opcodes.JUMP || op == Opcodes.JUMPI) {
+                    int target = pop();
+                    if (op == Opcodes.JUMPI) consume(pop());
+                    int[] exit = Arrays.copyOf(stack, size);
+                    Facts out = new Facts(callPc, loaded, guards);
+                    int targetBlock = target >= 0 ? cfg.blockAt(target) : -1;
+                    if (targetBlock >= 0) {
+                        propagate(targetBlock, exit, out);
+                    } else {
+                        unresolvedJumps.set(pc);
+                    }
+                    if (op == Opcodes.JUMPI && cfg.fallthrough(block) >= 0) {
+                        propagate(cfg.fallthrough(block), exit, out);
+                    }
+                    return;
+                } else if (op == Opcodes.SLOAD) {
+                    int slot = pop();
+                    consume(slot);
+                    if (callPc < 0 && slot >= 0) loaded = withSlot(loaded, slot);
+                    push(UNKNOWN);
+                } else if (op == Opcodes.SSTORE) {
+                    int slot = pop();
+                    int value = pop();
+                    consume(slot);
+                    consume(value);
+                    if (callPc >= 0) {
+                        if (guards.length == 0) reentrancy.add(new Reentrancy(callPc, pc));
+                    } else if (slot >= 0 && value >= 0 && Arrays.binarySearch(loaded, slot) >= 0) {
+                        guards = withSlot(guards, slot);
+                    }
+                } else if (callOrdinal[i] >= 0) {
+                    for (int k = 0; k < Opcodes.stackInputs(op); k++) consume(pop());
+                    if (op != Opcodes.STATICCALL && callPc < 0 && !hasStipend(start, i)) callPc = pc;
+                    reached[callOrdinal[i]] = true;
+                    push(-2 - callOrdinal[i]);
+                } else {
+                    for (int k = 0; k < Opcodes.stackInputs(op); k++) consume(pop());
+                    for (int k = 0; k < Opcodes.stackOutputs(op); k++) push(UNKNOWN);
+                }
+                if (Opcodes.isTerminator(op)) return;
+            }
+            
+            int next = cfg.fallthrough(block);
+            if (next >= 0) propagate(next, Arrays.copyOf(stack, size), new Facts(callPc, loaded, guards));
+        }
+        
+        private void propagate(int block, int[] exitStack, Facts out) {
+            if (stopBlocks.contains(block)) return;
+            Context context = new Context(block, exitStack);
+            State state = states.get(context);
+            if (state == null && contextsPerBlock[block] >= MAX_CONTEXTS_PER_BLOCK) {
+                // Too many distinct stacks reach this block; continue with an unknown stack
+                for (int value : exitStack) consume(value);
+                context = new Context(block, EMPTY);
+                state = states.get(context);
+            }
+            if (state == null) {
+                state = new State(context);
+                states.put(context, state);
+                contextsPerBlock[block]++;
+            }
+            Facts joined = state.facts == null ? out : state.facts.join(out);
+            if (joined.sameAs(state.facts)) return;
+            state.facts = joined;
+            if (!state.queued) {
+                state.queued = true;
+                worklist.add(state);
+            }
+        }
+        
+        /**
+         * transfer() and send() compute their gas as 2300 * (value != 0) just before the call
+         */
+        private boolean hasStipend(int blockStart, int callIndex) {
+            for (int i = callIndex - 1; i >= Math.max(blockStart, callIndex - 16); i--) {
+                if (code.opcode(i) == Opcodes.PUSH1 + 1 && code.pushLong(i) == CALL_STIPEND) return true;
+            }
+            return false;
+        }
+        
+        private void consume(int value) {
+            if (value <= -2) used[-2 - value] = true;
+        }
+        
+        private void push(int value) {
+            if (size == MAX_STACK) {
+                // Deeper than we track; the bottom value is forgotten
+                consume(stack[0]);
+                System.arraycopy(stack, 1, stack, 0, size - 1);
+                size--;
+            }
+            stack[size++] = value;
+        }
+        
+        private int pop() {
+            return size > 0 ? stack[--size] : UNKNOWN;
+        }
+        
+        private int peek(int depth) {
+            return size >= depth ? stack[size - depth] : UNKNOWN;
+        }
+        
+        private void swap(int depth) {
+            if (size < depth + 1) {
+                // Materialize the unknown values below what we track
+                int missing = depth + 1 - size;
+                System.arraycopy(stack, 0, stack, missing, size);
+                Arrays.fill(stack, 0, missing, UNKNOWN);
+                size = depth + 1;
+            }
+            int top = stack[size - 1];
+            stack[size - 1] = stack[size - 1 - depth];
+            stack[size - 1 - depth] = top;
+        }
+        
+        private long[] withSlot(long[] slots, long slot) {
+            if (Arrays.binarySearch(slots, slot) >= 0) return slots;
+            long[] added = Arrays.copyOf(slots, slots.length + 1);
+            added[slots.length] = slot;
+            Arrays.sort(added);
+            return added;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.mevanalytics.platform.evm;
+
+/**
+ * EVM opcode constants and per-opcode metadata used by the disassembler and detectors.
+ */
+public final class Opcodes {
+    
+    public static final int STOP = 0x00;
+    public static final int EQ = 0x14;
+    public static final int ISZERO = 0x15;
+    public static final int CALLVALUE = 0x34;
+    public static final int CALLDATALOAD = 0x35;
+    public static final int RETURNDATASIZE = 0x3d;
+    public static final int RETURNDATACOPY = 0x3e;
+    public static final int POP = 0x50;
+    public static final int MLOAD = 0x51;
+    public static final int MSTORE = 0x52;
+    public static final int SLOAD = 0x54;
+    public static final int SSTORE = 0x55;
+    public static final int JUMP = 0x56;
+    public static final int JUMPI = 0x57;
+    public static final int JUMPDEST = 0x5b;
+    public static final int TLOAD = 0x5c;
+    public static final int TSTORE = 0x5d;
+    public static final int PUSH0 = 0x5f;
+    public static final int PUSH1 = 0x60;
+    public static final int PUSH4 = 0x63;
+    public static final int PUSH20 = 0x73;
+    public static final int PUSH32 = 0x7f;
+    public static final int DUP1 = 0x80;
+    public static final int DUP16 = 0x8f;
+    public static final int SWAP1 = 0x90;
+    public static final int SWAP16 = 0x9f;
+    public static final int CREATE = 0xf0;
+    public static final int CALL = 0xf1;
+    public static final int CALLCODE = 0xf2;
+    public static final int RETURN = 0xf3;
+    public static final int DELEGATECALL = 0xf4;
+    public static final int CREATE2 = 0xf5;
+    public static final int STATICCALL = 0xfa;
+    public static final int REVERT = 0xfd;
+    public static final int INVALID = 0xfe;
+    public static final int SELFDESTRUCT = 0xff;
+    
+    private static final String[] NAMES = new String[256];
+    private static final byte[] INPUTS = new byte[256];
+    private static final byte[] OUTPUTS = new byte[256];
+    
+    static {
+        String[] low = {
+            "STOP", "ADD", "MUL", "SUB", "DIV", "SDIV", "MOD", "SMOD", "ADDMOD", "MULMOD", "EXP", "SIGNEXTEND", null, null, null, null,
+            "LT", "GT", "SLT", "SGT", "EQ", "ISZERO", "AND", "OR", "XOR", "NOT", "BYTE", "SHL", "SHR", "SAR", null, null,
+            "KECCAK256", null, null, null, null, null, null, null, null, null, null, null, null, null, null, null,
+            "ADDRESS", "BALANCE", "ORIGIN", "CALLER", "CALLVALUE", "CALLDATALOAD", "CALLDATASIZE", "CALLDATACOPY",
+            "CODESIZE", "CODECOPY", "GASPRICE", "EXTCODESIZE", "EXTCODECOPY", "RETURNDATASIZE", "RETURNDATACOPY", "EXTCODEHASH",
+            "BLOCKHASH", "COINBASE", "TIMESTAMP", "NUMBER", "PREVRANDAO", "GASLIMIT", "CHAINID", "SELFBALANCE",
+            "BASEFEE", "BLOBHASH", "BLOBBASEFEE", null, null, null, null, null,
+            "POP", "MLOAD", "MSTORE", "MSTORE8", "SLOAD", "SSTORE", "JUMP", "JUMPI",
+            "PC", "MSIZE", "GAS", "JUMPDEST", "TLOAD", "TSTORE", "MCOPY", "PUSH0"
+        };
+        System.arraycopy(low, 0, NAMES, 0, low.length);
+        for (int n = 1; n <= 32; n++) NAMES[PUSH1 + n - 1] = "PUSH" + n;
+        for (int n = 1; n <= 16; n++) NAMES[DUP1 + n - 1] = "DUP" + n;
+        for (int n = 1; n <= 16; n++) NAMES[SWAP1 + n - 1] = "SWAP" + n;
+        for (int n = 0; n <= 4; n++) NAMES[0xa0 + n] = "LOG" + n;
+        String[] high = {"CREATE", "CALL", "CALLCODE", "RETURN", "DELEGATECALL", "CREATE2"};
+        System.arraycopy(high, 0, NAMES, CREATE, high.length);
+        NAMES[STATICCALL] = "STATICCALL";
+        NAMES[REVERT] = "REVERT";
+        NAMES[INVALID] = "INVALID";
+        NAMES[SELFDESTRUCT] = "SELFDESTRUCT";
+        
+        // Stack arity: values popped and pushed by each opcode
+        arity(0x01, 0x0b, 2, 1);
+        arity(0x08, 0x09, 3, 1);
+        arity(0x10, 0x1d, 2, 1);
+        arity(ISZERO, ISZERO, 1, 1);
+        arity(0x19, 0x19, 1, 1);
+        arity(0x20, 0x20, 2, 1);
+        arity(0x30, 0x4a, 0, 1);
+        for (int op : new int[] {0x31, 0x35, 0x3b, 0x3f, 0x40, 0x49}) arity(op, op, 1, 1);
+        for (int op : new int[] {0x37, 0x39, 0x3e}) arity(op, op, 3, 0);
+        arity(0x3c, 0x3c, 4, 0);
+        arity(POP, POP, 1, 0);
+        arity(MLOAD, MLOAD, 1, 1);
+        arity(MSTORE, 0x53, 2, 0);
+        arity(SLOAD, SLOAD, 1, 1);
+        arity(SSTORE, SSTORE, 2, 0);
+        arity(JUMP, JUMP, 1, 0);
+        arity(JUMPI, JUMPI, 2, 0);
+        arity(0x58, 0x5a, 0, 1);
+        arity(TLOAD, TLOAD, 1, 1);
+        arity(TSTORE, TSTORE, 2, 0);
+        arity(0x5e, 0x5e, 3, 0);
+        arity(PUSH0, PUSH32, 0, 1);
+        for (int n = 1; n <= 16; n++) arity(DUP1 + n - 1, DUP1 + n - 1, n, n + 1);
+        for (int n = 1; n <= 16; n++) arity(SWAP1 + n - 1, SWAP1 + n - 1, n + 1, n + 1);
+        for (int n = 0; n <= 4; n++) arity(0xa0 + n, 0xa0 + n, 2 + n, 0);
+        arity(CREATE, CREATE, 3, 1);
+        arity(CALL, CALLCODE, 7, 1);
+        arity(RETURN, RETURN, 2, 0);
+        arity(DELEGATECALL, DELEGATECALL, 6, 1);
+        arity(CREATE2, CREATE2, 4, 1);
+        arity(STATICCALL, STATICCALL, 6, 1);
+        arity(REVERT, REVERT, 2, 0);
+        arity(SELFDESTRUCT, SELFDESTRUCT, 1, 0);
+    }
+    
+    private static void arity(int from, int to, int inputs, int outputs) {
+        for (int op = from; op <= to; op++) {
+            INPUTS[op] = (byte) inputs;
+            OUTPUTS[op] = (byte) outputs;
+        }
+    }
+    
+    private Opcodes() {
+    }
+    
+    /**
+     * Opcode for a mnemonic such as "DELEGATECALL"
+     */
+    public static int forName(String mnemonic) {
+        String name = mnemonic.trim().toUpperCase();
+        if (name.equals("SHA3")) name = "KECCAK256";
+        if (name.equals("DIFFICULTY")) name = "PREVRANDAO";
+        for (int op = 0; op < NAMES.length; op++) {
+            if (name.equals(NAMES[op])) return op;
+        }
+        throw new IllegalArgumentException("Unknown opcode: " + mnemonic);
+    }
+    
+    /**
+     * Mnemonic, or null for an unassigned opcode (which executes as INVALID)
+     */
+    public static String name(int opcode) {
+        return NAMES[opcode & 0xff];
+    }
+    
+    /**
+     * Number of immediate bytes following the opcode (1-32 for PUSH1-PUSH32, otherwise 0)
+     */
+    public static int immediateSize(int opcode) {
+        return opcode >= PUSH1 && opcode <= PUSH32 ? opcode - PUSH1 + 1 : 0;
+    }
+    
+    /**
+     * Number of stack items an opcode pops
+     */
+    public static int stackInputs(int opcode) {
+        return INPUTS[opcode & 0xff];
+    }
+    
+    /**
+     * Number of stack items an opcode pushes
+     */
+    public static int stackOutputs(int opcode) {
+        return OUTPUTS[opcode & 0xff];
+    }
+    
+    public static boolean isPush(int opcode) {
+        return opcode >= PUSH0 && opcode <= PUSH32;
+    }
+    
+    public static boolean isExternalCall(int opcode) {
+        return opcode == CALL || opcode == CALLCODE || opcode == DELEGATECALL || opcode == STATICCALL;
+    }
+    
+    /**
+     * Instructions after which execution never falls through to the next one
+     */
+    public static boolean isTerminator(int opcode) {
+        return opcode == STOP || opcode == JUMP || opcode == RETURN || opcode == REVERT
+            || opcode == INVALID || opcode == SELFDESTRUCT || NAMES[opcode & 0xff] == null;
+    }
+}
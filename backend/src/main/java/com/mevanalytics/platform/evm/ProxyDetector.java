@@ -0,0 +1,94 @@
+package com.mevanalytics.platform.evm;
+
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+
+/**
+ * Recognizes proxy contracts from their disassembly. A proxy DELEGATECALLs and either
+ * embeds its implementation address (EIP-1167 clones) or pushes the storage slot that
+ * holds it (EIP-1967 implementation or beacon slot, EIP-1822 PROXIABLE slot). Logic
+ * contracts that reference those slots, such as UUPS implementations, match too. Their
+ * own slot is empty, so resolving the implementation finds nothing.
+ */
+public final class ProxyDetector {
+    
+    public enum Kind { EIP1167, EIP1967, EIP1822, BEACON }
+    
+    /**
+     * A detected proxy; implementation is set when the address is in the code itself
+     */
+    public record Pattern(Kind kind, String implementation) {}
+    
+    // keccak256("eip1967.proxy.implementation") - 1
+    public static final String IMPLEMENTATION_SLOT = "0x360894a13ba1a3210667c828492db98dca3e2076cc3735a920a3ca505d382bbc";
+    // keccak256("eip1967.proxy.beacon") - 1
+    public static final String BEACON_SLOT = "0xa3f0ad74e5423aebfd80d3ef4346578335a9a72aeaee59ff6cb3582b35133d50";
+    // keccak256("PROXIABLE")
+    public static final String PROXIABLE_SLOT = "0xc5f16f0fcc639fa48a6947836d9850f504798523bf8c9a3a87d5876cf622bcf7";
+    
+    // Transparent proxies are a few KB; anything much larger is logic, not a forwarder
+    public static final int MAX_PROXY_SIZE = 8192;
+    // EIP-1167 clones are 45 bytes; vanity and push-variant clones stay well under this
+    private static final int MAX_CLONE_SIZE = 128;
+    
+    private static final BigInteger IMPLEMENTATION = Numeric.toBigInt(IMPLEMENTATION_SLOT);
+    private static final BigInteger BEACON = Numeric.toBigInt(BEACON_SLOT);
+    private static final BigInteger PROXIABLE = Numeric.toBigInt(PROXIABLE_SLOT);
+    
+    private ProxyDetector() {}
+    
+    /**
+     * The proxy pattern of the code, or null if it does not look like a proxy
+     */
+    public static Pattern detect(Disassembly code) {
+        if (code.codeLength() > MAX_PROXY_SIZE || code.count(Opcodes.DELEGATECALL) == 0) return null;
+        
+        boolean implementationSlot = false, proxiableSlot = false;
+        String embedded = null;
+        for (int i = 0; i < code.size(); i++) {
+            int op = code.opcode(i);
+            if (op == Opcodes.PUSH32) {
+                BigInteger value = code.pushValue(i);
+                // The beacon slot wins: beacon proxies may also reference the implementation slot
+                if (value.equals(BEACON)) return new Pattern(Kind.BEACON, null);
+                implementationSlot |= value.equals(IMPLEMENTATION);
+                proxiableSlot |= value.equals(PROXIABLE);
+            } else if (op == Opcodes.PUSH20 && embedded == null) {
+                embedded = toAddress(code.pushValue(i));
+            }
+        }
+        if (implementationSlot) return new Pattern(Kind.EIP1967, null);
+        if (proxiableSlot) return new Pattern(Kind.EIP1822, null);
+        if (embedded != null && code.codeLength() <= MAX_CLONE_SIZE && code.count(Opcodes.SLOAD) == 0) {
+            return new Pattern(Kind.EIP1167, embedded);
+        }
+        return null;
+    }
+    
+    /**
+     * Storage slot holding the implementation (or beacon) address for a kind
+     */
+    public static String slotOf(Kind kind) {
+        return switch (kind) {
+            case EIP1967 -> IMPLEMENTATION_SLOT;
+            case EIP1822 -> PROXIABLE_SLOT;
+            case BEACON -> BEACON_SLOT;
+            case EIP1167 -> null;
+        };
+    }
+    
+    /**
+     * Address in the low 20 bytes of a storage word or return value, or null if zero
+     */
+    public static String toAddress(String word) {
+        if (word == null || word.length() <= 2) return null;
+        return toAddress(Numeric.toBigInt(word));
+    }
+    
+    private static String toAddress(BigInteger value) {
+        BigInteger address = value.and(BigInteger.ONE.shiftLeft(160).subtract(BigInteger.ONE));
+        if (address.signum() == 0) return null;
+        return Numeric.toHexStringWithPrefixZeroPadded(address, 40);
+    }
+}
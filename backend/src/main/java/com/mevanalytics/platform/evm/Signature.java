@@ -0,0 +1,41 @@
+package com.mevanalytics.platform.evm;
+
+import org.web3j.utils.Numeric;
+
+import java.util.Arrays;
+
+/**
+ * A detection signature: either a contiguous opcode sequence or a 4-byte function
+ * selector pushed with PUSH4. The finding names what a match indicates, so many
+ * signatures can report the same finding.
+ */
+public record Signature(String id, String finding, int[] opcodes, int selector) {
+    
+    public enum Kind { OPCODES, SELECTOR }
+    
+    public Signature {
+        if (opcodes != null && opcodes.length == 0) {
+            throw new IllegalArgumentException("Signature " + id + " has an empty opcode sequence");
+        }
+    }
+    
+    /**
+     * Opcode sequence written as mnemonics, e.g. "CALLER ORIGIN EQ"
+     */
+    public static Signature sequence(String id, String finding, String mnemonics) {
+        int[] opcodes = Arrays.stream(mnemonics.trim().split("\\s+")).mapToInt(Opcodes::forName).toArray();
+        return new Signature(id, finding, opcodes, 0);
+    }
+    
+    public static Signature selector(String id, String finding, String selectorHex) {
+        byte[] bytes = Numeric.hexStringToByteArray(selectorHex);
+        if (bytes.length != 4) {
+            throw new IllegalArgumentException("Selector must be 4 bytes: " + selectorHex);
+        }
+        return new Signature(id, finding, null, (int) Numeric.toBigInt(bytes).longValue());
+    }
+    
+    public Kind kind() {
+        return opcodes != null ? Kind.OPCODES : Kind.SELECTOR;
+    }
+}
@@ -0,0 +1,168 @@
+package com.mevanalytics.platform.evm;
+
+import java.util.*;
+
+/**
+ * All registered signatures compiled into one matcher that runs in a single pass over a
+ * disassembly. Opcode sequences form an Aho-Corasick automaton, flattened into a dense
+ * transition table over the opcodes the patterns actually use. PUSH4 immediates are
+ * looked up in an open-addressing selector table. Per-instruction cost is one table
+ * step plus the matches reported, whatever the number of signatures.
+ */
+public final class SignatureMatcher {
+    
+    public record Hit(Signature signature, int count, int firstPc) {}
+    
+    private final List<Signature> signatures;
+    private final int[] classOf = new int[256];
+    private final int classes;
+    private final int[] next;
+    private final int[][] outputs;
+    private final int[] patternLength;
+    private final int[] selectorKeys;
+    private final int[][] selectorValues;
+    private final int selectorMask;
+    
+    private SignatureMatcher(List<Signature> signatures) {
+        this.signatures = List.copyOf(signatures);
+        
+        // Opcodes no pattern mentions share class 0, which always leads back to the root
+        int k = 1;
+        for (Signature signature : this.signatures) {
+            if (signature.kind() != Signature.Kind.OPCODES) continue;
+            for (int op : signature.opcodes()) {
+                if (classOf[op] == 0) classOf[op] = k++;
+            }
+        }
+        this.classes = k;
+        
+        List<int[]> trie = new ArrayList<>();
+        List<List<Integer>> out = new ArrayList<>();
+        trie.add(newRow());
+        out.add(new ArrayList<>());
+        this.patternLength = new int[this.signatures.size()];
+        Map<Integer, List<Integer>> bySelector = new LinkedHashMap<>();
+        for (int si = 0; si < this.signatures.size(); si++) {
+            Signature signature = this.signatures.get(si);
+            if (signature.kind() == Signature.Kind.SELECTOR) {
+                bySelector.computeIfAbsent(signature.selector(), s -> new ArrayList<>()).add(si);
+                continue;
+            }
+            int state = 0;
+            for (int op : signature.opcodes()) {
+                int c = classOf[op];
+                if (trie.get(state)[c] < 0) {
+                    trie.get(state)[c] = trie.size();
+                    trie.add(newRow());
+                    out.add(new ArrayList<>());
+                }
+                state = trie.get(state)[c];
+            }
+            out.get(state).add(si);
+            patternLength[si] = signature.opcodes().length;
+        }
+        
+        // Breadth-first failure links, folded into the table so matching never backtracks
+        int[] fail = new int[trie.size()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < classes; c++) {
+            int child = trie.get(0)[c];
+            if (child < 0) {
+                trie.get(0)[c] = 0;
+            } else {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            out.get(state).addAll(out.get(fail[state]));
+            for (int c = 0; c < classes; c++) {
+                int child = trie.get(state)[c];
+                if (child < 0) {
+                    trie.get(state)[c] = trie.get(fail[state])[c];
+                } else {
+                    fail[child] = trie.get(fail[state])[c];
+                    queue.add(child);
+                }
+            }
+        }
+        
+        this.next = new int[trie.size() * classes];
+        this.outputs = new int[trie.size()][];
+        for (int s = 0; s < trie.size(); s++) {
+            System.arraycopy(trie.get(s), 0, next, s * classes, classes);
+            outputs[s] = out.get(s).stream().mapToInt(Integer::intValue).toArray();
+        }
+        
+        int capacity = Integer.highestOneBit(Math.max(4, bySelector.size() * 2)) * 2;
+        this.selectorKeys = new int[capacity];
+        this.selectorValues = new int[capacity][];
+        this.selectorMask = capacity - 1;
+        for (Map.Entry<Integer, List<Integer>> entry : bySelector.entrySet()) {
+            int slot = slot(entry.getKey());
+            while (selectorValues[slot] != null) slot = (slot + 1) & selectorMask;
+            selectorKeys[slot] = entry.getKey();
+            selectorValues[slot] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+    
+    public static SignatureMatcher compile(List<Signature> signatures) {
+        return new SignatureMatcher(signatures);
+    }
+    
+    private int[] newRow() {
+        int[] row = new int[classes];
+        Arrays.fill(row, -1);
+        return row;
+    }
+    
+    private int slot(int selector) {
+        int h = selector * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & selectorMask;
+    }
+    
+    private int[] selectorMatches(int selector) {
+        for (int slot = slot(selector); selectorValues[slot] != null; slot = (slot + 1) & selectorMask) {
+            if (selectorKeys[slot] == selector) return selectorValues[slot];
+        }
+        return null;
+    }
+    
+    /**
+     * Every signature that occurs in the code, in registration order
+     */
+    public List<Hit> match(Disassembly code) {
+        int[] counts = new int[signatures.size()];
+        int[] firstPcs = new int[signatures.size()];
+        int state = 0;
+        for (int i = 0; i < code.size(); i++) {
+            int op = code.opcode(i);
+            state = next[state * classes + classOf[op]];
+            for (int si : outputs[state]) {
+                if (counts[si]++ == 0) firstPcs[si] = code.pc(i - patternLength[si] + 1);
+            }
+            if (op == Opcodes.PUSH4) {
+                int[] matched = selectorMatches((int) code.pushLong(i));
+                if (matched == null) continue;
+                for (int si : matched) {
+                    if (counts[si]++ == 0) firstPcs[si] = code.pc(i);
+                }
+            }
+        }
+        
+        List<Hit> hits = new ArrayList<>();
+        for (int si = 0; si < counts.length; si++) {
+            if (counts[si] > 0) hits.add(new Hit(signatures.get(si), counts[si], firstPcs[si]));
+        }
+        return hits;
+    }
+    
+    public int getSignatureCount() {
+        return signatures.size();
+    }
+    
+    public int getStateCount() {
+        return outputs.length;
+    }
+}
@@ -0,0 +1,46 @@
+package com.mevanalytics.platform.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JDBC access to api_customers.
+ */
+@Repository
+public class ApiCustomerRepository {
+    
+    /**
+     * Active customer behind an API key
+     */
+    public record ApiCustomer(long id, String subscriptionTier) {}
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    public Optional<ApiCustomer> findCustomer(String apiKey) {
+        if (apiKey == null || apiKey.isBlank()) {
+            return Optional.empty();
+        }
+        List<ApiCustomer> customers = jdbcTemplate.query(
+            "SELECT id, subscription_tier FROM api_customers WHERE api_key = ? AND is_active",
+            (rs, rowNum) -> new ApiCustomer(rs.getLong("id"), rs.getString("subscription_tier")), apiKey);
+        return customers.stream().findFirst();
+    }
+    
+    /**
+     * Subscription tier (STARTER, PROFESSIONAL, ENTERPRISE) for an active API key
+     */
+    public Optional<String> findSubscriptionTier(String apiKey) {
+        if (apiKey == null || apiKey.isBlank()) {
+            return Optional.empty();
+        }
+        List<String> tiers = jdbcTemplate.queryForList(
+            "SELECT subscription_tier FROM api_customers WHERE api_key = ? AND is_active",
+            String.class, apiKey);
+        return tiers.stream().findFirst();
+    }
+}
@@ -0,0 +1,55 @@
+package com.mevanalytics.platform.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JDBC access to bytecode_analyses, the persistent tier of the scan result cache.
+ */
+@Repository
+public class BytecodeAnalysisRepository {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Stored analysis JSON for a code hash, produced by the given analyzer version
+     */
+    public Optional<String> find(String codeHash, int analyzerVersion) {
+        List<String> rows = jdbcTemplate.queryForList(
+            "SELECT analysis FROM bytecode_analyses WHERE code_hash = ? AND analyzer_version = ?",
+            String.class, codeHash, analyzerVersion);
+        return rows.stream().findFirst();
+    }
+    
+    public void save(String codeHash, int analyzerVersion, String analysisJson) {
+        jdbcTemplate.update("""
+            INSERT INTO bytecode_analyses (code_hash, analyzer_version, analysis)
+            VALUES (?, ?, ?::jsonb)
+            ON CONFLICT (code_hash) DO UPDATE
+               SET analyzer_version = EXCLUDED.analyzer_version,
+                   analysis = EXCLUDED.analysis,
+                   last_used_at = NOW()""",
+            codeHash, analyzerVersion, analysisJson);
+    }
+    
+    public void touch(String codeHash) {
+        jdbcTemplate.update("UPDATE bytecode_analyses SET last_used_at = NOW() WHERE code_hash = ?", codeHash);
+    }
+    
+    /**
+     * Delete the least recently used rows beyond {@code maxRows}
+     *
+     * @return number of rows deleted
+     */
+    public int prune(int maxRows) {
+        return jdbcTemplate.update("""
+            DELETE FROM bytecode_analyses
+             WHERE code_hash IN (SELECT code_hash FROM bytecode_analyses ORDER BY last_used_at DESC OFFSET ?)""",
+            maxRows);
+    }
+}
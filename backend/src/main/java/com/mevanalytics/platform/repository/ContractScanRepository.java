@@ -0,0 +1,110 @@
+package com.mevanalytics.platform.repository;
+
+import com.mevanalytics.platform.dto.ScanResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JDBC access to contract_scans, the persistent tier of the scan result store.
+ * Results are kept as compact JSON next to the columns used for lookups.
+ */
+@Repository
+public class ContractScanRepository {
+    
+    // Must match INCREMENT BY of contract_scan_id_seq
+    public static final int SCAN_ID_BLOCK = 100;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Persist finished scans; results[i] is stored as json[i]
+     */
+    public void insertBatch(List<ScanResult> results, List<String> json) {
+        List<Object[]> rows = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            ScanResult result = results.get(i);
+            rows.add(new Object[] {
+                result.getScanId(), result.getContractAddress().toLowerCase(), result.getCodeHash(),
+                result.getStatus(), result.getRiskLevel(), result.getRiskScore(), json.get(i),
+                Timestamp.valueOf(result.getCompletedAt())
+            });
+        }
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO contract_scans (scan_id, contract_address, code_hash, status, risk_level, risk_score,
+                                        result, completed_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?::jsonb, ?)
+            ON CONFLICT (scan_id) DO NOTHING""",
+            rows, new int[] {Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+                             Types.INTEGER, Types.VARCHAR, Types.TIMESTAMP});
+    }
+    
+    public Optional<String> find(long scanId) {
+        List<String> rows = jdbcTemplate.queryForList(
+            "SELECT result FROM contract_scans WHERE scan_id = ?", String.class, scanId);
+        return rows.stream().findFirst();
+    }
+    
+    /**
+     * Newest scans of an address first, served by idx_contract_scans_address
+     */
+    public List<String> findByAddress(String contractAddress, int limit) {
+        return jdbcTemplate.queryForList(
+            "SELECT result FROM contract_scans WHERE contract_address = ? ORDER BY scan_id DESC LIMIT ?",
+            String.class, contractAddress.toLowerCase(), limit);
+    }
+    
+    /**
+     * First id of a fresh block of SCAN_ID_BLOCK scan ids, unique across replicas
+     */
+    public long allocateScanIds() {
+        return jdbcTemplate.queryForObject("SELECT nextval('contract_scan_id_seq')", Long.class);
+    }
+    
+    /**
+     * Move the scan id sequence past ids already in contract_scans, for tables filled
+     * before it existed. Serialized across replicas, so it never moves backwards.
+     */
+    public void advanceScanIdSequence() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT pg_advisory_xact_lock(hashtext('contract_scan_id_seq'))");
+                statement.execute("""
+                    SELECT setval('contract_scan_id_seq', m)
+                      FROM (SELECT MAX(scan_id) AS m FROM contract_scans) stored
+                     WHERE m > (SELECT last_value FROM contract_scan_id_seq)""");
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+    
+    /**
+     * Delete everything older than the newest {@code maxRows} scans
+     *
+     * @return number of rows deleted
+     */
+    public int prune(int maxRows) {
+        return jdbcTemplate.update("""
+            DELETE FROM contract_scans
+             WHERE scan_id < (SELECT scan_id FROM contract_scans ORDER BY scan_id DESC OFFSET ? LIMIT 1)""",
+            maxRows);
+    }
+}
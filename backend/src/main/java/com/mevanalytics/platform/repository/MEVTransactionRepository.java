@@ -0,0 +1,199 @@
+package com.mevanalytics.platform.repository;
+
+import com.mevanalytics.platform.dto.MEVDetectionEvent;
+import com.mevanalytics.platform.dto.MEVEventQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * JDBC access to mev_transactions. Queries are written against the
+ * (block_number, id) keyset so they are served by the covering indexes
+ * defined in database/init.sql.
+ */
+@Repository
+public class MEVTransactionRepository {
+    
+    static final String EVENT_COLUMNS = """
+        id, transaction_hash, block_number, block_timestamp, from_address, to_address,
+        mev_type, extracted_value_usd, gas_price, dex_name, token_pair, victim_address""";
+    
+    private static final String INSERT_SQL = """
+        INSERT INTO mev_transactions (transaction_hash, block_number, block_timestamp, from_address, to_address,
+                                      mev_type, extracted_value_usd, gas_price, dex_name, token_pair, victim_address)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (transaction_hash) DO NOTHING""";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Value("${mev.events.stream-fetch-size:5000}")
+    private int streamFetchSize;
+    
+    static final RowMapper<MEVDetectionEvent> EVENT_MAPPER = (rs, rowNum) -> mapEvent(rs);
+    
+    static MEVDetectionEvent mapEvent(ResultSet rs) throws SQLException {
+        return MEVDetectionEvent.builder()
+            .id(rs.getLong("id"))
+            .transactionHash(rs.getString("transaction_hash"))
+            .blockNumber(rs.getLong("block_number"))
+            .blockTimestamp(rs.getTimestamp("block_timestamp").toLocalDateTime())
+            .searcherAddress(rs.getString("from_address"))
+            .toAddress(rs.getString("to_address"))
+            .mevType(rs.getString("mev_type"))
+            .extractedValueUsd(rs.getBigDecimal("extracted_value_usd"))
+            .gasPrice(rs.getObject("gas_price", Long.class))
+            .dexName(rs.getString("dex_name"))
+            .tokenPair(rs.getString("token_pair"))
+            .victimAddress(rs.getString("victim_address"))
+            .build();
+    }
+    
+    /**
+     * Persist a batch of detections, ignoring transactions already stored
+     */
+    public void insertBatch(List<MEVDetectionEvent> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getTransactionHash());
+            ps.setLong(2, event.getBlockNumber());
+            ps.setTimestamp(3, Timestamp.valueOf(event.getBlockTimestamp()));
+            ps.setString(4, event.getSearcherAddress());
+            ps.setString(5, event.getToAddress());
+            ps.setString(6, event.getMevType());
+            ps.setBigDecimal(7, event.getExtractedValueUsd());
+            if (event.getGasPrice() != null) {
+                ps.setLong(8, event.getGasPrice());
+            } else {
+                ps.setNull(8, Types.BIGINT);
+            }
+            ps.setString(9, event.getDexName());
+            ps.setString(10, event.getTokenPair());
+            ps.setString(11, event.getVictimAddress());
+        });
+    }
+    
+    /**
+     * Keyset search ordered by (block_number, id) descending. Fetches one row
+     * past the limit so the caller can tell whether another page exists.
+     */
+    public List<MEVDetectionEvent> search(MEVEventQuery query) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(EVENT_COLUMNS).append(" FROM mev_transactions WHERE TRUE");
+        List<Object> params = new ArrayList<>();
+        
+        if (query.getFromBlock() != null) {
+            sql.append(" AND block_number >= ?");
+            params.add(query.getFromBlock());
+        }
+        if (query.getToBlock() != null) {
+            sql.append(" AND block_number <= ?");
+            params.add(query.getToBlock());
+        }
+        if (query.getFromTime() != null) {
+            sql.append(" AND block_timestamp >= ?");
+            params.add(Timestamp.valueOf(query.getFromTime()));
+        }
+        if (query.getToTime() != null) {
+            sql.append(" AND block_timestamp < ?");
+            params.add(Timestamp.valueOf(query.getToTime()));
+        }
+        if (query.getMevTypes() != null && !query.getMevTypes().isEmpty()) {
+            sql.append(" AND mev_type IN (").append("?,".repeat(query.getMevTypes().size() - 1)).append("?)");
+            params.addAll(query.getMevTypes());
+        }
+        if (query.getSearcherAddress() != null) {
+            sql.append(" AND from_address = ?");
+            params.add(query.getSearcherAddress());
+        }
+        if (query.getVictimAddress() != null) {
+            sql.append(" AND victim_address = ?");
+            params.add(query.getVictimAddress());
+        }
+        if (query.getDexName() != null) {
+            sql.append(" AND dex_name = ?");
+            params.add(query.getDexName());
+        }
+        if (query.getTokenPair() != null) {
+            sql.append(" AND token_pair = ?");
+            params.add(query.getTokenPair());
+        }
+        if (query.getCursorBlock() != null && query.getCursorId() != null) {
+            // Row-value comparison lets Postgres seek straight into the index
+            sql.append(" AND (block_number, id) < (?, ?)");
+            params.add(query.getCursorBlock());
+            params.add(query.getCursorId());
+        }
+        sql.append(" ORDER BY block_number DESC, id DESC LIMIT ?");
+        int fetchRows = query.getLimit() + 1;
+        params.add(fetchRows);
+        
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString());
+            ps.setFetchSize(fetchRows);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, EVENT_MAPPER);
+    }
+    
+    public long findMaxId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM mev_transactions", Long.class);
+        return maxId != null ? maxId : 0;
+    }
+    
+    public long findMaxBlock() {
+        Long maxBlock = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(block_number), 0) FROM mev_transactions", Long.class);
+        return maxBlock != null ? maxBlock : 0;
+    }
+    
+    /**
+     * Stream detections in an inclusive block range in (block_number, id) order
+     */
+    public void streamBlockRange(long fromBlock, long toBlock, Consumer<MEVDetectionEvent> sink) {
+        String sql = "SELECT " + EVENT_COLUMNS + " FROM mev_transactions"
+            + " WHERE block_number BETWEEN ? AND ? ORDER BY block_number, id";
+        stream(sql, List.of(fromBlock, toBlock), sink);
+    }
+    
+    /**
+     * Stream detections since a timestamp in (block_number, id) order, up to and including maxId
+     */
+    public void streamSince(LocalDateTime since, long maxId, Consumer<MEVDetectionEvent> sink) {
+        String sql = "SELECT " + EVENT_COLUMNS + " FROM mev_transactions"
+            + " WHERE block_timestamp >= ? AND id <= ? ORDER BY block_number, id";
+        stream(sql, List.of(Timestamp.valueOf(since), maxId), sink);
+    }
+    
+    /**
+     * Run a query through a server-side cursor. Postgres only honours the fetch
+     * size inside a transaction, otherwise the driver buffers the whole result.
+     */
+    private void stream(String sql, List<Object> params, Consumer<MEVDetectionEvent> sink) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(streamFetchSize);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, rs -> {
+            sink.accept(mapEvent(rs));
+        }));
+    }
+}
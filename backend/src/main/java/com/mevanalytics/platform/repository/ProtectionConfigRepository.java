@@ -0,0 +1,145 @@
+package com.mevanalytics.platform.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * JDBC access to protection_configs and protection_subscribers, the customers
+ * relying on each protected contract.
+ */
+@Repository
+public class ProtectionConfigRepository {
+    
+    public record StoredConfig(String contractAddress, Long ownerCustomerId, boolean alertOnSandwich,
+                               boolean alertOnFrontrun, boolean alertOnUnusualGas, boolean autoProtect,
+                               long lastAlertId, LocalDateTime enabledAt, String rulesJson) {}
+    
+    private static final String COLUMNS = """
+        contract_address, owner_customer_id, alert_on_sandwich, alert_on_frontrun, alert_on_unusual_gas,
+        auto_protect, last_alert_id, enabled_at, rules""";
+    
+    private static final RowMapper<StoredConfig> CONFIG_MAPPER = (rs, rowNum) -> new StoredConfig(
+        rs.getString("contract_address"),
+        rs.getObject("owner_customer_id", Long.class),
+        rs.getBoolean("alert_on_sandwich"),
+        rs.getBoolean("alert_on_frontrun"),
+        rs.getBoolean("alert_on_unusual_gas"),
+        rs.getBoolean("auto_protect"),
+        rs.getLong("last_alert_id"),
+        rs.getTimestamp("enabled_at").toLocalDateTime(),
+        rs.getString("rules")
+    );
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    public List<StoredConfig> findAll() {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM protection_configs", CONFIG_MAPPER);
+    }
+    
+    public Optional<StoredConfig> findByAddress(String contractAddress) {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM protection_configs WHERE contract_address = ?",
+            CONFIG_MAPPER, contractAddress).stream().findFirst();
+    }
+    
+    /**
+     * Create a config with default flags, owned by the customer, unless one already
+     * exists or {@code maxContracts} are already protected
+     *
+     * @return true if a new row was inserted
+     */
+    public boolean insertIfAbsent(String contractAddress, long ownerCustomerId, int maxContracts) {
+        return jdbcTemplate.update("""
+            INSERT INTO protection_configs (contract_address, owner_customer_id)
+            SELECT ?, ? WHERE (SELECT COUNT(*) FROM protection_configs) < ?
+            ON CONFLICT (contract_address) DO NOTHING""",
+            contractAddress, ownerCustomerId, maxContracts) > 0;
+    }
+    
+    /**
+     * Store a contract's alert flags and rule set (as a JSON array)
+     *
+     * @return false if the contract is not protected
+     */
+    public boolean updateRules(String contractAddress, boolean alertOnSandwich, boolean alertOnFrontrun,
+                               boolean alertOnUnusualGas, String rulesJson) {
+        return jdbcTemplate.update("""
+            UPDATE protection_configs
+               SET alert_on_sandwich = ?,
+                   alert_on_frontrun = ?,
+                   alert_on_unusual_gas = ?,
+                   rules = ?::jsonb,
+                   updated_at = NOW()
+             WHERE contract_address = ?""",
+            alertOnSandwich, alertOnFrontrun, alertOnUnusualGas, rulesJson, contractAddress) > 0;
+    }
+    
+    public void insertSubscriber(long customerId, String contractAddress) {
+        jdbcTemplate.update("""
+            INSERT INTO protection_subscribers (customer_id, contract_address) VALUES (?, ?)
+            ON CONFLICT (customer_id, contract_address) DO NOTHING""",
+            customerId, contractAddress);
+    }
+    
+    public boolean isSubscriber(long customerId, String contractAddress) {
+        return !jdbcTemplate.queryForList(
+            "SELECT 1 FROM protection_subscribers WHERE customer_id = ? AND contract_address = ?",
+            Integer.class, customerId, contractAddress).isEmpty();
+    }
+    
+    public int countSubscriptions(long customerId) {
+        Integer count = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM protection_subscribers WHERE customer_id = ?", Integer.class, customerId);
+        return count != null ? count : 0;
+    }
+    
+    public boolean deleteSubscriber(long customerId, String contractAddress) {
+        return jdbcTemplate.update("DELETE FROM protection_subscribers WHERE customer_id = ? AND contract_address = ?",
+            customerId, contractAddress) > 0;
+    }
+    
+    /**
+     * Pass ownership from a departed customer to the longest-standing remaining subscriber
+     */
+    public void reassignOwner(String contractAddress, long formerOwnerId) {
+        jdbcTemplate.update("""
+            UPDATE protection_configs
+               SET owner_customer_id = (SELECT customer_id FROM protection_subscribers
+                                         WHERE contract_address = ?
+                                         ORDER BY created_at, customer_id LIMIT 1),
+                   updated_at = NOW()
+             WHERE contract_address = ? AND owner_customer_id = ?""",
+            contractAddress, contractAddress, formerOwnerId);
+    }
+    
+    /**
+     * Record the highest alert id issued per contract; never moves backwards
+     */
+    public void updateLastAlertIds(Map<String, Long> lastAlertIds) {
+        List<Object[]> rows = new ArrayList<>(lastAlertIds.size());
+        lastAlertIds.forEach((address, id) -> rows.add(new Object[] {id, address, id}));
+        jdbcTemplate.batchUpdate(
+            "UPDATE protection_configs SET last_alert_id = ? WHERE contract_address = ? AND last_alert_id < ?", rows);
+    }
+    
+    /**
+     * Remove a contract's config once nobody subscribes to it any more
+     *
+     * @return true if the config was deleted
+     */
+    public boolean deleteIfUnsubscribed(String contractAddress) {
+        return jdbcTemplate.update("""
+            DELETE FROM protection_configs
+             WHERE contract_address = ?
+               AND NOT EXISTS (SELECT 1 FROM protection_subscribers WHERE contract_address = ?)""",
+            contractAddress, contractAddress) > 0;
+    }
+}
@@ -0,0 +1,102 @@
+package com.mevanalytics.platform.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JDBC access to watched_contracts, the watch list for change-driven rescans, and
+ * contract_watchers, the customers watching each contract.
+ */
+@Repository
+public class WatchedContractRepository {
+    
+    /**
+     * Last known state of a watched contract; hashes and addresses are null until its first scan
+     */
+    public record StoredWatch(String contractAddress, String codeHash, String proxyKind, String implementationAddress,
+                              String beaconAddress, Long lastScanId, String lastError, LocalDateTime createdAt) {}
+    
+    /**
+     * One customer's watch on a contract
+     */
+    public record Watcher(long customerId, String contractAddress, String subscriptionTier, LocalDateTime createdAt) {}
+    
+    private static final String COLUMNS = """
+        contract_address, code_hash, proxy_kind, implementation_address, beacon_address,
+        last_scan_id, last_error, created_at""";
+    
+    private static final RowMapper<StoredWatch> WATCH_MAPPER = (rs, rowNum) -> new StoredWatch(
+        rs.getString("contract_address"),
+        rs.getString("code_hash"),
+        rs.getString("proxy_kind"),
+        rs.getString("implementation_address"),
+        rs.getString("beacon_address"),
+        rs.getObject("last_scan_id", Long.class),
+        rs.getString("last_error"),
+        rs.getTimestamp("created_at").toLocalDateTime()
+    );
+    
+    private static final RowMapper<Watcher> WATCHER_MAPPER = (rs, rowNum) -> new Watcher(
+        rs.getLong("customer_id"),
+        rs.getString("contract_address"),
+        rs.getString("subscription_tier"),
+        rs.getTimestamp("created_at").toLocalDateTime()
+    );
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    public List<StoredWatch> findAll() {
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM watched_contracts", WATCH_MAPPER);
+    }
+    
+    public List<Watcher> findWatchers() {
+        return jdbcTemplate.query(
+            "SELECT customer_id, contract_address, subscription_tier, created_at FROM contract_watchers", WATCHER_MAPPER);
+    }
+    
+    public void upsert(StoredWatch watch) {
+        jdbcTemplate.update("""
+            INSERT INTO watched_contracts (contract_address, code_hash, proxy_kind, implementation_address,
+                                           beacon_address, last_scan_id, last_error, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (contract_address) DO UPDATE
+               SET code_hash = EXCLUDED.code_hash,
+                   proxy_kind = EXCLUDED.proxy_kind,
+                   implementation_address = EXCLUDED.implementation_address,
+                   beacon_address = EXCLUDED.beacon_address,
+                   last_scan_id = EXCLUDED.last_scan_id,
+                   last_error = EXCLUDED.last_error,
+                   updated_at = NOW()""",
+            watch.contractAddress(), watch.codeHash(), watch.proxyKind(), watch.implementationAddress(),
+            watch.beaconAddress(), watch.lastScanId(), watch.lastError(), Timestamp.valueOf(watch.createdAt()));
+    }
+    
+    public void upsertWatcher(Watcher watcher) {
+        jdbcTemplate.update("""
+            INSERT INTO contract_watchers (customer_id, contract_address, subscription_tier, created_at)
+            VALUES (?, ?, ?, ?)
+            ON CONFLICT (customer_id, contract_address) DO UPDATE
+               SET subscription_tier = EXCLUDED.subscription_tier""",
+            watcher.customerId(), watcher.contractAddress(), watcher.subscriptionTier(),
+            Timestamp.valueOf(watcher.createdAt()));
+    }
+    
+    public boolean deleteWatcher(long customerId, String contractAddress) {
+        return jdbcTemplate.update("DELETE FROM contract_watchers WHERE customer_id = ? AND contract_address = ?",
+            customerId, contractAddress) > 0;
+    }
+    
+    /**
+     * Remove a contract and, by cascade, any watchers left on it
+     */
+    public boolean delete(String contractAddress) {
+        return jdbcTemplate.update("DELETE FROM watched_contracts WHERE contract_address = ?", contractAddress) > 0;
+    }
+}
@@ -0,0 +1,322 @@
+package com.mevanalytics.platform.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only alert history, one journal per protected contract.
+ *
+ * A journal is a directory of fixed-size memory-mapped segments named after the
+ * first alert id they hold. Records are laid out as
+ * [int length][long alertId][long timestampMillis][length bytes of JSON] and a zero
+ * length marks the end of written data, so recovery is a forward scan of the last
+ * segment. Replay maps the segments it needs and copies record bytes out without
+ * parsing them. The oldest segments are deleted beyond max-segments.
+ *
+ * Each open journal holds a channel and a mapped segment, so at most max-open stay
+ * open; the least recently used, and any idle past idle-close-ms, are closed and
+ * reopened from disk when needed again.
+ */
+@Service
+public class AlertJournal {
+    
+    private static final int HEADER_BYTES = 4 + 8 + 8;
+    // Journal directories are named after the contract, so nothing else may reach the path
+    private static final Pattern ADDRESS = Pattern.compile("^0x[0-9a-f]{40}$");
+    
+    @Value("${protection.journal.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${protection.journal.dir:./data/alert-journal}")
+    private String journalDir;
+    
+    @Value("${protection.journal.segment-bytes:8388608}")
+    private int segmentBytes;
+    
+    @Value("${protection.journal.max-segments:8}")
+    private int maxSegments;
+    
+    @Value("${protection.journal.max-open:256}")
+    private int maxOpen;
+    
+    @Value("${protection.journal.idle-close-ms:600000}")
+    private long idleCloseMs;
+    
+    // Access order: the eldest entry is the least recently used journal
+    private final LinkedHashMap<String, ContractJournal> journals = new LinkedHashMap<>(16, 0.75f, true);
+    // Evicted journals until their close completes; reopening waits for it
+    private final Map<String, ContractJournal> closing = new ConcurrentHashMap<>();
+    
+    public record Entry(long alertId, long timestampMillis, byte[] json) {}
+    
+    private class ContractJournal {
+        final Path dir;
+        final TreeMap<Long, Path> segments = new TreeMap<>(); // first alert id -> file
+        FileChannel activeChannel;
+        MappedByteBuffer active;
+        volatile long lastId;
+        volatile long lastUsedMillis = System.currentTimeMillis();
+        boolean closed;
+        
+        ContractJournal(Path dir, long minimumLastId) throws IOException {
+            this.dir = Files.createDirectories(dir);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.seg")) {
+                for (Path file : files) {
+                    String name = file.getFileName().toString();
+                    segments.put(Long.parseLong(name.substring(0, name.length() - 4)), file);
+                }
+            }
+            lastId = minimumLastId;
+            if (!segments.isEmpty()) {
+                openActive(segments.lastEntry().getValue());
+                // Scan to the end of written data to recover the write position and last id
+                while (active.remaining() >= HEADER_BYTES) {
+                    int length = active.getInt(active.position());
+                    if (length <= 0) break;
+                    lastId = Math.max(lastId, active.getLong(active.position() + 4));
+                    active.position(active.position() + HEADER_BYTES + length);
+                }
+            }
+        }
+        
+        /**
+         * @return the new alert id, or -1 if the journal was closed meanwhile
+         */
+        synchronized long append(long minimumLastId, LongFunction<byte[]> serializer) throws IOException {
+            if (closed) return -1;
+            lastUsedMillis = System.currentTimeMillis();
+            long id = Math.max(lastId, minimumLastId) + 1;
+            byte[] json = serializer.apply(id);
+            int recordBytes = HEADER_BYTES + json.length;
+            if (recordBytes + 4 > segmentBytes) {
+                throw new IOException("Alert of " + json.length + " bytes exceeds journal segment size");
+            }
+            if (active == null || active.remaining() < recordBytes + 4) {
+                rollSegment(id);
+            }
+            
+            // Body first, length last, so a torn write never exposes a partial record
+            int position = active.position();
+            active.putLong(position + 4, id);
+            active.putLong(position + 12, System.currentTimeMillis());
+            active.put(position + HEADER_BYTES, json);
+            active.putInt(position, json.length);
+            active.position(position + recordBytes);
+            lastId = id;
+            return id;
+        }
+        
+        private void rollSegment(long firstId) throws IOException {
+            if (active != null) {
+                active.force();
+                activeChannel.close();
+            }
+            Path file = dir.resolve(String.format("%020d.seg", firstId));
+            segments.put(firstId, file);
+            openActive(file);
+            
+            while (segments.size() > maxSegments) {
+                Files.deleteIfExists(segments.pollFirstEntry().getValue());
+            }
+        }
+        
+        private void openActive(Path file) throws IOException {
+            activeChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        
+        synchronized long firstAvailableId() {
+            return segments.isEmpty() ? lastId + 1 : segments.firstKey();
+        }
+        
+        synchronized Map.Entry<Long, Path> segmentFor(long alertId) {
+            Map.Entry<Long, Path> entry = segments.floorEntry(alertId);
+            return entry != null ? entry : segments.firstEntry();
+        }
+        
+        synchronized Map.Entry<Long, Path> nextSegment(long firstId) {
+            return segments.higherEntry(firstId);
+        }
+        
+        synchronized void force() {
+            if (active != null) active.force();
+        }
+        
+        synchronized void close() throws IOException {
+            closed = true;
+            if (active != null) {
+                active.force();
+                activeChannel.close();
+                active = null;
+            }
+        }
+    }
+    
+    @PostConstruct
+    public void initialize() {
+        if (enabled) {
+            System.out.println("📓 Alert journal at " + Path.of(journalDir).toAbsolutePath());
+        }
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public static boolean isValidAddress(String contractAddress) {
+        return contractAddress != null && ADDRESS.matcher(contractAddress).matches();
+    }
+    
+    /**
+     * Open journal of a contract, opening it from disk first if needed. With
+     * {@code create} false, a contract that never journaled anything returns null.
+     */
+    private ContractJournal journal(String contractAddress, long minimumLastId, boolean create) throws IOException {
+        if (!isValidAddress(contractAddress)) {
+            throw new IllegalArgumentException("Invalid contract address for alert journal: " + contractAddress);
+        }
+        List<Map.Entry<String, ContractJournal>> evicted = new ArrayList<>();
+        ContractJournal journal;
+        synchronized (journals) {
+            journal = journals.get(contractAddress);
+            if (journal == null) {
+                Path dir = Path.of(journalDir, contractAddress);
+                if (!create && !Files.isDirectory(dir)) return null;
+                // Recovery must see everything the previous instance wrote
+                ContractJournal stale = closing.get(contractAddress);
+                if (stale != null) close(contractAddress, stale);
+                journal = new ContractJournal(dir, minimumLastId);
+                journals.put(contractAddress, journal);
+                Iterator<Map.Entry<String, ContractJournal>> eldest = journals.entrySet().iterator();
+                while (journals.size() > maxOpen) {
+                    Map.Entry<String, ContractJournal> entry = eldest.next();
+                    evicted.add(Map.entry(entry.getKey(), entry.getValue()));
+                    closing.put(entry.getKey(), entry.getValue());
+                    eldest.remove();
+                }
+            }
+        }
+        // Flushing and unmapping happen outside the lock
+        evicted.forEach(entry -> close(entry.getKey(), entry.getValue()));
+        return journal;
+    }
+    
+    private void close(String contractAddress, ContractJournal journal) {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("❌ Failed to close alert journal: " + e.getMessage());
+        } finally {
+            closing.remove(contractAddress, journal);
+        }
+    }
+    
+    /**
+     * Assign the next alert id for a contract and append the alert serialized with it.
+     * Ids never go below {@code minimumLastId}, so they keep increasing when ownership
+     * of a contract moves to a replica without its journal.
+     */
+    public long append(String contractAddress, long minimumLastId, LongFunction<byte[]> serializer) throws IOException {
+        while (true) {
+            // A journal evicted between lookup and append is reopened from disk
+            long id = journal(contractAddress, minimumLastId, true).append(minimumLastId, serializer);
+            if (id >= 0) return id;
+        }
+    }
+    
+    public long getLastId(String contractAddress) {
+        ContractJournal journal;
+        synchronized (journals) {
+            journal = journals.get(contractAddress);
+        }
+        return journal == null ? 0 : journal.lastId;
+    }
+    
+    /**
+     * Oldest alert id still on disk; a resume point older than this has a gap
+     */
+    public long getFirstAvailableId(String contractAddress) throws IOException {
+        ContractJournal journal = journal(contractAddress, 0, false);
+        return journal == null ? 1 : journal.firstAvailableId();
+    }
+    
+    /**
+     * Read alerts with id greater than {@code afterId}, oldest first, up to {@code limit}
+     */
+    public List<Entry> readAfter(String contractAddress, long afterId, int limit) throws IOException {
+        ContractJournal journal = journal(contractAddress, 0, false);
+        List<Entry> entries = new ArrayList<>();
+        if (journal == null) return entries;
+        long upTo = journal.lastId;
+        Map.Entry<Long, Path> segment = journal.segmentFor(afterId + 1);
+        
+        while (segment != null && entries.size() < limit) {
+            try (FileChannel channel = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), segmentBytes));
+                while (buffer.remaining() >= HEADER_BYTES && entries.size() < limit) {
+                    int length = buffer.getInt();
+                    if (length <= 0) break;
+                    long id = buffer.getLong();
+                    long timestamp = buffer.getLong();
+                    if (id <= afterId || id > upTo) {
+                        buffer.position(buffer.position() + length);
+                        continue;
+                    }
+                    byte[] json = new byte[length];
+                    buffer.get(json);
+                    entries.add(new Entry(id, timestamp, json));
+                }
+            } catch (NoSuchFileException e) {
+                // Segment was retired while we were reading; continue with the next one
+            }
+            segment = journal.nextSegment(segment.getKey());
+        }
+        return entries;
+    }
+    
+    /**
+     * Flush dirty pages of every active segment; mapped writes survive a JVM crash
+     * without this, it only narrows the window for an OS crash
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void forceAll() {
+        long idleBefore = System.currentTimeMillis() - idleCloseMs;
+        List<ContractJournal> open = new ArrayList<>();
+        Map<String, ContractJournal> idle = new HashMap<>();
+        synchronized (journals) {
+            journals.entrySet().removeIf(entry -> {
+                if (entry.getValue().lastUsedMillis >= idleBefore) {
+                    open.add(entry.getValue());
+                    return false;
+                }
+                idle.put(entry.getKey(), entry.getValue());
+                closing.put(entry.getKey(), entry.getValue());
+                return true;
+            });
+        }
+        open.forEach(ContractJournal::force);
+        idle.forEach(this::close);
+    }
+    
+    @PreDestroy
+    public void cleanup() {
+        Map<String, ContractJournal> open;
+        synchronized (journals) {
+            open = new HashMap<>(journals);
+            journals.clear();
+        }
+        open.forEach(this::close);
+    }
+}
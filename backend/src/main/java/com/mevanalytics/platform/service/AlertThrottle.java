@@ -0,0 +1,121 @@
+package com.mevanalytics.platform.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-contract alert admission. Repeats of the same alert for the same transaction
+ * are dropped, each alert type has a cooldown after it fires, and the contract as a
+ * whole is capped at a fixed number of alerts per sliding window. Alerts held back
+ * by a cooldown or the cap are counted and later reported as one summary per type.
+ * All paths are lock-free; they run on block, mempool and gas listener threads at once.
+ */
+public class AlertThrottle {
+    
+    public enum Decision {
+        EMIT, DUPLICATE, SUPPRESSED
+    }
+    
+    public record Summary(String alertType, long suppressed, long eventsInWindow, long windowMs) {}
+    
+    private static class TypeState {
+        final SlidingWindowCounter events;
+        final AtomicLong cooldownUntil = new AtomicLong();
+        final AtomicLong suppressed = new AtomicLong();
+        
+        TypeState(long windowMs) {
+            this.events = new SlidingWindowCounter(windowMs, 12);
+        }
+    }
+    
+    private final long windowMs;
+    private final long cooldownMs;
+    private final int maxPerWindow;
+    private final SlidingWindowCounter emitted;
+    private final Map<String, TypeState> types = new ConcurrentHashMap<>();
+    private final Map<String, Long> recentKeys = new ConcurrentHashMap<>();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder suppressedTotal = new LongAdder();
+    
+    public AlertThrottle(long windowMs, long cooldownMs, int maxPerWindow) {
+        this.windowMs = windowMs;
+        this.cooldownMs = cooldownMs;
+        this.maxPerWindow = maxPerWindow;
+        this.emitted = new SlidingWindowCounter(windowMs, 12);
+    }
+    
+    /**
+     * Decide whether an alert goes out now
+     *
+     * @param dedupKey identifies the underlying event (usually the transaction hash), or null
+     */
+    public Decision admit(String alertType, String dedupKey, long nowMillis) {
+        if (dedupKey != null) {
+            String key = alertType + "|" + dedupKey;
+            Long expiresAt = recentKeys.putIfAbsent(key, nowMillis + windowMs);
+            if (expiresAt != null) {
+                if (expiresAt > nowMillis) {
+                    duplicates.increment();
+                    return Decision.DUPLICATE;
+                }
+                recentKeys.put(key, nowMillis + windowMs);
+            }
+        }
+        
+        TypeState state = types.computeIfAbsent(alertType, k -> new TypeState(windowMs));
+        state.events.increment(nowMillis);
+        
+        long cooldownUntil = state.cooldownUntil.get();
+        if (nowMillis < cooldownUntil
+                || emitted.sum(nowMillis) >= maxPerWindow
+                || !state.cooldownUntil.compareAndSet(cooldownUntil, nowMillis + cooldownMs)) {
+            // Cooling down, over the contract's cap, or another thread just fired this type
+            state.suppressed.incrementAndGet();
+            suppressedTotal.increment();
+            return Decision.SUPPRESSED;
+        }
+        
+        emitted.increment(nowMillis);
+        return Decision.EMIT;
+    }
+    
+    /**
+     * Collect a summary for every type whose cooldown has ended with alerts held back,
+     * and forget expired dedup keys. Called periodically.
+     */
+    public List<Summary> drainSummaries(long nowMillis) {
+        recentKeys.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+        
+        List<Summary> summaries = new ArrayList<>();
+        types.forEach((alertType, state) -> {
+            long cooldownUntil = state.cooldownUntil.get();
+            if (nowMillis < cooldownUntil || state.suppressed.get() == 0) return;
+            if (!state.cooldownUntil.compareAndSet(cooldownUntil, nowMillis + cooldownMs)) return;
+            
+            long suppressed = state.suppressed.getAndSet(0);
+            if (suppressed > 0) {
+                emitted.increment(nowMillis);
+                summaries.add(new Summary(alertType, suppressed, state.events.sum(nowMillis), windowMs));
+            }
+        });
+        return summaries;
+    }
+    
+    public Map<String, Object> getStats(long nowMillis) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("alertsInWindow", emitted.sum(nowMillis));
+        stats.put("maxPerWindow", maxPerWindow);
+        stats.put("windowMs", windowMs);
+        stats.put("duplicates", duplicates.sum());
+        stats.put("suppressed", suppressedTotal.sum());
+        Map<String, Long> eventsByType = new HashMap<>();
+        types.forEach((alertType, state) -> eventsByType.put(alertType, state.events.sum(nowMillis)));
+        stats.put("eventsInWindow", eventsByType);
+        return stats;
+    }
+}
@@ -0,0 +1,437 @@
+package com.mevanalytics.platform.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mevanalytics.platform.dto.BatchScanRequest;
+import com.mevanalytics.platform.dto.ScanResult;
+import com.mevanalytics.platform.evm.Disassembly;
+import com.mevanalytics.platform.evm.ProxyDetector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetCode;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Scans many addresses in one request. Code is fetched with batched eth_getCode calls,
+ * and addresses that share bytecode share one analysis. Analyses run on the scan
+ * scheduler's workers in the caller's tier lane, and each address's result is written
+ * as an NDJSON line as soon as it is ready.
+ */
+@Service
+public class BatchScanService {
+    
+    private static final Pattern ADDRESS = Pattern.compile("^0x[a-fA-F0-9]{40}$");
+    // Marks code already checked and found not to be a proxy
+    private static final ProxyDetector.Pattern NOT_A_PROXY = new ProxyDetector.Pattern(null, null);
+    
+    @Autowired
+    private ContractScannerService scannerService;
+    
+    @Autowired
+    private ScanScheduler scanScheduler;
+    
+    @Autowired
+    private EthereumService ethereumService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private ScanMetrics scanMetrics;
+    
+    @Autowired
+    private ProxyResolver proxyResolver;
+    
+    @Value("${scanner.batch.max-addresses:5000}")
+    private int maxAddresses;
+    
+    @Value("${scanner.batch.rpc-batch-size:100}")
+    private int rpcBatchSize;
+    
+    @Value("${scanner.batch.max-in-flight:8}")
+    private int maxInFlight;
+    
+    @Value("${scanner.batch.max-concurrent:4}")
+    private int maxConcurrentBatches;
+    
+    @Value("${scanner.batch.result-timeout-ms:120000}")
+    private long resultTimeoutMs;
+    
+    private Semaphore batchPermits;
+    private final AtomicLong batchesRun = new AtomicLong();
+    private final AtomicLong addressesScanned = new AtomicLong();
+    private final AtomicLong analysesShared = new AtomicLong();
+    private final AtomicLong analysesCancelled = new AtomicLong();
+    private final AtomicLong rpcBatches = new AtomicLong();
+    private final AtomicLong proxiesResolved = new AtomicLong();
+    
+    private record Code(String bytecode, String error) {}
+    
+    @PostConstruct
+    public void initialize() {
+        batchPermits = new Semaphore(maxConcurrentBatches);
+    }
+    
+    /**
+     * Validate a batch and take one of the concurrent batch permits; the batch holds it until written
+     *
+     * @throws RejectedExecutionException if too many batches are already running
+     * @throws IllegalArgumentException if the batch is larger than allowed
+     */
+    public Batch admit(BatchScanRequest request, ScanScheduler.Tier tier) {
+        List<String> addresses = request.getContractAddresses().stream()
+            .filter(Objects::nonNull)
+            .map(String::trim)
+            .distinct()
+            .toList();
+        if (addresses.size() > maxAddresses) {
+            throw new IllegalArgumentException("A batch can scan at most " + maxAddresses + " addresses");
+        }
+        if (!batchPermits.tryAcquire()) {
+            throw new RejectedExecutionException("Too many batch scans running");
+        }
+        batchesRun.incrementAndGet();
+        return new Batch(addresses, request, tier);
+    }
+    
+    /**
+     * An admitted batch. At most max-in-flight of its analyses are queued or running at
+     * once, so a batch cannot crowd single scans out of its lane.
+     */
+    public class Batch {
+        
+        private final List<String> addresses;
+        private final ScanScheduler.Tier tier;
+        private final boolean includeGas;
+        private final boolean includeMempool;
+        private final LocalDateTime queuedAt = LocalDateTime.now();
+        private final long startTime = System.currentTimeMillis();
+        // Workers hand finished results to the writing thread, the only one writing the response
+        private final BlockingQueue<ScanResult> finished = new LinkedBlockingQueue<>();
+        // Scans handed to workers and not yet finished; whoever removes one delivers its result
+        private final Map<Long, String> pending = new ConcurrentHashMap<>();
+        // Keyed by code hash so the batch holds each distinct bytecode once
+        private final Map<String, CompletableFuture<BytecodeAnalysisCache.Lookup>> analyses = new HashMap<>();
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final AtomicBoolean released = new AtomicBoolean();
+        private OutputStream out;
+        private int written;
+        private boolean timedOut;
+        
+        private Batch(List<String> addresses, BatchScanRequest request, ScanScheduler.Tier tier) {
+            this.addresses = addresses;
+            this.tier = tier;
+            this.includeGas = Boolean.TRUE.equals(request.getIncludeGasAnalysis());
+            this.includeMempool = Boolean.TRUE.equals(request.getIncludeMempoolAnalysis());
+        }
+        
+        /**
+         * Scan every address and write one ScanResult per line to out, in completion order.
+         * If the client goes away, analyses not yet started are cancelled.
+         *
+         * @return number of results written
+         */
+        public int writeTo(OutputStream out) throws IOException {
+            this.out = out;
+            try {
+                run();
+                addressesScanned.addAndGet(written);
+                System.out.println("📦 Batch scan finished: " + written + " addresses, " + analyses.size()
+                    + " distinct bytecodes in " + (System.currentTimeMillis() - startTime) + "ms");
+                return written;
+            } catch (IOException | RuntimeException e) {
+                // Nobody is reading the rest; stop spending workers on it
+                cancelOutstanding();
+                throw e;
+            } finally {
+                if (released.compareAndSet(false, true)) batchPermits.release();
+            }
+        }
+        
+        private void run() throws IOException {
+            for (int from = 0; from < addresses.size(); from += rpcBatchSize) {
+                List<String> chunk = addresses.subList(from, Math.min(addresses.size(), from + rpcBatchSize));
+                Map<String, Code> codes = timedOut ? Map.of() : fetchCode(chunk);
+                Map<String, ProxyResolver.Resolution> proxies = timedOut ? Map.of() : resolveProxies(codes);
+                
+                for (String address : chunk) {
+                    Long scanId = scannerService.nextScanId();
+                    Code code = codes.get(address);
+                    String error = timedOut ? "Scan timed out"
+                        : !ADDRESS.matcher(address).matches() ? "Invalid Ethereum address format"
+                        : code.error() != null ? code.error()
+                        : code.bytecode() == null || code.bytecode().length() <= 2 ? "Address is not a contract"
+                        : null;
+                    if (error != null) {
+                        finished.add(failSafely(scanId, address, error, queuedAt, startTime));
+                        continue;
+                    }
+                    
+                    // Proxies are analyzed through their implementation's code
+                    ProxyResolver.Resolution proxy = proxies.get(address);
+                    String bytecode = proxy != null && proxy.implementationCode() != null
+                        ? proxy.implementationCode() : code.bytecode();
+                    
+                    // One analysis per distinct bytecode in the batch, however many addresses share it
+                    String codeHash = Hash.sha3(bytecode);
+                    CompletableFuture<BytecodeAnalysisCache.Lookup> analysis = analyses.get(codeHash);
+                    if (analysis == null) {
+                        if (!awaitAnalysisSlot()) {
+                            timeOut();
+                            finished.add(failSafely(scanId, address, "Scan timed out", queuedAt, startTime));
+                            continue;
+                        }
+                        analysis = submitAnalysis(bytecode);
+                        analyses.put(codeHash, analysis);
+                    } else {
+                        analysesShared.incrementAndGet();
+                    }
+                    
+                    ScanResult running = ScanResult.builder()
+                        .scanId(scanId)
+                        .contractAddress(address)
+                        .contractName("Unknown Contract")
+                        .status("RUNNING")
+                        .queuedAt(queuedAt)
+                        .startedAt(LocalDateTime.now())
+                        .proxy(proxy != null ? scannerService.proxyInfo(proxy, Hash.sha3(code.bytecode())) : null)
+                        .build();
+                    pending.put(scanId, address);
+                    analysis.whenComplete((lookup, failure) -> {
+                        ScanResult result;
+                        try {
+                            result = failure == null
+                                ? scannerService.completeScan(running, lookup, includeGas, includeMempool, startTime)
+                                : scannerService.failScan(scanId, address, failure.getMessage(), queuedAt, startTime);
+                        } catch (Throwable e) {
+                            result = failSafely(scanId, address, e.getMessage(), queuedAt, startTime);
+                        }
+                        if (pending.remove(scanId) != null) finished.add(result);
+                    });
+                }
+                written += drain(false);
+            }
+            
+            while (written < addresses.size()) {
+                int drained = drain(true);
+                if (drained == 0) timeOut();
+                written += drained;
+            }
+        }
+        
+        /**
+         * Queue one analysis in the caller's tier lane. Its slot is given back when it ends;
+         * one cancelled before a worker reaches it is skipped.
+         */
+        private CompletableFuture<BytecodeAnalysisCache.Lookup> submitAnalysis(String bytecode) {
+            CompletableFuture<BytecodeAnalysisCache.Lookup> analysis = new CompletableFuture<>();
+            try {
+                scanScheduler.submit(tier, () -> {
+                    try {
+                        if (!analysis.isDone()) analysis.complete(scannerService.analyzeCode(bytecode));
+                    } catch (Throwable e) {
+                        analysis.completeExceptionally(e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The lane is full of other scans; this address fails like a single scan would
+                inFlight.release();
+                analysis.completeExceptionally(e);
+            }
+            return analysis;
+        }
+        
+        /**
+         * Wait for an analysis slot, writing results as they finish meanwhile
+         *
+         * @return false if no slot freed up within the result timeout
+         */
+        private boolean awaitAnalysisSlot() throws IOException {
+            long deadline = System.currentTimeMillis() + resultTimeoutMs;
+            try {
+                while (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    written += drain(false);
+                    if (System.currentTimeMillis() > deadline) return false;
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Batch scan interrupted", e);
+            }
+        }
+        
+        /**
+         * Nothing finished within the result timeout: fail what is left rather than hold the
+         * permit forever, and cancel analyses that have not started
+         */
+        private void timeOut() {
+            if (!timedOut) {
+                System.err.println("⏱️ Batch scan timed out with " + pending.size() + " addresses outstanding");
+                timedOut = true;
+            }
+            for (Long scanId : List.copyOf(pending.keySet())) {
+                String address = pending.remove(scanId);
+                if (address != null) {
+                    finished.add(failSafely(scanId, address, "Scan timed out", queuedAt, startTime));
+                }
+            }
+            cancelOutstanding();
+        }
+        
+        private void cancelOutstanding() {
+            for (CompletableFuture<BytecodeAnalysisCache.Lookup> analysis : analyses.values()) {
+                if (analysis.cancel(false)) analysesCancelled.incrementAndGet();
+            }
+        }
+        
+        /**
+         * Write whatever has finished; if blocking, wait up to the result timeout for at least one result first
+         */
+        private int drain(boolean block) throws IOException {
+            List<ScanResult> ready = new ArrayList<>();
+            if (block) {
+                try {
+                    ScanResult first = finished.poll(resultTimeoutMs, TimeUnit.MILLISECONDS);
+                    if (first != null) ready.add(first);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Batch scan interrupted", e);
+                }
+            }
+            finished.drainTo(ready);
+            for (ScanResult result : ready) {
+                out.write(objectMapper.writeValueAsBytes(result));
+                out.write('\n');
+            }
+            if (!ready.isEmpty()) out.flush();
+            return ready.size();
+        }
+    }
+    
+    /**
+     * A FAILED result, even if recording it fails too
+     */
+    private ScanResult failSafely(Long scanId, String address, String error, LocalDateTime queuedAt, long startTime) {
+        try {
+            return scannerService.failScan(scanId, address, error, queuedAt, startTime);
+        } catch (Throwable e) {
+            System.err.println("❌ Failed to record failed scan #" + scanId + ": " + e.getMessage());
+            return ScanResult.builder()
+                .scanId(scanId)
+                .contractAddress(address)
+                .status("FAILED")
+                .error(error)
+                .queuedAt(queuedAt)
+                .completedAt(LocalDateTime.now())
+                .build();
+        }
+    }
+    
+    /**
+     * Detect proxies among a chunk's code, then read their slots and fetch their
+     * implementations, one JSON-RPC batch per step for the whole chunk
+     */
+    private Map<String, ProxyResolver.Resolution> resolveProxies(Map<String, Code> codes) {
+        Map<String, ProxyDetector.Pattern> patternByCode = new HashMap<>();
+        Map<String, ProxyDetector.Pattern> proxies = new HashMap<>();
+        codes.forEach((address, code) -> {
+            String bytecode = code.bytecode();
+            // Only small contracts can be proxies, so large code is never disassembled twice
+            if (bytecode == null || bytecode.length() <= 2 || bytecode.length() > 2 + 2 * ProxyDetector.MAX_PROXY_SIZE) return;
+            ProxyDetector.Pattern pattern = patternByCode.computeIfAbsent(bytecode,
+                hex -> Optional.ofNullable(ProxyDetector.detect(Disassembly.ofHex(hex))).orElse(NOT_A_PROXY));
+            if (pattern != NOT_A_PROXY) proxies.put(address, pattern);
+        });
+        if (proxies.isEmpty()) return Map.of();
+        
+        long resolveStart = System.nanoTime();
+        Map<String, String> slotValues = Map.of();
+        try {
+            slotValues = proxyResolver.readSlots(proxies);
+        } catch (Exception e) {
+            System.err.println("❌ Failed to read proxy slots: " + e.getMessage());
+        }
+        Map<String, ProxyResolver.Resolution> resolutions = proxyResolver.resolve(proxies, slotValues);
+        scanMetrics.record(ScanMetrics.Stage.PROXY_RESOLUTION, resolveStart);
+        proxiesResolved.addAndGet(resolutions.values().stream().filter(r -> r.implementationCode() != null).count());
+        return resolutions;
+    }
+    
+    /**
+     * eth_getCode for every address in one JSON-RPC batch
+     */
+    private Map<String, Code> fetchCode(List<String> addresses) {
+        Map<String, Code> codes = new HashMap<>();
+        Web3j web3j = ethereumService.getWeb3j();
+        if (web3j == null || !ethereumService.isConnected()) {
+            addresses.forEach(address -> codes.put(address, new Code(null, "Ethereum node not connected")));
+            return codes;
+        }
+        
+        Map<Long, String> addressById = new HashMap<>();
+        BatchRequest batch = web3j.newBatch();
+        for (String address : addresses) {
+            if (!ADDRESS.matcher(address).matches()) {
+                codes.put(address, new Code(null, null));
+                continue;
+            }
+            Request<?, EthGetCode> request = web3j.ethGetCode(address, DefaultBlockParameterName.LATEST);
+            addressById.put(request.getId(), address);
+            batch.add(request);
+        }
+        if (addressById.isEmpty()) return codes;
+        
+        try {
+            // One code-fetch sample per JSON-RPC batch, not per address
+            long fetchStart = System.nanoTime();
+            BatchResponse response = batch.send();
+            scanMetrics.record(ScanMetrics.Stage.CODE_FETCH, fetchStart);
+            rpcBatches.incrementAndGet();
+            for (Response<?> item : response.getResponses()) {
+                // Match by id: servers may answer a batch in any order
+                String address = addressById.get(item.getId());
+                if (address == null) continue;
+                codes.put(address, item.hasError()
+                    ? new Code(null, "eth_getCode failed: " + item.getError().getMessage())
+                    : new Code(((EthGetCode) item).getCode(), null));
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Batched eth_getCode failed: " + e.getMessage());
+            addressById.values().forEach(address -> codes.put(address, new Code(null, "eth_getCode failed: " + e.getMessage())));
+        }
+        addressById.values().forEach(address -> codes.putIfAbsent(address, new Code(null, "No eth_getCode response")));
+        return codes;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("batchesRun", batchesRun.get());
+        stats.put("addressesScanned", addressesScanned.get());
+        stats.put("analysesShared", analysesShared.get());
+        stats.put("analysesCancelled", analysesCancelled.get());
+        stats.put("rpcBatches", rpcBatches.get());
+        stats.put("proxiesResolved", proxiesResolved.get());
+        stats.put("runningBatches", maxConcurrentBatches - batchPermits.availablePermits());
+        stats.put("maxAddresses", maxAddresses);
+        stats.put("maxInFlight", maxInFlight);
+        return stats;
+    }
+}
@@ -0,0 +1,150 @@
+package com.mevanalytics.platform.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mevanalytics.platform.dto.BytecodeAnalysis;
+import com.mevanalytics.platform.repository.BytecodeAnalysisRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Two-tier cache of bytecode analyses keyed by code hash: a bounded in-memory LRU in
+ * front of the bytecode_analyses table. Concurrent lookups of the same hash share one
+ * computation, so a bulk scan of factory clones analyses the code once.
+ */
+@Service
+public class BytecodeAnalysisCache {
+    
+    @Autowired
+    private BytecodeAnalysisRepository analysisRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${scanner.cache.max-entries:10000}")
+    private int maxEntries;
+    
+    @Value("${scanner.cache.persist:true}")
+    private boolean persist;
+    
+    @Value("${scanner.cache.max-persisted:200000}")
+    private int maxPersisted;
+    
+    public enum Source { MEMORY, DATABASE, COMPUTED }
+    
+    public record Lookup(BytecodeAnalysis analysis, Source source) {}
+    
+    private final Map<String, BytecodeAnalysis> memory = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, BytecodeAnalysis> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    private final Map<String, CompletableFuture<Lookup>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong databaseHits = new AtomicLong();
+    private final AtomicLong computed = new AtomicLong();
+    
+    /**
+     * Cached analysis for a code hash and analyzer version, computing it at most once
+     */
+    public Lookup getOrCompute(String codeHash, int analyzerVersion, Supplier<BytecodeAnalysis> analyzer) {
+        BytecodeAnalysis cached = fromMemory(codeHash, analyzerVersion);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            return new Lookup(cached, Source.MEMORY);
+        }
+        
+        CompletableFuture<Lookup> mine = new CompletableFuture<>();
+        CompletableFuture<Lookup> running = inFlight.putIfAbsent(codeHash, mine);
+        if (running != null) {
+            return running.join();
+        }
+        try {
+            // Another caller may have finished between the memory check and claiming the slot
+            cached = fromMemory(codeHash, analyzerVersion);
+            Lookup lookup = cached != null ? new Lookup(cached, Source.MEMORY) : load(codeHash, analyzerVersion, analyzer);
+            synchronized (memory) {
+                memory.put(codeHash, lookup.analysis());
+            }
+            mine.complete(lookup);
+            return lookup;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(codeHash, mine);
+        }
+    }
+    
+    private BytecodeAnalysis fromMemory(String codeHash, int analyzerVersion) {
+        synchronized (memory) {
+            BytecodeAnalysis cached = memory.get(codeHash);
+            return cached != null && Objects.equals(cached.getAnalyzerVersion(), analyzerVersion) ? cached : null;
+        }
+    }
+    
+    private Lookup load(String codeHash, int analyzerVersion, Supplier<BytecodeAnalysis> analyzer) {
+        if (persist) {
+            try {
+                Optional<String> stored = analysisRepository.find(codeHash, analyzerVersion);
+                if (stored.isPresent()) {
+                    databaseHits.incrementAndGet();
+                    analysisRepository.touch(codeHash);
+                    return new Lookup(objectMapper.readValue(stored.get(), BytecodeAnalysis.class), Source.DATABASE);
+                }
+            } catch (Exception e) {
+                System.err.println("❌ Failed to read cached analysis " + codeHash + ": " + e.getMessage());
+            }
+        }
+        
+        BytecodeAnalysis analysis = analyzer.get();
+        computed.incrementAndGet();
+        if (persist) {
+            try {
+                analysisRepository.save(codeHash, analyzerVersion, objectMapper.writeValueAsString(analysis));
+            } catch (Exception e) {
+                // Still cached in memory; the next restart recomputes it
+                System.err.println("❌ Failed to persist analysis " + codeHash + ": " + e.getMessage());
+            }
+        }
+        return new Lookup(analysis, Source.COMPUTED);
+    }
+    
+    /**
+     * Keep the persistent tier bounded, dropping the least recently used analyses
+     */
+    @Scheduled(fixedDelayString = "${scanner.cache.prune-interval-ms:3600000}")
+    public void prune() {
+        if (!persist) return;
+        try {
+            int deleted = analysisRepository.prune(maxPersisted);
+            if (deleted > 0) {
+                System.out.println("🧹 Pruned " + deleted + " cached bytecode analyses");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Failed to prune bytecode analyses: " + e.getMessage());
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (memory) {
+            stats.put("entries", memory.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("databaseHits", databaseHits.get());
+        stats.put("computed", computed.get());
+        long lookups = memoryHits.get() + databaseHits.get() + computed.get();
+        stats.put("hitRate", lookups > 0 ? (lookups - computed.get()) * 100.0 / lookups : 0);
+        return stats;
+    }
+}
@@ -0,0 +1,26 @@
+package com.mevanalytics.platform.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Lightweight publish/subscribe channel between backend replicas.
+ * Delivery is best effort and asynchronous; every subscriber of a channel,
+ * including the publishing replica, receives each message.
+ */
+public interface ClusterBus {
+    
+    void publish(String channel, String message);
+    
+    /**
+     * Listeners run on the transport's delivery thread and must not block on I/O;
+     * hand slow work to another executor
+     */
+    void subscribe(String channel, Consumer<String> listener);
+    
+    /**
+     * Largest message the transport accepts, in bytes
+     */
+    default int maxMessageBytes() {
+        return Integer.MAX_VALUE;
+    }
+}
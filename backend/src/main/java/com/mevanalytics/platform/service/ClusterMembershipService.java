@@ -0,0 +1,150 @@
+package com.mevanalytics.platform.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Tracks which backend replicas are alive through heartbeats on the cluster bus
+ * and maps keys (protected contracts) to their owning replica on a consistent-hash ring.
+ */
+@Service
+public class ClusterMembershipService {
+    
+    public static final String CONTROL_CHANNEL = "mev_protection_control";
+    private static final Pattern REPLICA_ID = Pattern.compile("[a-z0-9_.-]{1,48}");
+    
+    @Autowired
+    private ClusterBus clusterBus;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${protection.cluster.replica-id:}")
+    private String configuredReplicaId;
+    
+    @Value("${protection.cluster.virtual-nodes:128}")
+    private int virtualNodes;
+    
+    @Value("${protection.cluster.heartbeat-ms:2000}")
+    private long heartbeatMs;
+    
+    @Value("${protection.cluster.member-timeout-ms:10000}")
+    private long memberTimeoutMs;
+    
+    private String replicaId;
+    private final Map<String, Long> lastSeen = new ConcurrentHashMap<>();
+    private volatile ConsistentHashRing ring;
+    private final List<Runnable> ringListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService heartbeatScheduler = Executors.newSingleThreadScheduledExecutor();
+    
+    @PostConstruct
+    public void initialize() {
+        replicaId = configuredReplicaId == null || configuredReplicaId.isBlank()
+            ? UUID.randomUUID().toString().replace("-", "").substring(0, 12)
+            : configuredReplicaId.toLowerCase();
+        // The id names this replica's bus channel, which Postgres caps at 63 bytes
+        if (!REPLICA_ID.matcher(replicaId).matches() || replicaChannel(replicaId).equals(CONTROL_CHANNEL)) {
+            throw new IllegalStateException("protection.cluster.replica-id must be 1-48 characters of [a-z0-9_.-], got: "
+                + configuredReplicaId);
+        }
+        ring = new ConsistentHashRing(List.of(replicaId), virtualNodes);
+        
+        clusterBus.subscribe(CONTROL_CHANNEL, this::onControlMessage);
+        heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat, 0, heartbeatMs, TimeUnit.MILLISECONDS);
+        System.out.println("🔀 Cluster replica " + replicaId + " joined");
+    }
+    
+    public String getReplicaId() {
+        return replicaId;
+    }
+    
+    /**
+     * Replica-private channel used to deliver messages to one replica only
+     */
+    public static String replicaChannel(String replicaId) {
+        return "mev_protection_" + replicaId;
+    }
+    
+    public String ownerOf(String key) {
+        return ring.ownerOf(key);
+    }
+    
+    public boolean isOwner(String key) {
+        return replicaId.equals(ring.ownerOf(key));
+    }
+    
+    /**
+     * Called (on the bus or heartbeat thread) whenever replicas join or leave
+     */
+    public void addRingListener(Runnable listener) {
+        ringListeners.add(listener);
+    }
+    
+    public void publishControl(Map<String, Object> message) {
+        try {
+            clusterBus.publish(CONTROL_CHANNEL, objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            System.err.println("❌ Failed to publish cluster message: " + e.getMessage());
+        }
+    }
+    
+    private void heartbeat() {
+        publishControl(Map.of("type", "HEARTBEAT", "replica", replicaId));
+        
+        long now = System.currentTimeMillis();
+        lastSeen.put(replicaId, now);
+        if (lastSeen.entrySet().removeIf(e -> now - e.getValue() > memberTimeoutMs)) {
+            rebuildRing();
+        }
+    }
+    
+    private void onControlMessage(String raw) {
+        try {
+            Map<?, ?> message = objectMapper.readValue(raw, Map.class);
+            if (!"HEARTBEAT".equals(message.get("type"))) return;
+            
+            String replica = (String) message.get("replica");
+            if (lastSeen.put(replica, System.currentTimeMillis()) == null) {
+                rebuildRing();
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Invalid cluster message: " + e.getMessage());
+        }
+    }
+    
+    private synchronized void rebuildRing() {
+        Set<String> members = new TreeSet<>(lastSeen.keySet());
+        members.add(replicaId);
+        if (members.equals(ring.getMembers())) return;
+        
+        ring = new ConsistentHashRing(members, virtualNodes);
+        System.out.println("🔀 Cluster membership changed: " + members);
+        for (Runnable listener : ringListeners) {
+            listener.run();
+        }
+    }
+    
+    public Map<String, Object> getClusterStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("replicaId", replicaId);
+        stats.put("members", ring.getMembers());
+        return stats;
+    }
+    
+    @PreDestroy
+    public void cleanup() {
+        heartbeatScheduler.shutdown();
+    }
+}
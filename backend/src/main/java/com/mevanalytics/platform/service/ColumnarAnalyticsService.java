@@ -0,0 +1,567 @@
+package com.mevanalytics.platform.service;
+
+import com.mevanalytics.platform.dto.MEVDetectionEvent;
+import com.mevanalytics.platform.repository.MEVTransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Embedded, append-only columnar store of MEV detections for ad-hoc group-by queries.
+ *
+ * Rows live in fixed-size segments of primitive column arrays. String columns
+ * (type, DEX, searcher, token pair) are dictionary encoded to int codes, and each
+ * segment keeps block/time zone maps so range filters can skip whole segments.
+ * Queries build a selection vector per segment with tight filter loops, aggregate
+ * into a primitive hash table, and run one segment per core.
+ */
+@Service
+public class ColumnarAnalyticsService {
+    
+    static final int SEGMENT_ROWS = 1 << 16;
+    
+    @Autowired
+    private MEVDetectionService mevDetectionService;
+    
+    @Autowired
+    private MEVTransactionRepository transactionRepository;
+    
+    @Value("${analytics.columnar.max-rows:10000000}")
+    private long maxRows;
+    
+    @Value("${analytics.columnar.bootstrap-days:30}")
+    private int bootstrapDays;
+    
+    private final Dictionary mevTypes = new Dictionary();
+    private final Dictionary dexNames = new Dictionary();
+    private final Dictionary searchers = new Dictionary();
+    private final Dictionary tokenPairs = new Dictionary();
+    
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private Segment activeSegment;
+    
+    // Live detections held back while the Postgres bootstrap runs, so none is loaded twice
+    private boolean bootstrapping = false;
+    private final List<MEVDetectionEvent> heldBack = new ArrayList<>();
+    private final Set<String> heldBackHashes = new HashSet<>();
+    
+    public enum Dimension {
+        MEV_TYPE, DEX, SEARCHER, TOKEN_PAIR, HOUR, DAY
+    }
+    
+    /**
+     * Filters are inclusive block ranges / half-open time ranges (epoch seconds) plus equality matches.
+     */
+    public static class AggregationQuery {
+        public List<Dimension> groupBy = List.of();
+        public Long fromBlock;
+        public Long toBlock;
+        public Long fromTime;
+        public Long toTime;
+        public String mevType;
+        public String dexName;
+        public String searcherAddress;
+        public String tokenPair;
+        public int limit = 100;
+    }
+    
+    // ===== DICTIONARY ENCODING =====
+    
+    static class Dictionary {
+        private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[64];
+        private int size = 0;
+        
+        /**
+         * Encode a value, assigning a new code if needed. Called only by the single appender.
+         */
+        int encode(String value) {
+            String key = value == null ? "" : value;
+            Integer code = codes.get(key);
+            if (code != null) return code;
+            
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size] = key;
+            codes.put(key, size);
+            return size++;
+        }
+        
+        /** Code for a filter value, or -1 when the value was never seen */
+        int lookup(String value) {
+            Integer code = codes.get(value == null ? "" : value);
+            return code == null ? -1 : code;
+        }
+        
+        String decode(int code) {
+            return values[code];
+        }
+        
+        int cardinality() {
+            return codes.size();
+        }
+    }
+    
+    // ===== SEGMENTS =====
+    
+    static class Segment {
+        final long[] blockNumber = new long[SEGMENT_ROWS];
+        final long[] timestamp = new long[SEGMENT_ROWS];
+        final int[] mevType = new int[SEGMENT_ROWS];
+        final int[] dex = new int[SEGMENT_ROWS];
+        final int[] searcher = new int[SEGMENT_ROWS];
+        final int[] tokenPair = new int[SEGMENT_ROWS];
+        final double[] extractedUsd = new double[SEGMENT_ROWS];
+        
+        // Zone maps; only ever widen, so a reader racing an append prunes conservatively
+        volatile long minBlock = Long.MAX_VALUE;
+        volatile long maxBlock = Long.MIN_VALUE;
+        volatile long minTime = Long.MAX_VALUE;
+        volatile long maxTime = Long.MIN_VALUE;
+        
+        // Rows [0, size) are fully written; published after the column writes
+        volatile int size = 0;
+        
+        boolean isFull() {
+            return size == SEGMENT_ROWS;
+        }
+        
+        boolean overlaps(AggregationQuery query) {
+            if (query.fromBlock != null && maxBlock < query.fromBlock) return false;
+            if (query.toBlock != null && minBlock > query.toBlock) return false;
+            if (query.fromTime != null && maxTime < query.fromTime) return false;
+            return query.toTime == null || minTime < query.toTime;
+        }
+    }
+    
+    /**
+     * Rows [0, size) of a segment as of the start of a query; later appends are not seen
+     */
+    private record SegmentSnapshot(Segment segment, int size) {}
+    
+    /**
+     * Compiled form of a query: dictionary codes resolved once, group key layout fixed.
+     */
+    private static class Plan {
+        final AggregationQuery query;
+        final int mevTypeCode;
+        final int dexCode;
+        final int searcherCode;
+        final int tokenPairCode;
+        final Dimension[] dims;
+        final int[] bits;
+        final long timeBase;
+        
+        Plan(AggregationQuery query, int mevTypeCode, int dexCode, int searcherCode, int tokenPairCode,
+             Dimension[] dims, int[] bits, long timeBase) {
+            this.query = query;
+            this.mevTypeCode = mevTypeCode;
+            this.dexCode = dexCode;
+            this.searcherCode = searcherCode;
+            this.tokenPairCode = tokenPairCode;
+            this.dims = dims;
+            this.bits = bits;
+            this.timeBase = timeBase;
+        }
+    }
+    
+    @PostConstruct
+    public void initialize() {
+        activeSegment = new Segment();
+        segments.add(activeSegment);
+        bootstrapping = bootstrapDays > 0;
+        mevDetectionService.addDetectionListener(this::appendLive);
+        
+        if (bootstrapDays > 0) {
+            Thread loader = new Thread(this::bootstrapFromDatabase, "columnar-bootstrap");
+            loader.setDaemon(true);
+            loader.start();
+        }
+    }
+    
+    private void bootstrapFromDatabase() {
+        try {
+            long start = System.currentTimeMillis();
+            long maxId = transactionRepository.findMaxId();
+            long before = getRowCount();
+            transactionRepository.streamSince(LocalDateTime.now(ZoneOffset.UTC).minusDays(bootstrapDays), maxId, this::appendHistorical);
+            System.out.println("🧊 Columnar store loaded " + (getRowCount() - before) + " historical detections in "
+                + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            System.err.println("❌ Columnar store bootstrap failed: " + e.getMessage());
+        } finally {
+            finishBootstrap();
+        }
+    }
+    
+    private synchronized void appendLive(MEVDetectionEvent event) {
+        if (bootstrapping) {
+            heldBack.add(event);
+            if (event.getTransactionHash() != null) heldBackHashes.add(event.getTransactionHash());
+            return;
+        }
+        append(event);
+    }
+    
+    /**
+     * A historical row that is also held back live was persisted after the bootstrap
+     * started; the live copy is appended once the bootstrap finishes
+     */
+    private synchronized void appendHistorical(MEVDetectionEvent event) {
+        if (!heldBackHashes.contains(event.getTransactionHash())) {
+            append(event);
+        }
+    }
+    
+    private synchronized void finishBootstrap() {
+        heldBack.forEach(this::append);
+        heldBack.clear();
+        heldBackHashes.clear();
+        bootstrapping = false;
+    }
+    
+    /**
+     * Append one detection. Appends are serialized; readers never lock.
+     */
+    private synchronized void append(MEVDetectionEvent event) {
+        Segment segment = activeSegment;
+        if (segment.isFull()) {
+            segment = new Segment();
+            segments.add(segment);
+            activeSegment = segment;
+            evictOldSegments();
+        }
+        
+        int row = segment.size;
+        long block = event.getBlockNumber();
+        long time = event.getBlockTimestamp().toEpochSecond(ZoneOffset.UTC);
+        
+        segment.blockNumber[row] = block;
+        segment.timestamp[row] = time;
+        segment.mevType[row] = mevTypes.encode(event.getMevType());
+        segment.dex[row] = dexNames.encode(event.getDexName());
+        segment.searcher[row] = searchers.encode(event.getSearcherAddress() == null ? null : event.getSearcherAddress().toLowerCase());
+        segment.tokenPair[row] = tokenPairs.encode(event.getTokenPair());
+        segment.extractedUsd[row] = event.getExtractedValueUsd() == null ? 0 : event.getExtractedValueUsd().doubleValue();
+        
+        if (block < segment.minBlock) segment.minBlock = block;
+        if (block > segment.maxBlock) segment.maxBlock = block;
+        if (time < segment.minTime) segment.minTime = time;
+        if (time > segment.maxTime) segment.maxTime = time;
+        
+        segment.size = row + 1;
+    }
+    
+    private void evictOldSegments() {
+        while ((long) segments.size() * SEGMENT_ROWS > maxRows && segments.size() > 1) {
+            segments.remove(0);
+        }
+    }
+    
+    // ===== QUERY EXECUTION =====
+    
+    /**
+     * Group-by aggregation of extracted value. Returns rows sorted by total value, descending.
+     */
+    public Map<String, Object> aggregate(AggregationQuery query) {
+        long start = System.nanoTime();
+        // Sizes first: every row they cover was encoded and zone-mapped before its size was
+        // published, so the cardinalities and time range read next bound every scanned row
+        List<SegmentSnapshot> snapshot = segments.stream().map(s -> new SegmentSnapshot(s, s.size)).toList();
+        Plan plan = compile(query, snapshot);
+        
+        List<SegmentSnapshot> candidates = snapshot.stream().filter(s -> s.size() > 0 && s.segment().overlaps(query)).toList();
+        
+        // One segment per task; partial tables are merged on the calling thread
+        List<GroupTable> partials = candidates.parallelStream()
+            .map(s -> scanSegment(s.segment(), s.size(), plan))
+            .toList();
+        GroupTable merged = new GroupTable();
+        partials.forEach(merged::mergeFrom);
+        
+        List<Map<String, Object>> rows = new ArrayList<>(merged.size);
+        for (int slot = 0; slot < merged.keys.length; slot++) {
+            if (!merged.used[slot]) continue;
+            Map<String, Object> row = new LinkedHashMap<>();
+            decodeKey(plan, merged.keys[slot], row);
+            row.put("count", merged.counts[slot]);
+            row.put("totalUsd", merged.sums[slot]);
+            row.put("avgUsd", merged.sums[slot] / merged.counts[slot]);
+            row.put("minUsd", merged.mins[slot]);
+            row.put("maxUsd", merged.maxs[slot]);
+            rows.add(row);
+        }
+        rows.sort((a, b) -> Double.compare((double) b.get("totalUsd"), (double) a.get("totalUsd")));
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("groupBy", query.groupBy);
+        result.put("rows", rows.size() > query.limit ? rows.subList(0, query.limit) : rows);
+        result.put("groups", rows.size());
+        result.put("rowsMatched", merged.totalCount());
+        result.put("segmentsScanned", candidates.size());
+        result.put("segmentsPruned", snapshot.size() - candidates.size());
+        result.put("elapsedMicros", (System.nanoTime() - start) / 1000);
+        return result;
+    }
+    
+    private Plan compile(AggregationQuery query, List<SegmentSnapshot> snapshot) {
+        if (query.groupBy.size() > 3) {
+            throw new IllegalArgumentException("At most 3 group-by dimensions are supported");
+        }
+        
+        Dimension[] dims = query.groupBy.toArray(new Dimension[0]);
+        int[] bits = new int[dims.length];
+        long timeBase = 0;
+        int totalBits = 0;
+        
+        for (int i = 0; i < dims.length; i++) {
+            long cardinality = switch (dims[i]) {
+                case MEV_TYPE -> mevTypes.cardinality();
+                case DEX -> dexNames.cardinality();
+                case SEARCHER -> searchers.cardinality();
+                case TOKEN_PAIR -> tokenPairs.cardinality();
+                case HOUR, DAY -> {
+                    long bucket = dims[i] == Dimension.HOUR ? 3600 : 86400;
+                    long minTime = snapshot.stream().filter(s -> s.size() > 0).mapToLong(s -> s.segment().minTime).min().orElse(0);
+                    long maxTime = snapshot.stream().filter(s -> s.size() > 0).mapToLong(s -> s.segment().maxTime).max().orElse(0);
+                    // Day-aligned base so hour and day buckets decode to calendar boundaries
+                    timeBase = Math.floorDiv(query.fromTime != null ? Math.max(minTime, query.fromTime) : minTime, 86400) * 86400;
+                    yield Math.max(1, (maxTime - timeBase) / bucket + 1);
+                }
+            };
+            bits[i] = 64 - Long.numberOfLeadingZeros(Math.max(1, cardinality));
+            totalBits += bits[i];
+        }
+        if (totalBits > 63) {
+            throw new IllegalArgumentException("Group-by cardinality too large; narrow the time range or dimensions");
+        }
+        
+        return new Plan(query,
+            query.mevType == null ? -2 : mevTypes.lookup(query.mevType.toUpperCase()),
+            query.dexName == null ? -2 : dexNames.lookup(query.dexName),
+            query.searcherAddress == null ? -2 : searchers.lookup(query.searcherAddress.toLowerCase()),
+            query.tokenPair == null ? -2 : tokenPairs.lookup(query.tokenPair),
+            dims, bits, timeBase);
+    }
+    
+    private GroupTable scanSegment(Segment segment, int n, Plan plan) {
+        int[] sel = new int[n];
+        int count = 0;
+        AggregationQuery q = plan.query;
+        
+        // Range filters: skip per-row checks when the zone map proves every row qualifies
+        long fromBlock = q.fromBlock == null || segment.minBlock >= q.fromBlock ? Long.MIN_VALUE : q.fromBlock;
+        long toBlock = q.toBlock == null || segment.maxBlock <= q.toBlock ? Long.MAX_VALUE : q.toBlock;
+        long fromTime = q.fromTime == null || segment.minTime >= q.fromTime ? Long.MIN_VALUE : q.fromTime;
+        long toTime = q.toTime == null || segment.maxTime < q.toTime ? Long.MAX_VALUE : q.toTime;
+        
+        if (fromBlock == Long.MIN_VALUE && toBlock == Long.MAX_VALUE) {
+            for (int i = 0; i < n; i++) sel[i] = i;
+            count = n;
+        } else {
+            long[] blocks = segment.blockNumber;
+            for (int i = 0; i < n; i++) {
+                sel[count] = i;
+                count += (blocks[i] >= fromBlock & blocks[i] <= toBlock) ? 1 : 0;
+            }
+        }
+        if (fromTime != Long.MIN_VALUE || toTime != Long.MAX_VALUE) {
+            count = filterRange(segment.timestamp, sel, count, fromTime, toTime);
+        }
+        if (plan.mevTypeCode != -2) count = filterEquals(segment.mevType, sel, count, plan.mevTypeCode);
+        if (plan.dexCode != -2) count = filterEquals(segment.dex, sel, count, plan.dexCode);
+        if (plan.searcherCode != -2) count = filterEquals(segment.searcher, sel, count, plan.searcherCode);
+        if (plan.tokenPairCode != -2) count = filterEquals(segment.tokenPair, sel, count, plan.tokenPairCode);
+        
+        GroupTable table = new GroupTable();
+        if (count == 0) return table;
+        
+        long[] keys = new long[count];
+        for (int d = 0; d < plan.dims.length; d++) {
+            int shift = plan.bits[d];
+            switch (plan.dims[d]) {
+                case MEV_TYPE -> appendCodes(keys, segment.mevType, sel, count, shift);
+                case DEX -> appendCodes(keys, segment.dex, sel, count, shift);
+                case SEARCHER -> appendCodes(keys, segment.searcher, sel, count, shift);
+                case TOKEN_PAIR -> appendCodes(keys, segment.tokenPair, sel, count, shift);
+                case HOUR -> appendTimeBuckets(keys, segment.timestamp, sel, count, shift, plan.timeBase, 3600);
+                case DAY -> appendTimeBuckets(keys, segment.timestamp, sel, count, shift, plan.timeBase, 86400);
+            }
+        }
+        
+        double[] values = segment.extractedUsd;
+        for (int i = 0; i < count; i++) {
+            table.add(keys[i], values[sel[i]]);
+        }
+        return table;
+    }
+    
+    private static int filterEquals(int[] column, int[] sel, int count, int code) {
+        int out = 0;
+        for (int i = 0; i < count; i++) {
+            int row = sel[i];
+            sel[out] = row;
+            out += column[row] == code ? 1 : 0;
+        }
+        return out;
+    }
+    
+    private static int filterRange(long[] column, int[] sel, int count, long from, long toExclusive) {
+        int out = 0;
+        for (int i = 0; i < count; i++) {
+            int row = sel[i];
+            sel[out] = row;
+            out += (column[row] >= from & column[row] < toExclusive) ? 1 : 0;
+        }
+        return out;
+    }
+    
+    private static void appendCodes(long[] keys, int[] column, int[] sel, int count, int shift) {
+        for (int i = 0; i < count; i++) {
+            keys[i] = (keys[i] << shift) | column[sel[i]];
+        }
+    }
+    
+    private static void appendTimeBuckets(long[] keys, long[] column, int[] sel, int count, int shift, long base, long width) {
+        for (int i = 0; i < count; i++) {
+            keys[i] = (keys[i] << shift) | Math.max(0, (column[sel[i]] - base) / width);
+        }
+    }
+    
+    private void decodeKey(Plan plan, long key, Map<String, Object> row) {
+        Object[] decoded = new Object[plan.dims.length];
+        for (int d = plan.dims.length - 1; d >= 0; d--) {
+            int code = (int) (key & ((1L << plan.bits[d]) - 1));
+            key >>>= plan.bits[d];
+            decoded[d] = switch (plan.dims[d]) {
+                case MEV_TYPE -> mevTypes.decode(code);
+                case DEX -> dexNames.decode(code);
+                case SEARCHER -> searchers.decode(code);
+                case TOKEN_PAIR -> tokenPairs.decode(code);
+                case HOUR -> LocalDateTime.ofInstant(Instant.ofEpochSecond(plan.timeBase + code * 3600L), ZoneOffset.UTC).toString();
+                case DAY -> LocalDateTime.ofInstant(Instant.ofEpochSecond(plan.timeBase + code * 86400L), ZoneOffset.UTC).toLocalDate().toString();
+            };
+        }
+        for (int d = 0; d < plan.dims.length; d++) {
+            row.put(plan.dims[d].name().toLowerCase(), decoded[d]);
+        }
+    }
+    
+    /**
+     * Open-addressing long -> aggregate table with parallel primitive arrays.
+     */
+    static class GroupTable {
+        long[] keys = new long[16];
+        boolean[] used = new boolean[16];
+        long[] counts = new long[16];
+        double[] sums = new double[16];
+        double[] mins = new double[16];
+        double[] maxs = new double[16];
+        int size = 0;
+        
+        void add(long key, double value) {
+            int slot = slotFor(key);
+            counts[slot]++;
+            sums[slot] += value;
+            if (value < mins[slot]) mins[slot] = value;
+            if (value > maxs[slot]) maxs[slot] = value;
+        }
+        
+        private int slotFor(long key) {
+            int mask = keys.length - 1;
+            int slot = (int) (mix(key) & mask);
+            while (used[slot]) {
+                if (keys[slot] == key) return slot;
+                slot = (slot + 1) & mask;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+                return slotFor(key);
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            mins[slot] = Double.POSITIVE_INFINITY;
+            maxs[slot] = Double.NEGATIVE_INFINITY;
+            size++;
+            return slot;
+        }
+        
+        private void resize() {
+            long[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            long[] oldCounts = counts;
+            double[] oldSums = sums;
+            double[] oldMins = mins;
+            double[] oldMaxs = maxs;
+            
+            int capacity = oldKeys.length * 2;
+            keys = new long[capacity];
+            used = new boolean[capacity];
+            counts = new long[capacity];
+            sums = new double[capacity];
+            mins = new double[capacity];
+            maxs = new double[capacity];
+            size = 0;
+            
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (!oldUsed[i]) continue;
+                int slot = slotFor(oldKeys[i]);
+                counts[slot] = oldCounts[i];
+                sums[slot] = oldSums[i];
+                mins[slot] = oldMins[i];
+                maxs[slot] = oldMaxs[i];
+            }
+        }
+        
+        GroupTable mergeFrom(GroupTable other) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (!other.used[i]) continue;
+                int slot = slotFor(other.keys[i]);
+                counts[slot] += other.counts[i];
+                sums[slot] += other.sums[i];
+                mins[slot] = Math.min(mins[slot], other.mins[i]);
+                maxs[slot] = Math.max(maxs[slot], other.maxs[i]);
+            }
+            return this;
+        }
+        
+        long totalCount() {
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) total += counts[i];
+            return total;
+        }
+        
+        private static long mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return key;
+        }
+    }
+    
+    // ===== STATS =====
+    
+    public long getRowCount() {
+        return segments.stream().mapToLong(s -> s.size).sum();
+    }
+    
+    public Map<String, Object> getStoreStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("rows", getRowCount());
+        stats.put("segments", segments.size());
+        stats.put("segmentCapacity", SEGMENT_ROWS);
+        stats.put("distinctSearchers", searchers.cardinality());
+        stats.put("distinctDexes", dexNames.cardinality());
+        stats.put("distinctTokenPairs", tokenPairs.cardinality());
+        return stats;
+    }
+}
@@ -0,0 +1,58 @@
+package com.mevanalytics.platform.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent-hash ring. Each member is placed at several virtual
+ * points so load stays even, and adding or removing a member only moves the
+ * keys between it and its ring neighbours.
+ */
+public final class ConsistentHashRing {
+    
+    private final TreeMap<Long, String> points = new TreeMap<>();
+    private final Set<String> members;
+    
+    public ConsistentHashRing(Collection<String> members, int virtualNodes) {
+        this.members = new TreeSet<>(members);
+        for (String member : this.members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(hash(member + "#" + i), member);
+            }
+        }
+    }
+    
+    /**
+     * Member responsible for a key, or null if the ring is empty
+     */
+    public String ownerOf(String key) {
+        if (points.isEmpty()) return null;
+        Map.Entry<Long, String> entry = points.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : points.firstEntry().getValue();
+    }
+    
+    public Set<String> getMembers() {
+        return members;
+    }
+    
+    /**
+     * 64-bit FNV-1a with a murmur3 finalizer for good avalanche on short keys
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,172 +1,365 @@
 package com.mevanalytics.platform.service;
 
+import com.mevanalytics.platform.dto.BytecodeAnalysis;
 import com.mevanalytics.platform.dto.ScanRequest;
 import com.mevanalytics.platform.dto.ScanResult;
+import com.mevanalytics.platform.evm.ControlFlowGraph;
+import com.mevanalytics.platform.evm.Disassembly;
+import com.mevanalytics.platform.evm.FlowAnalysis;
+import com.mevanalytics.platform.evm.Opcodes;
+import com.mevanalytics.platform.evm.ProxyDetector;
+import com.mevanalytics.platform.evm.SignatureMatcher;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.web3j.protocol.core.methods.response.EthGetCode;
+import org.web3j.crypto.Hash;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class ContractScannerService {
     
+    // Bump when detection logic changes so cached analyses are recomputed
+    static final int ANALYZER_VERSION = 6;
+    
+    private static final SignatureMatcher SIGNATURES = SignatureMatcher.compile(ScanSignatures.BUILT_IN);
+    
+    private record Finding(String severity, String title, String description, String location, double confidence, String recommendedFix) {}
+    
+    // What each signature finding reports, in the order findings are listed
+    private static final Map<String, Finding> FINDINGS = new LinkedHashMap<>();
+    
+    static {
+        FINDINGS.put("mev_vulnerable", new Finding("HIGH", "MEV Vulnerability Detected",
+            "Contract appears vulnerable to MEV extraction attacks", "DEX interaction patterns", 0.80,
+            "Implement slippage protection and consider MEV protection services"));
+        FINDINGS.put("delegatecall", new Finding("MEDIUM", "Delegated Code Execution",
+            "Contract executes external code in its own storage context", "DELEGATECALL/CALLCODE", 0.70,
+            "Restrict delegatecall targets to trusted, immutable implementations"));
+        FINDINGS.put("selfdestruct", new Finding("HIGH", "Self-Destruct Reachable",
+            "Contract contains a SELFDESTRUCT instruction", "SELFDESTRUCT", 0.70,
+            "Remove selfdestruct or guard it behind strict access control"));
+        FINDINGS.put("tx_origin", new Finding("MEDIUM", "tx.origin Usage",
+            "Contract reads tx.origin, which is unsafe for authorization", "ORIGIN", 0.60,
+            "Use msg.sender for authorization checks"));
+        FINDINGS.put("weak_randomness", new Finding("MEDIUM", "Block Values Used as Randomness",
+            "Contract reads PREVRANDAO or recent block hashes, which validators and searchers can predict", "PREVRANDAO/BLOCKHASH", 0.55,
+            "Use a verifiable randomness source such as a VRF"));
+    }
+    
     @Autowired
     private EthereumService ethereumService;
     
-    private final AtomicLong scanIdCounter = new AtomicLong(1);
-    private final Map<Long, ScanResult> scanResults = new ConcurrentHashMap<>();
-    private final Map<String, List<Long>> contractScans = new ConcurrentHashMap<>();
+    @Autowired
+    private BytecodeAnalysisCache analysisCache;
+    
+    @Autowired
+    private ScanScheduler scanScheduler;
+    
+    @Autowired
+    private ScanResultStore scanStore;
+    
+    @Autowired
+    private ScanMetrics scanMetrics;
+    
+    @Autowired
+    private ProxyResolver proxyResolver;
+    
+    // Bounds control-flow analysis of a max-size contract well inside the scan budget
+    @Value("${scanner.flow.max-block-visits:200000}")
+    private int maxBlockVisits;
+    
+    /**
+     * Dataflow results for the dispatcher and for each dispatched function, by selector
+     */
+    private record ControlFlow(FlowAnalysis.Result dispatcher, Map<String, FlowAnalysis.Result> functions,
+                               Map<String, Integer> entryPcs) {}
+    
+    /**
+     * Queue a scan in the caller's tier lane and return it as PENDING; clients poll
+     * getScanResult until it is COMPLETED or FAILED
+     *
+     * @throws RejectedExecutionException if the tier's queue is full
+     */
+    public ScanResult submitScan(ScanRequest request, ScanScheduler.Tier tier) {
+        Long scanId = scanStore.nextScanId();
+        LocalDateTime queuedAt = LocalDateTime.now();
+        ScanResult pending = ScanResult.builder()
+            .scanId(scanId)
+            .contractAddress(request.getContractAddress())
+            .contractName("Unknown Contract")
+            .status("PENDING")
+            .queuedAt(queuedAt)
+            .build();
+        scanStore.track(pending);
+        
+        try {
+            scanScheduler.submit(tier, () -> runScan(scanId, queuedAt, request));
+        } catch (RejectedExecutionException e) {
+            scanStore.discard(pending);
+            throw e;
+        }
+        return pending;
+    }
     
-    @Async
-    public CompletableFuture<ScanResult> scanContractAsync(ScanRequest request) {
+    private void runScan(Long scanId, LocalDateTime queuedAt, ScanRequest request) {
         long startTime = System.currentTimeMillis();
-        Long scanId = scanIdCounter.getAndIncrement();
         
         System.out.println("🔍 Starting contract scan #" + scanId + " for: " + request.getContractAddress());
         
         try {
-            // Create initial scan result
+            // Replaces the PENDING entry; the queued object is never mutated
             ScanResult result = ScanResult.builder()
                 .scanId(scanId)
                 .contractAddress(request.getContractAddress())
                 .contractName("Unknown Contract")
                 .status("RUNNING")
+                .queuedAt(queuedAt)
                 .startedAt(LocalDateTime.now())
                 .build();
             
-            scanResults.put(scanId, result);
+            scanStore.track(result);
             
-            // Step 1: Verify it's a contract
-            boolean isContract = isValidContract(request.getContractAddress());
-            if (!isContract) {
-                result.setStatus("FAILED");
-                result.setCompletedAt(LocalDateTime.now());
-                result.setRiskLevel("UNKNOWN");
+            // Step 1: Fetch the code once, with the proxy slots read in the same batch;
+            // an empty account is not a contract
+            long fetchStart = System.nanoTime();
+            ProxyResolver.Fetched fetched = proxyResolver.fetch(request.getContractAddress());
+            scanMetrics.record(ScanMetrics.Stage.CODE_FETCH, fetchStart);
+            String bytecode = fetched.bytecode();
+            if (bytecode == null || bytecode.length() <= 2) {
                 throw new IllegalArgumentException("Address is not a contract");
             }
             
-            // Step 2: Get contract bytecode
-            String bytecode = getContractBytecode(request.getContractAddress());
+            // Step 2: Bytecode analysis, shared by every contract with the same code
+            BytecodeAnalysisCache.Lookup lookup = analyzeCode(bytecode);
             
-            // Step 3: Analyze vulnerabilities
-            List<ScanResult.VulnerabilityDetail> vulnerabilities = detectVulnerabilities(bytecode, request.getContractAddress());
-            
-            // Step 4: Calculate risk score
-            int riskScore = calculateRiskScore(vulnerabilities);
-            String riskLevel = determineRiskLevel(riskScore);
-            
-            // Step 5: Generate gas analysis
-            ScanResult.GasAnalysisResult gasAnalysis = null;
-            if (request.getIncludeGasAnalysis()) {
-                gasAnalysis = analyzeGasUsage(bytecode);
-            }
-            
-            // Step 6: Generate mempool analysis
-            ScanResult.MempoolAnalysisResult mempoolAnalysis = null;
-            if (request.getIncludeMempoolAnalysis()) {
-                mempoolAnalysis = analyzeMempoolActivity(request.getContractAddress());
+            // A proxy's findings come from its implementation, one more batch away
+            ProxyDetector.Pattern proxy = proxyPattern(lookup.analysis());
+            if (proxy != null) {
+                long resolveStart = System.nanoTime();
+                String slot = ProxyDetector.slotOf(proxy.kind());
+                String slotValue = slot != null ? fetched.slots().get(slot) : null;
+                ProxyResolver.Resolution resolution = proxyResolver.resolve(
+                    Map.of(request.getContractAddress(), proxy),
+                    slotValue != null ? Map.of(request.getContractAddress(), slotValue) : Map.of()
+                ).get(request.getContractAddress());
+                scanMetrics.record(ScanMetrics.Stage.PROXY_RESOLUTION, resolveStart);
+                
+                result.setProxy(proxyInfo(resolution, lookup.analysis().getCodeHash()));
+                if (resolution.implementationCode() != null) {
+                    lookup = analyzeCode(resolution.implementationCode());
+                }
             }
             
-            // Step 7: Generate protection recommendations
-            ScanResult.ProtectionRecommendations recommendations = generateRecommendations(vulnerabilities, riskLevel);
-            
-            // Step 8: Build final result
-            ScanResult.VulnerabilitySummary vulnSummary = ScanResult.VulnerabilitySummary.builder()
-                .total(vulnerabilities.size())
-                .critical((int) vulnerabilities.stream().filter(v -> "CRITICAL".equals(v.getSeverity())).count())
-                .high((int) vulnerabilities.stream().filter(v -> "HIGH".equals(v.getSeverity())).count())
-                .medium((int) vulnerabilities.stream().filter(v -> "MEDIUM".equals(v.getSeverity())).count())
-                .low((int) vulnerabilities.stream().filter(v -> "LOW".equals(v.getSeverity())).count())
-                .details(vulnerabilities)
-                .build();
+            // Steps 3-4: Address-specific analysis and the final result
+            completeScan(result, lookup, Boolean.TRUE.equals(request.getIncludeGasAnalysis()),
+                Boolean.TRUE.equals(request.getIncludeMempoolAnalysis()), startTime);
             
-            result.setVulnerabilities(vulnSummary);
-            result.setGasAnalysis(gasAnalysis);
-            result.setMempoolAnalysis(mempoolAnalysis);
-            result.setProtectionRecommendations(recommendations);
-            result.setRiskScore(riskScore);
-            result.setRiskLevel(riskLevel);
-            result.setStatus("COMPLETED");
-            result.setCompletedAt(LocalDateTime.now());
-            result.setScanDurationMs((int) (System.currentTimeMillis() - startTime));
-            
-            // Store result
-            scanResults.put(scanId, result);
-            contractScans.computeIfAbsent(request.getContractAddress(), k -> new ArrayList<>()).add(scanId);
-            
-            System.out.println("✅ Contract scan #" + scanId + " completed in " + result.getScanDurationMs() + "ms");
-            System.out.println("📊 Risk Level: " + riskLevel + " (Score: " + riskScore + ")");
-            System.out.println("🔍 Vulnerabilities: " + vulnerabilities.size() + " found");
-            
-            return CompletableFuture.completedFuture(result);
+            System.out.println("✅ Contract scan #" + scanId + " completed in " + result.getScanDurationMs() + "ms ("
+                + lookup.source().name().toLowerCase() + " analysis)");
+            System.out.println("📊 Risk Level: " + result.getRiskLevel() + " (Score: " + result.getRiskScore() + ")");
+            System.out.println("🔍 Vulnerabilities: " + result.getVulnerabilities().getTotal() + " found");
             
         } catch (Exception e) {
             System.err.println("❌ Contract scan #" + scanId + " failed: " + e.getMessage());
-            
-            ScanResult errorResult = ScanResult.builder()
-                .scanId(scanId)
-                .contractAddress(request.getContractAddress())
-                .status("FAILED")
-                .startedAt(LocalDateTime.now())
-                .completedAt(LocalDateTime.now())
-                .scanDurationMs((int) (System.currentTimeMillis() - startTime))
-                .build();
-            
-            scanResults.put(scanId, errorResult);
-            throw new RuntimeException("Scan failed: " + e.getMessage(), e);
+            failScan(scanId, request.getContractAddress(), e.getMessage(), queuedAt, startTime);
         }
     }
     
-    private boolean isValidContract(String address) {
-        try {
-            if (!ethereumService.isConnected()) {
-                return false;
-            }
-            
-            // Use your existing EthereumService's web3j instance
-            EthGetCode ethGetCode = ethereumService.getWeb3j().ethGetCode(address, 
-                org.web3j.protocol.core.DefaultBlockParameterName.LATEST).send();
-            String code = ethGetCode.getCode();
-            return code != null && !code.equals("0x") && code.length() > 2;
-        } catch (Exception e) {
-            System.err.println("❌ Error checking if address is contract: " + e.getMessage());
-            return false;
-        }
+    Long nextScanId() {
+        return scanStore.nextScanId();
     }
     
-    private String getContractBytecode(String address) {
-        try {
-            EthGetCode ethGetCode = ethereumService.getWeb3j().ethGetCode(address, 
-                org.web3j.protocol.core.DefaultBlockParameterName.LATEST).send();
-            return ethGetCode.getCode();
-        } catch (Exception e) {
-            System.err.println("❌ Error getting contract bytecode: " + e.getMessage());
-            return "";
+    /**
+     * Scan on the calling thread, for callers already running in a scheduler lane
+     */
+    ScanResult scanNow(String contractAddress) {
+        Long scanId = scanStore.nextScanId();
+        ScanRequest request = new ScanRequest();
+        request.setContractAddress(contractAddress);
+        request.setIncludeMempoolAnalysis(false);
+        runScan(scanId, LocalDateTime.now(), request);
+        return scanStore.get(scanId).orElse(null);
+    }
+    
+    /**
+     * Cached or freshly computed analysis of deployed code
+     */
+    BytecodeAnalysisCache.Lookup analyzeCode(String bytecode) {
+        String codeHash = Hash.sha3(bytecode);
+        return analysisCache.getOrCompute(codeHash, ANALYZER_VERSION, () -> analyzeBytecode(codeHash, bytecode));
+    }
+    
+    static ProxyDetector.Pattern proxyPattern(BytecodeAnalysis analysis) {
+        if (analysis.getProxyKind() == null) return null;
+        return new ProxyDetector.Pattern(ProxyDetector.Kind.valueOf(analysis.getProxyKind()), analysis.getProxyImplementation());
+    }
+    
+    /**
+     * Proxy section of a result, or null when no implementation was found behind the
+     * pattern (a logic contract that only references the proxy slots)
+     */
+    ScanResult.ProxyInfo proxyInfo(ProxyResolver.Resolution resolution, String proxyCodeHash) {
+        if (resolution.implementation() == null && resolution.beacon() == null) return null;
+        return ScanResult.ProxyInfo.builder()
+            .kind(resolution.kind().name())
+            .proxyCodeHash(proxyCodeHash)
+            .implementationAddress(resolution.implementation())
+            .beaconAddress(resolution.beacon())
+            .resolved(resolution.implementationCode() != null)
+            .build();
+    }
+    
+    /**
+     * Fill a RUNNING result from its code analysis, then store it as COMPLETED
+     */
+    ScanResult completeScan(ScanResult result, BytecodeAnalysisCache.Lookup lookup,
+                            boolean includeGasAnalysis, boolean includeMempoolAnalysis, long startTime) {
+        BytecodeAnalysis analysis = lookup.analysis();
+        List<ScanResult.VulnerabilityDetail> vulnerabilities = analysis.getVulnerabilities();
+        
+        // Address-specific analysis is always fresh
+        ScanResult.MempoolAnalysisResult mempoolAnalysis = null;
+        if (includeMempoolAnalysis) {
+            long mempoolStart = System.nanoTime();
+            mempoolAnalysis = analyzeMempoolActivity(result.getContractAddress());
+            scanMetrics.record(ScanMetrics.Stage.MEMPOOL, mempoolStart);
         }
+        
+        ScanResult.VulnerabilitySummary vulnSummary = ScanResult.VulnerabilitySummary.builder()
+            .total(vulnerabilities.size())
+            .critical((int) vulnerabilities.stream().filter(v -> "CRITICAL".equals(v.getSeverity())).count())
+            .high((int) vulnerabilities.stream().filter(v -> "HIGH".equals(v.getSeverity())).count())
+            .medium((int) vulnerabilities.stream().filter(v -> "MEDIUM".equals(v.getSeverity())).count())
+            .low((int) vulnerabilities.stream().filter(v -> "LOW".equals(v.getSeverity())).count())
+            .details(vulnerabilities)
+            .build();
+        
+        result.setCodeHash(analysis.getCodeHash());
+        result.setAnalysisSource(lookup.source().name());
+        result.setVulnerabilities(vulnSummary);
+        result.setGasAnalysis(includeGasAnalysis ? analysis.getGasAnalysis() : null);
+        result.setMempoolAnalysis(mempoolAnalysis);
+        result.setProtectionRecommendations(analysis.getProtectionRecommendations());
+        result.setFunctions(analysis.getFunctions());
+        result.setRiskScore(analysis.getRiskScore());
+        result.setRiskLevel(analysis.getRiskLevel());
+        result.setStatus("COMPLETED");
+        result.setCompletedAt(LocalDateTime.now());
+        result.setScanDurationMs((int) (System.currentTimeMillis() - startTime));
+        
+        scanStore.finish(result);
+        scanMetrics.recordScan(result);
+        return result;
+    }
+    
+    ScanResult failScan(Long scanId, String contractAddress, String error, LocalDateTime queuedAt, long startTime) {
+        ScanResult errorResult = ScanResult.builder()
+            .scanId(scanId)
+            .contractAddress(contractAddress)
+            .status("FAILED")
+            .error(error)
+            .queuedAt(queuedAt)
+            .startedAt(LocalDateTime.now())
+            .completedAt(LocalDateTime.now())
+            .scanDurationMs((int) (System.currentTimeMillis() - startTime))
+            .build();
+        
+        scanStore.finish(errorResult);
+        scanMetrics.recordScan(errorResult);
+        return errorResult;
+    }
+    
+    /**
+     * Everything in a scan that depends only on the code
+     */
+    private BytecodeAnalysis analyzeBytecode(String codeHash, String bytecode) {
+        // Decoded and disassembled once; every detector walks the same instruction stream
+        long stageStart = System.nanoTime();
+        Disassembly code = Disassembly.ofHex(bytecode);
+        ProxyDetector.Pattern proxy = ProxyDetector.detect(code);
+        scanMetrics.record(ScanMetrics.Stage.DISASSEMBLY, stageStart);
+        
+        stageStart = System.nanoTime();
+        ControlFlow flow = analyzeControlFlow(code);
+        scanMetrics.record(ScanMetrics.Stage.CONTROL_FLOW, stageStart);
+        
+        stageStart = System.nanoTime();
+        List<ScanResult.VulnerabilityDetail> vulnerabilities = detectVulnerabilities(code, flow);
+        int riskScore = calculateRiskScore(vulnerabilities);
+        String riskLevel = determineRiskLevel(riskScore);
+        
+        BytecodeAnalysis analysis = BytecodeAnalysis.builder()
+            .codeHash(codeHash)
+            .codeSize(code.getCode().length)
+            .analyzerVersion(ANALYZER_VERSION)
+            .vulnerabilities(vulnerabilities)
+            .riskScore(riskScore)
+            .riskLevel(riskLevel)
+            .gasAnalysis(analyzeGasUsage(code))
+            .protectionRecommendations(generateRecommendations(vulnerabilities, riskLevel))
+            .functions(summarizeFunctions(flow))
+            .proxyKind(proxy != null ? proxy.kind().name() : null)
+            .proxyImplementation(proxy != null ? proxy.implementation() : null)
+            .analyzedAt(LocalDateTime.now())
+            .build();
+        scanMetrics.record(ScanMetrics.Stage.DETECTION, stageStart);
+        return analysis;
+    }
+    
+    /**
+     * Analyze the dispatcher up to each function entry, then each function on its own.
+     * Functions are analyzed separately so their findings can be attributed to selectors.
+     */
+    private ControlFlow analyzeControlFlow(Disassembly code) {
+        ControlFlowGraph cfg = ControlFlowGraph.build(code);
+        FlowAnalysis analysis = new FlowAnalysis(cfg, maxBlockVisits);
+        Map<Integer, Integer> entries = cfg.getFunctionEntries();
+        FlowAnalysis.Result dispatcher = analysis.analyze(0, new HashSet<>(entries.values()));
+        
+        Map<String, FlowAnalysis.Result> functions = new LinkedHashMap<>();
+        Map<String, Integer> entryPcs = new LinkedHashMap<>();
+        entries.forEach((selector, entryPc) -> {
+            String hex = String.format("0x%08x", selector);
+            functions.put(hex, analysis.analyze(entryPc, Set.of()));
+            entryPcs.put(hex, entryPc);
+        });
+        return new ControlFlow(dispatcher, functions, entryPcs);
     }
     
-    private List<ScanResult.VulnerabilityDetail> detectVulnerabilities(String bytecode, String address) {
+    private List<ScanResult.FunctionSummary> summarizeFunctions(ControlFlow flow) {
+        List<ScanResult.FunctionSummary> summaries = new ArrayList<>();
+        flow.functions().forEach((selector, result) -> summaries.add(ScanResult.FunctionSummary.builder()
+            .selector(selector)
+            .entryPc(flow.entryPcs().get(selector))
+            .externalCalls(result.externalCalls())
+            .stateWriteAfterCall(!result.reentrancy().isEmpty())
+            .uncheckedCallResult(!result.uncheckedCalls().isEmpty())
+            .complete(result.complete())
+            .build()));
+        return summaries;
+    }
+    
+    private List<ScanResult.VulnerabilityDetail> detectVulnerabilities(Disassembly code, ControlFlow flow) {
         List<ScanResult.VulnerabilityDetail> vulnerabilities = new ArrayList<>();
         
-        if (bytecode == null || bytecode.length() < 10) {
+        if (code.codeLength() < 4) {
             return vulnerabilities;
         }
         
         // 1. Check for reentrancy patterns
-        if (containsReentrancyPattern(bytecode)) {
+        Set<FlowAnalysis.Reentrancy> reentrancy = reentrancyPaths(flow);
+        if (!reentrancy.isEmpty()) {
+            FlowAnalysis.Reentrancy first = reentrancy.iterator().next();
             vulnerabilities.add(ScanResult.VulnerabilityDetail.builder()
                 .type("reentrancy")
                 .severity("HIGH")
                 .title("Potential Reentrancy Vulnerability")
-                .description("Contract may be vulnerable to reentrancy attacks due to external calls")
-                .location("Bytecode analysis")
+                .description("Storage can be written after an external call on some path" + affectedFunctions(flow, r -> !r.reentrancy().isEmpty()))
+                .location(String.format("CALL at pc 0x%x, SSTORE at pc 0x%x", first.callPc(), first.sstorePc()))
                 .confidenceScore(BigDecimal.valueOf(0.75))
                 .hasRemediation(true)
                 .recommendedFix("Implement reentrancy guards or use checks-effects-interactions pattern")
@@ -174,35 +367,26 @@ public class ContractScannerService {
         }
         
         // 2. Check for unchecked external calls
-        if (containsUncheckedExternalCalls(bytecode)) {
+        Set<Integer> uncheckedCalls = new TreeSet<>(flow.dispatcher().uncheckedCalls());
+        flow.functions().values().forEach(r -> uncheckedCalls.addAll(r.uncheckedCalls()));
+        if (!uncheckedCalls.isEmpty()) {
             vulnerabilities.add(ScanResult.VulnerabilityDetail.builder()
                 .type("unchecked_external_call")
                 .severity("MEDIUM")
                 .title("Unchecked External Calls")
-                .description("Contract makes external calls without proper error handling")
-                .location("Bytecode analysis")
+                .description("External call results are discarded without being checked" + affectedFunctions(flow, r -> !r.uncheckedCalls().isEmpty()))
+                .location(String.format("Call at pc 0x%x", uncheckedCalls.iterator().next()))
                 .confidenceScore(BigDecimal.valueOf(0.65))
                 .hasRemediation(true)
                 .recommendedFix("Add proper error handling for external calls")
                 .build());
         }
         
-        // 3. Check for potential MEV vulnerabilities
-        if (containsMEVVulnerablePatterns(bytecode)) {
-            vulnerabilities.add(ScanResult.VulnerabilityDetail.builder()
-                .type("mev_vulnerable")
-                .severity("HIGH")
-                .title("MEV Vulnerability Detected")
-                .description("Contract appears vulnerable to MEV extraction attacks")
-                .location("DEX interaction patterns")
-                .confidenceScore(BigDecimal.valueOf(0.80))
-                .hasRemediation(true)
-                .recommendedFix("Implement slippage protection and consider MEV protection services")
-                .build());
-        }
+        // 3. Every registered signature (selectors and opcode sequences) in one pass
+        vulnerabilities.addAll(signatureFindings(code));
         
         // 4. Check for gas optimization issues
-        if (hasGasOptimizationIssues(bytecode)) {
+        if (hasGasOptimizationIssues(code)) {
             vulnerabilities.add(ScanResult.VulnerabilityDetail.builder()
                 .type("gas_inefficiency")
                 .severity("LOW")
@@ -238,19 +422,23 @@ public class ContractScannerService {
         return "LOW";
     }
     
-    private ScanResult.GasAnalysisResult analyzeGasUsage(String bytecode) {
+    private ScanResult.GasAnalysisResult analyzeGasUsage(Disassembly code) {
         List<String> recommendations = new ArrayList<>();
         
-        if (bytecode.contains("5b") && bytecode.contains("5d")) { // JUMPDEST patterns
+        if (code.jumpDestCount() > 256) {
             recommendations.add("Consider optimizing jump destinations");
         }
         
-        if (bytecode.length() > 10000) {
+        if (code.codeLength() > 5000) {
             recommendations.add("Large contract size - consider splitting into modules");
         }
         
-        recommendations.add("Use packed structs for storage efficiency");
-        recommendations.add("Cache storage reads in local variables");
+        if (code.count(Opcodes.SSTORE) > 0) {
+            recommendations.add("Use packed structs for storage efficiency");
+        }
+        if (code.count(Opcodes.SLOAD) > code.count(Opcodes.SSTORE)) {
+            recommendations.add("Cache storage reads in local variables");
+        }
         
         return ScanResult.GasAnalysisResult.builder()
             .currentGasEfficiency("MEDIUM")
@@ -312,48 +500,78 @@ public class ContractScannerService {
             .build();
     }
     
-    // Pattern detection methods
-    private boolean containsReentrancyPattern(String bytecode) {
-        return bytecode.contains("6000803e") || bytecode.contains("3d6000803e");
+    // Detection helpers over the instruction stream and its control flow
+    
+    private Set<FlowAnalysis.Reentrancy> reentrancyPaths(ControlFlow flow) {
+        Set<FlowAnalysis.Reentrancy> paths = new LinkedHashSet<>(flow.dispatcher().reentrancy());
+        flow.functions().values().forEach(r -> paths.addAll(r.reentrancy()));
+        return paths;
     }
     
-    private boolean containsUncheckedExternalCalls(String bytecode) {
-        return bytecode.contains("f1") && !bytecode.contains("600051");
+    private String affectedFunctions(ControlFlow flow, java.util.function.Predicate<FlowAnalysis.Result> affected) {
+        List<String> selectors = new ArrayList<>();
+        flow.functions().forEach((selector, result) -> {
+            if (affected.test(result)) selectors.add(selector);
+        });
+        return selectors.isEmpty() ? "" : " (functions " + String.join(", ", selectors) + ")";
     }
     
-    private boolean containsMEVVulnerablePatterns(String bytecode) {
-        // Look for DEX interaction patterns without protection
-        return bytecode.contains("a9059cbb") || bytecode.contains("23b872dd");
+    /**
+     * One vulnerability per finding with matched signatures, located at its first match
+     */
+    private List<ScanResult.VulnerabilityDetail> signatureFindings(Disassembly code) {
+        Map<String, List<SignatureMatcher.Hit>> hitsByFinding = new HashMap<>();
+        for (SignatureMatcher.Hit hit : SIGNATURES.match(code)) {
+            hitsByFinding.computeIfAbsent(hit.signature().finding(), f -> new ArrayList<>()).add(hit);
+        }
+        
+        List<ScanResult.VulnerabilityDetail> vulnerabilities = new ArrayList<>();
+        FINDINGS.forEach((type, finding) -> {
+            List<SignatureMatcher.Hit> hits = hitsByFinding.get(type);
+            if (hits == null) return;
+            int firstPc = hits.stream().mapToInt(SignatureMatcher.Hit::firstPc).min().orElse(0);
+            String matched = hits.stream().map(hit -> hit.signature().id()).collect(java.util.stream.Collectors.joining(", "));
+            vulnerabilities.add(ScanResult.VulnerabilityDetail.builder()
+                .type(type)
+                .severity(finding.severity())
+                .title(finding.title())
+                .description(finding.description() + " (" + matched + ")")
+                .location(finding.location() + String.format(" at pc 0x%x", firstPc))
+                .confidenceScore(BigDecimal.valueOf(finding.confidence()))
+                .hasRemediation(true)
+                .recommendedFix(finding.recommendedFix())
+                .build());
+        });
+        return vulnerabilities;
     }
     
-    private boolean hasGasOptimizationIssues(String bytecode) {
-        return bytecode.length() > 5000; // Large contracts often have optimization opportunities
+    private boolean hasGasOptimizationIssues(Disassembly code) {
+        return code.codeLength() > 2500; // Large contracts often have optimization opportunities
     }
     
     // Public methods for API
     public Optional<ScanResult> getScanResult(Long scanId) {
-        return Optional.ofNullable(scanResults.get(scanId));
+        return scanStore.get(scanId);
     }
     
     public List<ScanResult> getContractScanHistory(String address) {
-        List<Long> scans = contractScans.getOrDefault(address, new ArrayList<>());
-        return scans.stream()
-            .map(scanResults::get)
-            .filter(Objects::nonNull)
-            .sorted((a, b) -> b.getStartedAt().compareTo(a.getStartedAt()))
-            .toList();
+        return scanStore.history(address);
     }
     
     public Map<String, Object> getScanStats() {
-        int totalScans = scanResults.size();
-        long completedScans = scanResults.values().stream()
-            .filter(scan -> "COMPLETED".equals(scan.getStatus()))
-            .count();
+        // Counters only: a stats read costs the same however many scans have run
+        long completedScans = scanMetrics.getCount("COMPLETED");
+        long totalScans = completedScans + scanMetrics.getCount("FAILED");
         
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalScans", totalScans);
         stats.put("completedScans", completedScans);
         stats.put("successRate", totalScans > 0 ? (completedScans * 100.0 / totalScans) : 0);
+        stats.put("analysisCache", analysisCache.getStats());
+        stats.put("signatures", SIGNATURES.getSignatureCount());
+        stats.put("scheduler", scanScheduler.getStats());
+        stats.put("resultStore", scanStore.getStats());
+        stats.put("metrics", scanMetrics.getStats());
         
         return stats;
     }
@@ -0,0 +1,691 @@
+package com.mevanalytics.platform.service;
+
+import com.mevanalytics.platform.dto.ContractChange;
+import com.mevanalytics.platform.dto.ScanResult;
+import com.mevanalytics.platform.evm.ProxyDetector;
+import com.mevanalytics.platform.repository.WatchedContractRepository;
+import com.mevanalytics.platform.repository.WatchedContractRepository.StoredWatch;
+import com.mevanalytics.platform.repository.WatchedContractRepository.Watcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetProof;
+import org.web3j.protocol.core.methods.response.Log;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watch list of contracts that are rescanned only when their code or proxy
+ * implementation changes. Two signals come from the block pipeline:
+ * - Upgraded and BeaconUpgraded logs from watched proxies, or from their beacons,
+ *   trigger a rescan as soon as the block is processed;
+ * - each block, a slice of the watch list is checked with one batched eth_getProof.
+ *   It returns the account's code hash and the proxy slot in a small response, which
+ *   catches redeployments and upgrades that emit no event.
+ * A stable contract costs one proof every few blocks and is never rescanned. A
+ * rescan that changed something is pushed to SSE subscribers as a ContractChange.
+ *
+ * Watches belong to API customers. A contract's state and rescans are shared by
+ * everyone watching it, and rescans run in the best tier among them. Changes only
+ * reach subscribers whose customer watches the contract.
+ */
+@Service
+public class ContractWatchService {
+    
+    // Upgraded(address), emitted by EIP-1967 proxies and by beacons
+    static final String UPGRADED_TOPIC = "0xbc7cd75a20ee27fd9adebab32041f755214dbc6bffa90cc0225b39da2e5c2d3b";
+    // BeaconUpgraded(address)
+    static final String BEACON_UPGRADED_TOPIC = "0x1cf3b03a6cf19fa2baba4df148e9dcabedea7f8a5c07840e207e5c089be95d3e";
+    
+    private static final int MAX_ERROR_LENGTH = 500;
+    
+    @Autowired
+    private ContractScannerService scannerService;
+    
+    @Autowired
+    private ScanScheduler scanScheduler;
+    
+    @Autowired
+    private MEVDetectionService mevDetectionService;
+    
+    @Autowired
+    private EthereumService ethereumService;
+    
+    @Autowired
+    private WatchedContractRepository watchRepository;
+    
+    @Value("${scanner.watch.max-contracts:10000}")
+    private int maxContracts;
+    
+    @Value("${scanner.watch.max-per-customer:1000}")
+    private int maxPerCustomer;
+    
+    @Value("${scanner.watch.checks-per-block:100}")
+    private int checksPerBlock;
+    
+    @Value("${scanner.watch.baseline-retry-ms:60000}")
+    private long baselineRetryMs;
+    
+    @Value("${scanner.watch.max-subscribers:100}")
+    private int maxSubscribers;
+    
+    @Value("${scanner.watch.subscriber-buffer:100}")
+    private int subscriberBuffer;
+    
+    @Value("${scanner.watch.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+    
+    /**
+     * Next attempt at a contract's first scan after it failed
+     */
+    private record Retry(int attempts, long notBeforeMillis) {}
+    
+    // Keyed by lower-case address
+    private final Map<String, StoredWatch> watches = new ConcurrentHashMap<>();
+    private final Map<String, Map<Long, Watcher>> watchers = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> watchedBy = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> proxiesByBeacon = new ConcurrentHashMap<>();
+    private final Map<String, Retry> baselineRetries = new ConcurrentHashMap<>();
+    private final List<String> sweepOrder = new CopyOnWriteArrayList<>();
+    private final Set<String> rescanning = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberIds = new AtomicLong(1);
+    // Code checks only; SSE delivery has its own threads so a stalled client cannot hold up a sweep
+    private final ExecutorService watchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "contract-watch");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // At most one thread per subscriber with a send in flight
+    private final ExecutorService deliveryExecutor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "contract-watch-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService stallWatchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "contract-watch-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Only advanced on the watch thread
+    private int sweepCursor = 0;
+    
+    private final AtomicLong codeChecks = new AtomicLong();
+    private final AtomicLong eventTriggers = new AtomicLong();
+    private final AtomicLong sweepTriggers = new AtomicLong();
+    private final AtomicLong rescans = new AtomicLong();
+    private final AtomicLong baselineFailures = new AtomicLong();
+    private final AtomicLong changesPublished = new AtomicLong();
+    private final AtomicLong subscribersEvicted = new AtomicLong();
+    
+    /**
+     * One SSE client. Changes queue in a bounded buffer (oldest dropped first) and a
+     * single drain sends them, so there is never more than one send in flight.
+     */
+    private class Subscriber {
+        final long id;
+        final long customerId;
+        final String contractAddress;
+        final SseEmitter emitter;
+        final ArrayDeque<ContractChange> buffer = new ArrayDeque<>();
+        final AtomicBoolean draining = new AtomicBoolean(false);
+        // Nano time the send in flight started, 0 when idle
+        volatile long sendStartedNanos = 0;
+        
+        Subscriber(long id, long customerId, String contractAddress, SseEmitter emitter) {
+            this.id = id;
+            this.customerId = customerId;
+            this.contractAddress = contractAddress;
+            this.emitter = emitter;
+        }
+        
+        void offer(ContractChange change) {
+            synchronized (buffer) {
+                if (buffer.size() >= subscriberBuffer) buffer.pollFirst();
+                buffer.addLast(change);
+            }
+            if (draining.compareAndSet(false, true)) {
+                deliveryExecutor.execute(this::drain);
+            }
+        }
+        
+        void drain() {
+            try {
+                while (true) {
+                    ContractChange next;
+                    synchronized (buffer) {
+                        next = buffer.pollFirst();
+                    }
+                    if (next == null) break;
+                    if (!subscribers.containsKey(id)) {
+                        // Evicted while a send was stalled
+                        emitter.complete();
+                        return;
+                    }
+                    sendStartedNanos = System.nanoTime();
+                    try {
+                        emitter.send(SseEmitter.event().name("contract-change").data(next));
+                    } finally {
+                        sendStartedNanos = 0;
+                    }
+                }
+            } catch (Exception e) {
+                subscribers.remove(id);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // Re-check after releasing the drain flag so a concurrent offer is never stranded
+            synchronized (buffer) {
+                if (buffer.isEmpty()) return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                deliveryExecutor.execute(this::drain);
+            }
+        }
+    }
+    
+    @PostConstruct
+    public void initialize() {
+        mevDetectionService.addBlockListener(this::onBlock);
+        stallWatchdog.scheduleAtFixedRate(this::evictStalled, 1, 1, TimeUnit.SECONDS);
+        watchExecutor.execute(this::loadWatches);
+    }
+    
+    private synchronized void loadWatches() {
+        try {
+            for (StoredWatch watch : watchRepository.findAll()) {
+                watches.put(watch.contractAddress(), watch);
+                sweepOrder.add(watch.contractAddress());
+                indexBeacon(watch);
+                if (watch.lastScanId() == null) {
+                    // Never baselined, e.g. the replica stopped before the first scan finished
+                    baselineRetries.put(watch.contractAddress(), new Retry(0, 0));
+                }
+            }
+            for (Watcher watcher : watchRepository.findWatchers()) {
+                addWatcher(watcher);
+            }
+            System.out.println("👀 Watching " + watches.size() + " contracts for code changes");
+        } catch (Exception e) {
+            System.err.println("❌ Failed to load watched contracts: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Add a contract to a customer's watch list, or update the tier of their watch. A
+     * contract nobody watched before is scanned first to set its baseline.
+     *
+     * @throws IllegalStateException if the watch list or the customer's share of it is full
+     */
+    public synchronized StoredWatch watch(long customerId, String contractAddress, String subscriptionTier) {
+        String address = contractAddress.toLowerCase();
+        Set<String> own = watchedBy.getOrDefault(customerId, Set.of());
+        if (!own.contains(address) && own.size() >= maxPerCustomer) {
+            throw new IllegalStateException("Watch limit reached (" + maxPerCustomer + " contracts per customer)");
+        }
+        StoredWatch watch = watches.get(address);
+        if (watch == null) {
+            if (watches.size() >= maxContracts) {
+                throw new IllegalStateException("Watch list is full (" + maxContracts + " contracts)");
+            }
+            watch = new StoredWatch(address, null, null, null, null, null, null, LocalDateTime.now());
+            watches.put(address, watch);
+            sweepOrder.add(address);
+            persist(watch);
+        }
+        
+        Map<Long, Watcher> current = watchers.get(address);
+        Watcher existing = current != null ? current.get(customerId) : null;
+        Watcher watcher = new Watcher(customerId, address, subscriptionTier,
+            existing != null ? existing.createdAt() : LocalDateTime.now());
+        addWatcher(watcher);
+        try {
+            watchRepository.upsertWatcher(watcher);
+        } catch (Exception e) {
+            System.err.println("❌ Failed to persist watcher of " + address + ": " + e.getMessage());
+        }
+        
+        if (watch.lastScanId() == null) {
+            baselineRetries.remove(address);
+            rescan(address, "BASELINE", null, null);
+        }
+        return watch;
+    }
+    
+    /**
+     * Remove a customer's watch; the contract itself goes once nobody watches it
+     *
+     * @return false if the customer was not watching the contract
+     */
+    public synchronized boolean unwatch(long customerId, String contractAddress) {
+        String address = contractAddress.toLowerCase();
+        Map<Long, Watcher> current = watchers.get(address);
+        if (current == null || current.remove(customerId) == null) return false;
+        watchedBy.computeIfPresent(customerId, (id, own) -> {
+            own.remove(address);
+            return own.isEmpty() ? null : own;
+        });
+        try {
+            watchRepository.deleteWatcher(customerId, address);
+        } catch (Exception e) {
+            System.err.println("❌ Failed to delete watcher of " + address + ": " + e.getMessage());
+        }
+        if (!current.isEmpty()) return true;
+        
+        watchers.remove(address);
+        StoredWatch removed = watches.remove(address);
+        sweepOrder.remove(address);
+        baselineRetries.remove(address);
+        if (removed != null) unindexBeacon(removed);
+        try {
+            watchRepository.delete(address);
+        } catch (Exception e) {
+            System.err.println("❌ Failed to delete watch for " + address + ": " + e.getMessage());
+        }
+        return true;
+    }
+    
+    public List<StoredWatch> getWatches(long customerId) {
+        List<StoredWatch> own = new ArrayList<>();
+        for (String address : watchedBy.getOrDefault(customerId, Set.of())) {
+            StoredWatch watch = watches.get(address);
+            if (watch != null) own.add(watch);
+        }
+        return own;
+    }
+    
+    private void addWatcher(Watcher watcher) {
+        watchers.computeIfAbsent(watcher.contractAddress(), k -> new ConcurrentHashMap<>())
+            .put(watcher.customerId(), watcher);
+        watchedBy.computeIfAbsent(watcher.customerId(), k -> ConcurrentHashMap.newKeySet())
+            .add(watcher.contractAddress());
+    }
+    
+    private boolean isWatchedBy(String contractAddress, long customerId) {
+        Map<Long, Watcher> current = watchers.get(contractAddress);
+        return current != null && current.containsKey(customerId);
+    }
+    
+    /**
+     * Best lane among the contract's watchers
+     */
+    private ScanScheduler.Tier tierOf(String contractAddress) {
+        return watchers.getOrDefault(contractAddress, Map.of()).values().stream()
+            .map(watcher -> ScanScheduler.Tier.of(watcher.subscriptionTier()))
+            .min(Comparator.naturalOrder())
+            .orElse(ScanScheduler.Tier.STARTER);
+    }
+    
+    /**
+     * Upgrade events trigger rescans right away; the rolling code-hash check runs off the
+     * block thread
+     */
+    void onBlock(MEVDetectionService.ProcessedBlock processed) {
+        if (watches.isEmpty()) return;
+        long blockNumber = processed.getBlock().getNumber().longValue();
+        for (Log log : processed.getLogs()) {
+            if (log.getTopics().isEmpty()) continue;
+            String topic = log.getTopics().get(0);
+            String emitter = log.getAddress().toLowerCase();
+            if (UPGRADED_TOPIC.equals(topic)) {
+                if (watches.containsKey(emitter)) triggered(emitter, "UPGRADED", blockNumber);
+                // A beacon's upgrade moves every proxy that follows it
+                for (String proxy : proxiesByBeacon.getOrDefault(emitter, Set.of())) {
+                    triggered(proxy, "BEACON_UPGRADED", blockNumber);
+                }
+            } else if (BEACON_UPGRADED_TOPIC.equals(topic) && watches.containsKey(emitter)) {
+                triggered(emitter, "BEACON_UPGRADED", blockNumber);
+            }
+        }
+        watchExecutor.execute(() -> sweep(blockNumber));
+    }
+    
+    private void triggered(String address, String reason, long blockNumber) {
+        eventTriggers.incrementAndGet();
+        rescan(address, reason, blockNumber, null);
+    }
+    
+    /**
+     * Retry failed baselines that are due, then check the next slice of the watch list
+     * with one batched eth_getProof: the code hash for every contract, plus the
+     * implementation (or beacon) slot for proxies
+     */
+    private void sweep(long blockNumber) {
+        long now = System.currentTimeMillis();
+        baselineRetries.forEach((address, retry) -> {
+            if (retry.notBeforeMillis() <= now) rescan(address, "BASELINE", null, null);
+        });
+        
+        Object[] order = sweepOrder.toArray();
+        if (order.length == 0 || !ethereumService.isConnected() || ethereumService.getWeb3j() == null) return;
+        
+        Web3j web3j = ethereumService.getWeb3j();
+        BatchRequest batch = web3j.newBatch();
+        Map<Long, StoredWatch> watchById = new HashMap<>();
+        for (int k = 0; k < Math.min(checksPerBlock, order.length); k++) {
+            sweepCursor = (sweepCursor + 1) % order.length;
+            StoredWatch watch = watches.get((String) order[sweepCursor]);
+            // No baseline yet (retried above), or a rescan is already on its way
+            if (watch == null || watch.codeHash() == null || rescanning.contains(watch.contractAddress())) continue;
+            String slot = slotOf(watch);
+            Request<?, EthGetProof> request = web3j.ethGetProof(watch.contractAddress(),
+                slot != null ? List.of(slot) : List.of(), DefaultBlockParameterName.LATEST.getValue());
+            watchById.put(request.getId(), watch);
+            batch.add(request);
+        }
+        if (watchById.isEmpty()) return;
+        
+        try {
+            for (Response<?> response : batch.send().getResponses()) {
+                StoredWatch watch = watchById.get(response.getId());
+                if (watch == null || response.hasError()) continue;
+                EthGetProof.Proof proof = ((EthGetProof) response).getProof();
+                codeChecks.incrementAndGet();
+                if (!watch.codeHash().equalsIgnoreCase(proof.getCodeHash())) {
+                    sweepTriggers.incrementAndGet();
+                    rescan(watch.contractAddress(), "CODE_CHANGED", blockNumber, proof.getCodeHash());
+                } else if (slotOf(watch) != null) {
+                    String value = proof.getStorageProof().isEmpty() ? null : proof.getStorageProof().get(0).getValue();
+                    String target = ProxyDetector.toAddress(value);
+                    String known = ProxyDetector.Kind.BEACON.name().equals(watch.proxyKind())
+                        ? watch.beaconAddress() : watch.implementationAddress();
+                    if (!Objects.equals(target, known)) {
+                        sweepTriggers.incrementAndGet();
+                        rescan(watch.contractAddress(), "IMPLEMENTATION_CHANGED", blockNumber, null);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Watch list code check failed at block " + blockNumber + ": " + e.getMessage());
+        }
+    }
+    
+    private static String slotOf(StoredWatch watch) {
+        return watch.proxyKind() != null ? ProxyDetector.slotOf(ProxyDetector.Kind.valueOf(watch.proxyKind())) : null;
+    }
+    
+    /**
+     * Queue a rescan in the best watcher's tier lane, at most one per contract at a time
+     *
+     * @param observedCodeHash code hash seen by the check that triggered this, if any
+     */
+    private void rescan(String address, String reason, Long blockNumber, String observedCodeHash) {
+        StoredWatch before = watches.get(address);
+        if (before == null || !rescanning.add(address)) return;
+        try {
+            scanScheduler.submit(tierOf(address), () -> {
+                try {
+                    runRescan(before, reason, blockNumber, observedCodeHash);
+                } finally {
+                    rescanning.remove(address);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The state is unchanged, so the next check (or baseline retry) triggers it again
+            rescanning.remove(address);
+            if (before.lastScanId() == null) baselineRetries.putIfAbsent(address, new Retry(0, 0));
+            System.err.println("❌ Rescan of " + address + " deferred: " + e.getMessage());
+        }
+    }
+    
+    private void runRescan(StoredWatch before, String reason, Long blockNumber, String observedCodeHash) {
+        String address = before.contractAddress();
+        ScanResult scan = scannerService.scanNow(address);
+        rescans.incrementAndGet();
+        
+        if (scan == null || !"COMPLETED".equals(scan.getStatus())) {
+            String error = scan != null ? scan.getError() : "scan did not run";
+            System.err.println("❌ Rescan of watched contract " + address + " failed: " + error);
+            if (before.lastScanId() == null) {
+                baselineFailed(before, scan, error);
+            } else if (observedCodeHash != null) {
+                // Record the new code so the same change is not rechecked every sweep
+                replace(new StoredWatch(address, observedCodeHash, before.proxyKind(), before.implementationAddress(),
+                    before.beaconAddress(), before.lastScanId(), truncate(error), before.createdAt()));
+                publish(ContractChange.builder()
+                    .contractAddress(address)
+                    .reason(reason)
+                    .blockNumber(blockNumber)
+                    .previousScanId(before.lastScanId())
+                    .scanId(scan != null ? scan.getScanId() : null)
+                    .previousCodeHash(before.codeHash())
+                    .codeHash(observedCodeHash)
+                    .error(error)
+                    .detectedAt(LocalDateTime.now())
+                    .build());
+            }
+            return;
+        }
+        
+        ScanResult.ProxyInfo proxy = scan.getProxy();
+        StoredWatch after = new StoredWatch(address,
+            proxy != null ? proxy.getProxyCodeHash() : scan.getCodeHash(),
+            proxy != null ? proxy.getKind() : null,
+            proxy != null ? proxy.getImplementationAddress() : null,
+            proxy != null ? proxy.getBeaconAddress() : null,
+            scan.getScanId(), null, before.createdAt());
+        baselineRetries.remove(address);
+        if (!replace(after) || before.lastScanId() == null) return;
+        
+        ScanResult previous = scannerService.getScanResult(before.lastScanId()).orElse(null);
+        ContractChange change = diff(before, after, previous, scan, reason, blockNumber);
+        if (change != null) publish(change);
+    }
+    
+    /**
+     * Keep a contract whose first scan failed in the retry set with exponential backoff
+     * (up to an hour), and tell its watchers why it is not being monitored yet
+     */
+    private void baselineFailed(StoredWatch before, ScanResult scan, String error) {
+        String address = before.contractAddress();
+        baselineFailures.incrementAndGet();
+        Retry retry = baselineRetries.compute(address, (k, previous) -> {
+            int attempts = previous != null ? previous.attempts() + 1 : 1;
+            long delay = Math.min(baselineRetryMs << Math.min(attempts - 1, 20), TimeUnit.HOURS.toMillis(1));
+            return new Retry(attempts, System.currentTimeMillis() + delay);
+        });
+        if (!replace(new StoredWatch(address, null, null, null, null, null, truncate(error), before.createdAt()))) {
+            baselineRetries.remove(address);
+            return;
+        }
+        publish(ContractChange.builder()
+            .contractAddress(address)
+            .reason("BASELINE_FAILED")
+            .scanId(scan != null ? scan.getScanId() : null)
+            .error(error + " (attempt " + retry.attempts() + ", retrying)")
+            .detectedAt(LocalDateTime.now())
+            .build());
+    }
+    
+    private static String truncate(String error) {
+        return error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+    
+    /**
+     * What moved between two scans of a contract, or null if nothing did
+     */
+    private ContractChange diff(StoredWatch before, StoredWatch after, ScanResult previous, ScanResult scan,
+                                String reason, Long blockNumber) {
+        Map<String, ScanResult.VulnerabilityDetail> was = findings(previous);
+        Map<String, ScanResult.VulnerabilityDetail> now = findings(scan);
+        List<ScanResult.VulnerabilityDetail> added = now.entrySet().stream()
+            .filter(e -> !was.containsKey(e.getKey())).map(Map.Entry::getValue).toList();
+        List<ScanResult.VulnerabilityDetail> removed = was.entrySet().stream()
+            .filter(e -> !now.containsKey(e.getKey())).map(Map.Entry::getValue).toList();
+        
+        boolean codeMoved = !Objects.equals(before.codeHash(), after.codeHash())
+            || !Objects.equals(before.implementationAddress(), after.implementationAddress())
+            || previous == null || !Objects.equals(previous.getCodeHash(), scan.getCodeHash());
+        boolean riskMoved = previous == null || !Objects.equals(previous.getRiskScore(), scan.getRiskScore());
+        if (!codeMoved && !riskMoved && added.isEmpty() && removed.isEmpty()) return null;
+        
+        return ContractChange.builder()
+            .contractAddress(after.contractAddress())
+            .reason(reason)
+            .blockNumber(blockNumber)
+            .previousScanId(before.lastScanId())
+            .scanId(scan.getScanId())
+            .previousCodeHash(before.codeHash())
+            .codeHash(after.codeHash())
+            .previousImplementation(before.implementationAddress())
+            .implementation(after.implementationAddress())
+            .previousRiskLevel(previous != null ? previous.getRiskLevel() : null)
+            .riskLevel(scan.getRiskLevel())
+            .previousRiskScore(previous != null ? previous.getRiskScore() : null)
+            .riskScore(scan.getRiskScore())
+            .addedVulnerabilities(added)
+            .removedVulnerabilities(removed)
+            .detectedAt(LocalDateTime.now())
+            .build();
+    }
+    
+    private static Map<String, ScanResult.VulnerabilityDetail> findings(ScanResult result) {
+        Map<String, ScanResult.VulnerabilityDetail> findings = new LinkedHashMap<>();
+        if (result == null || result.getVulnerabilities() == null || result.getVulnerabilities().getDetails() == null) {
+            return findings;
+        }
+        for (ScanResult.VulnerabilityDetail detail : result.getVulnerabilities().getDetails()) {
+            findings.put(detail.getType() + "|" + detail.getTitle() + "|" + detail.getLocation(), detail);
+        }
+        return findings;
+    }
+    
+    /**
+     * Store a watch's new state unless it was unwatched meanwhile
+     */
+    private boolean replace(StoredWatch next) {
+        StoredWatch[] previous = new StoredWatch[1];
+        if (watches.computeIfPresent(next.contractAddress(), (address, current) -> {
+            previous[0] = current;
+            return next;
+        }) == null) {
+            return false;
+        }
+        unindexBeacon(previous[0]);
+        indexBeacon(next);
+        persist(next);
+        return true;
+    }
+    
+    private void indexBeacon(StoredWatch watch) {
+        if (watch.beaconAddress() == null) return;
+        proxiesByBeacon.computeIfAbsent(watch.beaconAddress().toLowerCase(), k -> ConcurrentHashMap.newKeySet())
+            .add(watch.contractAddress());
+    }
+    
+    private void unindexBeacon(StoredWatch watch) {
+        if (watch.beaconAddress() == null) return;
+        proxiesByBeacon.computeIfPresent(watch.beaconAddress().toLowerCase(), (beacon, proxies) -> {
+            proxies.remove(watch.contractAddress());
+            return proxies.isEmpty() ? null : proxies;
+        });
+    }
+    
+    private void persist(StoredWatch watch) {
+        try {
+            watchRepository.upsert(watch);
+        } catch (Exception e) {
+            // Kept in memory; after a restart the contract is baselined again
+            System.err.println("❌ Failed to persist watch for " + watch.contractAddress() + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Stream of ContractChange events for the customer's watched contracts, optionally for one
+     *
+     * @return null if the subscriber limit is reached
+     */
+    public SseEmitter subscribe(long customerId, String contractAddress) {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        long id = subscriberIds.getAndIncrement();
+        SseEmitter emitter = new SseEmitter(0L); // no timeout, closed by client, on send failure or when stalled
+        emitter.onCompletion(() -> subscribers.remove(id));
+        emitter.onTimeout(() -> subscribers.remove(id));
+        emitter.onError(e -> subscribers.remove(id));
+        subscribers.put(id, new Subscriber(id, customerId,
+            contractAddress != null ? contractAddress.toLowerCase() : null, emitter));
+        return emitter;
+    }
+    
+    /**
+     * Queue a change for every subscriber whose customer watches the contract; never blocks
+     */
+    private void publish(ContractChange change) {
+        changesPublished.incrementAndGet();
+        System.out.println("🔄 Watched contract " + change.getContractAddress() + " (" + change.getReason() + "): "
+            + (change.getError() != null ? change.getError()
+                : "risk " + change.getPreviousRiskLevel() + " -> " + change.getRiskLevel()));
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.contractAddress != null && !subscriber.contractAddress.equals(change.getContractAddress())) continue;
+            if (!isWatchedBy(change.getContractAddress(), subscriber.customerId)) continue;
+            subscriber.offer(change);
+        }
+    }
+    
+    /**
+     * Drop subscribers whose send has been blocked past the timeout. The stalled thread
+     * completes the emitter once the container gives up on the write.
+     */
+    private void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers.values()) {
+            long started = subscriber.sendStartedNanos;
+            if (started != 0 && now - started > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs)
+                    && subscribers.remove(subscriber.id) != null) {
+                subscribersEvicted.incrementAndGet();
+                System.out.println("🔄 Watch stream subscriber #" + subscriber.id + " stalled for over "
+                    + sendTimeoutMs + "ms, evicting");
+            }
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("watched", watches.size());
+        stats.put("watchers", watchers.values().stream().mapToInt(Map::size).sum());
+        stats.put("maxContracts", maxContracts);
+        stats.put("beacons", proxiesByBeacon.size());
+        stats.put("rescanning", rescanning.size());
+        stats.put("pendingBaselines", baselineRetries.size());
+        stats.put("checksPerBlock", checksPerBlock);
+        stats.put("codeChecks", codeChecks.get());
+        stats.put("eventTriggers", eventTriggers.get());
+        stats.put("sweepTriggers", sweepTriggers.get());
+        stats.put("rescans", rescans.get());
+        stats.put("baselineFailures", baselineFailures.get());
+        stats.put("changesPublished", changesPublished.get());
+        stats.put("subscribers", subscribers.size());
+        stats.put("subscribersEvicted", subscribersEvicted.get());
+        return stats;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        watchExecutor.shutdownNow();
+        stallWatchdog.shutdownNow();
+        subscribers.values().forEach(subscriber -> subscriber.emitter.complete());
+        deliveryExecutor.shutdown();
+    }
+}
@@ -0,0 +1,281 @@
+package com.mevanalytics.platform.service;
+
+import com.mevanalytics.platform.dto.MEVDetectionEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes MEV detections to SSE subscribers as they are produced.
+ * Every subscriber owns a bounded buffer, so a slow client only ever
+ * loses its own events and never stalls the detection pipeline.
+ *
+ * SseEmitter writes block, so each subscriber has at most one send in flight, on
+ * its own pooled thread; a stalled client holds only that thread. A send still
+ * running after send-timeout-ms evicts the subscriber.
+ */
+@Service
+public class DetectionStreamService {
+    
+    @Autowired
+    private MEVDetectionService mevDetectionService;
+    
+    @Value("${mev.stream.buffer-size:256}")
+    private int bufferSize;
+    
+    @Value("${mev.stream.max-subscribers:1000}")
+    private int maxSubscribers;
+    
+    @Value("${mev.stream.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+    
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberIds = new AtomicLong(1);
+    private final AtomicLong eventSequence = new AtomicLong(0);
+    private final AtomicLong evicted = new AtomicLong();
+    private ExecutorService deliveryExecutor;
+    private final ScheduledExecutorService heartbeatScheduler = Executors.newSingleThreadScheduledExecutor();
+    
+    public enum OverflowPolicy {
+        DROP_OLDEST,  // discard the oldest buffered detection
+        COALESCE      // fold discarded detections into a single summary event
+    }
+    
+    /**
+     * Server-side subscription filter. Null/empty fields match everything.
+     */
+    public static class StreamFilter {
+        public Set<String> mevTypes = Set.of();
+        public Set<String> dexNames = Set.of();
+        public BigDecimal minProfitUsd;
+        public String searcherAddress;
+        
+        public boolean matches(MEVDetectionEvent event) {
+            if (!mevTypes.isEmpty() && !mevTypes.contains(event.getMevType())) return false;
+            if (!dexNames.isEmpty() && (event.getDexName() == null || !dexNames.contains(event.getDexName().toLowerCase()))) return false;
+            if (minProfitUsd != null && event.getExtractedValueUsd().compareTo(minProfitUsd) < 0) return false;
+            return searcherAddress == null || searcherAddress.equalsIgnoreCase(event.getSearcherAddress());
+        }
+    }
+    
+    private record Pending(long sequence, MEVDetectionEvent event) {}
+    
+    private class Subscriber {
+        final long id;
+        final SseEmitter emitter;
+        final StreamFilter filter;
+        final OverflowPolicy policy;
+        final ArrayDeque<Pending> buffer = new ArrayDeque<>();
+        final AtomicBoolean draining = new AtomicBoolean(false);
+        final AtomicLong delivered = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        // Nano time the send in flight started, 0 when idle
+        volatile long sendStartedNanos = 0;
+        volatile boolean heartbeatDue = false;
+        long coalescedCount = 0;
+        BigDecimal coalescedValue = BigDecimal.ZERO;
+        
+        Subscriber(long id, SseEmitter emitter, StreamFilter filter, OverflowPolicy policy) {
+            this.id = id;
+            this.emitter = emitter;
+            this.filter = filter;
+            this.policy = policy;
+        }
+        
+        void offer(Pending pending) {
+            synchronized (buffer) {
+                if (buffer.size() >= bufferSize) {
+                    Pending evicted = buffer.pollFirst();
+                    dropped.incrementAndGet();
+                    if (policy == OverflowPolicy.COALESCE && evicted != null) {
+                        coalescedCount++;
+                        coalescedValue = coalescedValue.add(evicted.event().getExtractedValueUsd());
+                    }
+                }
+                buffer.addLast(pending);
+            }
+            scheduleDrain();
+        }
+        
+        void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                deliveryExecutor.execute(this::drain);
+            }
+        }
+        
+        void drain() {
+            try {
+                while (true) {
+                    Pending next;
+                    long skipped;
+                    BigDecimal skippedValue;
+                    synchronized (buffer) {
+                        next = buffer.pollFirst();
+                        skipped = coalescedCount;
+                        skippedValue = coalescedValue;
+                        coalescedCount = 0;
+                        coalescedValue = BigDecimal.ZERO;
+                    }
+                    if (!subscribers.containsKey(id)) {
+                        // Evicted while a send was stalled
+                        emitter.complete();
+                        return;
+                    }
+                    if (skipped > 0) {
+                        send(SseEmitter.event()
+                            .name("coalesced")
+                            .data(Map.of("skipped", skipped, "skippedValueUsd", skippedValue), MediaType.APPLICATION_JSON));
+                    }
+                    if (next == null) {
+                        if (!heartbeatDue) break;
+                        heartbeatDue = false;
+                        send(SseEmitter.event()
+                            .name("heartbeat")
+                            .data(Map.of("delivered", delivered.get(), "dropped", dropped.get()), MediaType.APPLICATION_JSON));
+                        continue;
+                    }
+                    
+                    send(SseEmitter.event()
+                        .id(String.valueOf(next.sequence()))
+                        .name("detection")
+                        .data(next.event(), MediaType.APPLICATION_JSON));
+                    delivered.incrementAndGet();
+                }
+            } catch (Exception e) {
+                unsubscribe(id);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            
+            // Re-check after releasing the drain flag so a concurrent offer is never stranded
+            synchronized (buffer) {
+                if (buffer.isEmpty() && coalescedCount == 0 && !heartbeatDue) return;
+            }
+            scheduleDrain();
+        }
+        
+        private void send(SseEmitter.SseEventBuilder event) throws Exception {
+            sendStartedNanos = System.nanoTime();
+            try {
+                emitter.send(event);
+            } finally {
+                sendStartedNanos = 0;
+            }
+        }
+    }
+    
+    @PostConstruct
+    public void initialize() {
+        // Grows with the subscribers that have a send in flight, at most one thread each
+        deliveryExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "detection-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        mevDetectionService.addDetectionListener(this::publish);
+        heartbeatScheduler.scheduleAtFixedRate(this::sendHeartbeats, 15, 15, TimeUnit.SECONDS);
+        heartbeatScheduler.scheduleAtFixedRate(this::evictStalled, 1, 1, TimeUnit.SECONDS);
+        System.out.println("📡 Detection stream ready (buffer " + bufferSize + " per subscriber)");
+    }
+    
+    /**
+     * Open a new SSE subscription, or return null when at capacity
+     */
+    public SseEmitter subscribe(StreamFilter filter, OverflowPolicy policy) {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        
+        long id = subscriberIds.getAndIncrement();
+        SseEmitter emitter = new SseEmitter(0L); // no timeout, closed by client or on send failure
+        Subscriber subscriber = new Subscriber(id, emitter, filter, policy);
+        
+        emitter.onCompletion(() -> unsubscribe(id));
+        emitter.onTimeout(() -> unsubscribe(id));
+        emitter.onError(e -> unsubscribe(id));
+        subscribers.put(id, subscriber);
+        
+        System.out.println("📡 Detection stream subscriber #" + id + " connected (" + subscribers.size() + " active)");
+        return emitter;
+    }
+    
+    private void unsubscribe(long id) {
+        if (subscribers.remove(id) != null) {
+            System.out.println("📡 Detection stream subscriber #" + id + " disconnected");
+        }
+    }
+    
+    /**
+     * Fan a detection out to matching subscribers. Never blocks on a client.
+     */
+    private void publish(MEVDetectionEvent event) {
+        if (subscribers.isEmpty()) return;
+        
+        Pending pending = new Pending(eventSequence.incrementAndGet(), event);
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.filter.matches(event)) {
+                subscriber.offer(pending);
+            }
+        }
+    }
+    
+    private void sendHeartbeats() {
+        // Sent by the subscriber's own drain, so it never adds a second send in flight
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.heartbeatDue = true;
+            subscriber.scheduleDrain();
+        }
+    }
+    
+    /**
+     * Drop subscribers whose send has been blocked past the timeout. The stalled thread
+     * completes the emitter once the container gives up on the write.
+     */
+    private void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers.values()) {
+            long started = subscriber.sendStartedNanos;
+            if (started != 0 && now - started > TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs)) {
+                evicted.incrementAndGet();
+                System.out.println("📡 Detection stream subscriber #" + subscriber.id + " stalled for over "
+                    + sendTimeoutMs + "ms, evicting");
+                unsubscribe(subscriber.id);
+            }
+        }
+    }
+    
+    public Map<String, Object> getStreamStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("subscribers", subscribers.size());
+        stats.put("eventsPublished", eventSequence.get());
+        stats.put("delivered", subscribers.values().stream().mapToLong(s -> s.delivered.get()).sum());
+        stats.put("dropped", subscribers.values().stream().mapToLong(s -> s.dropped.get()).sum());
+        stats.put("evicted", evicted.get());
+        return stats;
+    }
+    
+    @PreDestroy
+    public void cleanup() {
+        heartbeatScheduler.shutdown();
+        subscribers.values().forEach(s -> s.emitter.complete());
+        if (deliveryExecutor != null) {
+            deliveryExecutor.shutdown();
+        }
+    }
+}
@@ -2,19 +2,38 @@ package com.mevanalytics.platform.service;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.disposables.Disposable;
+import org.web3j.protocol.ObjectMapperFactory;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.methods.request.EthFilter;
 import org.web3j.protocol.core.methods.response.*;
 import org.web3j.protocol.http.HttpService;
+import org.web3j.protocol.websocket.WebSocketService;
+import org.web3j.protocol.websocket.events.Notification;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Service
 public class EthereumService {
@@ -28,11 +47,74 @@ public class EthereumService {
     @Value("${blockchain.ethereum.fallback-rpc}")
     private String fallbackRpcUrl;
     
+    @Value("${blockchain.ethereum.head-poll-interval-ms:3000}")
+    private long headPollIntervalMs;
+    
+    @Value("${blockchain.ethereum.ws-url:}")
+    private String wsUrl;
+    
+    @Value("${mempool.enabled:true}")
+    private boolean mempoolEnabled;
+    
+    @Value("${mempool.replay-file:}")
+    private String mempoolReplayFile;
+    
+    @Value("${mempool.replay-rate:2000}")
+    private int mempoolReplayRate;
+    
+    @Value("${mempool.resubscribe-initial-ms:1000}")
+    private long resubscribeInitialMs;
+    
+    @Value("${mempool.resubscribe-max-ms:60000}")
+    private long resubscribeMaxMs;
+    
     private Web3j web3j;
-    private boolean isConnected = false;
-    private String connectionStatus = "Not connected";
+    private WebSocketService pendingTxSocket;
+    private Disposable pendingTxSubscription;
+    private final List<Consumer<Transaction>> pendingTransactionListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong pendingTransactionsReceived = new AtomicLong();
+    private volatile String mempoolSource = "disabled";
+    private volatile ChainHead chainHead = ChainHead.initial("Not connected");
     private ScheduledExecutorService scheduler;
     
+    // Pending transaction subscription: callbacks from an older socket carry a stale generation and are ignored
+    private ScheduledExecutorService subscriber;
+    private final AtomicLong subscriptionGeneration = new AtomicLong();
+    private final AtomicInteger subscribeFailures = new AtomicInteger();
+    private final AtomicLong resubscriptions = new AtomicLong();
+    private volatile String subscriptionState = "DISABLED";
+    private volatile String subscriptionError;
+    private volatile LocalDateTime subscriptionStateSince = LocalDateTime.now();
+    private volatile boolean stopping = false;
+    
+    /**
+     * Immutable snapshot of the chain head and connection health.
+     * Replaced atomically by the head poller so readers never touch the RPC.
+     */
+    public record ChainHead(BigInteger blockNumber,
+                            BigInteger baseFeePerGas,
+                            BigInteger gasPrice,
+                            boolean connected,
+                            String connectionStatus,
+                            LocalDateTime updatedAt) {
+        
+        static ChainHead initial(String status) {
+            return new ChainHead(BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO, false, status, LocalDateTime.now());
+        }
+        
+        ChainHead withConnection(boolean connected, String status) {
+            return new ChainHead(blockNumber, baseFeePerGas, gasPrice, connected, status, LocalDateTime.now());
+        }
+        
+        public double gasPriceGwei() {
+            return new BigDecimal(gasPrice).divide(BigDecimal.valueOf(1_000_000_000)).doubleValue();
+        }
+        
+        public double baseFeeGwei() {
+            return new BigDecimal(baseFeePerGas).divide(BigDecimal.valueOf(1_000_000_000)).doubleValue();
+        }
+    }
+    
     @PostConstruct
     public void initialize() {
         if (!ethereumEnabled) {
@@ -43,9 +125,170 @@ public class EthereumService {
         System.out.println("🔗 Initializing Ethereum connection...");
         connectToEthereum();
         
-        // Start health check scheduler
+        // Head poller doubles as the connection health check
         scheduler = Executors.newScheduledThreadPool(1);
-        scheduler.scheduleAtFixedRate(this::checkConnection, 30, 30, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::refreshChainHead, 0, headPollIntervalMs, TimeUnit.MILLISECONDS);
+        
+        if (mempoolEnabled) {
+            startPendingTransactionFeed();
+        }
+    }
+    
+    /**
+     * eth_subscribe notification carrying a full pending transaction object
+     */
+    public static class PendingTransactionNotification extends Notification<Transaction> {
+    }
+    
+    /**
+     * Register a consumer for pending (not yet mined) transactions. Called on the
+     * ingestion thread at mempool rates, so listeners must be cheap and non-blocking.
+     */
+    public void addPendingTransactionListener(Consumer<Transaction> listener) {
+        pendingTransactionListeners.add(listener);
+    }
+    
+    private void dispatchPendingTransaction(Transaction tx) {
+        pendingTransactionsReceived.incrementAndGet();
+        for (Consumer<Transaction> listener : pendingTransactionListeners) {
+            try {
+                listener.accept(tx);
+            } catch (Exception e) {
+                System.err.println("❌ Pending transaction listener failed: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void startPendingTransactionFeed() {
+        if (mempoolReplayFile != null && !mempoolReplayFile.isBlank()) {
+            Thread replay = new Thread(() -> replayPendingTransactions(Path.of(mempoolReplayFile)), "mempool-replay");
+            replay.setDaemon(true);
+            replay.start();
+            return;
+        }
+        if (wsUrl == null || wsUrl.isBlank()) {
+            System.out.println("⚠️ No WebSocket RPC configured, mempool ingestion disabled");
+            return;
+        }
+        
+        subscriber = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mempool-subscriber");
+            thread.setDaemon(true);
+            return thread;
+        });
+        subscriber.execute(this::subscribePendingTransactions);
+    }
+    
+    /**
+     * Open a fresh socket and subscribe. Any error or completion of the subscription
+     * schedules another attempt with exponential backoff.
+     */
+    private void subscribePendingTransactions() {
+        if (stopping) return;
+        closePendingTxSocket();
+        long generation = subscriptionGeneration.incrementAndGet();
+        setSubscriptionState("CONNECTING", subscriptionError);
+        
+        try {
+            WebSocketService socket = new WebSocketService(wsUrl, true);
+            pendingTxSocket = socket;
+            socket.connect();
+            
+            // Full transaction objects (geth/erigon/Alchemy), not just hashes
+            Request<?, EthSubscribe> request = new Request<>(
+                "eth_subscribe", List.of("newPendingTransactions", true), socket, EthSubscribe.class);
+            pendingTxSubscription = socket
+                .subscribe(request, "eth_unsubscribe", PendingTransactionNotification.class)
+                .subscribe(
+                    notification -> {
+                        // Only a subscription that actually delivers resets the backoff
+                        if (subscribeFailures.get() != 0) subscribeFailures.set(0);
+                        dispatchPendingTransaction(notification.getParams().getResult());
+                    },
+                    error -> subscriptionLost(generation, "Subscription failed: " + error.getMessage()),
+                    () -> subscriptionLost(generation, "Subscription completed by the node"));
+            mempoolSource = "websocket";
+            if (subscriptionGeneration.get() == generation) {
+                setSubscriptionState("SUBSCRIBED", null);
+                System.out.println("🌊 Subscribed to pending transactions over WebSocket");
+            }
+        } catch (Exception e) {
+            subscriptionLost(generation, "Failed to subscribe: " + e.getMessage());
+        }
+    }
+    
+    private synchronized void subscriptionLost(long generation, String reason) {
+        // Only the first report from the current socket schedules a reconnect
+        if (stopping || !subscriptionGeneration.compareAndSet(generation, generation + 1)) return;
+        
+        int failures = subscribeFailures.getAndIncrement();
+        long delay = Math.min(resubscribeMaxMs, resubscribeInitialMs << Math.min(failures, 20));
+        setSubscriptionState("RECONNECTING", reason);
+        resubscriptions.incrementAndGet();
+        System.err.println("❌ " + reason + ", resubscribing to pending transactions in " + delay + "ms");
+        try {
+            subscriber.schedule(this::subscribePendingTransactions, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+    
+    private void setSubscriptionState(String state, String error) {
+        subscriptionState = state;
+        subscriptionError = error;
+        subscriptionStateSince = LocalDateTime.now();
+    }
+    
+    private void closePendingTxSocket() {
+        Disposable subscription = pendingTxSubscription;
+        WebSocketService socket = pendingTxSocket;
+        pendingTxSubscription = null;
+        pendingTxSocket = null;
+        try {
+            if (subscription != null) subscription.dispose();
+        } catch (Exception ignored) {
+            // the socket is usually already gone
+        }
+        try {
+            if (socket != null) socket.close();
+        } catch (Exception ignored) {
+            // already closed
+        }
+    }
+    
+    /**
+     * Replay pending transactions from a local NDJSON file (one eth_getTransactionByHash
+     * result per line) at a fixed rate. Used for testing and benchmarking without a node.
+     */
+    private void replayPendingTransactions(Path file) {
+        mempoolSource = "replay:" + file.getFileName();
+        ObjectMapper mapper = ObjectMapperFactory.getObjectMapper();
+        long intervalNanos = mempoolReplayRate > 0 ? 1_000_000_000L / mempoolReplayRate : 0;
+        long next = System.nanoTime();
+        long replayed = 0;
+        
+        System.out.println("🌊 Replaying pending transactions from " + file);
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                dispatchPendingTransaction(mapper.readValue(line, Transaction.class));
+                replayed++;
+                
+                if (intervalNanos > 0) {
+                    next += intervalNanos;
+                    long sleepNanos = next - System.nanoTime();
+                    if (sleepNanos > 1_000_000) {
+                        Thread.sleep(sleepNanos / 1_000_000);
+                    }
+                }
+            }
+            System.out.println("🌊 Mempool replay finished: " + replayed + " transactions");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("❌ Mempool replay failed after " + replayed + " transactions: " + e.getMessage());
+        }
     }
     
     private void connectToEthereum() {
@@ -56,7 +299,7 @@ public class EthereumService {
             if (currentRpc.contains("YOUR_API_KEY_HERE")) {
                 System.out.println("⚠️ No Alchemy API key configured, using public RPC");
                 currentRpc = fallbackRpcUrl;
-                connectionStatus = "Using public RPC (limited)";
+                chainHead = chainHead.withConnection(false, "Using public RPC (limited)");
             }
             
             System.out.println("🌐 Connecting to: " + currentRpc);
@@ -69,8 +312,8 @@ public class EthereumService {
                 throw new RuntimeException("Connection test failed: " + version.getError().getMessage());
             }
             
-            isConnected = true;
-            connectionStatus = "Connected to " + (currentRpc.contains("alchemy") ? "Alchemy" : "Public RPC");
+            chainHead = chainHead.withConnection(true,
+                "Connected to " + (currentRpc.contains("alchemy") ? "Alchemy" : "Public RPC"));
             
             System.out.println("✅ Ethereum connected successfully!");
             System.out.println("📡 Client: " + version.getWeb3ClientVersion());
@@ -80,8 +323,7 @@ public class EthereumService {
             System.out.println("🧱 Current block: " + blockNumber.getBlockNumber());
             
         } catch (Exception e) {
-            isConnected = false;
-            connectionStatus = "Connection failed: " + e.getMessage();
+            chainHead = chainHead.withConnection(false, "Connection failed: " + e.getMessage());
             System.err.println("❌ Failed to connect to Ethereum: " + e.getMessage());
             
             // Try fallback if primary failed
@@ -91,8 +333,7 @@ public class EthereumService {
                     web3j = Web3j.build(new HttpService(fallbackRpcUrl));
                     Web3ClientVersion version = web3j.web3ClientVersion().send();
                     if (!version.hasError()) {
-                        isConnected = true;
-                        connectionStatus = "Connected to fallback RPC";
+                        chainHead = chainHead.withConnection(true, "Connected to fallback RPC");
                         System.out.println("✅ Fallback connection successful!");
                     }
                 } catch (Exception fallbackError) {
@@ -102,24 +343,45 @@ public class EthereumService {
         }
     }
     
-    private void checkConnection() {
+    /**
+     * Poll the chain head and publish a fresh snapshot. Gas price is only
+     * re-fetched when the head moves, so an idle chain costs one call per poll.
+     */
+    private void refreshChainHead() {
         if (web3j == null) return;
         
+        ChainHead current = chainHead;
         try {
-            EthBlockNumber blockNumber = web3j.ethBlockNumber().send();
-            if (blockNumber.hasError()) {
-                isConnected = false;
-                connectionStatus = "Connection lost";
-            } else {
-                isConnected = true;
-                // Update status periodically
-                if (connectionStatus.contains("failed") || connectionStatus.contains("lost")) {
-                    connectionStatus = "Connection restored";
-                }
+            EthBlock latest = web3j.ethGetBlockByNumber(DefaultBlockParameterName.LATEST, false).send();
+            if (latest.hasError() || latest.getBlock() == null) {
+                chainHead = current.withConnection(false, "Connection lost");
+                return;
+            }
+            
+            EthBlock.Block block = latest.getBlock();
+            String status = current.connectionStatus();
+            if (!current.connected() || status.contains("failed") || status.contains("lost")) {
+                status = "Connection restored";
+            }
+            
+            if (block.getNumber().equals(current.blockNumber()) && current.connected()) {
+                chainHead = new ChainHead(current.blockNumber(), current.baseFeePerGas(), current.gasPrice(),
+                    true, status, LocalDateTime.now());
+                return;
             }
+            
+            EthGasPrice gasPrice = web3j.ethGasPrice().send();
+            BigInteger baseFee = block.getBaseFeePerGas() != null ? block.getBaseFeePerGas() : BigInteger.ZERO;
+            chainHead = new ChainHead(
+                block.getNumber(),
+                baseFee,
+                gasPrice.hasError() ? current.gasPrice() : gasPrice.getGasPrice(),
+                true,
+                status,
+                LocalDateTime.now()
+            );
         } catch (Exception e) {
-            isConnected = false;
-            connectionStatus = "Health check failed: " + e.getMessage();
+            chainHead = current.withConnection(false, "Health check failed: " + e.getMessage());
         }
     }
     
@@ -127,7 +389,7 @@ public class EthereumService {
      * Get latest block number
      */
     public CompletableFuture<BigInteger> getLatestBlockNumber() {
-        if (!isConnected || web3j == null) {
+        if (!isConnected() || web3j == null) {
             return CompletableFuture.completedFuture(BigInteger.ZERO);
         }
         
@@ -146,7 +408,7 @@ public class EthereumService {
      * Get block with full transaction details
      */
     public CompletableFuture<EthBlock.Block> getBlock(BigInteger blockNumber) {
-        if (!isConnected || web3j == null) {
+        if (!isConnected() || web3j == null) {
             return CompletableFuture.completedFuture(null);
         }
         
@@ -169,7 +431,7 @@ public class EthereumService {
      * Get current gas price
      */
     public CompletableFuture<BigInteger> getGasPrice() {
-        if (!isConnected || web3j == null) {
+        if (!isConnected() || web3j == null) {
             return CompletableFuture.completedFuture(BigInteger.ZERO);
         }
         
@@ -184,11 +446,35 @@ public class EthereumService {
         });
     }
     
+    /**
+     * Get all logs emitted in a block (single eth_getLogs call by block hash)
+     */
+    public CompletableFuture<List<Log>> getBlockLogs(String blockHash) {
+        if (!isConnected() || web3j == null) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                EthLog result = web3j.ethGetLogs(new EthFilter(blockHash)).send();
+                if (result.hasError() || result.getLogs() == null) {
+                    return List.<Log>of();
+                }
+                return result.getLogs().stream()
+                    .map(logResult -> (Log) logResult.get())
+                    .toList();
+            } catch (Exception e) {
+                System.err.println("❌ Error getting logs for block " + blockHash + ": " + e.getMessage());
+                return List.<Log>of();
+            }
+        });
+    }
+    
     /**
      * Get transaction receipt
      */
     public CompletableFuture<TransactionReceipt> getTransactionReceipt(String txHash) {
-        if (!isConnected || web3j == null) {
+        if (!isConnected() || web3j == null) {
             return CompletableFuture.completedFuture(null);
         }
         
@@ -205,12 +491,19 @@ public class EthereumService {
     
     // ===== STATUS METHODS =====
     
+    /**
+     * Latest chain head snapshot - never blocks on the RPC
+     */
+    public ChainHead getChainHead() {
+        return chainHead;
+    }
+    
     public boolean isConnected() {
-        return isConnected;
+        return chainHead.connected();
     }
     
     public String getConnectionStatus() {
-        return connectionStatus;
+        return chainHead.connectionStatus();
     }
     
     public String getRpcUrl() {
@@ -224,11 +517,39 @@ public class EthereumService {
        return web3j;
     }
     
+    public String getMempoolSource() {
+        return mempoolSource;
+    }
+    
+    public long getPendingTransactionsReceived() {
+        return pendingTransactionsReceived.get();
+    }
+    
+    /**
+     * State of the newPendingTransactions subscription, for /health and the mempool stats
+     */
+    public Map<String, Object> getMempoolSubscription() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("state", subscriber != null ? subscriptionState : mempoolSource.toUpperCase());
+        status.put("since", subscriptionStateSince.toString());
+        status.put("resubscriptions", resubscriptions.get());
+        status.put("consecutiveFailures", subscribeFailures.get());
+        if (subscriptionError != null) {
+            status.put("lastError", subscriptionError);
+        }
+        return status;
+    }
+    
     @PreDestroy
     public void cleanup() {
         if (scheduler != null) {
             scheduler.shutdown();
         }
+        stopping = true;
+        if (subscriber != null) {
+            subscriber.shutdownNow();
+        }
+        closePendingTxSocket();
         if (web3j != null) {
             web3j.shutdown();
         }
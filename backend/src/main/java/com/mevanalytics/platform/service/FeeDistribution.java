@@ -0,0 +1,106 @@
+package com.mevanalytics.platform.service;
+
+/**
+ * Rolling distribution of priority fees for one scope (the chain, a pool, a contract).
+ *
+ * Two summaries are kept, both updated in O(1) per observation:
+ * an EWMA of log2(fee) with its variance, for z-scores on a heavy-tailed quantity,
+ * and a log-bucketed histogram with forward exponential decay (8 buckets per
+ * doubling, ~9% relative error) for quantiles. Forward decay weights each sample
+ * by 2^(block / halfLife) instead of shrinking old buckets, so nothing is rescanned
+ * per update; weights are renormalized only when they grow large.
+ */
+public class FeeDistribution {
+    
+    private static final int BUCKETS_PER_OCTAVE = 8;
+    private static final int BUCKETS = 64 * BUCKETS_PER_OCTAVE;
+    private static final double RENORMALIZE_ABOVE = Math.pow(2, 40);
+    
+    private final double[] buckets = new double[BUCKETS];
+    private final double halfLifeBlocks;
+    private final double alpha;
+    private long landmarkBlock = -1;
+    private double totalWeight = 0;
+    private long samples = 0;
+    private double mean = 0;
+    private double variance = 0;
+    private long lastBlock = 0;
+    
+    public FeeDistribution(double halfLifeBlocks, double alpha) {
+        this.halfLifeBlocks = halfLifeBlocks;
+        this.alpha = alpha;
+    }
+    
+    public synchronized void add(long feeWei, long blockNumber) {
+        if (landmarkBlock < 0) landmarkBlock = blockNumber;
+        lastBlock = Math.max(lastBlock, blockNumber);
+        
+        double weight = Math.pow(2, (blockNumber - landmarkBlock) / halfLifeBlocks);
+        if (weight > RENORMALIZE_ABOVE) {
+            for (int i = 0; i < BUCKETS; i++) buckets[i] /= weight;
+            totalWeight /= weight;
+            landmarkBlock = blockNumber;
+            weight = 1;
+        }
+        buckets[bucketOf(feeWei)] += weight;
+        totalWeight += weight;
+        
+        double x = log2(feeWei);
+        if (samples == 0) {
+            mean = x;
+        } else {
+            double delta = x - mean;
+            mean += alpha * delta;
+            variance = (1 - alpha) * (variance + alpha * delta * delta);
+        }
+        samples++;
+    }
+    
+    /**
+     * Approximate fee at quantile q (0..1) of the decayed distribution, in wei
+     */
+    public synchronized long quantile(double q) {
+        if (totalWeight == 0) return 0;
+        double target = q * totalWeight;
+        double cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += buckets[i];
+            if (cumulative >= target) return upperBound(i);
+        }
+        return upperBound(BUCKETS - 1);
+    }
+    
+    /**
+     * Standard deviations of log2(fee) above the EWMA mean
+     */
+    public synchronized double zScore(long feeWei) {
+        double stdDev = Math.sqrt(variance);
+        if (stdDev < 1e-9) return 0;
+        return (log2(feeWei) - mean) / stdDev;
+    }
+    
+    public synchronized long getSamples() {
+        return samples;
+    }
+    
+    public synchronized long getLastBlock() {
+        return lastBlock;
+    }
+    
+    public synchronized long ewmaWei() {
+        return samples == 0 ? 0 : (long) Math.pow(2, mean);
+    }
+    
+    private static double log2(long value) {
+        return Math.log(Math.max(1, value)) / Math.log(2);
+    }
+    
+    private static int bucketOf(long feeWei) {
+        if (feeWei <= 1) return 0;
+        return Math.min(BUCKETS - 1, (int) (log2(feeWei) * BUCKETS_PER_OCTAVE));
+    }
+    
+    private static long upperBound(int bucket) {
+        return (long) Math.pow(2, (bucket + 1) / (double) BUCKETS_PER_OCTAVE);
+    }
+}
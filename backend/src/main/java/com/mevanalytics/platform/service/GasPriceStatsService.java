@@ -0,0 +1,253 @@
+package com.mevanalytics.platform.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.core.methods.response.Transaction;
+
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Streaming priority-fee statistics for the chain, for every DEX pool that emitted
+ * a Swap, and for every protected contract. Feeds adaptive gas thresholds to the
+ * detectors and raises anomalies when a transaction's tip sits far above the
+ * rolling distribution of the contract it touches.
+ */
+@Service
+public class GasPriceStatsService {
+    
+    // Swap(address,uint256,uint256,uint256,uint256,address) and Swap(address,address,int256,int256,uint160,uint128,int24)
+    private static final Set<String> SWAP_TOPICS = Set.of(
+        "0xd78ad95fa46c994b6551d0da85fc275fe613ce37657fb8d5e3d130840159d822",
+        "0xc42079f94a6350d7e6235f29174924f928cc2ac818eb64fed8004e115fbcca67"
+    );
+    
+    @Value("${gas.stats.half-life-blocks:50}")
+    private double halfLifeBlocks;
+    
+    @Value("${gas.stats.ewma-alpha:0.01}")
+    private double ewmaAlpha;
+    
+    @Value("${gas.stats.min-samples:100}")
+    private long minSamples;
+    
+    @Value("${gas.stats.high-fee-quantile:0.9}")
+    private double highFeeQuantile;
+    
+    @Value("${gas.stats.anomaly-quantile:0.99}")
+    private double anomalyQuantile;
+    
+    @Value("${gas.stats.anomaly-z:3.0}")
+    private double anomalyZ;
+    
+    @Value("${gas.stats.track-pools:true}")
+    private boolean trackPools;
+    
+    @Value("${gas.stats.max-scopes:20000}")
+    private int maxScopes;
+    
+    @Value("${gas.stats.stale-blocks:1000}")
+    private long staleBlocks;
+    
+    private FeeDistribution chain;
+    private final Map<String, FeeDistribution> pools = new ConcurrentHashMap<>();
+    private final Map<String, FeeDistribution> contracts = new ConcurrentHashMap<>();
+    private volatile Set<String> watchedContracts = Set.of();
+    private volatile long highFeeThreshold = Long.MAX_VALUE;
+    private final List<Consumer<GasAnomaly>> anomalyListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong anomaliesRaised = new AtomicLong();
+    
+    public static class GasAnomaly {
+        public String contractAddress;
+        public String transactionHash;
+        public String fromAddress;
+        public String selector;
+        public long blockNumber;
+        public long priorityFeeWei;
+        public long medianWei;
+        public long thresholdWei;
+        public double zScore;
+        public String baseline; // CONTRACT or CHAIN, whichever distribution was warm enough
+    }
+    
+    @PostConstruct
+    public void initialize() {
+        chain = new FeeDistribution(halfLifeBlocks, ewmaAlpha);
+    }
+    
+    /**
+     * Set which contracts get their own distribution and anomaly alerts.
+     * Expected to be a live, concurrent view (lower-case addresses).
+     */
+    public void setWatchedContracts(Set<String> watchedContracts) {
+        this.watchedContracts = watchedContracts;
+    }
+    
+    public void addAnomalyListener(Consumer<GasAnomaly> listener) {
+        anomalyListeners.add(listener);
+    }
+    
+    /**
+     * Priority fee a mined transaction paid per gas. Block transactions report the
+     * effective gas price, so the tip is what remains above the base fee.
+     */
+    public static long priorityFee(Transaction tx, BigInteger baseFee) {
+        if (tx.getGasPriceRaw() == null) return 0;
+        BigInteger gasPrice = tx.getGasPrice();
+        BigInteger tip = baseFee != null ? gasPrice.subtract(baseFee) : gasPrice;
+        return Math.max(0, tip.min(BigInteger.valueOf(Long.MAX_VALUE)).longValue());
+    }
+    
+    public static BigInteger baseFee(EthBlock.Block block) {
+        return block.getBaseFeePerGasRaw() != null ? block.getBaseFeePerGas() : null;
+    }
+    
+    /**
+     * Tip at or above which a transaction counts as paying a premium for inclusion
+     */
+    public long getHighFeeThreshold() {
+        return highFeeThreshold;
+    }
+    
+    /**
+     * Fold one block into every distribution. Transactions touching a watched
+     * contract are scored before they are added, so an outlier never dilutes
+     * the baseline it is compared against.
+     */
+    public void recordBlock(MEVDetectionService.ProcessedBlock processed) {
+        EthBlock.Block block = processed.getBlock();
+        long blockNumber = block.getNumber().longValue();
+        BigInteger baseFee = baseFee(block);
+        Set<String> watched = watchedContracts;
+        
+        // One pass over the logs: Swap emitters (pools) and watched emitters per transaction
+        Map<String, Set<String>> poolsByTx = new HashMap<>();
+        Map<String, Set<String>> watchedByTx = new HashMap<>();
+        if (trackPools || !watched.isEmpty()) {
+            collectLogTargets(processed, watched, poolsByTx, watchedByTx);
+        }
+        
+        for (Transaction tx : processed.getTransactions()) {
+            long fee = priorityFee(tx, baseFee);
+            
+            Set<String> touched = watchedByTx.getOrDefault(tx.getHash(), new HashSet<>());
+            if (tx.getTo() != null && watched.contains(tx.getTo().toLowerCase())) {
+                touched.add(tx.getTo().toLowerCase());
+            }
+            for (String contractAddress : touched) {
+                FeeDistribution distribution = scope(contracts, contractAddress);
+                if (distribution == null) continue;
+                checkAnomaly(contractAddress, distribution, tx, fee, blockNumber);
+                distribution.add(fee, blockNumber);
+            }
+            for (String pool : poolsByTx.getOrDefault(tx.getHash(), Set.of())) {
+                FeeDistribution distribution = scope(pools, pool);
+                if (distribution != null) distribution.add(fee, blockNumber);
+            }
+            chain.add(fee, blockNumber);
+        }
+        
+        highFeeThreshold = chain.getSamples() >= minSamples ? chain.quantile(highFeeQuantile) : Long.MAX_VALUE;
+        if (blockNumber % 100 == 0) {
+            evictStale(blockNumber);
+        }
+    }
+    
+    private void collectLogTargets(MEVDetectionService.ProcessedBlock processed, Set<String> watched,
+                                   Map<String, Set<String>> poolsByTx, Map<String, Set<String>> watchedByTx) {
+        for (Log log : processed.getLogs()) {
+            if (log.getAddress() == null || log.getTransactionHash() == null) continue;
+            String emitter = log.getAddress().toLowerCase();
+            if (trackPools && !log.getTopics().isEmpty() && SWAP_TOPICS.contains(log.getTopics().get(0))) {
+                poolsByTx.computeIfAbsent(log.getTransactionHash(), k -> new HashSet<>()).add(emitter);
+            }
+            if (watched.contains(emitter)) {
+                watchedByTx.computeIfAbsent(log.getTransactionHash(), k -> new HashSet<>()).add(emitter);
+            }
+        }
+    }
+    
+    private FeeDistribution scope(Map<String, FeeDistribution> scopes, String key) {
+        FeeDistribution distribution = scopes.get(key);
+        if (distribution == null && scopes.size() < maxScopes) {
+            distribution = scopes.computeIfAbsent(key, k -> new FeeDistribution(halfLifeBlocks, ewmaAlpha));
+        }
+        return distribution;
+    }
+    
+    private void checkAnomaly(String contractAddress, FeeDistribution contract, Transaction tx, long fee, long blockNumber) {
+        // Fall back to the chain-wide baseline until the contract has its own history
+        boolean contractWarm = contract.getSamples() >= minSamples;
+        FeeDistribution baseline = contractWarm ? contract : chain;
+        if (baseline.getSamples() < minSamples) return;
+        
+        long threshold = baseline.quantile(anomalyQuantile);
+        double z = baseline.zScore(fee);
+        if (fee < threshold || z < anomalyZ) return;
+        
+        GasAnomaly anomaly = new GasAnomaly();
+        anomaly.contractAddress = contractAddress;
+        anomaly.transactionHash = tx.getHash();
+        anomaly.fromAddress = tx.getFrom();
+        anomaly.selector = tx.getInput() != null && tx.getInput().length() >= 10 ? tx.getInput().substring(0, 10) : null;
+        anomaly.blockNumber = blockNumber;
+        anomaly.priorityFeeWei = fee;
+        anomaly.medianWei = baseline.quantile(0.5);
+        anomaly.thresholdWei = threshold;
+        anomaly.zScore = z;
+        anomaly.baseline = contractWarm ? "CONTRACT" : "CHAIN";
+        
+        anomaliesRaised.incrementAndGet();
+        for (Consumer<GasAnomaly> listener : anomalyListeners) {
+            try {
+                listener.accept(anomaly);
+            } catch (Exception e) {
+                System.err.println("❌ Gas anomaly listener failed: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void evictStale(long blockNumber) {
+        pools.values().removeIf(d -> blockNumber - d.getLastBlock() > staleBlocks);
+        contracts.entrySet().removeIf(e -> !watchedContracts.contains(e.getKey()) || blockNumber - e.getValue().getLastBlock() > staleBlocks);
+    }
+    
+    private static Map<String, Object> describe(FeeDistribution distribution) {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("samples", distribution.getSamples());
+        stats.put("ewmaGwei", gwei(distribution.ewmaWei()));
+        stats.put("p50Gwei", gwei(distribution.quantile(0.5)));
+        stats.put("p90Gwei", gwei(distribution.quantile(0.9)));
+        stats.put("p99Gwei", gwei(distribution.quantile(0.99)));
+        stats.put("lastBlock", distribution.getLastBlock());
+        return stats;
+    }
+    
+    static BigDecimal gwei(long wei) {
+        return BigDecimal.valueOf(wei).movePointLeft(9).setScale(3, RoundingMode.HALF_UP);
+    }
+    
+    public Map<String, Object> getContractStats(String contractAddress) {
+        FeeDistribution distribution = contracts.get(contractAddress.toLowerCase());
+        return distribution == null ? Map.of() : describe(distribution);
+    }
+    
+    public Map<String, Object> getGasStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("chain", describe(chain));
+        stats.put("highFeeThresholdGwei", highFeeThreshold == Long.MAX_VALUE ? null : gwei(highFeeThreshold));
+        stats.put("trackedPools", pools.size());
+        stats.put("trackedContracts", contracts.size());
+        stats.put("anomaliesRaised", anomaliesRaised.get());
+        return stats;
+    }
+}
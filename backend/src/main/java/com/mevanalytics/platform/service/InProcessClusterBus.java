@@ -0,0 +1,49 @@
+package com.mevanalytics.platform.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Cluster bus for a single process. Channels are JVM-wide, so several application
+ * contexts started in one JVM behave like separate replicas sharing a bus.
+ */
+@Service
+@ConditionalOnProperty(name = "protection.cluster.bus", havingValue = "local", matchIfMissing = true)
+public class InProcessClusterBus implements ClusterBus {
+    
+    private static final Map<String, List<Consumer<String>>> CHANNELS = new ConcurrentHashMap<>();
+    private static final ExecutorService DISPATCHER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "cluster-bus");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    @Override
+    public void publish(String channel, String message) {
+        List<Consumer<String>> listeners = CHANNELS.get(channel);
+        if (listeners == null) return;
+        
+        DISPATCHER.execute(() -> {
+            for (Consumer<String> listener : listeners) {
+                try {
+                    listener.accept(message);
+                } catch (Exception e) {
+                    System.err.println("❌ Cluster bus listener failed on " + channel + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+    
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        CHANNELS.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+}
@@ -1,18 +1,30 @@
 package com.mevanalytics.platform.service;
 
+import com.mevanalytics.platform.dto.MEVDetectionEvent;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.Log;
 import org.web3j.protocol.core.methods.response.Transaction;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.math.BigInteger;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Service
 public class MEVDetectionService {
@@ -20,6 +32,9 @@ public class MEVDetectionService {
     @Autowired
     private EthereumService ethereumService;
     
+    @Autowired
+    private GasPriceStatsService gasPriceStats;
+    
     @Value("${mev.detection.enabled:true}")
     private boolean detectionEnabled;
     
@@ -35,12 +50,60 @@ public class MEVDetectionService {
     @Value("${dex.sushiswap}")
     private String sushiswapRouter;
     
-    private BigInteger lastProcessedBlock = BigInteger.ZERO;
-    private Set<String> knownDexRouters = new HashSet<>();
+    // Written only on the block pipeline thread
+    private volatile BigInteger lastProcessedBlock = BigInteger.ZERO;
+    private Map<String, String> knownDexRouters = new HashMap<>();
     private AtomicInteger totalMEVDetected = new AtomicInteger(0);
     private AtomicInteger sandwichAttacks = new AtomicInteger(0);
     private AtomicInteger arbitrageOps = new AtomicInteger(0);
     private BigDecimal totalExtractedValue = BigDecimal.ZERO;
+    private final List<Consumer<MEVDetectionEvent>> detectionListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<ProcessedBlock>> blockListeners = new CopyOnWriteArrayList<>();
+    // Blocks are processed one at a time, in order, so listeners see each block exactly once
+    private final ExecutorService blockPipeline = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "block-pipeline");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean scanQueued = new AtomicBoolean(false);
+    
+    /**
+     * A block after detection has run over it. Its logs are fetched once, asynchronously
+     * as soon as the block arrives, and shared by every block listener.
+     */
+    public class ProcessedBlock {
+        private final EthBlock.Block block;
+        private final List<Transaction> transactions;
+        private final List<MEVDetectionEvent> detections;
+        private final CompletableFuture<List<Log>> logs;
+        
+        ProcessedBlock(EthBlock.Block block, List<Transaction> transactions, List<MEVDetectionEvent> detections,
+                       CompletableFuture<List<Log>> logs) {
+            this.block = block;
+            this.transactions = transactions;
+            this.detections = detections;
+            this.logs = logs;
+        }
+        
+        public EthBlock.Block getBlock() {
+            return block;
+        }
+        
+        public List<Transaction> getTransactions() {
+            return transactions;
+        }
+        
+        public List<MEVDetectionEvent> getDetections() {
+            return detections;
+        }
+        
+        /**
+         * Waits on the block pipeline thread if the logs are still in flight
+         */
+        public List<Log> getLogs() {
+            return logs.join();
+        }
+    }
     
     @PostConstruct
     public void initialize() {
@@ -52,10 +115,10 @@ public class MEVDetectionService {
         System.out.println("🔍 MEV Detection Service initializing...");
         
         // Add known DEX router addresses
-        knownDexRouters.add(uniswapV2Router.toLowerCase());
-        knownDexRouters.add(sushiswapRouter.toLowerCase());
-        knownDexRouters.add("0x10ed43c718714eb63d5aa57b78b54704e256024e"); // PancakeSwap
-        knownDexRouters.add("0xe592427a0aece92de3edee1f18e0157c05861564"); // Uniswap V3
+        knownDexRouters.put(uniswapV2Router.toLowerCase(), "Uniswap V2");
+        knownDexRouters.put(sushiswapRouter.toLowerCase(), "SushiSwap");
+        knownDexRouters.put("0x10ed43c718714eb63d5aa57b78b54704e256024e", "PancakeSwap");
+        knownDexRouters.put("0xe592427a0aece92de3edee1f18e0157c05861564", "Uniswap V3");
         
         System.out.println("🎯 Monitoring " + knownDexRouters.size() + " DEX routers");
         System.out.println("💰 Minimum profit threshold: $" + minProfitUsd);
@@ -64,15 +127,47 @@ public class MEVDetectionService {
         initializeStartingBlock();
     }
     
+    /**
+     * Register a consumer that receives every detection as it is produced.
+     * Listeners run on the block processing thread and must not block.
+     */
+    public void addDetectionListener(Consumer<MEVDetectionEvent> listener) {
+        detectionListeners.add(listener);
+    }
+    
+    /**
+     * Register a consumer that sees every processed block together with its detections.
+     * Blocks arrive once each, in order, on the block pipeline thread.
+     */
+    public void addBlockListener(Consumer<ProcessedBlock> listener) {
+        blockListeners.add(listener);
+    }
+    
+    private void publishDetection(MEVDetectionEvent event) {
+        for (Consumer<MEVDetectionEvent> listener : detectionListeners) {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                System.err.println("❌ Detection listener failed: " + e.getMessage());
+            }
+        }
+    }
+    
     private void initializeStartingBlock() {
-        ethereumService.getLatestBlockNumber().thenAccept(latestBlock -> {
-            if (latestBlock.compareTo(BigInteger.ZERO) > 0) {
+        blockPipeline.execute(() -> {
+            BigInteger latestBlock = ethereumService.getLatestBlockNumber().join();
+            if (latestBlock.compareTo(BigInteger.ZERO) > 0 && lastProcessedBlock.equals(BigInteger.ZERO)) {
                 lastProcessedBlock = latestBlock.subtract(BigInteger.valueOf(scanLatestBlocks));
                 System.out.println("🎯 Starting MEV detection from block: " + lastProcessedBlock);
             }
         });
     }
     
+    @PreDestroy
+    public void shutdown() {
+        blockPipeline.shutdownNow();
+    }
+    
     /**
      * Scheduled MEV detection - runs every 30 seconds
      */
@@ -82,71 +177,120 @@ public class MEVDetectionService {
             return;
         }
         
+        // A scan still running covers this tick
+        if (!scanQueued.compareAndSet(false, true)) {
+            return;
+        }
+        
         System.out.println("🔍 Scanning for MEV transactions...");
         
-        ethereumService.getLatestBlockNumber().thenAccept(latestBlock -> {
-            if (lastProcessedBlock.equals(BigInteger.ZERO)) {
-                lastProcessedBlock = latestBlock.subtract(BigInteger.valueOf(10));
-            }
-            
-            // Process up to 5 blocks at a time to avoid overwhelming
-            BigInteger endBlock = lastProcessedBlock.add(BigInteger.valueOf(5));
-            if (endBlock.compareTo(latestBlock) > 0) {
-                endBlock = latestBlock;
-            }
-            
-            if (endBlock.compareTo(lastProcessedBlock) > 0) {
-                System.out.println("📊 Processing blocks " + lastProcessedBlock + " to " + endBlock);
-                
-                for (BigInteger blockNum = lastProcessedBlock; blockNum.compareTo(endBlock) <= 0; blockNum = blockNum.add(BigInteger.ONE)) {
-                    processBlockForMEV(blockNum);
-                }
-                
-                lastProcessedBlock = endBlock;
+        blockPipeline.execute(() -> {
+            try {
+                processNewBlocks();
+            } catch (Exception e) {
+                System.err.println("❌ Error scanning for MEV transactions: " + e.getMessage());
+            } finally {
+                scanQueued.set(false);
             }
         });
     }
     
-    private void processBlockForMEV(BigInteger blockNumber) {
-        ethereumService.getBlock(blockNumber).thenAccept(block -> {
-            if (block == null || block.getTransactions() == null) {
+    /**
+     * Process the blocks after lastProcessedBlock in order. Blocks and their logs are
+     * requested up front so the RPCs overlap; a block that cannot be fetched stops the
+     * run and is retried on the next tick.
+     */
+    private void processNewBlocks() {
+        BigInteger latestBlock = ethereumService.getLatestBlockNumber().join();
+        if (latestBlock.signum() <= 0) {
+            return;
+        }
+        if (lastProcessedBlock.equals(BigInteger.ZERO)) {
+            lastProcessedBlock = latestBlock.subtract(BigInteger.valueOf(10));
+        }
+        
+        // Process up to 5 blocks at a time to avoid overwhelming
+        BigInteger startBlock = lastProcessedBlock.add(BigInteger.ONE);
+        BigInteger endBlock = lastProcessedBlock.add(BigInteger.valueOf(5)).min(latestBlock);
+        if (endBlock.compareTo(startBlock) < 0) {
+            return;
+        }
+        System.out.println("📊 Processing blocks " + startBlock + " to " + endBlock);
+        
+        List<CompletableFuture<EthBlock.Block>> blocks = new ArrayList<>();
+        List<CompletableFuture<List<Log>>> logs = new ArrayList<>();
+        for (BigInteger blockNum = startBlock; blockNum.compareTo(endBlock) <= 0; blockNum = blockNum.add(BigInteger.ONE)) {
+            CompletableFuture<EthBlock.Block> block = ethereumService.getBlock(blockNum);
+            blocks.add(block);
+            logs.add(block.thenCompose(b -> b != null
+                ? ethereumService.getBlockLogs(b.getHash()) : CompletableFuture.completedFuture(List.of())));
+        }
+        
+        for (int i = 0; i < blocks.size(); i++) {
+            BigInteger blockNumber = startBlock.add(BigInteger.valueOf(i));
+            EthBlock.Block block = blocks.get(i).join();
+            if (block == null) {
+                System.err.println("❌ Block " + blockNumber + " unavailable, retrying next scan");
                 return;
             }
+            processBlockForMEV(blockNumber, block, logs.get(i));
+            lastProcessedBlock = blockNumber;
+        }
+    }
+    
+    private void processBlockForMEV(BigInteger blockNumber, EthBlock.Block block, CompletableFuture<List<Log>> logs) {
+        if (block.getTransactions() == null) {
+            return;
+        }
+        
+        try {
+            List<Transaction> transactions = new ArrayList<>();
+            for (EthBlock.TransactionResult result : block.getTransactions()) {
+                transactions.add((Transaction) result.get());
+            }
             
-            try {
-                List<Transaction> transactions = new ArrayList<>();
-                for (EthBlock.TransactionResult result : block.getTransactions()) {
-                    transactions.add((Transaction) result.get());
-                }
+            List<MEVDetectionEvent> detections = new ArrayList<>();
+            ProcessedBlock processed = new ProcessedBlock(block, transactions, detections, logs);
+            
+            // Fee distributions first, so detectors compare against thresholds that include this block
+            gasPriceStats.recordBlock(processed);
+            
+            if (transactions.size() > 1) {
+                // Detect different types of MEV
+                detectSandwichAttacks(block, transactions, detections);
+                detectArbitrageOpportunities(block, transactions, detections);
                 
-                if (transactions.size() > 1) {
-                    // Detect different types of MEV
-                    detectSandwichAttacks(block, transactions);
-                    detectArbitrageOpportunities(block, transactions);
-                    
-                    if (totalMEVDetected.get() % 10 == 0 && totalMEVDetected.get() > 0) {
-                        System.out.println("📈 MEV Summary: " + totalMEVDetected.get() + " total, " + 
-                                         sandwichAttacks.get() + " sandwich, " + 
-                                         arbitrageOps.get() + " arbitrage, $" + 
-                                         totalExtractedValue.setScale(2, RoundingMode.HALF_UP) + " extracted");
-                    }
+                if (totalMEVDetected.get() % 10 == 0 && totalMEVDetected.get() > 0) {
+                    System.out.println("📈 MEV Summary: " + totalMEVDetected.get() + " total, " + 
+                                     sandwichAttacks.get() + " sandwich, " + 
+                                     arbitrageOps.get() + " arbitrage, $" + 
+                                     totalExtractedValue.setScale(2, RoundingMode.HALF_UP) + " extracted");
                 }
-            } catch (Exception e) {
-                System.err.println("❌ Error processing block " + blockNumber + ": " + e.getMessage());
             }
-        });
+            
+            for (Consumer<ProcessedBlock> listener : blockListeners) {
+                try {
+                    listener.accept(processed);
+                } catch (Exception e) {
+                    System.err.println("❌ Block listener failed for block " + blockNumber + ": " + e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error processing block " + blockNumber + ": " + e.getMessage());
+        }
     }
     
     /**
      * Detect sandwich attacks
      */
-    private void detectSandwichAttacks(EthBlock.Block block, List<Transaction> transactions) {
+    private void detectSandwichAttacks(EthBlock.Block block, List<Transaction> transactions, List<MEVDetectionEvent> detections) {
+        BigInteger baseFee = GasPriceStatsService.baseFee(block);
         for (int i = 1; i < transactions.size() - 1; i++) {
             Transaction prevTx = transactions.get(i - 1);
             Transaction victimTx = transactions.get(i);
             Transaction nextTx = transactions.get(i + 1);
             
-            if (isSandwichPattern(prevTx, victimTx, nextTx)) {
+            if (isSandwichPattern(prevTx, victimTx, nextTx, baseFee)) {
                 BigDecimal profit = calculateSandwichProfit(prevTx, victimTx, nextTx);
                 
                 if (profit.doubleValue() >= minProfitUsd) {
@@ -157,6 +301,13 @@ public class MEVDetectionService {
                     System.out.println("🥪 Sandwich attack detected in block " + block.getNumber() + 
                         " - Attacker: " + shortenAddress(prevTx.getFrom()) + 
                         " - Profit: $" + profit.setScale(2, RoundingMode.HALF_UP));
+                    
+                    MEVDetectionEvent event = newEvent(block, prevTx, "SANDWICH", profit);
+                    event.setVictimAddress(victimTx.getFrom());
+                    event.setVictimTransactionHash(victimTx.getHash());
+                    event.setBackrunTransactionHash(nextTx.getHash());
+                    detections.add(event);
+                    publishDetection(event);
                 }
             }
         }
@@ -165,9 +316,10 @@ public class MEVDetectionService {
     /**
      * Detect arbitrage opportunities
      */
-    private void detectArbitrageOpportunities(EthBlock.Block block, List<Transaction> transactions) {
+    private void detectArbitrageOpportunities(EthBlock.Block block, List<Transaction> transactions, List<MEVDetectionEvent> detections) {
+        BigInteger baseFee = GasPriceStatsService.baseFee(block);
         for (Transaction tx : transactions) {
-            if (isArbitrageTransaction(tx)) {
+            if (isArbitrageTransaction(tx, baseFee)) {
                 BigDecimal profit = calculateArbitrageProfit(tx);
                 
                 if (profit.doubleValue() >= minProfitUsd) {
@@ -178,14 +330,33 @@ public class MEVDetectionService {
                     System.out.println("⚖️ Arbitrage detected in block " + block.getNumber() + 
                         " - Trader: " + shortenAddress(tx.getFrom()) + 
                         " - Profit: $" + profit.setScale(2, RoundingMode.HALF_UP));
+                    
+                    MEVDetectionEvent event = newEvent(block, tx, "ARBITRAGE", profit);
+                    detections.add(event);
+                    publishDetection(event);
                 }
             }
         }
     }
     
+    private MEVDetectionEvent newEvent(EthBlock.Block block, Transaction tx, String mevType, BigDecimal profit) {
+        return MEVDetectionEvent.builder()
+            .transactionHash(tx.getHash())
+            .blockNumber(block.getNumber().longValue())
+            .blockTimestamp(LocalDateTime.ofInstant(Instant.ofEpochSecond(block.getTimestamp().longValue()), ZoneOffset.UTC))
+            .mevType(mevType)
+            .searcherAddress(tx.getFrom())
+            .toAddress(tx.getTo())
+            .dexName(tx.getTo() != null ? knownDexRouters.get(tx.getTo().toLowerCase()) : null)
+            .extractedValueUsd(profit.setScale(8, RoundingMode.HALF_UP))
+            .gasPrice(tx.getGasPrice().longValue())
+            .detectedAt(LocalDateTime.now())
+            .build();
+    }
+    
     // ===== DETECTION LOGIC =====
     
-    private boolean isSandwichPattern(Transaction prevTx, Transaction victimTx, Transaction nextTx) {
+    private boolean isSandwichPattern(Transaction prevTx, Transaction victimTx, Transaction nextTx, BigInteger baseFee) {
         // Same attacker for front and back run
         boolean sameAttacker = prevTx.getFrom().equalsIgnoreCase(nextTx.getFrom());
         
@@ -194,18 +365,18 @@ public class MEVDetectionService {
                           isValidDexTransaction(victimTx) && 
                           isValidDexTransaction(nextTx);
         
-        // Higher gas price for attacker transactions (typical sandwich pattern)
-        boolean higherGasPrice = prevTx.getGasPrice().compareTo(victimTx.getGasPrice()) >= 0 &&
-                               nextTx.getGasPrice().compareTo(victimTx.getGasPrice()) >= 0;
+        // Front-run tips at least as much as the victim to be ordered ahead of it.
+        // The back-run only has to land after the victim, so its tip is not constrained.
+        boolean outbidsVictim = GasPriceStatsService.priorityFee(prevTx, baseFee) >= GasPriceStatsService.priorityFee(victimTx, baseFee);
         
-        return sameAttacker && allToDex && higherGasPrice;
+        return sameAttacker && allToDex && outbidsVictim;
     }
     
-    private boolean isArbitrageTransaction(Transaction tx) {
+    private boolean isArbitrageTransaction(Transaction tx, BigInteger baseFee) {
         if (!isValidDexTransaction(tx)) return false;
         
-        // High gas price (willing to pay premium for speed)
-        boolean highGas = tx.getGasPrice().compareTo(BigInteger.valueOf(30_000_000_000L)) > 0; // > 30 gwei
+        // Tip in the top of the rolling fee distribution (willing to pay premium for speed)
+        boolean highGas = GasPriceStatsService.priorityFee(tx, baseFee) >= gasPriceStats.getHighFeeThreshold();
         
         // Has significant value
         boolean hasValue = tx.getValue().compareTo(BigInteger.valueOf(1000000000000000000L)) > 0; // > 1 ETH
@@ -214,7 +385,7 @@ public class MEVDetectionService {
     }
     
     private boolean isValidDexTransaction(Transaction tx) {
-        return tx.getTo() != null && knownDexRouters.contains(tx.getTo().toLowerCase());
+        return tx.getTo() != null && knownDexRouters.containsKey(tx.getTo().toLowerCase());
     }
     
     // ===== PROFIT CALCULATIONS =====
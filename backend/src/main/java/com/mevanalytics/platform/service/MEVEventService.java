@@ -0,0 +1,128 @@
+package com.mevanalytics.platform.service;
+
+import com.mevanalytics.platform.dto.MEVDetectionEvent;
+import com.mevanalytics.platform.dto.MEVEventPage;
+import com.mevanalytics.platform.dto.MEVEventQuery;
+import com.mevanalytics.platform.repository.MEVTransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists detections to mev_transactions and serves keyset-paginated searches over them.
+ */
+@Service
+public class MEVEventService {
+    
+    public static final int MAX_PAGE_SIZE = 1000;
+    
+    @Autowired
+    private MEVDetectionService mevDetectionService;
+    
+    @Autowired
+    private MEVTransactionRepository transactionRepository;
+    
+    @Value("${mev.events.persist-queue-size:10000}")
+    private int persistQueueSize;
+    
+    @Value("${mev.events.persist-batch-size:500}")
+    private int persistBatchSize;
+    
+    private BlockingQueue<MEVDetectionEvent> persistQueue;
+    private final AtomicLong persistedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    
+    @PostConstruct
+    public void initialize() {
+        persistQueue = new LinkedBlockingQueue<>(persistQueueSize);
+        mevDetectionService.addDetectionListener(event -> {
+            if (!persistQueue.offer(event)) {
+                droppedEvents.incrementAndGet();
+            }
+        });
+    }
+    
+    /**
+     * Flush queued detections in JDBC batches, off the block processing thread
+     */
+    @Scheduled(fixedDelay = 1000)
+    public void flushDetections() {
+        while (!persistQueue.isEmpty()) {
+            List<MEVDetectionEvent> batch = new ArrayList<>(persistBatchSize);
+            persistQueue.drainTo(batch, persistBatchSize);
+            try {
+                transactionRepository.insertBatch(batch);
+                persistedEvents.addAndGet(batch.size());
+            } catch (Exception e) {
+                droppedEvents.addAndGet(batch.size());
+                System.err.println("❌ Failed to persist " + batch.size() + " detections: " + e.getMessage());
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Search detections, newest first. Pages are positioned by an opaque
+     * (block_number, id) cursor so deep pages cost the same as the first.
+     */
+    public MEVEventPage search(MEVEventQuery query, String cursor) {
+        if (cursor != null && !cursor.isBlank()) {
+            long[] position = decodeCursor(cursor);
+            query.setCursorBlock(position[0]);
+            query.setCursorId(position[1]);
+        }
+        query.setLimit(Math.max(1, Math.min(query.getLimit(), MAX_PAGE_SIZE)));
+        
+        List<MEVDetectionEvent> rows = transactionRepository.search(query);
+        boolean hasMore = rows.size() > query.getLimit();
+        List<MEVDetectionEvent> events = hasMore ? rows.subList(0, query.getLimit()) : rows;
+        
+        String nextCursor = null;
+        if (hasMore) {
+            MEVDetectionEvent last = events.get(events.size() - 1);
+            nextCursor = encodeCursor(last.getBlockNumber(), last.getId());
+        }
+        
+        return MEVEventPage.builder()
+            .events(events)
+            .nextCursor(nextCursor)
+            .hasMore(hasMore)
+            .build();
+    }
+    
+    static String encodeCursor(long blockNumber, long id) {
+        String raw = blockNumber + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    static long[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new long[] {
+                Long.parseLong(raw.substring(0, separator)),
+                Long.parseLong(raw.substring(separator + 1))
+            };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    public long getPersistedEvents() {
+        return persistedEvents.get();
+    }
+    
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+}
@@ -0,0 +1,120 @@
+package com.mevanalytics.platform.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mevanalytics.platform.dto.MEVDetectionEvent;
+import com.mevanalytics.platform.repository.MEVTransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams historical detections straight from a server-side cursor to an output stream.
+ * Memory use is one row plus the writer buffer, regardless of export size.
+ */
+@Service
+public class MEVExportService {
+    
+    private static final String CSV_HEADER = "id,transaction_hash,block_number,block_timestamp,mev_type,"
+        + "searcher_address,to_address,victim_address,dex_name,token_pair,extracted_value_usd,gas_price";
+    
+    @Autowired
+    private MEVTransactionRepository transactionRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    public enum ExportFormat {
+        NDJSON, CSV
+    }
+    
+    /**
+     * Highest block currently stored; used to pin the end of an open-ended export
+     */
+    public long getLatestStoredBlock() {
+        return transactionRepository.findMaxBlock();
+    }
+    
+    /**
+     * Write every detection in [fromBlock, toBlock] in (block_number, id) order.
+     * Rows are ordered by block, so a client resumes an interrupted export by
+     * requesting the range starting after the last block it fully received.
+     *
+     * @return number of rows written
+     */
+    public long export(long fromBlock, long toBlock, ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+        long[] rows = {0};
+        
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        
+        try {
+            transactionRepository.streamBlockRange(fromBlock, toBlock, event -> {
+                try {
+                    if (format == ExportFormat.CSV) {
+                        writeCsvRow(writer, event);
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(event));
+                        writer.write('\n');
+                    }
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Client went away; the cursor and transaction are already released
+            throw e.getCause();
+        }
+        
+        writer.flush();
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        return rows[0];
+    }
+    
+    private void writeCsvRow(Writer writer, MEVDetectionEvent event) throws IOException {
+        writer.write(String.valueOf(event.getId()));
+        writer.write(',');
+        writeCsvField(writer, event.getTransactionHash());
+        writer.write(',');
+        writer.write(String.valueOf(event.getBlockNumber()));
+        writer.write(',');
+        writeCsvField(writer, event.getBlockTimestamp() == null ? null : event.getBlockTimestamp().toString());
+        writer.write(',');
+        writeCsvField(writer, event.getMevType());
+        writer.write(',');
+        writeCsvField(writer, event.getSearcherAddress());
+        writer.write(',');
+        writeCsvField(writer, event.getToAddress());
+        writer.write(',');
+        writeCsvField(writer, event.getVictimAddress());
+        writer.write(',');
+        writeCsvField(writer, event.getDexName());
+        writer.write(',');
+        writeCsvField(writer, event.getTokenPair());
+        writer.write(',');
+        writer.write(event.getExtractedValueUsd() == null ? "" : event.getExtractedValueUsd().toPlainString());
+        writer.write(',');
+        writer.write(event.getGasPrice() == null ? "" : event.getGasPrice().toString());
+        writer.write('\n');
+    }
+    
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) return;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
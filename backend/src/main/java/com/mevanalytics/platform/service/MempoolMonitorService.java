@@ -0,0 +1,171 @@
+package com.mevanalytics.platform.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.methods.response.Transaction;
+
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Keeps a bounded view of the public mempool and flags pending transactions that
+ * copy or outbid an earlier pending call to a watched contract, before either is mined.
+ */
+@Service
+public class MempoolMonitorService {
+    
+    @Autowired
+    private EthereumService ethereumService;
+    
+    @Autowired
+    private MEVDetectionService mevDetectionService;
+    
+    @Value("${mempool.capacity:65536}")
+    private int capacity;
+    
+    @Value("${mempool.ttl-seconds:120}")
+    private int ttlSeconds;
+    
+    @Value("${mempool.frontrun-window-ms:3000}")
+    private long frontrunWindowMs;
+    
+    @Value("${mempool.outbid-factor:1.1}")
+    private double outbidFactor;
+    
+    @Value("${mempool.max-candidates:64}")
+    private int maxCandidates;
+    
+    private PendingTransactionPool pool;
+    private volatile Predicate<String> watchedTargets = target -> false;
+    private final List<Consumer<FrontrunSuspect>> frontrunListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong suspectsFlagged = new AtomicLong();
+    
+    public static class FrontrunSuspect {
+        public String kind; // COPY or OUTBID
+        public String targetContract;
+        public Transaction attacker;
+        public Transaction victim;
+        public BigInteger attackerGasPrice;
+        public BigInteger victimGasPrice;
+        public long detectedAtMillis;
+        
+        public FrontrunSuspect(String kind, String target, Transaction attacker, Transaction victim,
+                               BigInteger attackerGasPrice, BigInteger victimGasPrice, long now) {
+            this.kind = kind;
+            this.targetContract = target;
+            this.attacker = attacker;
+            this.victim = victim;
+            this.attackerGasPrice = attackerGasPrice;
+            this.victimGasPrice = victimGasPrice;
+            this.detectedAtMillis = now;
+        }
+    }
+    
+    @PostConstruct
+    public void initialize() {
+        pool = new PendingTransactionPool(capacity, ttlSeconds * 1000L);
+        ethereumService.addPendingTransactionListener(this::onPendingTransaction);
+        
+        // Mined transactions leave the pool so they can no longer be flagged or matched
+        mevDetectionService.addBlockListener(processed -> pool.removeIncluded(processed.getTransactions()));
+        System.out.println("🌊 Mempool monitor ready (capacity " + capacity + ", ttl " + ttlSeconds + "s)");
+    }
+    
+    /**
+     * Set which contracts are watched for front-running. Checked once per pending
+     * transaction on the ingestion thread, so it must be a cheap lookup.
+     */
+    public void setWatchedTargets(Predicate<String> watchedTargets) {
+        this.watchedTargets = watchedTargets;
+    }
+    
+    public void addFrontrunListener(Consumer<FrontrunSuspect> listener) {
+        frontrunListeners.add(listener);
+    }
+    
+    void onPendingTransaction(Transaction tx) {
+        long now = System.currentTimeMillis();
+        
+        // Only calls to watched contracts need the candidate scan; everything else is a ring insert
+        String target = tx.getTo() != null ? tx.getTo().toLowerCase() : null;
+        if (target == null || !watchedTargets.test(target)) {
+            pool.add(tx, now);
+            return;
+        }
+        
+        List<PendingTransactionPool.PendingTransaction> earlier = pool.recentForTarget(target, now, frontrunWindowMs, maxCandidates);
+        pool.add(tx, now);
+        if (earlier.isEmpty()) return;
+        
+        BigInteger baseFee = ethereumService.getChainHead().baseFeePerGas();
+        BigInteger gasPrice = effectiveGasPrice(tx, baseFee);
+        String input = tx.getInput() != null ? tx.getInput() : "0x";
+        String selector = input.length() >= 10 ? input.substring(0, 10) : "0x";
+        
+        for (PendingTransactionPool.PendingTransaction candidate : earlier) {
+            Transaction victim = candidate.tx();
+            if (victim.getFrom() == null || victim.getFrom().equalsIgnoreCase(tx.getFrom())) continue;
+            
+            BigInteger victimGasPrice = effectiveGasPrice(victim, baseFee);
+            String kind = null;
+            if (input.length() > 10 && input.equalsIgnoreCase(victim.getInput())) {
+                kind = "COPY";
+            } else if (selector.equalsIgnoreCase(candidate.selector()) && gasPrice != null && victimGasPrice != null
+                    && new BigDecimal(gasPrice).compareTo(new BigDecimal(victimGasPrice).multiply(BigDecimal.valueOf(outbidFactor))) >= 0) {
+                kind = "OUTBID";
+            }
+            if (kind == null) continue;
+            
+            suspectsFlagged.incrementAndGet();
+            FrontrunSuspect suspect = new FrontrunSuspect(kind, target, tx, victim, gasPrice, victimGasPrice, now);
+            for (Consumer<FrontrunSuspect> listener : frontrunListeners) {
+                try {
+                    listener.accept(suspect);
+                } catch (Exception e) {
+                    System.err.println("❌ Front-run listener failed: " + e.getMessage());
+                }
+            }
+            // One alert per attacking transaction is enough
+            return;
+        }
+    }
+    
+    /**
+     * Price the transaction actually pays per gas at the current base fee
+     */
+    static BigInteger effectiveGasPrice(Transaction tx, BigInteger baseFee) {
+        if (tx.getMaxFeePerGasRaw() != null && tx.getMaxPriorityFeePerGasRaw() != null) {
+            BigInteger maxFee = tx.getMaxFeePerGas();
+            if (baseFee == null) return maxFee;
+            return maxFee.min(baseFee.add(tx.getMaxPriorityFeePerGas()));
+        }
+        return tx.getGasPriceRaw() != null ? tx.getGasPrice() : null;
+    }
+    
+    /**
+     * Live pending transactions sent to a contract, oldest first
+     */
+    public List<Transaction> getPendingTransactions(String target) {
+        return pool.pendingForTarget(target, System.currentTimeMillis()).stream()
+            .map(PendingTransactionPool.PendingTransaction::tx)
+            .toList();
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>(pool.getStats());
+        stats.put("source", ethereumService.getMempoolSource());
+        stats.put("received", ethereumService.getPendingTransactionsReceived());
+        stats.put("subscription", ethereumService.getMempoolSubscription());
+        stats.put("frontrunSuspects", suspectsFlagged.get());
+        return stats;
+    }
+}
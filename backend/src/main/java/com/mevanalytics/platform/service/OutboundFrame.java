@@ -0,0 +1,61 @@
+package com.mevanalytics.platform.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+/**
+ * An immutable outbound payload shared by every session it is queued for.
+ * Each encoding is serialized at most once, the first time a session asks for it,
+ * so serialization cost does not grow with the number of subscribers.
+ */
+public final class OutboundFrame {
+    
+    public enum Encoding {
+        JSON,  // text frames, the default
+        CBOR   // compact binary frames for high-volume subscribers
+    }
+    
+    private final Object payload; // null when built from already-serialized JSON
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+    private volatile TextMessage text;
+    private volatile byte[] binary;
+    
+    OutboundFrame(Object payload, ObjectMapper jsonMapper, ObjectMapper cborMapper) {
+        this.payload = payload;
+        this.jsonMapper = jsonMapper;
+        this.cborMapper = cborMapper;
+    }
+    
+    OutboundFrame(String json, ObjectMapper jsonMapper, ObjectMapper cborMapper) {
+        this((Object) null, jsonMapper, cborMapper);
+        this.text = new TextMessage(json);
+    }
+    
+    public WebSocketMessage<?> message(Encoding encoding) throws Exception {
+        if (encoding == Encoding.CBOR) {
+            byte[] bytes = binary;
+            if (bytes == null) {
+                synchronized (this) {
+                    if (binary == null) {
+                        binary = cborMapper.writeValueAsBytes(payload != null ? payload : jsonMapper.readTree(text.getPayload()));
+                    }
+                    bytes = binary;
+                }
+            }
+            // The transport consumes the buffer position, so every send gets its own view
+            return new BinaryMessage(bytes);
+        }
+        
+        TextMessage message = text;
+        if (message == null) {
+            synchronized (this) {
+                if (text == null) text = new TextMessage(jsonMapper.writeValueAsString(payload));
+                message = text;
+            }
+        }
+        return message;
+    }
+}
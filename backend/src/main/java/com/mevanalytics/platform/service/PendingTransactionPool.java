@@ -0,0 +1,181 @@
+package com.mevanalytics.platform.service;
+
+import org.web3j.protocol.core.methods.response.Transaction;
+
+import java.util.*;
+
+/**
+ * Bounded, time-expiring ring buffer of pending transactions.
+ *
+ * Entries are kept in arrival order in a fixed ring, so eviction is always from
+ * the tail and O(1). Two secondary indexes point into the ring by sequence number:
+ * target contract -> arrival-ordered sequences, and sender+nonce -> latest sequence
+ * (a replacement transaction supersedes the one it replaces).
+ */
+public class PendingTransactionPool {
+    
+    public record PendingTransaction(long sequence, Transaction tx, String target, long seenAtMillis) {
+        
+        public String selector() {
+            String input = tx.getInput();
+            return input != null && input.length() >= 10 ? input.substring(0, 10) : "0x";
+        }
+    }
+    
+    private final int mask;
+    private final long ttlMillis;
+    private final PendingTransaction[] ring;
+    private long head = 0; // next sequence to write
+    private long tail = 0; // oldest live sequence
+    
+    private final Map<String, ArrayDeque<Long>> byTarget = new HashMap<>();
+    private final Map<String, Long> bySenderNonce = new HashMap<>();
+    private long evicted = 0;
+    private long replaced = 0;
+    
+    public PendingTransactionPool(int capacity, long ttlMillis) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.ring = new PendingTransaction[size];
+        this.mask = size - 1;
+        this.ttlMillis = ttlMillis;
+    }
+    
+    static String senderNonceKey(String sender, Object nonce) {
+        return sender.toLowerCase() + ":" + nonce;
+    }
+    
+    /**
+     * Insert a pending transaction, evicting expired entries and, when full, the oldest one
+     */
+    public synchronized PendingTransaction add(Transaction tx, long nowMillis) {
+        expire(nowMillis);
+        if (head - tail == ring.length) {
+            evictTail();
+        }
+        
+        String target = tx.getTo() != null ? tx.getTo().toLowerCase() : null;
+        PendingTransaction pending = new PendingTransaction(head, tx, target, nowMillis);
+        ring[(int) (head & mask)] = pending;
+        
+        if (target != null) {
+            byTarget.computeIfAbsent(target, k -> new ArrayDeque<>()).addLast(head);
+        }
+        if (tx.getFrom() != null && tx.getNonceRaw() != null) {
+            Long previous = bySenderNonce.put(senderNonceKey(tx.getFrom(), tx.getNonceRaw()), head);
+            if (previous != null) {
+                replaced++;
+            }
+        }
+        head++;
+        return pending;
+    }
+    
+    /**
+     * Live pending transactions sent to a contract, oldest first
+     */
+    public synchronized List<PendingTransaction> pendingForTarget(String target, long nowMillis) {
+        ArrayDeque<Long> sequences = byTarget.get(target.toLowerCase());
+        if (sequences == null) return List.of();
+        
+        List<PendingTransaction> result = new ArrayList<>(sequences.size());
+        for (long sequence : sequences) {
+            PendingTransaction pending = live(sequence, nowMillis);
+            if (pending != null) result.add(pending);
+        }
+        return result;
+    }
+    
+    /**
+     * Up to {@code limit} live pending transactions sent to a contract within the
+     * last {@code windowMillis}, newest first
+     */
+    public synchronized List<PendingTransaction> recentForTarget(String target, long nowMillis, long windowMillis, int limit) {
+        ArrayDeque<Long> sequences = byTarget.get(target.toLowerCase());
+        if (sequences == null) return List.of();
+        
+        List<PendingTransaction> result = new ArrayList<>(Math.min(limit, sequences.size()));
+        Iterator<Long> newestFirst = sequences.descendingIterator();
+        while (newestFirst.hasNext() && result.size() < limit) {
+            PendingTransaction pending = live(newestFirst.next(), nowMillis);
+            if (pending == null) continue;
+            if (nowMillis - pending.seenAtMillis() > windowMillis) break;
+            result.add(pending);
+        }
+        return result;
+    }
+    
+    public synchronized Optional<PendingTransaction> findBySenderNonce(String sender, Object nonce) {
+        Long sequence = bySenderNonce.get(senderNonceKey(sender, nonce));
+        return sequence == null ? Optional.empty() : Optional.ofNullable(live(sequence, System.currentTimeMillis()));
+    }
+    
+    /**
+     * Drop transactions that were included in a block (matched by sender + nonce)
+     */
+    public synchronized void removeIncluded(Collection<Transaction> included) {
+        for (Transaction tx : included) {
+            if (tx.getFrom() != null && tx.getNonceRaw() != null) {
+                bySenderNonce.remove(senderNonceKey(tx.getFrom(), tx.getNonceRaw()));
+            }
+        }
+    }
+    
+    private PendingTransaction live(long sequence, long nowMillis) {
+        if (sequence < tail) return null;
+        PendingTransaction pending = ring[(int) (sequence & mask)];
+        if (pending == null || pending.sequence() != sequence) return null;
+        if (nowMillis - pending.seenAtMillis() > ttlMillis) return null;
+        
+        // Superseded by a replacement or already mined
+        Transaction tx = pending.tx();
+        if (tx.getFrom() != null && tx.getNonceRaw() != null) {
+            Long current = bySenderNonce.get(senderNonceKey(tx.getFrom(), tx.getNonceRaw()));
+            if (current == null || current != sequence) return null;
+        }
+        return pending;
+    }
+    
+    private void expire(long nowMillis) {
+        while (tail < head) {
+            PendingTransaction oldest = ring[(int) (tail & mask)];
+            if (oldest != null && nowMillis - oldest.seenAtMillis() <= ttlMillis) break;
+            evictTail();
+        }
+    }
+    
+    private void evictTail() {
+        int slot = (int) (tail & mask);
+        PendingTransaction oldest = ring[slot];
+        ring[slot] = null;
+        if (oldest != null) {
+            if (oldest.target() != null) {
+                ArrayDeque<Long> sequences = byTarget.get(oldest.target());
+                if (sequences != null) {
+                    // Target deques are in arrival order, so the evicted entry is at the front
+                    while (!sequences.isEmpty() && sequences.peekFirst() <= oldest.sequence()) {
+                        sequences.pollFirst();
+                    }
+                    if (sequences.isEmpty()) byTarget.remove(oldest.target());
+                }
+            }
+            Transaction tx = oldest.tx();
+            if (tx.getFrom() != null && tx.getNonceRaw() != null) {
+                bySenderNonce.remove(senderNonceKey(tx.getFrom(), tx.getNonceRaw()), oldest.sequence());
+            }
+            evicted++;
+        }
+        tail++;
+    }
+    
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", head - tail);
+        stats.put("capacity", ring.length);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("indexedTargets", byTarget.size());
+        stats.put("totalSeen", head);
+        stats.put("evicted", evicted);
+        stats.put("replaced", replaced);
+        return stats;
+    }
+}
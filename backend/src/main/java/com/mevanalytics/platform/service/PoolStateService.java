@@ -0,0 +1,174 @@
+package com.mevanalytics.platform.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.crypto.Hash;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.utils.Numeric;
+
+import jakarta.annotation.PostConstruct;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process reserves of Uniswap V2-style pairs, kept current from the Sync events
+ * in each processed block, so simulations read pool state from memory instead of
+ * calling the node. A pair that has not been seen yet is fetched once with getReserves().
+ */
+@Service
+public class PoolStateService {
+    
+    // Sync(uint112 reserve0, uint112 reserve1)
+    private static final String SYNC_TOPIC = "0x1c411e9a96e071241c2f21f7726b17ae89e3cab4c78be50e062b03a9fffbbad1";
+    private static final String GET_RESERVES = "0x0902f1ac";
+    
+    @Autowired
+    private MEVDetectionService mevDetectionService;
+    
+    @Autowired
+    private EthereumService ethereumService;
+    
+    @Value("${pool.state.max-pairs:100000}")
+    private int maxPairs;
+    
+    @Value("${dex.uniswap-v2}")
+    private String uniswapV2Router;
+    
+    @Value("${dex.uniswap-v2-factory:0x5C69bEe701ef814a2B6a3EDD4B1652CB9cc5aA6f}")
+    private String uniswapV2Factory;
+    
+    @Value("${dex.uniswap-v2-init-code-hash:0x96e8ac4277198ff8b6f785478aa9a39f403cb768dd02cbee326c3e7da348845f}")
+    private String uniswapV2InitCodeHash;
+    
+    @Value("${dex.sushiswap}")
+    private String sushiswapRouter;
+    
+    @Value("${dex.sushiswap-factory:0xC0AEe478e3658e2610c5F7A4A2E1777cE9e4f2Ac}")
+    private String sushiswapFactory;
+    
+    @Value("${dex.sushiswap-init-code-hash:0xe18a34eb0e04b04f7a0ac29a6e80748dca96319b42c520b41f4cd9e2a2e7ee5d}")
+    private String sushiswapInitCodeHash;
+    
+    public record Reserves(BigInteger reserve0, BigInteger reserve1, long blockNumber) {}
+    
+    private record Factory(String address, byte[] initCodeHash) {}
+    
+    private final Map<String, Reserves> reserves = new ConcurrentHashMap<>();
+    private final Map<String, Factory> factoriesByRouter = new HashMap<>();
+    private final AtomicLong syncEventsApplied = new AtomicLong();
+    private final AtomicLong coldFetches = new AtomicLong();
+    private volatile long lastBlock = 0;
+    
+    @PostConstruct
+    public void initialize() {
+        factoriesByRouter.put(uniswapV2Router.toLowerCase(), new Factory(uniswapV2Factory.toLowerCase(), Numeric.hexStringToByteArray(uniswapV2InitCodeHash)));
+        factoriesByRouter.put(sushiswapRouter.toLowerCase(), new Factory(sushiswapFactory.toLowerCase(), Numeric.hexStringToByteArray(sushiswapInitCodeHash)));
+        mevDetectionService.addBlockListener(this::applyBlock);
+    }
+    
+    /**
+     * Apply a block's Sync events in log order; the last one per pair is its closing state
+     */
+    void applyBlock(MEVDetectionService.ProcessedBlock processed) {
+        long blockNumber = processed.getBlock().getNumber().longValue();
+        for (Log log : processed.getLogs()) {
+            if (log.getTopics().isEmpty() || !SYNC_TOPIC.equals(log.getTopics().get(0))) continue;
+            String data = Numeric.cleanHexPrefix(log.getData());
+            if (data.length() < 128) continue;
+            
+            // Blocks can arrive out of order during backfill; never move a pair back in time
+            reserves.merge(log.getAddress().toLowerCase(), new Reserves(
+                new BigInteger(data.substring(0, 64), 16),
+                new BigInteger(data.substring(64, 128), 16),
+                blockNumber), (current, synced) -> synced.blockNumber() >= current.blockNumber() ? synced : current);
+            syncEventsApplied.incrementAndGet();
+        }
+        lastBlock = Math.max(lastBlock, blockNumber);
+        if (reserves.size() > maxPairs) evictOldest();
+    }
+    
+    private void evictOldest() {
+        // Drop the least recently synced tenth; they are refetched on demand
+        List<Map.Entry<String, Reserves>> entries = new ArrayList<>(reserves.entrySet());
+        entries.sort(Comparator.comparingLong(e -> e.getValue().blockNumber()));
+        for (int i = 0; i < entries.size() / 10; i++) {
+            reserves.remove(entries.get(i).getKey());
+        }
+    }
+    
+    public boolean isKnownRouter(String router) {
+        return router != null && factoriesByRouter.containsKey(router.toLowerCase());
+    }
+    
+    /**
+     * Pair address for two tokens on a router's factory, derived with CREATE2 (no RPC)
+     */
+    public String pairFor(String router, String tokenA, String tokenB) {
+        Factory factory = factoriesByRouter.get(router.toLowerCase());
+        if (factory == null) return null;
+        String a = tokenA.toLowerCase();
+        String b = tokenB.toLowerCase();
+        String token0 = a.compareTo(b) < 0 ? a : b;
+        String token1 = a.compareTo(b) < 0 ? b : a;
+        
+        // Two keccaks; not cached, since both tokens come from untrusted calldata
+        byte[] salt = Hash.sha3(Numeric.hexStringToByteArray(Numeric.cleanHexPrefix(token0) + Numeric.cleanHexPrefix(token1)));
+        byte[] preimage = new byte[1 + 20 + 32 + 32];
+        preimage[0] = (byte) 0xff;
+        System.arraycopy(Numeric.hexStringToByteArray(factory.address()), 0, preimage, 1, 20);
+        System.arraycopy(salt, 0, preimage, 21, 32);
+        System.arraycopy(factory.initCodeHash(), 0, preimage, 53, 32);
+        byte[] hash = Hash.sha3(preimage);
+        return Numeric.toHexString(hash, 12, 20, true);
+    }
+    
+    /**
+     * Reserves already held in memory, without falling back to the node
+     */
+    public Optional<Reserves> getCachedReserves(String pair) {
+        return Optional.ofNullable(reserves.get(pair));
+    }
+    
+    /**
+     * Current reserves of a pair, fetched once from the node if no Sync event has been seen
+     */
+    public Optional<Reserves> getReserves(String pair) {
+        Reserves cached = reserves.get(pair);
+        if (cached != null) return Optional.of(cached);
+        
+        Web3j web3j = ethereumService.getWeb3j();
+        if (web3j == null || !ethereumService.isConnected()) return Optional.empty();
+        try {
+            EthCall call = web3j.ethCall(
+                org.web3j.protocol.core.methods.request.Transaction.createEthCallTransaction(null, pair, GET_RESERVES),
+                DefaultBlockParameterName.LATEST).send();
+            String data = Numeric.cleanHexPrefix(call.getValue() != null ? call.getValue() : "");
+            if (call.hasError() || data.length() < 128) return Optional.empty();
+            
+            coldFetches.incrementAndGet();
+            Reserves fetched = new Reserves(new BigInteger(data.substring(0, 64), 16), new BigInteger(data.substring(64, 128), 16), lastBlock);
+            // A Sync applied while we were fetching is newer; keep it
+            Reserves existing = reserves.putIfAbsent(pair, fetched);
+            return Optional.of(existing != null ? existing : fetched);
+        } catch (Exception e) {
+            System.err.println("❌ Failed to fetch reserves for " + pair + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("trackedPairs", reserves.size());
+        stats.put("maxPairs", maxPairs);
+        stats.put("syncEventsApplied", syncEventsApplied.get());
+        stats.put("coldFetches", coldFetches.get());
+        stats.put("lastBlock", lastBlock);
+        return stats;
+    }
+}
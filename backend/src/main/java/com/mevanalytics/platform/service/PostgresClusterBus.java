@@ -0,0 +1,135 @@
+package com.mevanalytics.platform.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Cluster bus over Postgres LISTEN/NOTIFY. One pooled connection is held for
+ * listening and polled on a daemon thread; publishing goes through pg_notify.
+ */
+@Service
+@ConditionalOnProperty(name = "protection.cluster.bus", havingValue = "postgres")
+public class PostgresClusterBus implements ClusterBus {
+    
+    // NOTIFY payloads must be shorter than 8000 bytes
+    private static final int MAX_PAYLOAD_BYTES = 7999;
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+    private final Queue<String> pendingListens = new ConcurrentLinkedQueue<>();
+    private Connection listenConnection; // owned by the poller thread
+    private volatile boolean running = true;
+    
+    @PostConstruct
+    public void initialize() {
+        Thread poller = new Thread(this::pollNotifications, "cluster-bus-listener");
+        poller.setDaemon(true);
+        poller.start();
+        System.out.println("🔀 Cluster bus using Postgres LISTEN/NOTIFY");
+    }
+    
+    @Override
+    public void publish(String channel, String message) {
+        jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class, channel, message);
+    }
+    
+    @Override
+    public void subscribe(String channel, Consumer<String> listener) {
+        if (listeners.putIfAbsent(channel, new CopyOnWriteArrayList<>()) == null) {
+            // LISTEN is issued by the poller so the connection is only ever used from one thread
+            pendingListens.add(channel);
+        }
+        listeners.get(channel).add(listener);
+    }
+    
+    @Override
+    public int maxMessageBytes() {
+        return MAX_PAYLOAD_BYTES;
+    }
+    
+    private void pollNotifications() {
+        while (running) {
+            try {
+                if (listenConnection == null || listenConnection.isClosed()) {
+                    listenConnection = dataSource.getConnection();
+                    listenConnection.setAutoCommit(true);
+                    pendingListens.clear();
+                    for (String channel : listeners.keySet()) {
+                        listen(listenConnection, channel);
+                    }
+                }
+                String channel;
+                while ((channel = pendingListens.poll()) != null) {
+                    listen(listenConnection, channel);
+                }
+                
+                PGNotification[] notifications = listenConnection.unwrap(PGConnection.class).getNotifications(500);
+                if (notifications == null) continue;
+                for (PGNotification notification : notifications) {
+                    for (Consumer<String> listener : listeners.getOrDefault(notification.getName(), List.of())) {
+                        try {
+                            listener.accept(notification.getParameter());
+                        } catch (Exception e) {
+                            System.err.println("❌ Cluster bus listener failed on " + notification.getName() + ": " + e.getMessage());
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("❌ Cluster bus connection lost: " + e.getMessage());
+                closeListenConnection();
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+        closeListenConnection();
+    }
+    
+    private static void listen(Connection connection, String channel) throws Exception {
+        // Quoted so the name is kept verbatim, matching pg_notify; replica ids may contain '-' or '.'
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("LISTEN \"" + channel.replace("\"", "\"\"") + "\"");
+        }
+    }
+    
+    private void closeListenConnection() {
+        if (listenConnection != null) {
+            try {
+                listenConnection.close();
+            } catch (Exception ignored) {
+                // already broken
+            }
+            listenConnection = null;
+        }
+    }
+    
+    @PreDestroy
+    public void cleanup() {
+        // The poller notices within one poll interval and releases the connection
+        running = false;
+    }
+}
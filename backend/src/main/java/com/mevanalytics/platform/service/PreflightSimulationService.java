@@ -0,0 +1,423 @@
+package com.mevanalytics.platform.service;
+
+import com.mevanalytics.platform.dto.PreflightRequest;
+import com.mevanalytics.platform.dto.PreflightResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.core.methods.response.Transaction;
+import org.web3j.utils.Numeric;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pre-flight check of an unsigned Uniswap V2 router swap for sandwich exposure.
+ *
+ * The swap is replayed against in-memory pair reserves after the pending swaps that
+ * would be ordered ahead of it (same router, equal or higher gas price). For every hop
+ * the most profitable sandwich that still respects the submitted amountOutMin is found
+ * by bisection on the front-run size, then a ternary search on attacker profit. The
+ * same search, run over candidate slippage bounds, gives the largest slippage at which
+ * no sandwich pays for its gas. Everything runs on doubles in memory; the only possible
+ * RPC is a one-off getReserves() for a pair that has never been synced.
+ */
+@Service
+public class PreflightSimulationService {
+    
+    private static final double FEE_FACTOR = 0.997;
+    private static final Set<String> EXACT_TOKENS_IN = Set.of(
+        "0x38ed1739", // swapExactTokensForTokens
+        "0x18cbafe5", // swapExactTokensForETH
+        "0x5c11d795", // swapExactTokensForTokensSupportingFeeOnTransferTokens
+        "0x791ac947"  // swapExactTokensForETHSupportingFeeOnTransferTokens
+    );
+    private static final Set<String> EXACT_ETH_IN = Set.of(
+        "0x7ff36ab5", // swapExactETHForTokens
+        "0xb6f9de95"  // swapExactETHForTokensSupportingFeeOnTransferTokens
+    );
+    
+    @Autowired
+    private PoolStateService poolState;
+    
+    @Autowired
+    private MempoolMonitorService mempoolMonitorService;
+    
+    @Autowired
+    private EthereumService ethereumService;
+    
+    @Value("${dex.weth:0xC02aaA39b223FE8D0A0e5C4F27eAD9083C756Cc2}")
+    private String weth;
+    
+    @Value("${preflight.attacker-gas:220000}")
+    private long attackerGas;
+    
+    @Value("${preflight.max-slippage-bps:5000}")
+    private int maxSlippageBps;
+    
+    @Value("${preflight.max-pending-swaps:256}")
+    private int maxPendingSwaps;
+    
+    private final LongAdder simulations = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder privateRouted = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+    
+    record Swap(String function, BigInteger amountIn, BigInteger amountOutMin, List<String> path) {}
+    
+    // One hop of the simulated swap: reserves it met and what it produced
+    private record Hop(String pair, String tokenIn, double reserveIn, double reserveOut, double amountIn, double amountOut) {}
+    
+    private record Sandwich(double frontRun, double profit, double victimOut) {
+        static final Sandwich NONE = new Sandwich(0, 0, 0);
+    }
+    
+    /**
+     * Decode an exact-input V2 router swap, or return null for any other or malformed call
+     */
+    static Swap decodeSwap(String data, BigInteger value) {
+        try {
+            return decodeExactInput(data, value);
+        } catch (ArithmeticException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+    
+    private static Swap decodeExactInput(String data, BigInteger value) {
+        String hex = Numeric.cleanHexPrefix(data == null ? "" : data).toLowerCase();
+        if (hex.length() < 8 + 64 * 4) return null;
+        String selector = "0x" + hex.substring(0, 8);
+        
+        BigInteger amountIn;
+        BigInteger amountOutMin;
+        int pathWord;
+        if (EXACT_TOKENS_IN.contains(selector)) {
+            amountIn = word(hex, 0);
+            amountOutMin = word(hex, 1);
+            pathWord = word(hex, 2).intValueExact() / 32;
+        } else if (EXACT_ETH_IN.contains(selector)) {
+            amountIn = value != null ? value : BigInteger.ZERO;
+            amountOutMin = word(hex, 0);
+            pathWord = word(hex, 1).intValueExact() / 32;
+        } else {
+            return null;
+        }
+        
+        int length = word(hex, pathWord).intValueExact();
+        if (length < 2 || length > 8 || hex.length() < 8 + 64 * (pathWord + 1 + length)) return null;
+        List<String> path = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            int start = 8 + 64 * (pathWord + 1 + i);
+            path.add("0x" + hex.substring(start + 24, start + 64));
+        }
+        return new Swap(selector, amountIn, amountOutMin, path);
+    }
+    
+    private static BigInteger word(String hex, int index) {
+        return new BigInteger(hex.substring(8 + 64 * index, 8 + 64 * (index + 1)), 16);
+    }
+    
+    static double amountOut(double amountIn, double reserveIn, double reserveOut) {
+        double effectiveIn = amountIn * FEE_FACTOR;
+        return effectiveIn * reserveOut / (reserveIn + effectiveIn);
+    }
+    
+    /**
+     * Reserves of the pairs a simulation touches, copied so pending swaps and our own
+     * hops compound without touching shared state
+     */
+    private final class PoolView {
+        final Map<String, double[]> reserves = new HashMap<>(); // pair -> {reserve0, reserve1}
+        final Set<String> fetchable;
+        long oldestBlock = Long.MAX_VALUE;
+        
+        PoolView(Set<String> fetchable) {
+            this.fetchable = fetchable;
+        }
+        
+        /**
+         * {reserveIn, reserveOut} for a hop, or null if the pair's state is unknown.
+         * Only pairs on the simulated path may fall back to an RPC fetch.
+         */
+        double[] oriented(String pair, String tokenIn, String tokenOut) {
+            double[] r = reserves.get(pair);
+            if (r == null) {
+                Optional<PoolStateService.Reserves> loaded = fetchable.contains(pair)
+                    ? poolState.getReserves(pair) : poolState.getCachedReserves(pair);
+                if (loaded.isEmpty()) return null;
+                r = new double[] {loaded.get().reserve0().doubleValue(), loaded.get().reserve1().doubleValue()};
+                reserves.put(pair, r);
+                oldestBlock = Math.min(oldestBlock, loaded.get().blockNumber());
+            }
+            boolean zeroIn = tokenIn.compareTo(tokenOut) < 0;
+            return zeroIn ? new double[] {r[0], r[1]} : new double[] {r[1], r[0]};
+        }
+        
+        void apply(String pair, String tokenIn, String tokenOut, double amountIn, double amountOut) {
+            double[] r = reserves.get(pair);
+            if (tokenIn.compareTo(tokenOut) < 0) {
+                r[0] += amountIn;
+                r[1] -= amountOut;
+            } else {
+                r[1] += amountIn;
+                r[0] -= amountOut;
+            }
+        }
+        
+        /**
+         * Run a swap through its path and keep the result only if it would not revert
+         *
+         * @return the hops, or null if state is unknown or the swap reverts
+         */
+        List<Hop> execute(String router, Swap swap, boolean commit) {
+            Map<String, double[]> before = new HashMap<>();
+            List<Hop> hops = new ArrayList<>(swap.path().size() - 1);
+            double amount = swap.amountIn().doubleValue();
+            for (int i = 0; i + 1 < swap.path().size(); i++) {
+                String tokenIn = swap.path().get(i);
+                String tokenOut = swap.path().get(i + 1);
+                String pair = poolState.pairFor(router, tokenIn, tokenOut);
+                double[] r = oriented(pair, tokenIn, tokenOut);
+                if (r == null || r[0] <= 0 || r[1] <= 0) {
+                    restore(before);
+                    return null;
+                }
+                before.putIfAbsent(pair, reserves.get(pair).clone());
+                double out = amountOut(amount, r[0], r[1]);
+                hops.add(new Hop(pair, tokenIn, r[0], r[1], amount, out));
+                apply(pair, tokenIn, tokenOut, amount, out);
+                amount = out;
+            }
+            if (!commit || amount < swap.amountOutMin().doubleValue()) {
+                restore(before);
+                if (commit) return null;
+            }
+            return hops;
+        }
+        
+        private void restore(Map<String, double[]> before) {
+            before.forEach(reserves::put);
+        }
+    }
+    
+    public PreflightResult simulate(PreflightRequest request) {
+        long started = System.nanoTime();
+        String router = request.getTo().toLowerCase();
+        if (!poolState.isKnownRouter(router)) {
+            rejected.increment();
+            throw new IllegalArgumentException("Unsupported router " + router + "; only Uniswap V2 and SushiSwap routers are simulated");
+        }
+        Swap swap = decodeSwap(request.getData(), quantity(request.getValue()));
+        if (swap == null) {
+            rejected.increment();
+            throw new IllegalArgumentException("Only exact-input V2 router swaps (swapExact...For...) can be simulated");
+        }
+        
+        // A zero base fee would make every sandwich look free and every swap PRIVATE
+        EthereumService.ChainHead head = ethereumService.getChainHead();
+        if (head.blockNumber().signum() == 0 || head.baseFeePerGas().signum() == 0) {
+            rejected.increment();
+            throw new IllegalStateException("Chain head not loaded yet; retry shortly");
+        }
+        BigInteger baseFee = head.baseFeePerGas();
+        BigInteger gasPrice = ourGasPrice(request, baseFee);
+        Set<String> ourPairs = new HashSet<>();
+        for (int i = 0; i + 1 < swap.path().size(); i++) {
+            ourPairs.add(poolState.pairFor(router, swap.path().get(i), swap.path().get(i + 1)));
+        }
+        PoolView view = new PoolView(ourPairs);
+        
+        // Pending swaps a builder would order ahead of ours, highest gas price first
+        int pendingAhead = 0;
+        List<Transaction> pending = new ArrayList<>(mempoolMonitorService.getPendingTransactions(router));
+        Map<Transaction, BigInteger> pendingGas = new HashMap<>();
+        for (Transaction tx : pending) {
+            BigInteger price = MempoolMonitorService.effectiveGasPrice(tx, baseFee);
+            if (price != null && price.compareTo(gasPrice) >= 0) pendingGas.put(tx, price);
+        }
+        pending.removeIf(tx -> !pendingGas.containsKey(tx));
+        pending.sort((a, b) -> pendingGas.get(b).compareTo(pendingGas.get(a)));
+        for (Transaction tx : pending.subList(0, Math.min(pending.size(), maxPendingSwaps))) {
+            Swap other = decodeSwap(tx.getInput(), tx.getValue());
+            if (other == null) continue;
+            boolean touchesOurs = false;
+            for (int i = 0; i + 1 < other.path().size(); i++) {
+                touchesOurs |= ourPairs.contains(poolState.pairFor(router, other.path().get(i), other.path().get(i + 1)));
+            }
+            if (touchesOurs && view.execute(router, other, true) != null) pendingAhead++;
+        }
+        
+        List<Hop> hops = view.execute(router, swap, false);
+        if (hops == null) {
+            rejected.increment();
+            throw new IllegalStateException("Pool state unavailable for " + ourPairs);
+        }
+        
+        double expectedOut = hops.get(hops.size() - 1).amountOut();
+        double minOut = swap.amountOutMin().doubleValue();
+        PreflightResult.PreflightResultBuilder result = PreflightResult.builder()
+            .router(router)
+            .function(swap.function())
+            .path(swap.path())
+            .pairs(hops.stream().map(Hop::pair).toList())
+            .amountIn(swap.amountIn())
+            .amountOutMin(swap.amountOutMin())
+            .expectedAmountOut(toInteger(expectedOut))
+            .pendingSwapsAhead(pendingAhead)
+            .reservesBlock(view.oldestBlock == Long.MAX_VALUE ? 0 : view.oldestBlock);
+        
+        double tolerance = expectedOut > 0 ? Math.max(0, 1 - minOut / expectedOut) : 0;
+        double gasCostWei = new BigDecimal(baseFee).doubleValue() * attackerGas;
+        int safeBps = safeSlippageBps(hops, gasCostWei);
+        result.slippageToleranceBps((int) Math.round(tolerance * 10_000))
+            .safeSlippageBps(safeBps)
+            .safeAmountOutMin(toInteger(expectedOut * (10_000 - safeBps) / 10_000));
+        
+        if (minOut > expectedOut) {
+            result.route("PUBLIC").reason("Swap would revert: amountOutMin is above the expected output");
+        } else {
+            // The hop where the best sandwich hurts the victim most
+            Sandwich worst = Sandwich.NONE;
+            Hop exposed = null;
+            double worstLoss = 0;
+            for (Hop hop : hops) {
+                Sandwich sandwich = bestSandwich(hop, hop.amountOut() * (1 - tolerance), gasCost(hop, gasCostWei));
+                double loss = (hop.amountOut() - sandwich.victimOut()) * expectedOut / hop.amountOut();
+                if (sandwich.profit() > 0 && loss > worstLoss) {
+                    worst = sandwich;
+                    exposed = hop;
+                    worstLoss = loss;
+                }
+            }
+            
+            if (exposed != null) {
+                privateRouted.increment();
+                result.sandwichProfitable(true)
+                    .exposedPair(exposed.pair())
+                    .frontRunAmountIn(toInteger(worst.frontRun()))
+                    .attackerProfit(toInteger(worst.profit()))
+                    .worstCaseLoss(toInteger(worstLoss))
+                    .worstCaseLossBps((int) Math.round(worstLoss / expectedOut * 10_000))
+                    .route("PRIVATE")
+                    .reason("A sandwich on " + exposed.pair() + " is profitable at this slippage; send privately or lower slippage to "
+                        + safeBps + " bps");
+            } else {
+                result.worstCaseLoss(BigInteger.ZERO)
+                    .route("PUBLIC")
+                    .reason("No sandwich covers its gas cost at this slippage");
+            }
+        }
+        
+        long micros = (System.nanoTime() - started) / 1000;
+        simulations.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+        return result.simulationMicros(micros).build();
+    }
+    
+    /**
+     * Most profitable front-run on one hop that still leaves the victim at least {@code minVictimOut}
+     */
+    private static Sandwich bestSandwich(Hop hop, double minVictimOut, double gasCost) {
+        double rin = hop.reserveIn();
+        double rout = hop.reserveOut();
+        double x = hop.amountIn();
+        if (amountOut(x, rin, rout) < minVictimOut) return Sandwich.NONE;
+        
+        // Bisection for the largest front-run the victim's limit tolerates
+        double hi = Math.max(x, 1);
+        for (int i = 0; i < 200 && victimOut(hi, rin, rout, x) >= minVictimOut; i++) hi *= 2;
+        double lo = 0;
+        for (int i = 0; i < 100; i++) {
+            double mid = (lo + hi) / 2;
+            if (victimOut(mid, rin, rout, x) >= minVictimOut) lo = mid; else hi = mid;
+        }
+        
+        // Attacker profit is unimodal in the front-run size below that limit
+        double left = 0;
+        double right = lo;
+        for (int i = 0; i < 200; i++) {
+            double m1 = left + (right - left) / 3;
+            double m2 = right - (right - left) / 3;
+            if (attackerProfit(m1, rin, rout, x) < attackerProfit(m2, rin, rout, x)) left = m1; else right = m2;
+        }
+        double frontRun = (left + right) / 2;
+        return new Sandwich(frontRun, attackerProfit(frontRun, rin, rout, x) - gasCost, victimOut(frontRun, rin, rout, x));
+    }
+    
+    private static double victimOut(double frontRun, double rin, double rout, double x) {
+        double attackerOut = amountOut(frontRun, rin, rout);
+        return amountOut(x, rin + frontRun, rout - attackerOut);
+    }
+    
+    private static double attackerProfit(double frontRun, double rin, double rout, double x) {
+        double attackerOut = amountOut(frontRun, rin, rout);
+        double victim = amountOut(x, rin + frontRun, rout - attackerOut);
+        double backRun = amountOut(attackerOut, rout - attackerOut - victim, rin + frontRun + x);
+        return backRun - frontRun;
+    }
+    
+    /**
+     * Largest slippage, in bps, at which no hop admits a sandwich that covers its gas
+     */
+    private int safeSlippageBps(List<Hop> hops, double gasCostWei) {
+        int lo = 0;
+        int hi = maxSlippageBps;
+        if (!anyProfitable(hops, hi, gasCostWei)) return hi;
+        while (lo + 1 < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (anyProfitable(hops, mid, gasCostWei)) hi = mid; else lo = mid;
+        }
+        return lo;
+    }
+    
+    private boolean anyProfitable(List<Hop> hops, int slippageBps, double gasCostWei) {
+        for (Hop hop : hops) {
+            double minOut = hop.amountOut() * (10_000 - slippageBps) / 10_000;
+            if (bestSandwich(hop, minOut, gasCost(hop, gasCostWei)).profit() > 0) return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Gas for the two sandwich legs, in the hop's input token. Only known when that is
+     * WETH; elsewhere it is taken as zero, which errs towards flagging exposure.
+     */
+    private double gasCost(Hop hop, double gasCostWei) {
+        return hop.tokenIn().equalsIgnoreCase(weth) ? gasCostWei : 0;
+    }
+    
+    private BigInteger ourGasPrice(PreflightRequest request, BigInteger baseFee) {
+        BigInteger maxFee = quantity(request.getMaxFeePerGas());
+        BigInteger priorityFee = quantity(request.getMaxPriorityFeePerGas());
+        if (maxFee != null && priorityFee != null) {
+            return maxFee.min(baseFee.add(priorityFee));
+        }
+        BigInteger gasPrice = quantity(request.getGasPrice());
+        return gasPrice != null ? gasPrice : ethereumService.getChainHead().gasPrice();
+    }
+    
+    private static BigInteger quantity(String value) {
+        if (value == null || value.isBlank()) return null;
+        return value.startsWith("0x") ? Numeric.decodeQuantity(value) : new BigInteger(value);
+    }
+    
+    private static BigInteger toInteger(double value) {
+        return value <= 0 ? BigInteger.ZERO : BigDecimal.valueOf(value).toBigInteger();
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>(poolState.getStats());
+        long count = simulations.sum();
+        stats.put("simulations", count);
+        stats.put("rejected", rejected.sum());
+        stats.put("privateRouteRecommended", privateRouted.sum());
+        stats.put("avgMicros", count > 0 ? totalMicros.sum() / count : 0);
+        stats.put("maxMicros", maxMicros.get());
+        return stats;
+    }
+}
@@ -0,0 +1,296 @@
+package com.mevanalytics.platform.service;
+
+import com.mevanalytics.platform.dto.ProtectionRule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles per-contract protection rules into a predicate index and decides, per alert,
+ * whether it is sent and at which level.
+ *
+ * Each rule is expanded into postings keyed by (alert type, selector, searcher), with
+ * "*" standing for a condition the rule leaves open. Evaluating an alert probes at most
+ * four keys and walks posting arrays sorted by value threshold, stopping at the first
+ * threshold above the alert's value, so the cost follows the rules that match rather
+ * than the rules that exist. A contract's compiled rules are immutable and swapped
+ * whole on update, so evaluation never locks. Contracts with identical rule sets, such
+ * as a customer's template applied to many contracts, share one compiled index.
+ */
+@Service
+public class ProtectionRuleEngine {
+    
+    public static final List<String> ALERT_TYPES = List.of("SANDWICH_ATTACK", "FRONTRUN_ATTEMPT", "UNUSUAL_GAS");
+    private static final List<String> LEVELS = List.of("INFO", "LOW", "MEDIUM", "HIGH", "CRITICAL");
+    private static final Pattern SELECTOR = Pattern.compile("0x[0-9a-f]{8}");
+    private static final Pattern ADDRESS = Pattern.compile("0x[0-9a-f]{40}");
+    private static final String ANY = "*";
+    
+    @Value("${protection.rules.max-rules:64}")
+    private int maxRules;
+    
+    @Value("${protection.rules.max-postings:4096}")
+    private int maxPostings;
+    
+    public record Decision(boolean emit, String level, String ruleId) {
+        static final Decision DEFAULT = new Decision(true, null, null);
+    }
+    
+    record CompiledRule(String id, boolean suppress, double minValueUsd, String level) {}
+    
+    private static final class ContractRules {
+        final String signature;
+        final Set<String> disabledTypes;
+        final Set<String> typesWithAlertRules;
+        final Map<String, CompiledRule[]> postings; // type|selector|searcher -> rules by ascending threshold
+        final int ruleCount;
+        int users; // contracts using this instance, guarded by rulesBySignature
+        
+        ContractRules(String signature, Set<String> disabledTypes, Set<String> typesWithAlertRules,
+                      Map<String, CompiledRule[]> postings, int ruleCount) {
+            this.signature = signature;
+            this.disabledTypes = disabledTypes;
+            this.typesWithAlertRules = typesWithAlertRules;
+            this.postings = postings;
+            this.ruleCount = ruleCount;
+        }
+    }
+    
+    private final Map<String, ContractRules> rulesByContract = new ConcurrentHashMap<>();
+    // Compiled rule sets by signature, shared by every contract configured identically
+    private final Map<String, ContractRules> rulesBySignature = new HashMap<>();
+    private final LongAdder evaluated = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+    private final LongAdder unmatched = new LongAdder();
+    
+    /**
+     * Compile and install a contract's rules, replacing the previous set atomically
+     *
+     * @throws IllegalArgumentException if a rule is invalid or the set is too large
+     */
+    public void update(String contractAddress, boolean alertOnSandwich, boolean alertOnFrontrun,
+                       boolean alertOnUnusualGas, List<ProtectionRule> rules) {
+        String signature = signature(alertOnSandwich, alertOnFrontrun, alertOnUnusualGas, rules);
+        synchronized (rulesBySignature) {
+            ContractRules compiled = rulesBySignature.get(signature);
+            if (compiled == null) {
+                compiled = compile(signature, alertOnSandwich, alertOnFrontrun, alertOnUnusualGas, rules);
+                rulesBySignature.put(signature, compiled);
+            }
+            compiled.users++;
+            release(rulesByContract.put(contractAddress, compiled));
+        }
+    }
+    
+    /**
+     * Check a rule set without installing it
+     */
+    public void validate(List<ProtectionRule> rules) {
+        compile(null, true, true, true, rules);
+    }
+    
+    public void remove(String contractAddress) {
+        synchronized (rulesBySignature) {
+            release(rulesByContract.remove(contractAddress));
+        }
+    }
+    
+    private void release(ContractRules previous) {
+        if (previous != null && --previous.users == 0) {
+            rulesBySignature.remove(previous.signature);
+        }
+    }
+    
+    /**
+     * Exact, unambiguous encoding of a rule set's inputs; every value is length-prefixed
+     * so no crafted id or selector can make two different sets collide
+     */
+    private static String signature(boolean alertOnSandwich, boolean alertOnFrontrun, boolean alertOnUnusualGas,
+                                    List<ProtectionRule> rules) {
+        StringBuilder signature = new StringBuilder();
+        signature.append(alertOnSandwich ? '1' : '0').append(alertOnFrontrun ? '1' : '0').append(alertOnUnusualGas ? '1' : '0');
+        for (ProtectionRule rule : rules != null ? rules : List.<ProtectionRule>of()) {
+            signature.append('[');
+            // Case is normalized the way compile() does, so equivalent sets share too
+            field(signature, rule.getId());
+            field(signature, rule.getAction() != null ? rule.getAction().toUpperCase() : null);
+            field(signature, rule.getLevel() != null ? rule.getLevel().toUpperCase() : null);
+            field(signature, rule.getMinValueAtRiskUsd() != null ? rule.getMinValueAtRiskUsd().stripTrailingZeros().toPlainString() : null);
+            list(signature, rule.getAlertTypes(), true);
+            list(signature, rule.getSelectors(), false);
+            list(signature, rule.getSearchers(), false);
+        }
+        return signature.toString();
+    }
+    
+    private static void list(StringBuilder signature, List<String> values, boolean upperCase) {
+        values = values != null ? values : List.of();
+        signature.append(values.size()).append('(');
+        for (String value : values) {
+            field(signature, value == null ? null : upperCase ? value.toUpperCase() : value.toLowerCase());
+        }
+    }
+    
+    private static void field(StringBuilder signature, String value) {
+        if (value == null) {
+            signature.append('-');
+        } else {
+            signature.append(value.length()).append(':').append(value);
+        }
+    }
+    
+    private ContractRules compile(String signature, boolean alertOnSandwich, boolean alertOnFrontrun, boolean alertOnUnusualGas,
+                                  List<ProtectionRule> rules) {
+        Set<String> disabledTypes = new HashSet<>();
+        if (!alertOnSandwich) disabledTypes.add("SANDWICH_ATTACK");
+        if (!alertOnFrontrun) disabledTypes.add("FRONTRUN_ATTEMPT");
+        if (!alertOnUnusualGas) disabledTypes.add("UNUSUAL_GAS");
+        
+        rules = rules != null ? rules : List.of();
+        if (rules.size() > maxRules) {
+            throw new IllegalArgumentException("At most " + maxRules + " rules per contract");
+        }
+        
+        Map<String, List<CompiledRule>> postings = new HashMap<>();
+        Set<String> typesWithAlertRules = new HashSet<>();
+        int postingCount = 0;
+        for (int i = 0; i < rules.size(); i++) {
+            ProtectionRule rule = rules.get(i);
+            String id = rule.getId() != null ? rule.getId() : "rule-" + (i + 1);
+            CompiledRule compiled = compileRule(id, rule);
+            
+            List<String> types = normalize(rule.getAlertTypes(), id, "alert type", null);
+            List<String> selectors = normalize(rule.getSelectors(), id, "selector", SELECTOR);
+            List<String> searchers = normalize(rule.getSearchers(), id, "searcher", ADDRESS);
+            for (String type : types.isEmpty() ? ALERT_TYPES : types) {
+                if (!ALERT_TYPES.contains(type)) {
+                    throw new IllegalArgumentException(id + ": unknown alert type " + type);
+                }
+                if (!compiled.suppress()) typesWithAlertRules.add(type);
+                for (String selector : selectors.isEmpty() ? List.of(ANY) : selectors) {
+                    for (String searcher : searchers.isEmpty() ? List.of(ANY) : searchers) {
+                        if (++postingCount > maxPostings) {
+                            throw new IllegalArgumentException("Rules expand to more than " + maxPostings + " conditions");
+                        }
+                        postings.computeIfAbsent(key(type, selector, searcher), k -> new ArrayList<>()).add(compiled);
+                    }
+                }
+            }
+        }
+        
+        Map<String, CompiledRule[]> index = new HashMap<>();
+        postings.forEach((key, list) -> {
+            CompiledRule[] sorted = list.toArray(new CompiledRule[0]);
+            Arrays.sort(sorted, Comparator.comparingDouble(CompiledRule::minValueUsd));
+            index.put(key, sorted);
+        });
+        return new ContractRules(signature, disabledTypes, typesWithAlertRules, index, rules.size());
+    }
+    
+    private CompiledRule compileRule(String id, ProtectionRule rule) {
+        String action = rule.getAction() != null ? rule.getAction().toUpperCase() : "ALERT";
+        if (!action.equals("ALERT") && !action.equals("SUPPRESS")) {
+            throw new IllegalArgumentException(id + ": action must be ALERT or SUPPRESS");
+        }
+        String level = rule.getLevel() != null ? rule.getLevel().toUpperCase() : null;
+        if (level != null && !LEVELS.contains(level)) {
+            throw new IllegalArgumentException(id + ": level must be one of " + LEVELS);
+        }
+        double minValue = rule.getMinValueAtRiskUsd() != null ? rule.getMinValueAtRiskUsd().doubleValue() : 0;
+        if (minValue < 0) {
+            throw new IllegalArgumentException(id + ": minValueAtRiskUsd must not be negative");
+        }
+        return new CompiledRule(id, action.equals("SUPPRESS"), minValue, level);
+    }
+    
+    private static List<String> normalize(List<String> values, String id, String what, Pattern format) {
+        if (values == null) return List.of();
+        List<String> normalized = new ArrayList<>(values.size());
+        for (String value : values) {
+            String v = format != null ? value.toLowerCase() : value.toUpperCase();
+            if (format != null && !format.matcher(v).matches()) {
+                throw new IllegalArgumentException(id + ": invalid " + what + " " + value);
+            }
+            normalized.add(v);
+        }
+        return normalized;
+    }
+    
+    private static String key(String type, String selector, String searcher) {
+        return type + '|' + selector + '|' + searcher;
+    }
+    
+    /**
+     * Decide whether an alert is sent.
+     *
+     * @param selector 4-byte selector of the affected call, or null if unknown
+     * @param searcher address of the searcher or sender behind the alert, or null
+     * @param valueAtRiskUsd estimated value at risk, or null if unknown (threshold rules never match)
+     */
+    public Decision evaluate(String contractAddress, String alertType, String selector, String searcher, Double valueAtRiskUsd) {
+        ContractRules rules = rulesByContract.get(contractAddress);
+        if (rules == null) return Decision.DEFAULT;
+        evaluated.increment();
+        if (rules.disabledTypes.contains(alertType)) {
+            suppressed.increment();
+            return new Decision(false, null, null);
+        }
+        if (rules.postings.isEmpty()) return Decision.DEFAULT;
+        
+        double value = valueAtRiskUsd != null ? valueAtRiskUsd : -1;
+        CompiledRule alertMatch = null;
+        String sel = selector != null ? selector.toLowerCase() : null;
+        String who = searcher != null ? searcher.toLowerCase() : null;
+        for (int probe = 0; probe < 4; probe++) {
+            String s = (probe & 1) == 0 ? sel : ANY;
+            String a = (probe & 2) == 0 ? who : ANY;
+            if (s == null || a == null) continue;
+            CompiledRule[] candidates = rules.postings.get(key(alertType, s, a));
+            if (candidates == null) continue;
+            
+            for (CompiledRule rule : candidates) {
+                if (rule.minValueUsd() > 0 && value < rule.minValueUsd()) break;
+                if (rule.suppress()) {
+                    suppressed.increment();
+                    return new Decision(false, null, rule.id());
+                }
+                if (alertMatch == null || severity(rule.level()) > severity(alertMatch.level())) {
+                    alertMatch = rule;
+                }
+            }
+        }
+        
+        if (alertMatch != null) return new Decision(true, alertMatch.level(), alertMatch.id());
+        if (rules.typesWithAlertRules.contains(alertType)) {
+            unmatched.increment();
+            return new Decision(false, null, null);
+        }
+        return Decision.DEFAULT;
+    }
+    
+    private static int severity(String level) {
+        return level == null ? -1 : LEVELS.indexOf(level);
+    }
+    
+    public int getRuleCount(String contractAddress) {
+        ContractRules rules = rulesByContract.get(contractAddress);
+        return rules == null ? 0 : rules.ruleCount;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("contracts", rulesByContract.size());
+        stats.put("rules", rulesByContract.values().stream().mapToInt(r -> r.ruleCount).sum());
+        synchronized (rulesBySignature) {
+            stats.put("distinctRuleSets", rulesBySignature.size());
+        }
+        stats.put("evaluated", evaluated.sum());
+        stats.put("suppressed", suppressed.sum());
+        stats.put("unmatched", unmatched.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,174 @@
+package com.mevanalytics.platform.service;
+
+import com.mevanalytics.platform.evm.ProxyDetector;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.Transaction;
+import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.protocol.core.methods.response.EthGetCode;
+import org.web3j.protocol.core.methods.response.EthGetStorageAt;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Finds the code behind proxies with batched JSON-RPC. A single scan reads the three
+ * proxy slots speculatively in the same batch as eth_getCode. Resolving a detected
+ * proxy then costs one more batch for the implementation's code. Beacon proxies need
+ * one batch before that, to ask the beacon for its implementation.
+ */
+@Service
+public class ProxyResolver {
+    
+    // implementation(), served by EIP-1967 beacons
+    private static final String IMPLEMENTATION_CALL = "0x5c60da1b";
+    private static final String[] SLOTS = {
+        ProxyDetector.IMPLEMENTATION_SLOT, ProxyDetector.BEACON_SLOT, ProxyDetector.PROXIABLE_SLOT
+    };
+    
+    @Autowired
+    private EthereumService ethereumService;
+    
+    /**
+     * Code of an address and the values of its proxy slots, by slot
+     */
+    public record Fetched(String bytecode, Map<String, String> slots) {}
+    
+    /**
+     * Where a proxy's logic lives; implementationCode is null when it could not be resolved
+     */
+    public record Resolution(ProxyDetector.Kind kind, String implementation, String beacon, String implementationCode) {}
+    
+    /**
+     * eth_getCode plus every proxy slot of the address, in one batch
+     */
+    public Fetched fetch(String address) throws IOException {
+        Web3j web3j = web3j();
+        Map<String, Request<?, ? extends Response<String>>> requests = new LinkedHashMap<>();
+        requests.put("code", web3j.ethGetCode(address, DefaultBlockParameterName.LATEST));
+        for (String slot : SLOTS) {
+            requests.put(slot, web3j.ethGetStorageAt(address, Numeric.toBigInt(slot), DefaultBlockParameterName.LATEST));
+        }
+        Map<String, Response<String>> responses = send(web3j, requests);
+        
+        Response<String> code = responses.get("code");
+        if (code == null || code.hasError()) {
+            throw new IllegalStateException("eth_getCode failed: " + (code != null ? code.getError().getMessage() : "no response"));
+        }
+        Map<String, String> slots = new HashMap<>();
+        for (String slot : SLOTS) {
+            Response<String> value = responses.get(slot);
+            if (value != null && !value.hasError()) slots.put(slot, value.getResult());
+        }
+        return new Fetched(((EthGetCode) code).getCode(), slots);
+    }
+    
+    /**
+     * The slot each proxy keeps its implementation (or beacon) in, read in one batch
+     */
+    public Map<String, String> readSlots(Map<String, ProxyDetector.Pattern> proxies) throws IOException {
+        Web3j web3j = web3j();
+        Map<String, Request<?, ? extends Response<String>>> requests = new LinkedHashMap<>();
+        proxies.forEach((address, pattern) -> {
+            String slot = ProxyDetector.slotOf(pattern.kind());
+            if (slot != null) {
+                requests.put(address, web3j.ethGetStorageAt(address, Numeric.toBigInt(slot), DefaultBlockParameterName.LATEST));
+            }
+        });
+        Map<String, String> values = new HashMap<>();
+        send(web3j, requests).forEach((address, response) -> {
+            if (!response.hasError()) values.put(address, ((EthGetStorageAt) response).getData());
+        });
+        return values;
+    }
+    
+    /**
+     * Implementation address and code for each proxy, given its slot value. Proxies whose
+     * implementation is empty, is themselves, or cannot be fetched come back unresolved.
+     */
+    public Map<String, Resolution> resolve(Map<String, ProxyDetector.Pattern> proxies, Map<String, String> slotValues) {
+        Map<String, String> implementations = new HashMap<>();
+        Map<String, String> beacons = new HashMap<>();
+        proxies.forEach((address, pattern) -> {
+            String target = pattern.kind() == ProxyDetector.Kind.EIP1167
+                ? pattern.implementation() : ProxyDetector.toAddress(slotValues.get(address));
+            if (target == null || target.equalsIgnoreCase(address)) return;
+            (pattern.kind() == ProxyDetector.Kind.BEACON ? beacons : implementations).put(address, target);
+        });
+        
+        Map<String, String> codes = new HashMap<>();
+        try {
+            Web3j web3j = web3j();
+            if (!beacons.isEmpty()) {
+                Map<String, Request<?, ? extends Response<String>>> calls = new LinkedHashMap<>();
+                for (String beacon : new HashSet<>(beacons.values())) {
+                    calls.put(beacon, web3j.ethCall(
+                        Transaction.createEthCallTransaction(null, beacon, IMPLEMENTATION_CALL),
+                        DefaultBlockParameterName.LATEST));
+                }
+                Map<String, Response<String>> answers = send(web3j, calls);
+                beacons.forEach((address, beacon) -> {
+                    Response<String> answer = answers.get(beacon);
+                    String target = answer != null && !answer.hasError()
+                        ? ProxyDetector.toAddress(((EthCall) answer).getValue()) : null;
+                    if (target != null) implementations.put(address, target);
+                });
+            }
+            
+            // Proxies sharing an implementation share one eth_getCode
+            Map<String, Request<?, ? extends Response<String>>> requests = new LinkedHashMap<>();
+            for (String implementation : new HashSet<>(implementations.values())) {
+                requests.put(implementation, web3j.ethGetCode(implementation, DefaultBlockParameterName.LATEST));
+            }
+            send(web3j, requests).forEach((implementation, response) -> {
+                String code = response.hasError() ? null : ((EthGetCode) response).getCode();
+                if (code != null && code.length() > 2) codes.put(implementation, code);
+            });
+        } catch (Exception e) {
+            System.err.println("❌ Failed to resolve " + proxies.size() + " proxy implementations: " + e.getMessage());
+        }
+        
+        Map<String, Resolution> resolutions = new HashMap<>();
+        proxies.forEach((address, pattern) -> {
+            String implementation = implementations.get(address);
+            resolutions.put(address, new Resolution(pattern.kind(), implementation, beacons.get(address),
+                implementation != null ? codes.get(implementation) : null));
+        });
+        return resolutions;
+    }
+    
+    private Web3j web3j() {
+        if (!ethereumService.isConnected() || ethereumService.getWeb3j() == null) {
+            throw new IllegalStateException("Ethereum node not connected");
+        }
+        return ethereumService.getWeb3j();
+    }
+    
+    /**
+     * Send requests as one JSON-RPC batch and return the responses by key
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Response<String>> send(Web3j web3j, Map<String, Request<?, ? extends Response<String>>> requests)
+            throws IOException {
+        Map<String, Response<String>> responses = new HashMap<>();
+        if (requests.isEmpty()) return responses;
+        Map<Long, String> keyById = new HashMap<>();
+        BatchRequest batch = web3j.newBatch();
+        requests.forEach((key, request) -> {
+            keyById.put(request.getId(), key);
+            batch.add(request);
+        });
+        // Match by id: servers may answer a batch in any order
+        for (Response<?> response : batch.send().getResponses()) {
+            String key = keyById.get(response.getId());
+            if (key != null) responses.put(key, (Response<String>) response);
+        }
+        return responses;
+    }
+}
@@ -1,18 +1,34 @@
 package com.mevanalytics.platform.service;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.mevanalytics.platform.dto.MEVDetectionEvent;
+import com.mevanalytics.platform.dto.ProtectionRule;
+import com.mevanalytics.platform.dto.ProtectionRuleSet;
+import com.mevanalytics.platform.repository.ProtectionConfigRepository;
+import org.web3j.protocol.core.methods.response.Log;
 import org.web3j.protocol.core.methods.response.Transaction;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class RealTimeProtectionService {
@@ -23,17 +39,96 @@ public class RealTimeProtectionService {
     @Autowired
     private MEVDetectionService mevDetectionService;
     
-    // Track protected contracts and their WebSocket sessions
+    @Autowired
+    private MempoolMonitorService mempoolMonitorService;
+    
+    @Autowired
+    private SessionSendQueueService sendQueueService;
+    
+    @Autowired
+    private ClusterMembershipService clusterMembership;
+    
+    @Autowired
+    private GasPriceStatsService gasPriceStats;
+    
+    @Autowired
+    private ClusterBus clusterBus;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private AlertJournal alertJournal;
+    
+    @Autowired
+    private ProtectionConfigRepository configRepository;
+    
+    @Autowired
+    private ProtectionRuleEngine ruleEngine;
+    
+    @Value("${protection.max-contracts:10000}")
+    private int maxContracts;
+    
+    @Value("${protection.max-per-customer:100}")
+    private int maxPerCustomer;
+    
+    @Value("${protection.cluster.interest-refresh-ms:10000}")
+    private long interestRefreshMs;
+    
+    @Value("${protection.cluster.interest-ttl-ms:30000}")
+    private long interestTtlMs;
+    
+    @Value("${protection.alerts.window-ms:60000}")
+    private long alertWindowMs;
+    
+    @Value("${protection.alerts.cooldown-ms:10000}")
+    private long alertCooldownMs;
+    
+    @Value("${protection.alerts.max-per-window:30}")
+    private int maxAlertsPerWindow;
+    
+    @Value("${protection.journal.max-replay-alerts:20000}")
+    private int maxReplayAlerts;
+    
+    @Value("${protection.journal.replay-frame-bytes:262144}")
+    private int replayFrameBytes;
+    
+    // Contracts with WebSocket clients connected to this replica, keyed by lower-case address
     private final Map<String, Set<WebSocketSession>> protectedContracts = new ConcurrentHashMap<>();
+    
+    // Persisted contracts this replica owns on the hash ring and evaluates, mapped to the
+    // replicas currently holding their sockets (replica id -> interest expiry). The key set
+    // doubles as the hash index that block matching probes.
+    private final Map<String, Map<String, Long>> evaluatedContracts = new ConcurrentHashMap<>();
     private final Map<String, ContractProtectionConfig> protectionConfigs = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final ScheduledExecutorService protectionScheduler = Executors.newSingleThreadScheduledExecutor();
+    
+    // Closing text of the last replay frame: flags, omitted count and a 19-digit alert id
+    private static final int REPLAY_TRAILER_BYTES = 96;
     
     @PostConstruct
     public void initialize() {
         System.out.println("🛡️ Real-Time Protection Service initializing...");
         
-        // Start monitoring protected contracts every 10 seconds
-        scheduler.scheduleAtFixedRate(this::monitorProtectedContracts, 10, 10, TimeUnit.SECONDS);
+        // Threats are matched against each block as the detection pipeline processes it
+        mevDetectionService.addBlockListener(this::matchBlockAgainstProtectedContracts);
+        
+        // Front-running is flagged from the mempool, before the attack is mined
+        mempoolMonitorService.setWatchedTargets(evaluatedContracts::containsKey);
+        mempoolMonitorService.addFrontrunListener(this::onFrontrunSuspect);
+        
+        // Tips far above a contract's rolling fee distribution
+        gasPriceStats.setWatchedContracts(evaluatedContracts.keySet());
+        gasPriceStats.addAnomalyListener(this::onGasAnomaly);
+        
+        // Contracts are evaluated by their owning replica; alerts come back to whichever replica holds the socket
+        clusterBus.subscribe(ClusterMembershipService.CONTROL_CHANNEL, this::onControlMessage);
+        clusterBus.subscribe(ClusterMembershipService.replicaChannel(clusterMembership.getReplicaId()), this::onRemoteFrame);
+        clusterMembership.addRingListener(this::onRingChanged);
+        protectionScheduler.execute(this::loadOwnedConfigs);
+        protectionScheduler.scheduleWithFixedDelay(this::refreshInterest, interestRefreshMs, interestRefreshMs, TimeUnit.MILLISECONDS);
+        protectionScheduler.scheduleWithFixedDelay(this::sendAlertSummaries, 1, 1, TimeUnit.SECONDS);
+        protectionScheduler.scheduleWithFixedDelay(this::persistAlertIds, 5, 5, TimeUnit.SECONDS);
     }
     
     public static class ContractProtectionConfig {
@@ -42,24 +137,71 @@ public class RealTimeProtectionService {
         public boolean alertOnFrontrun = true;
         public boolean alertOnUnusualGas = true;
         public boolean autoProtectTransactions = false;
+        public List<ProtectionRule> rules = List.of();
         public LocalDateTime enabledAt;
-        public int alertCount = 0;
+        public final LongAdder alertCount = new LongAdder();
+        public final AlertThrottle throttle;
+        public final AtomicLong lastAlertId = new AtomicLong();
+        long persistedAlertId;
+        // False for contracts only evaluated while clients are connected
+        boolean persisted;
         
-        public ContractProtectionConfig(String address) {
+        public ContractProtectionConfig(String address, AlertThrottle throttle) {
             this.contractAddress = address;
             this.enabledAt = LocalDateTime.now();
+            this.throttle = throttle;
+        }
+        
+        ContractProtectionConfig(ProtectionConfigRepository.StoredConfig stored, List<ProtectionRule> rules, AlertThrottle throttle) {
+            this(stored.contractAddress(), throttle);
+            this.rules = rules;
+            this.alertOnSandwich = stored.alertOnSandwich();
+            this.alertOnFrontrun = stored.alertOnFrontrun();
+            this.alertOnUnusualGas = stored.alertOnUnusualGas();
+            this.autoProtectTransactions = stored.autoProtect();
+            this.enabledAt = stored.enabledAt();
+            this.lastAlertId.set(stored.lastAlertId());
+            this.persistedAlertId = stored.lastAlertId();
+            this.persisted = true;
+        }
+        
+        /**
+         * Admit an alert through the throttle, counting it if it goes out
+         */
+        boolean admit(ProtectionAlert alert) {
+            if (throttle.admit(alert.alertType, alert.transactionHash, System.currentTimeMillis()) != AlertThrottle.Decision.EMIT) {
+                return false;
+            }
+            alertCount.increment();
+            return true;
         }
     }
     
     public static class ProtectionAlert {
+        @JsonProperty("type")
         public String alertType;
         public String contractAddress;
         public String threatLevel;
         public String description;
         public String recommendedAction;
         public String transactionHash;
+        public Long blockNumber;
         public LocalDateTime timestamp;
         
+        // Sequence number per contract, assigned when the alert is journaled
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public Long alertId;
+        
+        // Rule that selected the alert, if any
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String matchedRule;
+        
+        // Set on ALERT_SUMMARY only
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String summarizedType;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public Long eventCount;
+        
         public ProtectionAlert(String type, String contract, String level, String desc, String action) {
             this.alertType = type;
             this.contractAddress = contract;
@@ -71,180 +213,795 @@ public class RealTimeProtectionService {
     }
     
     /**
-     * Enable real-time protection for a contract
+     * A customer's standing on a contract's protection
+     */
+    public enum Access { UNPROTECTED, NONE, SUBSCRIBER, OWNER }
+    
+    /**
+     * Enable real-time protection for a contract and attach a client to it. A contract
+     * no customer has enabled is evaluated with default flags while clients are connected.
+     * With {@code resumeAfterAlertId}, alerts journaled after that id are replayed first.
      */
-    public String enableProtection(String contractAddress, WebSocketSession session) {
+    public String enableProtection(String contractAddress, WebSocketSession session, Long resumeAfterAlertId) {
+        contractAddress = contractAddress.toLowerCase();
         System.out.println("🛡️ Enabling real-time protection for: " + contractAddress);
         
-        // Add to protected contracts
+        // Add to protected contracts and tell the owning replica to evaluate it for us
         protectedContracts.computeIfAbsent(contractAddress, k -> ConcurrentHashMap.newKeySet()).add(session);
-        protectionConfigs.put(contractAddress, new ContractProtectionConfig(contractAddress));
+        announce("INTEREST", List.of(contractAddress));
         
         // Send confirmation
-        sendAlert(contractAddress, new ProtectionAlert(
+        sendFrame(contractAddress, sendQueueService.frame(new ProtectionAlert(
             "PROTECTION_ENABLED",
             contractAddress,
             "INFO",
             "Real-time MEV protection is now active for this contract",
             "Monitor transactions and gas prices"
-        ));
+        )));
+        
+        if (resumeAfterAlertId != null) {
+            requestReplay(contractAddress, session.getId(), resumeAfterAlertId);
+        }
         
         return "Protection enabled for " + contractAddress;
     }
     
     /**
-     * Disable protection for a contract
+     * Subscribe a customer to a contract's protection without a live connection (REST).
+     * The first subscriber creates the config and owns its rules. Alerts are journaled
+     * from now on and can be replayed when a client connects.
+     *
+     * @return the customer's access after subscribing
+     * @throws IllegalStateException if the protected contracts or the customer's share of them are at the limit
+     */
+    public Access enableProtection(String contractAddress, long customerId) {
+        contractAddress = contractAddress.toLowerCase();
+        if (!configRepository.isSubscriber(customerId, contractAddress)
+                && configRepository.countSubscriptions(customerId) >= maxPerCustomer) {
+            throw new IllegalStateException("Protection limit reached (" + maxPerCustomer + " contracts per customer)");
+        }
+        boolean created = configRepository.insertIfAbsent(contractAddress, customerId, maxContracts);
+        ProtectionConfigRepository.StoredConfig stored = configRepository.findByAddress(contractAddress).orElse(null);
+        if (stored == null) {
+            throw new IllegalStateException("Protection list is full (" + maxContracts + " contracts)");
+        }
+        configRepository.insertSubscriber(customerId, contractAddress);
+        if (created) {
+            announce("CONFIG_CHANGED", List.of(contractAddress));
+        }
+        return Objects.equals(stored.ownerCustomerId(), customerId) ? Access.OWNER : Access.SUBSCRIBER;
+    }
+    
+    public Access getAccess(String contractAddress, long customerId) {
+        contractAddress = contractAddress.toLowerCase();
+        ProtectionConfigRepository.StoredConfig stored = configRepository.findByAddress(contractAddress).orElse(null);
+        if (stored == null) return Access.UNPROTECTED;
+        if (Objects.equals(stored.ownerCustomerId(), customerId)) return Access.OWNER;
+        return configRepository.isSubscriber(customerId, contractAddress) ? Access.SUBSCRIBER : Access.NONE;
+    }
+    
+    /**
+     * Drop a customer's subscription. Ownership passes to the longest-standing remaining
+     * subscriber; the persisted config goes with the last one, after which connected
+     * clients get default alerts until they leave.
+     *
+     * @return false if the customer was not subscribed
+     */
+    public boolean removeProtection(String contractAddress, long customerId) {
+        contractAddress = contractAddress.toLowerCase();
+        if (!configRepository.deleteSubscriber(customerId, contractAddress)) return false;
+        if (configRepository.deleteIfUnsubscribed(contractAddress)) {
+            announce("CONFIG_REMOVED", List.of(contractAddress));
+        } else {
+            configRepository.reassignOwner(contractAddress, customerId);
+        }
+        return true;
+    }
+    
+    /**
+     * Detach a client. The contract stays protected and keeps journaling alerts.
      */
     public void disableProtection(String contractAddress, WebSocketSession session) {
+        contractAddress = contractAddress.toLowerCase();
         Set<WebSocketSession> sessions = protectedContracts.get(contractAddress);
         if (sessions != null) {
             sessions.remove(session);
             if (sessions.isEmpty()) {
                 protectedContracts.remove(contractAddress);
-                protectionConfigs.remove(contractAddress);
-                System.out.println("🛡️ Protection disabled for: " + contractAddress);
+                announce("UNINTEREST", List.of(contractAddress));
+                System.out.println("🛡️ Last client left: " + contractAddress);
             }
         }
     }
     
     /**
-     * Monitor all protected contracts for suspicious activity
+     * Broadcast that this replica gained or lost clients for some contracts. Interest is
+     * soft state: it is re-announced periodically and expires on the owner if not refreshed.
      */
-    private void monitorProtectedContracts() {
-        if (protectedContracts.isEmpty() || !ethereumService.isConnected()) {
-            return;
+    private void announce(String type, Collection<String> contracts) {
+        List<String> all = new ArrayList<>(contracts);
+        // Keep each message well inside the smallest bus payload limit (Postgres NOTIFY, 8000 bytes)
+        for (int from = 0; from < all.size(); from += 100) {
+            clusterMembership.publishControl(Map.of(
+                "type", type,
+                "replica", clusterMembership.getReplicaId(),
+                "contracts", all.subList(from, Math.min(all.size(), from + 100))
+            ));
+        }
+    }
+    
+    private void refreshInterest() {
+        if (!protectedContracts.isEmpty()) {
+            announce("INTEREST", protectedContracts.keySet());
         }
         
-        System.out.println("🔍 Monitoring " + protectedContracts.size() + " protected contracts...");
-        
-        for (String contractAddress : protectedContracts.keySet()) {
+        // Forget replicas that stopped refreshing; evaluation of persisted contracts continues without them
+        long now = System.currentTimeMillis();
+        evaluatedContracts.forEach((contractAddress, replicas) -> {
+            replicas.values().removeIf(expiresAt -> expiresAt < now);
+            stopIfUnused(contractAddress);
+        });
+    }
+    
+    /**
+     * Stop evaluating a contract nobody enabled once no replica has clients for it
+     */
+    private void stopIfUnused(String contractAddress) {
+        ContractProtectionConfig config = protectionConfigs.get(contractAddress);
+        if (config != null && !config.persisted && evaluatedContracts.getOrDefault(contractAddress, Map.of()).isEmpty()) {
+            stopEvaluating(contractAddress);
+        }
+    }
+    
+    private void onControlMessage(String raw) {
+        try {
+            Map<?, ?> message = objectMapper.readValue(raw, Map.class);
+            // Applying a message may load configs from the database; keep that off the bus thread
+            protectionScheduler.execute(() -> applyControlMessage(message));
+        } catch (Exception e) {
+            System.err.println("❌ Invalid protection cluster message: " + e.getMessage());
+        }
+    }
+    
+    private void applyControlMessage(Map<?, ?> message) {
+        try {
+            Object type = message.get("type");
+            if (!(message.get("contracts") instanceof List<?> contracts)) return;
+            
+            String replica = (String) message.get("replica");
+            long expiresAt = System.currentTimeMillis() + interestTtlMs;
+            for (Object contract : contracts) {
+                String contractAddress = (String) contract;
+                if (!clusterMembership.isOwner(contractAddress)) continue;
+                
+                if ("INTEREST".equals(type)) {
+                    startEvaluating(contractAddress, false).put(replica, expiresAt);
+                } else if ("UNINTEREST".equals(type)) {
+                    evaluatedContracts.getOrDefault(contractAddress, new HashMap<>()).remove(replica);
+                    stopIfUnused(contractAddress);
+                } else if ("CONFIG_CHANGED".equals(type)) {
+                    startEvaluating(contractAddress, true);
+                } else if ("CONFIG_REMOVED".equals(type)) {
+                    // Clients still connected keep default alerts until they leave
+                    if (evaluatedContracts.getOrDefault(contractAddress, Map.of()).isEmpty()) {
+                        stopEvaluating(contractAddress);
+                    } else {
+                        startEvaluating(contractAddress, true);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Invalid protection cluster message: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Evaluate every persisted contract this replica owns, whether or not anyone is connected
+     */
+    private void loadOwnedConfigs() {
+        try {
+            for (ProtectionConfigRepository.StoredConfig stored : configRepository.findAll()) {
+                if (clusterMembership.isOwner(stored.contractAddress()) && !protectionConfigs.containsKey(stored.contractAddress())) {
+                    ContractProtectionConfig config = fromStored(stored);
+                    installRules(config);
+                    protectionConfigs.putIfAbsent(stored.contractAddress(), config);
+                    evaluatedContracts.computeIfAbsent(stored.contractAddress(), k -> new ConcurrentHashMap<>());
+                }
+            }
+            System.out.println("🛡️ Evaluating " + evaluatedContracts.size() + " protected contracts on this replica");
+        } catch (Exception e) {
+            System.err.println("❌ Failed to load protection configs: " + e.getMessage());
+        }
+    }
+    
+    private Map<String, Long> startEvaluating(String contractAddress, boolean reload) {
+        if (reload || !protectionConfigs.containsKey(contractAddress)) {
+            ContractProtectionConfig config;
             try {
-                checkContractForThreats(contractAddress);
+                config = configRepository.findByAddress(contractAddress)
+                    .map(this::fromStored)
+                    .orElseGet(() -> new ContractProtectionConfig(contractAddress, newThrottle()));
             } catch (Exception e) {
-                System.err.println("❌ Error monitoring contract " + contractAddress + ": " + e.getMessage());
+                config = new ContractProtectionConfig(contractAddress, newThrottle());
+            }
+            ContractProtectionConfig existing = protectionConfigs.putIfAbsent(contractAddress, config);
+            if (existing != null && reload) {
+                existing.alertOnSandwich = config.alertOnSandwich;
+                existing.alertOnFrontrun = config.alertOnFrontrun;
+                existing.alertOnUnusualGas = config.alertOnUnusualGas;
+                existing.autoProtectTransactions = config.autoProtectTransactions;
+                existing.rules = config.rules;
+                existing.persisted = config.persisted;
             }
+            installRules(existing != null ? existing : config);
         }
+        return evaluatedContracts.computeIfAbsent(contractAddress, k -> new ConcurrentHashMap<>());
     }
     
-    private void checkContractForThreats(String contractAddress) {
-        ContractProtectionConfig config = protectionConfigs.get(contractAddress);
+    private ContractProtectionConfig fromStored(ProtectionConfigRepository.StoredConfig stored) {
+        List<ProtectionRule> rules = List.of();
+        try {
+            if (stored.rulesJson() != null) {
+                rules = objectMapper.readValue(stored.rulesJson(), new TypeReference<List<ProtectionRule>>() {});
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Invalid stored rules for " + stored.contractAddress() + ": " + e.getMessage());
+        }
+        return new ContractProtectionConfig(stored, rules, newThrottle());
+    }
+    
+    private void installRules(ContractProtectionConfig config) {
+        try {
+            ruleEngine.update(config.contractAddress, config.alertOnSandwich, config.alertOnFrontrun, config.alertOnUnusualGas, config.rules);
+        } catch (IllegalArgumentException e) {
+            // Rules were validated on submit, so this only happens if limits were lowered since
+            System.err.println("❌ Ignoring rules for " + config.contractAddress + ": " + e.getMessage());
+            ruleEngine.update(config.contractAddress, config.alertOnSandwich, config.alertOnFrontrun, config.alertOnUnusualGas, List.of());
+        }
+    }
+    
+    /**
+     * Validate and persist a contract's rules and alert flags, then have its owner reload them.
+     * Callers check that the customer owns the contract's protection first.
+     *
+     * @throws IllegalArgumentException if the rule set is invalid
+     * @throws IllegalStateException if the contract is not protected
+     */
+    public Map<String, Object> updateRules(String contractAddress, ProtectionRuleSet ruleSet) throws Exception {
+        contractAddress = contractAddress.toLowerCase();
+        ProtectionConfigRepository.StoredConfig current = configRepository.findByAddress(contractAddress)
+            .orElseThrow(() -> new IllegalStateException("Protection is not enabled for this contract"));
+        List<ProtectionRule> rules = ruleSet.getRules() != null ? ruleSet.getRules() : fromStored(current).rules;
+        ruleEngine.validate(rules);
+        
+        boolean alertOnSandwich = ruleSet.getAlertOnSandwich() != null ? ruleSet.getAlertOnSandwich() : current.alertOnSandwich();
+        boolean alertOnFrontrun = ruleSet.getAlertOnFrontrun() != null ? ruleSet.getAlertOnFrontrun() : current.alertOnFrontrun();
+        boolean alertOnUnusualGas = ruleSet.getAlertOnUnusualGas() != null ? ruleSet.getAlertOnUnusualGas() : current.alertOnUnusualGas();
+        if (!configRepository.updateRules(contractAddress, alertOnSandwich, alertOnFrontrun, alertOnUnusualGas, objectMapper.writeValueAsString(rules))) {
+            throw new IllegalStateException("Protection is not enabled for this contract");
+        }
+        announce("CONFIG_CHANGED", List.of(contractAddress));
+        System.out.println("📐 Updated " + rules.size() + " protection rules for " + contractAddress);
+        
+        Map<String, Object> result = new HashMap<>();
+        result.put("contractAddress", contractAddress);
+        result.put("alertOnSandwich", alertOnSandwich);
+        result.put("alertOnFrontrun", alertOnFrontrun);
+        result.put("alertOnUnusualGas", alertOnUnusualGas);
+        result.put("rules", rules);
+        return result;
+    }
+    
+    /**
+     * Stored rules and alert flags for a contract, or empty if it is not protected
+     */
+    public Optional<Map<String, Object>> getRules(String contractAddress) {
+        return configRepository.findByAddress(contractAddress.toLowerCase()).map(stored -> {
+            Map<String, Object> result = new HashMap<>();
+            result.put("contractAddress", stored.contractAddress());
+            result.put("alertOnSandwich", stored.alertOnSandwich());
+            result.put("alertOnFrontrun", stored.alertOnFrontrun());
+            result.put("alertOnUnusualGas", stored.alertOnUnusualGas());
+            result.put("rules", fromStored(stored).rules);
+            return result;
+        });
+    }
+    
+    /**
+     * Apply the contract's rules to an alert: drop it, or tag it and apply any level override
+     */
+    private boolean passesRules(String contractAddress, ProtectionAlert alert, String selector, String searcher, Double valueAtRiskUsd) {
+        ProtectionRuleEngine.Decision decision = ruleEngine.evaluate(contractAddress, alert.alertType, selector, searcher, valueAtRiskUsd);
+        if (!decision.emit()) return false;
+        if (decision.level() != null) alert.threatLevel = decision.level();
+        alert.matchedRule = decision.ruleId();
+        return true;
+    }
+    
+    private static String selectorOf(Transaction tx) {
+        String input = tx != null ? tx.getInput() : null;
+        return input != null && input.length() >= 10 ? input.substring(0, 10) : null;
+    }
+    
+    private AlertThrottle newThrottle() {
+        return new AlertThrottle(alertWindowMs, alertCooldownMs, maxAlertsPerWindow);
+    }
+    
+    private void stopEvaluating(String contractAddress) {
+        evaluatedContracts.remove(contractAddress);
+        protectionConfigs.remove(contractAddress);
+        ruleEngine.remove(contractAddress);
+    }
+    
+    /**
+     * Ownership moved: hand off contracts we no longer own, pick up persisted ones we
+     * now own, and re-announce our clients' contracts so their owners route to us
+     */
+    private void onRingChanged() {
+        // Runs on the bus or heartbeat thread; the hand-off touches the database
+        protectionScheduler.execute(this::handOffContracts);
+    }
+    
+    private void handOffContracts() {
+        persistAlertIds();
+        for (String contractAddress : evaluatedContracts.keySet()) {
+            if (!clusterMembership.isOwner(contractAddress)) {
+                stopEvaluating(contractAddress);
+            }
+        }
+        loadOwnedConfigs();
+        if (!protectedContracts.isEmpty()) {
+            announce("INTEREST", protectedContracts.keySet());
+        }
+    }
+    
+    /**
+     * Save the highest alert id per contract so a new owner continues the sequence
+     */
+    private void persistAlertIds() {
+        Map<String, Long> changed = new HashMap<>();
+        protectionConfigs.forEach((contractAddress, config) -> {
+            long lastAlertId = config.lastAlertId.get();
+            if (lastAlertId > config.persistedAlertId) changed.put(contractAddress, lastAlertId);
+        });
+        if (changed.isEmpty()) return;
+        
+        try {
+            configRepository.updateLastAlertIds(changed);
+            changed.forEach((contractAddress, id) -> {
+                ContractProtectionConfig config = protectionConfigs.get(contractAddress);
+                if (config != null) config.persistedAlertId = id;
+            });
+        } catch (Exception e) {
+            System.err.println("❌ Failed to persist alert ids: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Match one processed block against every protected contract in a single pass.
+     * Each transaction target and log emitter is probed once against the protected
+     * address index, so cost scales with block size rather than with the number of
+     * protected contracts.
+     */
+    private void matchBlockAgainstProtectedContracts(MEVDetectionService.ProcessedBlock processed) {
+        if (evaluatedContracts.isEmpty()) {
+            return;
+        }
+        
+        // Block detectors report SANDWICH and ARBITRAGE; front-runs are caught in the mempool (onFrontrunSuspect)
+        List<MEVDetectionEvent> threats = processed.getDetections().stream()
+            .filter(d -> "SANDWICH".equals(d.getMevType()))
+            .toList();
+        if (threats.isEmpty()) {
+            return;
+        }
+        
+        // txHash -> protected contracts the transaction touched (as target or via emitted logs)
+        Map<String, Set<String>> touched = new HashMap<>();
+        Map<String, Transaction> transactions = new HashMap<>();
+        for (Transaction tx : processed.getTransactions()) {
+            transactions.put(tx.getHash(), tx);
+            if (tx.getTo() != null && evaluatedContracts.containsKey(tx.getTo().toLowerCase())) {
+                touched.computeIfAbsent(tx.getHash(), k -> new HashSet<>()).add(tx.getTo().toLowerCase());
+            }
+        }
+        for (Log log : processed.getLogs()) {
+            if (log.getAddress() != null && evaluatedContracts.containsKey(log.getAddress().toLowerCase())) {
+                touched.computeIfAbsent(log.getTransactionHash(), k -> new HashSet<>()).add(log.getAddress().toLowerCase());
+            }
+        }
+        if (touched.isEmpty()) {
+            return;
+        }
+        
+        Map<String, List<ProtectionAlert>> alertsByContract = new HashMap<>();
+        for (MEVDetectionEvent threat : threats) {
+            Set<String> contracts = new HashSet<>();
+            for (String txHash : Arrays.asList(threat.getTransactionHash(), threat.getVictimTransactionHash(), threat.getBackrunTransactionHash())) {
+                if (txHash != null) {
+                    contracts.addAll(touched.getOrDefault(txHash, Set.of()));
+                }
+            }
+            // Rules look at the call that was attacked: the victim's, or the attacker's own if there is none
+            String victimHash = threat.getVictimTransactionHash() != null ? threat.getVictimTransactionHash() : threat.getTransactionHash();
+            String selector = selectorOf(transactions.get(victimHash));
+            Double valueAtRisk = threat.getExtractedValueUsd() != null ? threat.getExtractedValueUsd().doubleValue() : null;
+            for (String contractAddress : contracts) {
+                ContractProtectionConfig config = protectionConfigs.get(contractAddress);
+                if (config == null) continue;
+                
+                ProtectionAlert alert = createThreatAlert(threat, contractAddress);
+                if (!passesRules(contractAddress, alert, selector, threat.getSearcherAddress(), valueAtRisk)) continue;
+                if (config.admit(alert)) {
+                    alertsByContract.computeIfAbsent(contractAddress, k -> new ArrayList<>()).add(alert);
+                }
+            }
+        }
+        
+        long blockNumber = processed.getBlock().getNumber().longValue();
+        alertsByContract.forEach((contractAddress, alerts) -> sendAlertBatch(contractAddress, blockNumber, alerts));
+    }
+    
+    private void onFrontrunSuspect(MempoolMonitorService.FrontrunSuspect suspect) {
+        ContractProtectionConfig config = protectionConfigs.get(suspect.targetContract);
         if (config == null) return;
         
-        // Check for recent transactions involving this contract
-        // This would integrate with your existing MEVDetectionService
+        String description = "COPY".equals(suspect.kind)
+            ? "Pending transaction from " + suspect.attacker.getFrom() + " copies calldata of pending " + suspect.victim.getHash()
+            : "Pending transaction from " + suspect.attacker.getFrom() + " outbids pending " + suspect.victim.getHash()
+                + " with the same call (" + gwei(suspect.attackerGasPrice) + " vs " + gwei(suspect.victimGasPrice) + " gwei)";
+        ProtectionAlert alert = new ProtectionAlert(
+            "FRONTRUN_ATTEMPT",
+            suspect.targetContract,
+            "HIGH",
+            description,
+            "Replace the pending transaction via a private relay or cancel it"
+        );
+        alert.transactionHash = suspect.attacker.getHash();
         
-        // Simulate threat detection (in real implementation, you'd check mempool)
-        Random random = new Random();
+        if (!passesRules(suspect.targetContract, alert, selectorOf(suspect.victim), suspect.attacker.getFrom(), null)) return;
+        if (config.admit(alert)) {
+            sendAlert(suspect.targetContract, alert);
+        }
+    }
+    
+    private void onGasAnomaly(GasPriceStatsService.GasAnomaly anomaly) {
+        ContractProtectionConfig config = protectionConfigs.get(anomaly.contractAddress);
+        if (config == null) return;
         
-        // 10% chance of detecting suspicious activity (for demo)
-        if (random.nextInt(100) < 10) {
-            String[] threatTypes = {"SANDWICH_ATTACK", "FRONTRUN_ATTEMPT", "UNUSUAL_GAS"};
-            String threatType = threatTypes[random.nextInt(threatTypes.length)];
-            
-            ProtectionAlert alert = createThreatAlert(threatType, contractAddress);
-            sendAlert(contractAddress, alert);
-            
-            config.alertCount++;
-        }
-    }
-    
-    private ProtectionAlert createThreatAlert(String threatType, String contractAddress) {
-        return switch (threatType) {
-            case "SANDWICH_ATTACK" -> new ProtectionAlert(
-                "SANDWICH_ATTACK",
-                contractAddress,
-                "HIGH",
-                "Potential sandwich attack detected targeting this contract",
-                "Consider using MEV protection or increasing slippage tolerance"
-            );
-            case "FRONTRUN_ATTEMPT" -> new ProtectionAlert(
-                "FRONTRUN_ATTEMPT", 
-                contractAddress,
-                "MEDIUM",
-                "Frontrunning attempt detected in mempool",
-                "Monitor gas prices and consider private mempool"
-            );
-            case "UNUSUAL_GAS" -> new ProtectionAlert(
-                "UNUSUAL_GAS",
-                contractAddress,
-                "LOW", 
-                "Unusual gas price patterns detected",
-                "Monitor for potential bot activity"
-            );
-            default -> new ProtectionAlert(
-                "UNKNOWN_THREAT",
-                contractAddress,
-                "LOW",
-                "Unknown suspicious activity detected",
-                "Continue monitoring"
-            );
-        };
+        ProtectionAlert alert = new ProtectionAlert(
+            "UNUSUAL_GAS",
+            anomaly.contractAddress,
+            anomaly.priorityFeeWei >= 10 * anomaly.medianWei ? "HIGH" : "MEDIUM",
+            "Transaction from " + anomaly.fromAddress + " tipped " + GasPriceStatsService.gwei(anomaly.priorityFeeWei)
+                + " gwei, above the " + anomaly.baseline.toLowerCase() + " p99 of " + GasPriceStatsService.gwei(anomaly.thresholdWei)
+                + " gwei (median " + GasPriceStatsService.gwei(anomaly.medianWei) + ")",
+            "Check for priority gas auctions or front-running around this contract"
+        );
+        alert.transactionHash = anomaly.transactionHash;
+        alert.blockNumber = anomaly.blockNumber;
+        
+        if (!passesRules(anomaly.contractAddress, alert, anomaly.selector, anomaly.fromAddress, null)) return;
+        if (config.admit(alert)) {
+            sendAlert(anomaly.contractAddress, alert);
+        }
     }
     
     /**
-     * Send alert to all connected clients for this contract
+     * Report alerts held back by cooldowns or rate limits as one summary per type
+     */
+    private void sendAlertSummaries() {
+        long now = System.currentTimeMillis();
+        protectionConfigs.forEach((contractAddress, config) -> {
+            for (AlertThrottle.Summary summary : config.throttle.drainSummaries(now)) {
+                ProtectionAlert alert = new ProtectionAlert(
+                    "ALERT_SUMMARY",
+                    contractAddress,
+                    "INFO",
+                    summary.suppressed() + " more " + summary.alertType() + " alerts held back; "
+                        + summary.eventsInWindow() + " similar events in the last " + summary.windowMs() / 1000 + " seconds",
+                    "Review recent activity for this contract"
+                );
+                alert.summarizedType = summary.alertType();
+                alert.eventCount = summary.eventsInWindow();
+                config.alertCount.increment();
+                sendAlert(contractAddress, alert);
+            }
+        });
+    }
+    
+    private static String gwei(BigInteger wei) {
+        return new BigDecimal(wei).movePointLeft(9).setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+    
+    private ProtectionAlert createThreatAlert(MEVDetectionEvent threat, String contractAddress) {
+        String loss = threat.getExtractedValueUsd().setScale(2, RoundingMode.HALF_UP).toPlainString();
+        ProtectionAlert alert = new ProtectionAlert(
+            "SANDWICH_ATTACK",
+            contractAddress,
+            threat.getExtractedValueUsd().compareTo(BigDecimal.valueOf(1000)) >= 0 ? "CRITICAL" : "HIGH",
+            "Sandwich attack by " + threat.getSearcherAddress() + " touching this contract in block "
+                + threat.getBlockNumber() + " (est. $" + loss + " extracted)",
+            "Consider using MEV protection or tightening slippage tolerance"
+        );
+        alert.transactionHash = threat.getTransactionHash();
+        alert.blockNumber = threat.getBlockNumber();
+        return alert;
+    }
+    
+    /**
+     * Send alert to all connected clients for this contract, wherever they are connected
      */
     private void sendAlert(String contractAddress, ProtectionAlert alert) {
-        Set<WebSocketSession> sessions = protectedContracts.get(contractAddress);
-        if (sessions == null) return;
+        byte[] alertJson = journal(contractAddress, alert);
+        route(contractAddress, new String(alertJson, StandardCharsets.UTF_8), alertJson.length);
+    }
+    
+    /**
+     * Send every alert a block produced for this contract as a single frame
+     */
+    private void sendAlertBatch(String contractAddress, long blockNumber, List<ProtectionAlert> alerts) {
+        List<byte[]> journaled = new ArrayList<>(alerts.size());
+        for (ProtectionAlert alert : alerts) {
+            journaled.add(journal(contractAddress, alert));
+        }
+        
+        // Alerts are serialized once, for the journal; the batch frame reuses those bytes.
+        // Sizes are counted in UTF-8 bytes, the unit of the bus limit.
+        String header = "{\"type\":\"ALERT_BATCH\",\"contractAddress\":" + toJson(contractAddress)
+            + ",\"blockNumber\":" + blockNumber + ",\"alerts\":[";
+        int headerBytes = utf8Length(header);
+        int budget = remoteFrameBudget(contractAddress);
+        StringBuilder frame = null;
+        int frameBytes = 0;
+        for (byte[] alertJson : journaled) {
+            // Separator plus closing "]}"
+            if (frame != null && frameBytes + alertJson.length + 3 > budget) {
+                // Too large for the bus in one piece; close this batch and start another
+                route(contractAddress, frame.append("]}").toString(), frameBytes + 2);
+                frame = null;
+            }
+            if (frame == null) {
+                frame = new StringBuilder(header);
+                frameBytes = headerBytes;
+            } else {
+                frame.append(',');
+                frameBytes++;
+            }
+            frame.append(new String(alertJson, StandardCharsets.UTF_8));
+            frameBytes += alertJson.length;
+        }
+        if (frame != null) {
+            route(contractAddress, frame.append("]}").toString(), frameBytes + 2);
+        }
+    }
+    
+    /**
+     * Assign the alert its id and append it to the contract's journal
+     *
+     * @return the alert serialized with its id, as UTF-8
+     */
+    private byte[] journal(String contractAddress, ProtectionAlert alert) {
+        ContractProtectionConfig config = protectionConfigs.get(contractAddress);
+        if (config == null || !alertJournal.isEnabled()) {
+            if (config != null) alert.alertId = config.lastAlertId.incrementAndGet();
+            return toJson(alert).getBytes(StandardCharsets.UTF_8);
+        }
         
+        byte[][] serialized = new byte[1][];
         try {
-            String alertJson = String.format("""
-                {
-                    "type": "%s",
-                    "contractAddress": "%s",
-                    "threatLevel": "%s",
-                    "description": "%s",
-                    "recommendedAction": "%s",
-                    "timestamp": "%s"
-                }
-                """, 
-                alert.alertType, 
-                alert.contractAddress, 
-                alert.threatLevel, 
-                alert.description,
-                alert.recommendedAction,
-                alert.timestamp
-            );
-            
-            TextMessage message = new TextMessage(alertJson);
+            long id = alertJournal.append(contractAddress, config.lastAlertId.get(), alertId -> {
+                alert.alertId = alertId;
+                serialized[0] = toJson(alert).getBytes(StandardCharsets.UTF_8);
+                return serialized[0];
+            });
+            config.lastAlertId.accumulateAndGet(id, Math::max);
+            return serialized[0];
+        } catch (Exception e) {
+            // Live delivery must not depend on the disk
+            System.err.println("❌ Failed to journal alert for " + contractAddress + ": " + e.getMessage());
+            return serialized[0] != null ? serialized[0] : toJson(alert).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+    
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to serialize alert", e);
+        }
+    }
+    
+    private static int utf8Length(String text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+    
+    /**
+     * Largest alert frame, in UTF-8 bytes, that fits in one bus message for the contract
+     */
+    private int remoteFrameBudget(String contractAddress) {
+        return clusterBus.maxMessageBytes() - utf8Length("A" + contractAddress + "\n");
+    }
+    
+    /**
+     * Deliver a serialized alert to every replica with clients for the contract.
+     * The payload is serialized once here and reused by every replica and session.
+     * A frame too large for the bus reaches local sessions only; remote clients
+     * still get it from the journal on replay.
+     */
+    private void route(String contractAddress, String json, int jsonBytes) {
+        Map<String, Long> replicas = evaluatedContracts.get(contractAddress);
+        if (replicas == null) return;
+        
+        boolean fitsBus = jsonBytes <= remoteFrameBudget(contractAddress);
+        for (String replica : replicas.keySet()) {
+            if (replica.equals(clusterMembership.getReplicaId())) {
+                sendFrame(contractAddress, sendQueueService.frameFromJson(json));
+            } else if (fitsBus) {
+                clusterBus.publish(ClusterMembershipService.replicaChannel(replica), "A" + contractAddress + "\n" + json);
+            } else {
+                System.err.println("⚠️ Alert frame for " + contractAddress + " is " + jsonBytes
+                    + " bytes, over the cluster bus limit; " + replica + " must replay it from the journal");
+            }
+        }
+    }
+    
+    /**
+     * Messages on this replica's private channel: A = alert frame for a contract's
+     * sessions, S = frame for one session, R = replay request from another replica
+     */
+    private void onRemoteFrame(String message) {
+        if (message.isEmpty()) return;
+        char kind = message.charAt(0);
+        if (kind == 'R') {
+            try {
+                Map<?, ?> request = objectMapper.readValue(message.substring(1), Map.class);
+                String contractAddress = (String) request.get("contract");
+                long afterId = ((Number) request.get("afterId")).longValue();
+                String replica = (String) request.get("replica");
+                String sessionId = (String) request.get("session");
+                protectionScheduler.execute(() -> replay(contractAddress, afterId, replica, sessionId));
+            } catch (Exception e) {
+                System.err.println("❌ Invalid replay request: " + e.getMessage());
+            }
+            return;
+        }
+        
+        int separator = message.indexOf('\n');
+        if (separator < 0) return;
+        String target = message.substring(1, separator);
+        OutboundFrame frame = sendQueueService.frameFromJson(message.substring(separator + 1));
+        if (kind == 'A') {
+            sendFrame(target, frame);
+        } else if (kind == 'S') {
+            sendQueueService.enqueueBurst(target, frame);
+        }
+    }
+    
+    private void requestReplay(String contractAddress, String sessionId, long afterId) {
+        String owner = clusterMembership.ownerOf(contractAddress);
+        if (clusterMembership.getReplicaId().equals(owner)) {
+            protectionScheduler.execute(() -> replay(contractAddress, afterId, owner, sessionId));
+            return;
+        }
+        clusterBus.publish(ClusterMembershipService.replicaChannel(owner), "R" + toJson(Map.of(
+            "contract", contractAddress,
+            "afterId", afterId,
+            "replica", clusterMembership.getReplicaId(),
+            "session", sessionId
+        )));
+    }
+    
+    /**
+     * Stream journaled alerts after {@code afterId} to one session as ALERT_REPLAY frames.
+     * Record bytes are copied from the mapped journal straight into the frames, without
+     * parsing or re-serializing. Replay can overlap live alerts; clients skip ids they have seen.
+     */
+    private void replay(String contractAddress, long afterId, String replica, String sessionId) {
+        try {
+            boolean local = replica.equals(clusterMembership.getReplicaId());
+            int busBudget = clusterBus.maxMessageBytes() - utf8Length("S" + sessionId + "\n");
+            int frameBudget = Math.min(replayFrameBytes, busBudget);
+            long firstAvailable = alertJournal.getFirstAvailableId(contractAddress);
+            List<AlertJournal.Entry> entries = alertJournal.readAfter(contractAddress, afterId, maxReplayAlerts + 1);
+            boolean truncated = entries.size() > maxReplayAlerts;
+            if (truncated) entries = entries.subList(0, maxReplayAlerts);
             
-            // Send to all connected sessions for this contract
-            Iterator<WebSocketSession> iterator = sessions.iterator();
-            while (iterator.hasNext()) {
-                WebSocketSession session = iterator.next();
-                try {
-                    if (session.isOpen()) {
-                        session.sendMessage(message);
-                        System.out.println("📡 Alert sent: " + alert.alertType + " for " + contractAddress);
-                    } else {
-                        iterator.remove(); // Remove closed sessions
-                    }
-                } catch (Exception e) {
-                    System.err.println("❌ Failed to send alert: " + e.getMessage());
-                    iterator.remove();
+            // Sizes are in UTF-8 bytes, the unit of the bus limit
+            String header = "{\"type\":\"ALERT_REPLAY\",\"contractAddress\":" + toJson(contractAddress)
+                + ",\"gap\":" + (afterId + 1 < firstAvailable) + ",\"alerts\":[";
+            int headerBytes = utf8Length(header);
+            StringBuilder frame = new StringBuilder(header);
+            int frameBytes = headerBytes;
+            int inFrame = 0;
+            int omitted = 0;
+            for (AlertJournal.Entry entry : entries) {
+                int alertBytes = entry.json().length;
+                if (!local && headerBytes + alertBytes + REPLAY_TRAILER_BYTES > busBudget) {
+                    // Cannot cross the bus even alone; the client learns how many were left out
+                    omitted++;
+                    continue;
+                }
+                if (inFrame > 0 && frameBytes + alertBytes + 1 + REPLAY_TRAILER_BYTES > frameBudget) {
+                    deliverReplayFrame(local, replica, sessionId, frame.append("],\"complete\":false}").toString());
+                    frame = new StringBuilder(header);
+                    frameBytes = headerBytes;
+                    inFrame = 0;
                 }
+                if (inFrame > 0) {
+                    frame.append(',');
+                    frameBytes++;
+                }
+                frame.append(new String(entry.json(), StandardCharsets.UTF_8));
+                frameBytes += alertBytes;
+                inFrame++;
             }
+            deliverReplayFrame(local, replica, sessionId, frame.append("],\"complete\":true,\"truncated\":")
+                .append(truncated).append(",\"omitted\":").append(omitted)
+                .append(",\"lastAlertId\":").append(alertJournal.getLastId(contractAddress)).append('}').toString());
+            System.out.println("📓 Replayed " + entries.size() + " alerts for " + contractAddress + " after #" + afterId);
         } catch (Exception e) {
-            System.err.println("❌ Error creating alert: " + e.getMessage());
+            System.err.println("❌ Alert replay failed for " + contractAddress + ": " + e.getMessage());
+        }
+    }
+    
+    private void deliverReplayFrame(boolean local, String replica, String sessionId, String json) {
+        if (local) {
+            sendQueueService.enqueueBurst(sessionId, sendQueueService.frameFromJson(json));
+        } else {
+            clusterBus.publish(ClusterMembershipService.replicaChannel(replica), "S" + sessionId + "\n" + json);
         }
     }
     
+    private void sendFrame(String contractAddress, OutboundFrame frame) {
+        Set<WebSocketSession> sessions = protectedContracts.get(contractAddress);
+        if (sessions == null) return;
+        
+        // The frame is serialized once and shared by every session's send queue
+        sessions.removeIf(session -> !sendQueueService.enqueue(session, frame));
+    }
+    
     /**
-     * Get protection status for a contract
+     * Get protection status for a contract. Evaluation state is only known to the
+     * owning replica; connection state only to the replicas holding the sockets.
      */
     public Map<String, Object> getProtectionStatus(String contractAddress) {
+        contractAddress = contractAddress.toLowerCase();
         ContractProtectionConfig config = protectionConfigs.get(contractAddress);
-        boolean isProtected = config != null;
+        Set<WebSocketSession> sessions = protectedContracts.getOrDefault(contractAddress, Set.of());
+        boolean isProtected = config != null || !sessions.isEmpty();
         
         Map<String, Object> status = new HashMap<>();
         status.put("protected", isProtected);
         status.put("contractAddress", contractAddress);
+        status.put("ownerReplica", clusterMembership.ownerOf(contractAddress));
         
-        if (isProtected) {
+        if (!sessions.isEmpty()) {
+            status.put("activeConnections", sessions.size());
+            status.put("sessions", sessions.stream().map(sendQueueService::getSessionStats).toList());
+        }
+        if (config != null) {
             status.put("enabledAt", config.enabledAt);
-            status.put("alertCount", config.alertCount);
-            status.put("activeConnections", protectedContracts.get(contractAddress).size());
+            status.put("alertCount", config.alertCount.sum());
+            status.put("lastAlertId", config.lastAlertId.get());
+            status.put("rules", ruleEngine.getRuleCount(contractAddress));
+            status.put("throttle", config.throttle.getStats(System.currentTimeMillis()));
+            status.put("gas", gasPriceStats.getContractStats(contractAddress));
+            status.put("subscribedReplicas", evaluatedContracts.getOrDefault(contractAddress, Map.of()).keySet());
             status.put("config", Map.of(
                 "alertOnSandwich", config.alertOnSandwich,
                 "alertOnFrontrun", config.alertOnFrontrun,
@@ -262,11 +1019,24 @@ public class RealTimeProtectionService {
     public Map<String, Object> getProtectionStats() {
         Map<String, Object> stats = new HashMap<>();
         stats.put("totalProtectedContracts", protectedContracts.size());
+        stats.put("evaluatedContracts", evaluatedContracts.size());
+        stats.put("maxContracts", maxContracts);
+        stats.put("maxPerCustomer", maxPerCustomer);
         stats.put("activeConnections", protectedContracts.values().stream().mapToInt(Set::size).sum());
         
-        int totalAlerts = protectionConfigs.values().stream().mapToInt(config -> config.alertCount).sum();
+        long totalAlerts = protectionConfigs.values().stream().mapToLong(config -> config.alertCount.sum()).sum();
         stats.put("totalAlerts", totalAlerts);
+        stats.put("mempool", mempoolMonitorService.getStats());
+        stats.put("delivery", sendQueueService.getStats());
+        stats.put("cluster", clusterMembership.getClusterStats());
+        stats.put("rules", ruleEngine.getStats());
         
         return stats;
     }
+    
+    @PreDestroy
+    public void cleanup() {
+        persistAlertIds();
+        protectionScheduler.shutdown();
+    }
 }
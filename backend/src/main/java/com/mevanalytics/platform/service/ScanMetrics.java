@@ -0,0 +1,122 @@
+package com.mevanalytics.platform.service;
+
+import com.mevanalytics.platform.dto.ScanResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scan counters and per-stage latency, kept as scans run. Counts by status, risk
+ * level and vulnerability type are Micrometer counters. Stage latencies are timers
+ * backed by HDR histograms. Both are published under /actuator/metrics and summarized
+ * for the scanner stats endpoint, so a stats read never walks stored results.
+ */
+@Service
+public class ScanMetrics {
+    
+    public enum Stage {
+        CODE_FETCH, PROXY_RESOLUTION, DISASSEMBLY, CONTROL_FLOW, DETECTION, MEMPOOL, TOTAL;
+        
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+    
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Percentiles describe this much recent history
+    @Value("${scanner.metrics.window-minutes:10}")
+    private long windowMinutes;
+    
+    private final Map<Stage, Timer> stages = new EnumMap<>(Stage.class);
+    private final Map<String, Counter> byStatus = new ConcurrentHashMap<>();
+    private final Map<String, Counter> byRiskLevel = new ConcurrentHashMap<>();
+    private final Map<String, Counter> byVulnerability = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void initialize() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, Timer.builder("scanner.stage.duration")
+                .description("Time spent in each contract scan stage")
+                .tag("stage", stage.tag())
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .distributionStatisticExpiry(Duration.ofMinutes(windowMinutes))
+                .register(meterRegistry));
+        }
+    }
+    
+    public void record(Stage stage, long startNanos) {
+        stages.get(stage).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Count a finished scan by status and, when it completed, by risk and findings
+     */
+    public void recordScan(ScanResult result) {
+        count(byStatus, "scanner.scans", "status", result.getStatus());
+        if (result.getScanDurationMs() != null) {
+            stages.get(Stage.TOTAL).record(result.getScanDurationMs(), TimeUnit.MILLISECONDS);
+        }
+        if (!"COMPLETED".equals(result.getStatus())) return;
+        count(byRiskLevel, "scanner.scans.risk", "level", result.getRiskLevel());
+        if (result.getVulnerabilities() != null && result.getVulnerabilities().getDetails() != null) {
+            for (ScanResult.VulnerabilityDetail detail : result.getVulnerabilities().getDetails()) {
+                count(byVulnerability, "scanner.vulnerabilities", "type", detail.getType());
+            }
+        }
+    }
+    
+    private void count(Map<String, Counter> counters, String name, String tag, String value) {
+        String key = value != null ? value : "UNKNOWN";
+        counters.computeIfAbsent(key, k -> meterRegistry.counter(name, tag, k)).increment();
+    }
+    
+    public long getCount(String status) {
+        Counter counter = byStatus.get(status);
+        return counter != null ? (long) counter.count() : 0;
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("byStatus", counts(byStatus));
+        stats.put("byRiskLevel", counts(byRiskLevel));
+        stats.put("byVulnerabilityType", counts(byVulnerability));
+        
+        Map<String, Object> latency = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            HistogramSnapshot snapshot = stages.get(stage).takeSnapshot();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", snapshot.count());
+            summary.put("meanMs", snapshot.mean(TimeUnit.MILLISECONDS));
+            summary.put("maxMs", snapshot.max(TimeUnit.MILLISECONDS));
+            for (ValueAtPercentile value : snapshot.percentileValues()) {
+                summary.put("p" + Math.round(value.percentile() * 100) + "Ms", value.value(TimeUnit.MILLISECONDS));
+            }
+            latency.put(stage.tag(), summary);
+        }
+        stats.put("stageLatency", latency);
+        stats.put("windowMinutes", windowMinutes);
+        return stats;
+    }
+    
+    private static Map<String, Long> counts(Map<String, Counter> counters) {
+        Map<String, Long> counts = new TreeMap<>();
+        counters.forEach((key, counter) -> counts.put(key, (long) counter.count()));
+        return counts;
+    }
+}
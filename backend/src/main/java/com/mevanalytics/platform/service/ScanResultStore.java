@@ -0,0 +1,297 @@
+package com.mevanalytics.platform.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mevanalytics.platform.dto.ScanResult;
+import com.mevanalytics.platform.repository.ContractScanRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Where scan results live. Pending and running scans stay in memory until they finish.
+ * Finished results go into a bounded LRU of recent scans and are written behind to the
+ * contract_scans table in JDBC batches. Lookups fall through memory to Postgres, so
+ * memory stays flat however many scans have run.
+ *
+ * Each address keeps an index of the scan ids currently held in memory. History
+ * merges that index with an indexed query on contract_scans.
+ */
+@Service
+public class ScanResultStore {
+    
+    @Autowired
+    private ContractScanRepository scanRepository;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${scanner.results.max-entries:10000}")
+    private int maxEntries;
+    
+    @Value("${scanner.results.persist:true}")
+    private boolean persist;
+    
+    @Value("${scanner.results.persist-queue-size:20000}")
+    private int persistQueueSize;
+    
+    @Value("${scanner.results.persist-batch-size:500}")
+    private int persistBatchSize;
+    
+    @Value("${scanner.results.max-persisted:1000000}")
+    private int maxPersisted;
+    
+    @Value("${scanner.results.history-limit:100}")
+    private int historyLimit;
+    
+    // Ids come in blocks from contract_scan_id_seq so replicas never hand out the same one
+    private long nextScanId = 1;
+    private long scanIdBlockEnd = 0;
+    // Fallback while Postgres is unreachable: negative, never persisted, never shared
+    private final AtomicLong localScanIds = new AtomicLong();
+    private final Map<Long, ScanResult> active = new ConcurrentHashMap<>();
+    private final Map<Long, ScanResult> recent = new LinkedHashMap<>(1024, 0.75f, true);
+    // Queued for Postgres; still readable if the LRU has already dropped them
+    private final Map<Long, ScanResult> unflushed = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> byAddress = new ConcurrentHashMap<>();
+    private BlockingQueue<ScanResult> persistQueue;
+    
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong droppedWrites = new AtomicLong();
+    private final AtomicLong databaseReads = new AtomicLong();
+    
+    @PostConstruct
+    public void initialize() {
+        persistQueue = new LinkedBlockingQueue<>(persistQueueSize);
+        if (!persist) return;
+        try {
+            scanRepository.advanceScanIdSequence();
+        } catch (Exception e) {
+            System.err.println("❌ Failed to advance scan id sequence: " + e.getMessage());
+        }
+    }
+    
+    public synchronized Long nextScanId() {
+        if (!persist) {
+            return localScanIds.incrementAndGet();
+        }
+        if (nextScanId > scanIdBlockEnd) {
+            try {
+                nextScanId = scanRepository.allocateScanIds();
+                scanIdBlockEnd = nextScanId + ContractScanRepository.SCAN_ID_BLOCK - 1;
+            } catch (Exception e) {
+                System.err.println("❌ Failed to allocate scan ids: " + e.getMessage());
+                return -localScanIds.incrementAndGet();
+            }
+        }
+        return nextScanId++;
+    }
+    
+    /**
+     * Hold a PENDING or RUNNING scan until it finishes
+     */
+    public void track(ScanResult result) {
+        active.put(result.getScanId(), result);
+        index(result);
+    }
+    
+    /**
+     * Drop a scan that was never started
+     */
+    public void discard(ScanResult result) {
+        active.remove(result.getScanId());
+        forget(result);
+    }
+    
+    /**
+     * Record a COMPLETED or FAILED scan
+     */
+    public void finish(ScanResult result) {
+        remember(result);
+        active.remove(result.getScanId());
+        // Rows without a well-formed address (rejected batch entries) are not worth keeping
+        // Local fallback ids (negative) could clash with another replica's, so they stay in memory
+        if (persist && result.getScanId() > 0
+                && result.getContractAddress() != null && result.getContractAddress().length() == 42) {
+            unflushed.put(result.getScanId(), result);
+            if (!persistQueue.offer(result)) {
+                unflushed.remove(result.getScanId());
+                droppedWrites.incrementAndGet();
+            }
+        }
+    }
+    
+    public Optional<ScanResult> get(Long scanId) {
+        ScanResult result = active.get(scanId);
+        if (result == null) {
+            synchronized (recent) {
+                result = recent.get(scanId);
+            }
+        }
+        if (result == null) result = unflushed.get(scanId);
+        if (result == null && persist) {
+            try {
+                Optional<String> stored = scanRepository.find(scanId);
+                if (stored.isPresent()) {
+                    databaseReads.incrementAndGet();
+                    result = objectMapper.readValue(stored.get(), ScanResult.class);
+                    remember(result);
+                }
+            } catch (Exception e) {
+                System.err.println("❌ Failed to read scan #" + scanId + ": " + e.getMessage());
+            }
+        }
+        return Optional.ofNullable(result);
+    }
+    
+    /**
+     * Newest scans of an address first, at most scanner.results.history-limit
+     */
+    public List<ScanResult> history(String contractAddress) {
+        Map<Long, ScanResult> merged = new HashMap<>();
+        if (persist) {
+            try {
+                for (String json : scanRepository.findByAddress(contractAddress, historyLimit)) {
+                    ScanResult stored = objectMapper.readValue(json, ScanResult.class);
+                    merged.put(stored.getScanId(), stored);
+                }
+                databaseReads.incrementAndGet();
+            } catch (Exception e) {
+                System.err.println("❌ Failed to read scan history for " + contractAddress + ": " + e.getMessage());
+            }
+        }
+        // In-memory copies win: they include scans still running or not yet flushed
+        for (Long scanId : byAddress.getOrDefault(contractAddress.toLowerCase(), Set.of())) {
+            ScanResult held = held(scanId);
+            if (held != null) merged.put(scanId, held);
+        }
+        return merged.values().stream()
+            .sorted(Comparator.comparing(ScanResult::getScanId).reversed())
+            .limit(historyLimit)
+            .toList();
+    }
+    
+    /**
+     * Write finished scans to Postgres in JDBC batches
+     */
+    @Scheduled(fixedDelayString = "${scanner.results.flush-interval-ms:1000}")
+    public void flush() {
+        while (!persistQueue.isEmpty()) {
+            List<ScanResult> batch = new ArrayList<>(persistBatchSize);
+            persistQueue.drainTo(batch, persistBatchSize);
+            try {
+                List<String> json = new ArrayList<>(batch.size());
+                for (ScanResult result : batch) json.add(compact(result));
+                scanRepository.insertBatch(batch, json);
+                persisted.addAndGet(batch.size());
+            } catch (Exception e) {
+                droppedWrites.addAndGet(batch.size());
+                System.err.println("❌ Failed to persist " + batch.size() + " scan results: " + e.getMessage());
+            } finally {
+                for (ScanResult result : batch) {
+                    unflushed.remove(result.getScanId());
+                    forget(result);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Keep the persistent tier bounded, dropping the oldest scans
+     */
+    @Scheduled(fixedDelayString = "${scanner.results.prune-interval-ms:3600000}")
+    public void prune() {
+        if (!persist) return;
+        try {
+            int deleted = scanRepository.prune(maxPersisted);
+            if (deleted > 0) {
+                System.out.println("🧹 Pruned " + deleted + " stored scan results");
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Failed to prune scan results: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Stored form of a result: the per-function breakdown stays with the bytecode
+     * analysis for its code hash, and null fields are left out
+     */
+    private String compact(ScanResult result) throws Exception {
+        ObjectNode node = objectMapper.valueToTree(result);
+        node.remove("functions");
+        List<String> nulls = new ArrayList<>();
+        node.fieldNames().forEachRemaining(name -> {
+            if (node.get(name).isNull()) nulls.add(name);
+        });
+        node.remove(nulls);
+        return objectMapper.writeValueAsString(node);
+    }
+    
+    private void remember(ScanResult result) {
+        index(result);
+        List<ScanResult> evicted = new ArrayList<>();
+        synchronized (recent) {
+            recent.put(result.getScanId(), result);
+            Iterator<ScanResult> eldest = recent.values().iterator();
+            while (recent.size() > maxEntries && eldest.hasNext()) {
+                evicted.add(eldest.next());
+                eldest.remove();
+            }
+        }
+        evicted.forEach(this::forget);
+    }
+    
+    /**
+     * The in-memory copy of a scan, if any tier still holds it
+     */
+    private ScanResult held(Long scanId) {
+        ScanResult result = active.get(scanId);
+        if (result == null) result = unflushed.get(scanId);
+        if (result != null) return result;
+        synchronized (recent) {
+            return recent.get(scanId);
+        }
+    }
+    
+    private void index(ScanResult result) {
+        if (result.getContractAddress() == null) return;
+        byAddress.computeIfAbsent(result.getContractAddress().toLowerCase(), k -> new ConcurrentSkipListSet<>())
+            .add(result.getScanId());
+    }
+    
+    /**
+     * Unindex a scan once no in-memory tier holds it
+     */
+    private void forget(ScanResult result) {
+        Long scanId = result.getScanId();
+        if (result.getContractAddress() == null || held(scanId) != null) return;
+        byAddress.computeIfPresent(result.getContractAddress().toLowerCase(), (address, ids) -> {
+            ids.remove(scanId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (recent) {
+            stats.put("recent", recent.size());
+        }
+        stats.put("active", active.size());
+        stats.put("unflushed", unflushed.size());
+        stats.put("indexedAddresses", byAddress.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("persisted", persisted.get());
+        stats.put("droppedWrites", droppedWrites.get());
+        stats.put("databaseReads", databaseReads.get());
+        return stats;
+    }
+}
@@ -0,0 +1,190 @@
+package com.mevanalytics.platform.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs contract scans on a fixed pool of workers fed from bounded per-tier lanes.
+ * Workers take from the lanes in weighted round-robin (enterprise 4, professional 2,
+ * starter 1), so higher tiers are served first under load without starving the rest.
+ * A full lane rejects new work instead of growing, and callers turn that into a 429.
+ */
+@Service
+public class ScanScheduler {
+    
+    public enum Tier {
+        ENTERPRISE, PROFESSIONAL, STARTER;
+        
+        /**
+         * Lane for a subscription tier; requests without a known tier share the starter lane
+         */
+        public static Tier of(String subscriptionTier) {
+            if (subscriptionTier == null) return STARTER;
+            try {
+                return valueOf(subscriptionTier.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return STARTER;
+            }
+        }
+    }
+    
+    private static final Tier[] SCHEDULE = {
+        Tier.ENTERPRISE, Tier.PROFESSIONAL, Tier.ENTERPRISE, Tier.STARTER,
+        Tier.ENTERPRISE, Tier.PROFESSIONAL, Tier.ENTERPRISE
+    };
+    
+    @Value("${scanner.workers:4}")
+    private int workerCount;
+    
+    @Value("${scanner.queue.capacity-per-tier:200}")
+    private int capacityPerTier;
+    
+    private record Job(Runnable task, long enqueuedAt) {}
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Map<Tier, ArrayDeque<Job>> lanes = new EnumMap<>(Tier.class);
+    private final Map<Tier, AtomicLong> submitted = new EnumMap<>(Tier.class);
+    private final Map<Tier, AtomicLong> rejected = new EnumMap<>(Tier.class);
+    private final Map<Tier, AtomicLong> totalWaitMs = new EnumMap<>(Tier.class);
+    private final Map<Tier, AtomicLong> started = new EnumMap<>(Tier.class);
+    private final AtomicInteger running = new AtomicInteger();
+    private final List<Thread> workers = new ArrayList<>();
+    private int turn = 0;
+    private volatile boolean shuttingDown = false;
+    
+    @PostConstruct
+    public void start() {
+        for (Tier tier : Tier.values()) {
+            lanes.put(tier, new ArrayDeque<>());
+            submitted.put(tier, new AtomicLong());
+            rejected.put(tier, new AtomicLong());
+            totalWaitMs.put(tier, new AtomicLong());
+            started.put(tier, new AtomicLong());
+        }
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::work, "scan-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        System.out.println("🧵 Scan scheduler started: " + workerCount + " workers, " + capacityPerTier + " queued scans per tier");
+    }
+    
+    /**
+     * Queue a scan in its tier's lane
+     *
+     * @throws RejectedExecutionException if the lane is full
+     */
+    public void submit(Tier tier, Runnable task) {
+        lock.lock();
+        try {
+            ArrayDeque<Job> lane = lanes.get(tier);
+            if (shuttingDown || lane.size() >= capacityPerTier) {
+                rejected.get(tier).incrementAndGet();
+                throw new RejectedExecutionException("Scan queue for " + tier + " is full");
+            }
+            lane.addLast(new Job(task, System.currentTimeMillis()));
+            submitted.get(tier).incrementAndGet();
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void work() {
+        while (!shuttingDown) {
+            Job job;
+            lock.lock();
+            try {
+                Tier tier;
+                while ((tier = nextTier()) == null) {
+                    if (shuttingDown) return;
+                    available.await();
+                }
+                job = lanes.get(tier).pollFirst();
+                started.get(tier).incrementAndGet();
+                totalWaitMs.get(tier).addAndGet(System.currentTimeMillis() - job.enqueuedAt());
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            
+            running.incrementAndGet();
+            try {
+                job.task().run();
+            } catch (Exception e) {
+                System.err.println("❌ Scan job failed: " + e.getMessage());
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+    
+    /**
+     * Next non-empty lane in schedule order; caller holds the lock
+     */
+    private Tier nextTier() {
+        for (int k = 0; k < SCHEDULE.length; k++) {
+            Tier tier = SCHEDULE[(turn + k) % SCHEDULE.length];
+            if (!lanes.get(tier).isEmpty()) {
+                turn = (turn + k + 1) % SCHEDULE.length;
+                return tier;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Scans waiting in a tier's lane
+     */
+    public int getQueueDepth(Tier tier) {
+        lock.lock();
+        try {
+            return lanes.get(tier).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        Map<String, Object> tiers = new LinkedHashMap<>();
+        for (Tier tier : Tier.values()) {
+            long startedCount = started.get(tier).get();
+            Map<String, Object> lane = new HashMap<>();
+            lane.put("queued", getQueueDepth(tier));
+            lane.put("submitted", submitted.get(tier).get());
+            lane.put("rejected", rejected.get(tier).get());
+            lane.put("avgQueueWaitMs", startedCount > 0 ? totalWaitMs.get(tier).get() / startedCount : 0);
+            tiers.put(tier.name(), lane);
+        }
+        stats.put("tiers", tiers);
+        stats.put("workers", workerCount);
+        stats.put("running", running.get());
+        stats.put("capacityPerTier", capacityPerTier);
+        return stats;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        lock.lock();
+        try {
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        workers.forEach(Thread::interrupt);
+    }
+}
@@ -0,0 +1,50 @@
+package com.mevanalytics.platform.service;
+
+import com.mevanalytics.platform.evm.Signature;
+
+import java.util.List;
+
+/**
+ * Built-in detection signatures run by the contract scanner. Each one names the finding it
+ * indicates; adding a signature here costs nothing per scan beyond the matches it reports.
+ * Changing this list changes scan results, so bump ContractScannerService.ANALYZER_VERSION.
+ */
+final class ScanSignatures {
+    
+    static final List<Signature> BUILT_IN = List.of(
+        // Token movement and DEX swaps: the contract trades or moves value through pools
+        Signature.selector("erc20-transfer", "mev_vulnerable", "0xa9059cbb"),
+        Signature.selector("erc20-transfer-from", "mev_vulnerable", "0x23b872dd"),
+        Signature.selector("v2-pair-swap", "mev_vulnerable", "0x022c0d9f"),
+        Signature.selector("v2-swap-exact-tokens-for-tokens", "mev_vulnerable", "0x38ed1739"),
+        Signature.selector("v2-swap-tokens-for-exact-tokens", "mev_vulnerable", "0x8803dbee"),
+        Signature.selector("v2-swap-exact-eth-for-tokens", "mev_vulnerable", "0x7ff36ab5"),
+        Signature.selector("v2-swap-tokens-for-exact-eth", "mev_vulnerable", "0x4a25d94a"),
+        Signature.selector("v2-swap-exact-tokens-for-eth", "mev_vulnerable", "0x18cbafe5"),
+        Signature.selector("v2-swap-eth-for-exact-tokens", "mev_vulnerable", "0xfb3bdb41"),
+        Signature.selector("v2-swap-exact-tokens-for-tokens-fot", "mev_vulnerable", "0x5c11d795"),
+        Signature.selector("v2-swap-exact-eth-for-tokens-fot", "mev_vulnerable", "0xb6f9de95"),
+        Signature.selector("v2-swap-exact-tokens-for-eth-fot", "mev_vulnerable", "0x791ac947"),
+        Signature.selector("v3-exact-input-single", "mev_vulnerable", "0x414bf389"),
+        Signature.selector("v3-exact-input", "mev_vulnerable", "0xc04b8d59"),
+        Signature.selector("v3-exact-output-single", "mev_vulnerable", "0xdb3e2198"),
+        Signature.selector("v3-exact-output", "mev_vulnerable", "0xf28c0498"),
+        
+        // Code execution in the contract's own context
+        Signature.sequence("delegatecall", "delegatecall", "DELEGATECALL"),
+        Signature.sequence("callcode", "delegatecall", "CALLCODE"),
+        
+        Signature.sequence("selfdestruct", "selfdestruct", "SELFDESTRUCT"),
+        Signature.sequence("selfdestruct-to-caller", "selfdestruct", "CALLER SELFDESTRUCT"),
+        
+        Signature.sequence("tx-origin", "tx_origin", "ORIGIN"),
+        Signature.sequence("tx-origin-is-caller", "tx_origin", "ORIGIN CALLER EQ"),
+        Signature.sequence("caller-is-tx-origin", "tx_origin", "CALLER ORIGIN EQ"),
+        
+        Signature.sequence("prevrandao", "weak_randomness", "PREVRANDAO"),
+        Signature.sequence("previous-blockhash", "weak_randomness", "NUMBER SUB BLOCKHASH")
+    );
+    
+    private ScanSignatures() {
+    }
+}
@@ -0,0 +1,309 @@
+package com.mevanalytics.platform.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbound WebSocket delivery. Every session gets a bounded queue and at most one
+ * in-flight send, drained on a sender pool that grows with the sessions sending, so
+ * enqueueing never blocks the caller and a stalled client only backs up its own queue.
+ */
+@Service
+public class SessionSendQueueService {
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${protection.ws.queue-size:256}")
+    private int queueSize;
+    
+    @Value("${protection.ws.overflow-policy:DROP}")
+    private OverflowPolicy defaultPolicy;
+    
+    @Value("${protection.ws.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+    
+    private final Map<String, OutboundSession> sessions = new ConcurrentHashMap<>();
+    private ObjectMapper cborMapper;
+    private ExecutorService senderPool;
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicLong disconnectedSlow = new AtomicLong();
+    
+    public enum OverflowPolicy {
+        DROP,       // discard the oldest queued message
+        COALESCE,   // discard the oldest and tell the client how many it missed
+        DISCONNECT  // close the session; the client reconnects and resyncs
+    }
+    
+    private record Outbound(OutboundFrame frame, long enqueuedAtNanos) {}
+    
+    public class OutboundSession {
+        final WebSocketSession session;
+        final OverflowPolicy policy;
+        final OutboundFrame.Encoding encoding;
+        final ArrayDeque<Outbound> queue = new ArrayDeque<>();
+        final AtomicBoolean draining = new AtomicBoolean(false);
+        final AtomicBoolean closing = new AtomicBoolean(false);
+        final AtomicLong enqueued = new AtomicLong();
+        final AtomicLong sent = new AtomicLong();
+        final AtomicLong dropped = new AtomicLong();
+        volatile long sendStartedNanos = 0; // 0 when no send is in flight
+        volatile long lastLagNanos = 0;
+        volatile long maxLagNanos = 0;
+        long coalesced = 0;
+        
+        OutboundSession(WebSocketSession session, OverflowPolicy policy, OutboundFrame.Encoding encoding) {
+            this.session = session;
+            this.policy = policy;
+            this.encoding = encoding;
+        }
+        
+        boolean offer(OutboundFrame frame, boolean bounded) {
+            synchronized (queue) {
+                if (closing.get()) {
+                    return false;
+                }
+                if (bounded && queue.size() >= queueSize) {
+                    if (policy == OverflowPolicy.DISCONNECT) {
+                        // Only mark it here; closing can block on the socket, so it runs on the sender pool
+                        closing.set(true);
+                        queue.clear();
+                    } else {
+                        queue.pollFirst();
+                        dropped.incrementAndGet();
+                        if (policy == OverflowPolicy.COALESCE) {
+                            coalesced++;
+                        }
+                    }
+                }
+                if (!closing.get()) {
+                    queue.addLast(new Outbound(frame, System.nanoTime()));
+                }
+            }
+            if (closing.get()) {
+                disconnectedSlow.incrementAndGet();
+                senderPool.execute(() -> close(CloseStatus.SESSION_NOT_RELIABLE));
+                return false;
+            }
+            enqueued.incrementAndGet();
+            scheduleDrain();
+            return true;
+        }
+        
+        void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                senderPool.execute(this::drain);
+            }
+        }
+        
+        void drain() {
+            try {
+                while (session.isOpen() && !closing.get()) {
+                    Outbound next;
+                    long skipped;
+                    synchronized (queue) {
+                        next = queue.pollFirst();
+                        skipped = coalesced;
+                        coalesced = 0;
+                    }
+                    if (skipped > 0) {
+                        send(frame(Map.of("type", "ALERTS_COALESCED", "skipped", skipped)));
+                    }
+                    if (next == null) break;
+                    
+                    send(next.frame());
+                    long lag = System.nanoTime() - next.enqueuedAtNanos();
+                    lastLagNanos = lag;
+                    if (lag > maxLagNanos) maxLagNanos = lag;
+                    sent.incrementAndGet();
+                }
+            } catch (Exception e) {
+                System.err.println("❌ Failed to send to session " + session.getId() + ": " + e.getMessage());
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            
+            // Re-check after releasing the drain flag so a concurrent offer is never stranded
+            synchronized (queue) {
+                if (queue.isEmpty() && coalesced == 0) return;
+            }
+            if (session.isOpen() && !closing.get()) scheduleDrain();
+        }
+        
+        private void send(OutboundFrame frame) throws Exception {
+            sendStartedNanos = System.nanoTime();
+            try {
+                session.sendMessage(frame.message(encoding));
+            } finally {
+                sendStartedNanos = 0;
+            }
+        }
+        
+        void close(CloseStatus status) {
+            closing.set(true);
+            sessions.remove(session.getId());
+            try {
+                session.close(status);
+            } catch (Exception ignored) {
+                // already closed
+            }
+        }
+        
+        long oldestQueuedNanos(long now) {
+            synchronized (queue) {
+                Outbound oldest = queue.peekFirst();
+                return oldest == null ? 0 : now - oldest.enqueuedAtNanos();
+            }
+        }
+    }
+    
+    @PostConstruct
+    public void initialize() {
+        cborMapper = objectMapper.copyWith(new CBORFactory());
+        // Grows with the sessions that have a send in flight, at most one thread each,
+        // so stalled clients never hold up delivery to the others
+        senderPool = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "ws-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(this::closeStalledSessions, 1, 1, TimeUnit.SECONDS);
+        System.out.println("📤 WebSocket send queues ready (" + queueSize + " per session, " + defaultPolicy + ")");
+    }
+    
+    /**
+     * Register a session. A null policy uses protection.ws.overflow-policy, a null encoding JSON.
+     */
+    public void register(WebSocketSession session, OverflowPolicy policy, OutboundFrame.Encoding encoding) {
+        sessions.put(session.getId(), new OutboundSession(session,
+            policy != null ? policy : defaultPolicy,
+            encoding != null ? encoding : OutboundFrame.Encoding.JSON));
+    }
+    
+    /**
+     * Wrap a payload in a frame that is serialized once however many sessions it is queued for
+     */
+    public OutboundFrame frame(Object payload) {
+        return new OutboundFrame(payload, objectMapper, cborMapper);
+    }
+    
+    /**
+     * Wrap a payload that was already serialized to JSON, e.g. on another replica
+     */
+    public OutboundFrame frameFromJson(String json) {
+        return new OutboundFrame(json, objectMapper, cborMapper);
+    }
+    
+    public void unregister(WebSocketSession session) {
+        sessions.remove(session.getId());
+    }
+    
+    /**
+     * Queue a message for a session without blocking.
+     *
+     * @return false if the session is closed or unknown, so the caller can forget it
+     */
+    public boolean enqueue(WebSocketSession session, OutboundFrame frame) {
+        OutboundSession outbound = sessions.get(session.getId());
+        if (outbound == null || !session.isOpen()) {
+            return false;
+        }
+        return outbound.offer(frame, true);
+    }
+    
+    /**
+     * Queue a frame for a session by id, bypassing the overflow policy. Only for bursts
+     * the caller has already bounded, such as alert history replayed on reconnect.
+     */
+    public boolean enqueueBurst(String sessionId, OutboundFrame frame) {
+        OutboundSession outbound = sessions.get(sessionId);
+        if (outbound == null || !outbound.session.isOpen()) {
+            return false;
+        }
+        return outbound.offer(frame, false);
+    }
+    
+    /**
+     * A blocked write only unblocks when the socket is closed, so sessions whose
+     * in-flight send exceeds the timeout are closed from here.
+     */
+    private void closeStalledSessions() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        for (OutboundSession outbound : sessions.values()) {
+            long started = outbound.sendStartedNanos;
+            if (started != 0 && now - started > timeoutNanos) {
+                System.err.println("⏱️ Send to session " + outbound.session.getId() + " timed out, disconnecting");
+                disconnectedSlow.incrementAndGet();
+                outbound.close(CloseStatus.SESSION_NOT_RELIABLE);
+            }
+        }
+    }
+    
+    public Map<String, Object> getSessionStats(WebSocketSession session) {
+        OutboundSession outbound = sessions.get(session.getId());
+        if (outbound == null) return Map.of();
+        
+        long now = System.nanoTime();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("policy", outbound.policy);
+        stats.put("encoding", outbound.encoding);
+        synchronized (outbound.queue) {
+            stats.put("queued", outbound.queue.size());
+        }
+        stats.put("enqueued", outbound.enqueued.get());
+        stats.put("sent", outbound.sent.get());
+        stats.put("dropped", outbound.dropped.get());
+        stats.put("lagMs", TimeUnit.NANOSECONDS.toMillis(outbound.oldestQueuedNanos(now)));
+        stats.put("lastDeliveryLagMs", TimeUnit.NANOSECONDS.toMillis(outbound.lastLagNanos));
+        stats.put("maxDeliveryLagMs", TimeUnit.NANOSECONDS.toMillis(outbound.maxLagNanos));
+        return stats;
+    }
+    
+    public Map<String, Object> getStats() {
+        long now = System.nanoTime();
+        long maxLag = 0;
+        long queued = 0;
+        for (OutboundSession outbound : sessions.values()) {
+            maxLag = Math.max(maxLag, outbound.oldestQueuedNanos(now));
+            synchronized (outbound.queue) {
+                queued += outbound.queue.size();
+            }
+        }
+        
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sessions", sessions.size());
+        stats.put("queued", queued);
+        stats.put("sent", sessions.values().stream().mapToLong(s -> s.sent.get()).sum());
+        stats.put("dropped", sessions.values().stream().mapToLong(s -> s.dropped.get()).sum());
+        stats.put("maxLagMs", TimeUnit.NANOSECONDS.toMillis(maxLag));
+        stats.put("disconnectedSlow", disconnectedSlow.get());
+        return stats;
+    }
+    
+    @PreDestroy
+    public void cleanup() {
+        watchdog.shutdown();
+        if (senderPool != null) {
+            senderPool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.mevanalytics.platform.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free event counter over a sliding time window, split into fixed sub-buckets.
+ * A bucket is reset by whichever thread first touches it in a new period, so counts
+ * are exact up to events racing with that reset.
+ */
+public class SlidingWindowCounter {
+    
+    private final long bucketMs;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray periods;
+    
+    public SlidingWindowCounter(long windowMs, int buckets) {
+        this.bucketMs = Math.max(1, windowMs / buckets);
+        this.counts = new AtomicLongArray(buckets);
+        this.periods = new AtomicLongArray(buckets);
+    }
+    
+    public void increment(long nowMillis) {
+        long period = nowMillis / bucketMs;
+        int index = (int) (period % counts.length());
+        long seen = periods.get(index);
+        if (seen != period && periods.compareAndSet(index, seen, period)) {
+            counts.set(index, 0);
+        }
+        counts.incrementAndGet(index);
+    }
+    
+    public long sum(long nowMillis) {
+        long period = nowMillis / bucketMs;
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            if (period - periods.get(i) < counts.length()) {
+                total += counts.get(i);
+            }
+        }
+        return total;
+    }
+    
+    public long getWindowMs() {
+        return bucketMs * counts.length();
+    }
+}
@@ -0,0 +1,60 @@
+package com.mevanalytics.platform.evm;
+
+import org.web3j.utils.Numeric;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tiny EVM assembler for test fixtures. Tokens are separated by whitespace:
+ * - a mnemonic, e.g. CALLER;
+ * - PUSHn followed by a hex immediate, left-padded to n bytes;
+ * - :name, a JUMPDEST labelled name;
+ * - @name, PUSH2 of that label's pc;
+ * - raw:hex, bytes copied as they are.
+ */
+final class Assembler {
+    
+    private Assembler() {}
+    
+    static byte[] assemble(String source) {
+        String[] tokens = source.trim().split("\\s+");
+        Map<String, Integer> labels = new HashMap<>();
+        // First pass places labels, second pass emits with every label known
+        emit(tokens, labels, true);
+        return emit(tokens, labels, false);
+    }
+    
+    static String hex(String source) {
+        return Numeric.toHexString(assemble(source));
+    }
+    
+    private static byte[] emit(String[] tokens, Map<String, Integer> labels, boolean placing) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int t = 0; t < tokens.length; t++) {
+            String token = tokens[t];
+            if (token.startsWith(":")) {
+                if (placing) labels.put(token.substring(1), out.size());
+                out.write(Opcodes.JUMPDEST);
+            } else if (token.startsWith("@")) {
+                int pc = placing ? 0 : labels.get(token.substring(1));
+                out.write(Opcodes.PUSH1 + 1);
+                out.write(pc >> 8);
+                out.write(pc & 0xff);
+            } else if (token.startsWith("raw:")) {
+                out.writeBytes(Numeric.hexStringToByteArray(token.substring(4)));
+            } else {
+                int op = Opcodes.forName(token);
+                out.write(op);
+                int size = Opcodes.immediateSize(op);
+                if (size > 0) {
+                    byte[] value = Numeric.hexStringToByteArray(tokens[++t]);
+                    out.writeBytes(new byte[size - value.length]);
+                    out.writeBytes(value);
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,81 @@
+package com.mevanalytics.platform.evm;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DisassemblyTest {
+    
+    // EIP-1167 minimal proxy runtime code forwarding to 0xbebe...be
+    static final String CLONE = "0x363d3d373d3d3d363d73" + "be".repeat(20) + "5af43d82803e903d91602b57fd5bf3";
+    
+    @Test
+    void pushDataIsNotDecodedAsOpcodes() {
+        Disassembly code = Disassembly.of(Assembler.assemble("PUSH2 0x5bf1 JUMPDEST CALL STOP"));
+        
+        assertEquals(4, code.size());
+        assertEquals(Opcodes.PUSH1 + 1, code.opcode(0));
+        assertEquals(Opcodes.JUMPDEST, code.opcode(1));
+        assertEquals(Opcodes.CALL, code.opcode(2));
+        assertEquals(BigInteger.valueOf(0x5bf1), code.pushValue(0));
+        // The 0x5b and 0xf1 inside the PUSH2 immediate are data
+        assertFalse(code.isJumpDest(1));
+        assertTrue(code.isJumpDest(3));
+        assertEquals(1, code.jumpDestCount());
+        assertEquals(1, code.count(Opcodes.CALL));
+        assertEquals(-1, code.indexOf(1));
+        assertEquals(1, code.indexOf(3));
+    }
+    
+    @Test
+    void truncatedPushIsZeroPadded() {
+        Disassembly code = Disassembly.ofHex("0x61ff");
+        
+        assertEquals(1, code.size());
+        assertEquals(BigInteger.valueOf(0xff00), code.pushValue(0));
+        assertEquals(0xff00, code.pushLong(0));
+    }
+    
+    @Test
+    void metadataTrailerIsExcluded() {
+        // CBOR map with one entry, then its 2-byte length; the 0xf1 in it is not a CALL
+        Disassembly code = Disassembly.ofHex("0x6001600101" + "a141f1" + "0003");
+        
+        assertEquals(5, code.codeLength());
+        assertEquals(5, code.getMetadataLength());
+        assertEquals(3, code.size());
+        assertEquals(0, code.count(Opcodes.CALL));
+    }
+    
+    @Test
+    void minimalProxyIsDetectedWithItsImplementation() {
+        Disassembly code = Disassembly.ofHex(CLONE);
+        
+        assertEquals(45, code.codeLength());
+        assertTrue(code.isJumpDest(0x2b));
+        ProxyDetector.Pattern pattern = ProxyDetector.detect(code);
+        assertNotNull(pattern);
+        assertEquals(ProxyDetector.Kind.EIP1167, pattern.kind());
+        assertEquals("0x" + "be".repeat(20), pattern.implementation());
+    }
+    
+    @Test
+    void codeWithoutDelegatecallIsNotAProxy() {
+        Disassembly code = Disassembly.of(Assembler.assemble("PUSH20 0x" + "be".repeat(20) + " POP STOP"));
+        
+        assertNull(ProxyDetector.detect(code));
+    }
+    
+    @Test
+    void eip1967SlotIsDetected() {
+        Disassembly code = Disassembly.of(Assembler.assemble(
+            "PUSH32 " + ProxyDetector.IMPLEMENTATION_SLOT + " SLOAD GAS DELEGATECALL STOP"));
+        
+        ProxyDetector.Pattern pattern = ProxyDetector.detect(code);
+        assertNotNull(pattern);
+        assertEquals(ProxyDetector.Kind.EIP1967, pattern.kind());
+        assertNull(pattern.implementation());
+    }
+}
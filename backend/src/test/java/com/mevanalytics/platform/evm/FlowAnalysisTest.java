@@ -0,0 +1,230 @@
+package com.mevanalytics.platform.evm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowAnalysisTest {
+    
+    private static final String WITHDRAW = "0x3ccfd60b";
+    private static final String DEPOSIT = "0xd0e30db0";
+    
+    private static final String REVERT = ":fail PUSH1 0x00 DUP1 REVERT";
+    // call(gas, caller, balance in slot 1, 0, 0, 0, 0)
+    private static final String SEND_BALANCE = "PUSH1 0x00 DUP1 DUP1 DUP1 PUSH1 0x01 SLOAD CALLER GAS CALL";
+    
+    private static String dispatcher(String... selectorsAndLabels) {
+        StringBuilder source = new StringBuilder("PUSH1 0x00 CALLDATALOAD PUSH1 0xe0 SHR ");
+        for (int i = 0; i < selectorsAndLabels.length; i += 2) {
+            source.append("DUP1 PUSH4 ").append(selectorsAndLabels[i]).append(" EQ @").append(selectorsAndLabels[i + 1]).append(" JUMPI ");
+        }
+        return source.append("PUSH1 0x00 DUP1 REVERT ").toString();
+    }
+    
+    private static ControlFlowGraph cfg(String source) {
+        return ControlFlowGraph.build(Disassembly.of(Assembler.assemble(source)));
+    }
+    
+    private static int pcOf(ControlFlowGraph cfg, int opcode, int occurrence) {
+        Disassembly code = cfg.getCode();
+        for (int i = 0, seen = 0; i < code.size(); i++) {
+            if (code.opcode(i) == opcode && seen++ == occurrence) return code.pc(i);
+        }
+        throw new AssertionError("No occurrence " + occurrence + " of " + Opcodes.name(opcode));
+    }
+    
+    private static FlowAnalysis.Result analyzeFunction(ControlFlowGraph cfg, String selector) {
+        Integer entry = cfg.getFunctionEntries().get((int) Long.parseLong(selector.substring(2), 16));
+        assertNotNull(entry, "no dispatch entry for " + selector);
+        return new FlowAnalysis(cfg, 200_000).analyze(entry, Set.of());
+    }
+    
+    @Test
+    void stateWriteAfterCallIsReentrancy() {
+        ControlFlowGraph cfg = cfg(dispatcher(WITHDRAW, "withdraw")
+            + ":withdraw " + SEND_BALANCE + " ISZERO @fail JUMPI "
+            + "PUSH1 0x00 PUSH1 0x01 SSTORE STOP " + REVERT);
+        
+        FlowAnalysis.Result result = analyzeFunction(cfg, WITHDRAW);
+        
+        assertTrue(result.complete());
+        assertEquals(1, result.externalCalls());
+        assertEquals(List.of(new FlowAnalysis.Reentrancy(pcOf(cfg, Opcodes.CALL, 0), pcOf(cfg, Opcodes.SSTORE, 0))),
+            result.reentrancy());
+        assertEquals(List.of(), result.uncheckedCalls());
+    }
+    
+    @Test
+    void reentrancyGuardProtectedWithdrawIsNotReported() {
+        // nonReentrant: require(status != ENTERED); status = ENTERED; ...; status = NOT_ENTERED
+        ControlFlowGraph cfg = cfg(dispatcher(WITHDRAW, "withdraw")
+            + ":withdraw PUSH1 0x00 SLOAD PUSH1 0x02 EQ ISZERO @enter JUMPI PUSH1 0x00 DUP1 REVERT "
+            + ":enter PUSH1 0x02 PUSH1 0x00 SSTORE "
+            + SEND_BALANCE + " ISZERO @fail JUMPI "
+            + "PUSH1 0x00 PUSH1 0x01 SSTORE "
+            + "PUSH1 0x01 PUSH1 0x00 SSTORE STOP " + REVERT);
+        
+        FlowAnalysis.Result result = analyzeFunction(cfg, WITHDRAW);
+        
+        assertTrue(result.complete());
+        assertEquals(1, result.externalCalls());
+        assertEquals(List.of(), result.reentrancy());
+        assertEquals(List.of(), result.uncheckedCalls());
+    }
+    
+    @Test
+    void constantWriteWithoutReadIsNotAGuard() {
+        // A flag set before the call but never checked protects nothing
+        ControlFlowGraph cfg = cfg(dispatcher(WITHDRAW, "withdraw")
+            + ":withdraw PUSH1 0x02 PUSH1 0x00 SSTORE "
+            + SEND_BALANCE + " ISZERO @fail JUMPI "
+            + "PUSH1 0x00 PUSH1 0x01 SSTORE STOP " + REVERT);
+        
+        assertEquals(1, analyzeFunction(cfg, WITHDRAW).reentrancy().size());
+    }
+    
+    @Test
+    void checksEffectsInteractionsIsNotReported() {
+        ControlFlowGraph cfg = cfg(dispatcher(WITHDRAW, "withdraw")
+            + ":withdraw PUSH1 0x01 SLOAD PUSH1 0x00 PUSH1 0x01 SSTORE "
+            + "PUSH1 0x00 DUP1 DUP1 DUP1 SWAP4 CALLER GAS CALL ISZERO @fail JUMPI STOP " + REVERT);
+        
+        FlowAnalysis.Result result = analyzeFunction(cfg, WITHDRAW);
+        
+        assertEquals(List.of(), result.reentrancy());
+        assertEquals(1, result.externalCalls());
+    }
+    
+    @Test
+    void transferStipendCannotReenter() {
+        // transfer(): gas is 2300 * (value != 0)
+        ControlFlowGraph cfg = cfg(dispatcher(WITHDRAW, "withdraw")
+            + ":withdraw PUSH1 0x00 DUP1 DUP1 DUP1 PUSH1 0x01 SLOAD CALLER PUSH2 0x08fc CALL ISZERO @fail JUMPI "
+            + "PUSH1 0x00 PUSH1 0x01 SSTORE STOP " + REVERT);
+        
+        assertEquals(List.of(), analyzeFunction(cfg, WITHDRAW).reentrancy());
+    }
+    
+    @Test
+    void discardedCallResultIsUnchecked() {
+        ControlFlowGraph cfg = cfg(dispatcher(WITHDRAW, "withdraw")
+            + ":withdraw " + SEND_BALANCE + " POP STOP");
+        
+        FlowAnalysis.Result result = analyzeFunction(cfg, WITHDRAW);
+        
+        assertTrue(result.complete());
+        assertEquals(List.of(pcOf(cfg, Opcodes.CALL, 0)), result.uncheckedCalls());
+    }
+    
+    @Test
+    void sharedHelperReturnsOnlyToItsCaller() {
+        // Both functions call the same helper; only withdraw writes state after it returns
+        ControlFlowGraph cfg = cfg(dispatcher(WITHDRAW, "withdraw", DEPOSIT, "deposit")
+            + ":withdraw @withdrawn @pay JUMP :withdrawn PUSH1 0x00 PUSH1 0x01 SSTORE STOP "
+            + ":deposit @deposited @pay JUMP :deposited STOP "
+            + ":pay " + SEND_BALANCE + " ISZERO @fail JUMPI JUMP " + REVERT);
+        
+        FlowAnalysis.Result withdraw = analyzeFunction(cfg, WITHDRAW);
+        FlowAnalysis.Result deposit = analyzeFunction(cfg, DEPOSIT);
+        
+        assertEquals(1, withdraw.reentrancy().size());
+        assertEquals(List.of(), deposit.reentrancy());
+        assertEquals(0, withdraw.unresolvedJumps());
+        assertEquals(0, deposit.unresolvedJumps());
+    }
+    
+    @Test
+    void minimalProxyChecksItsDelegatecall() {
+        ControlFlowGraph cfg = ControlFlowGraph.build(Disassembly.ofHex(DisassemblyTest.CLONE));
+        
+        FlowAnalysis.Result result = new FlowAnalysis(cfg, 200_000).analyze(0, Set.of());
+        
+        assertTrue(result.complete());
+        assertEquals(1, result.externalCalls());
+        assertEquals(List.of(), result.uncheckedCalls());
+        assertEquals(List.of(), result.reentrancy());
+    }
+    
+    @Test
+    void exhaustedBudgetIsIncompleteAndReportsNoUncheckedCalls() {
+        ControlFlowGraph cfg = cfg(dispatcher(WITHDRAW, "withdraw")
+            + ":withdraw PUSH1 0x00 :loop PUSH1 0x01 ADD DUP1 PUSH1 0x0a LT @loop JUMPI POP "
+            + SEND_BALANCE + " POP STOP");
+        
+        FlowAnalysis.Result result = new FlowAnalysis(cfg, 2).analyze(cfg.getFunctionEntries().values().iterator().next(), Set.of());
+        
+        assertFalse(result.complete());
+        assertEquals(List.of(), result.uncheckedCalls());
+    }
+    
+    /**
+     * A max-size (24 KB) contract must stay well inside the scan budget: 160 dispatched
+     * functions, each branching into a 24-deep helper chain with loops, external calls
+     * and storage writes. Cost is asserted in block visits, which are deterministic,
+     * rather than wall-clock time; the fixture needs about 29,500 of the 200,000 that
+     * scanner.flow.max-block-visits allows.
+     */
+    @Test
+    void maxSizeContractFitsTheScanBudget() {
+        byte[] bytecode = maxSizeContract(160, 24);
+        assertTrue(bytecode.length > 23_000 && bytecode.length <= 24_576, "fixture is " + bytecode.length + " bytes");
+        
+        ControlFlowGraph cfg = ControlFlowGraph.build(Disassembly.of(bytecode));
+        FlowAnalysis analysis = new FlowAnalysis(cfg, 200_000);
+        Map<Integer, Integer> entries = cfg.getFunctionEntries();
+        FlowAnalysis.Result dispatcher = analysis.analyze(0, new HashSet<>(entries.values()));
+        List<FlowAnalysis.Result> functions = new ArrayList<>();
+        for (int entry : entries.values()) functions.add(analysis.analyze(entry, Set.of()));
+        
+        assertEquals(160, entries.size());
+        assertTrue(dispatcher.complete());
+        assertTrue(functions.stream().allMatch(FlowAnalysis.Result::complete), "analysis ran out of budget");
+        assertTrue(functions.stream().allMatch(r -> r.unresolvedJumps() == 0));
+        int visits = 200_000 - analysis.getRemainingVisits();
+        assertTrue(visits < 40_000, "analysis used " + visits + " block visits");
+    }
+    
+    private static byte[] maxSizeContract(int functionCount, int helperCount) {
+        byte[] base = Assembler.assemble(contractSource(functionCount, helperCount, 0));
+        // Pad every function with straight-line code (10 bytes a step) up to ~24 KB
+        int padding = (24_300 - base.length) / (10 * functionCount);
+        return Assembler.assemble(contractSource(functionCount, helperCount, padding));
+    }
+    
+    private static String contractSource(int functionCount, int helperCount, int padding) {
+        List<String> dispatch = new ArrayList<>();
+        for (int f = 0; f < functionCount; f++) {
+            dispatch.add(String.format("0x%08x", 0x10000000 + f * 7919));
+            dispatch.add("f" + f);
+        }
+        StringBuilder source = new StringBuilder(dispatcher(dispatch.toArray(new String[0])));
+        
+        for (int f = 0; f < functionCount; f++) {
+            String fn = "f" + f;
+            source.append(':').append(fn).append(' ');
+            source.append("PUSH1 0x04 CALLDATALOAD PUSH1 0x24 CALLDATALOAD ADD PUSH1 0x00 MSTORE ".repeat(padding));
+            source.append("PUSH1 0x04 CALLDATALOAD ISZERO @").append(fn).append("_else JUMPI ");
+            source.append('@').append(fn).append("_r1 @h").append(f % helperCount).append(" JUMP :").append(fn).append("_r1 ");
+            source.append("PUSH1 0x00 PUSH1 ").append(String.format("0x%02x", 2 + f % 50)).append(" SSTORE ");
+            source.append('@').append(fn).append("_join JUMP ");
+            source.append(':').append(fn).append("_else @").append(fn).append("_r2 @h").append((f + 7) % helperCount)
+                .append(" JUMP :").append(fn).append("_r2 ");
+            source.append(':').append(fn).append("_join ").append(SEND_BALANCE).append(" ISZERO @fail JUMPI STOP ");
+        }
+        
+        // Each helper loops, makes a call and calls the next helper down, so call chains nest 24 deep
+        for (int h = 0; h < helperCount; h++) {
+            String helper = "h" + h;
+            source.append(':').append(helper).append(" PUSH1 0x00 :").append(helper).append("_loop PUSH1 0x01 ADD DUP1 PUSH1 0x0a LT @")
+                .append(helper).append("_loop JUMPI POP ");
+            source.append("PUSH1 0x00 DUP1 DUP1 DUP1 DUP1 CALLER GAS CALL ISZERO @fail JUMPI ");
+            if (h + 1 < helperCount) {
+                source.append('@').append(helper).append("_r @h").append(h + 1).append(" JUMP :").append(helper).append("_r ");
+            }
+            source.append("JUMP ");
+        }
+        return source.append(REVERT).toString();
+    }
+}
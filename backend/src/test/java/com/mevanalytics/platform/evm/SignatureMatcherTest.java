@@ -0,0 +1,127 @@
+package com.mevanalytics.platform.evm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignatureMatcherTest {
+    
+    private static Map<String, SignatureMatcher.Hit> match(List<Signature> signatures, String source) {
+        return SignatureMatcher.compile(signatures).match(Disassembly.of(Assembler.assemble(source))).stream()
+            .collect(Collectors.toMap(hit -> hit.signature().id(), hit -> hit));
+    }
+    
+    @Test
+    void selectorMatchesOnlyAsPush4Immediate() {
+        List<Signature> signatures = List.of(
+            Signature.selector("transfer", "mev_vulnerable", "0xa9059cbb"),
+            Signature.selector("transfer-from", "mev_vulnerable", "0x23b872dd"));
+        
+        // transfer's bytes appear inside a PUSH32 and a PUSH5, never as a PUSH4 immediate
+        Map<String, SignatureMatcher.Hit> hits = match(signatures,
+            "PUSH32 0x00000000a9059cbb000000000000000000000000000000000000000000000000 POP "
+                + "PUSH5 0xa9059cbb00 POP PUSH4 0x23b872dd POP STOP");
+        
+        assertEquals(Set.of("transfer-from"), hits.keySet());
+        assertEquals(1, hits.get("transfer-from").count());
+        assertEquals(41, hits.get("transfer-from").firstPc());
+    }
+    
+    @Test
+    void overlappingSequencesAreFoundThroughFailureLinks() {
+        List<Signature> signatures = List.of(
+            Signature.sequence("origin-origin-caller", "tx_origin", "ORIGIN ORIGIN CALLER"),
+            Signature.sequence("origin-is-caller", "tx_origin", "ORIGIN CALLER EQ"),
+            Signature.sequence("caller-eq", "tx_origin", "CALLER EQ"),
+            Signature.sequence("origin", "tx_origin", "ORIGIN"));
+        
+        Map<String, SignatureMatcher.Hit> hits = match(signatures, "ORIGIN ORIGIN ORIGIN CALLER EQ STOP");
+        
+        assertEquals(4, hits.size());
+        assertEquals(1, hits.get("origin-origin-caller").firstPc());
+        assertEquals(2, hits.get("origin-is-caller").firstPc());
+        assertEquals(3, hits.get("caller-eq").firstPc());
+        assertEquals(3, hits.get("origin").count());
+        assertEquals(0, hits.get("origin").firstPc());
+    }
+    
+    @Test
+    void unrelatedOpcodeBreaksASequence() {
+        List<Signature> signatures = List.of(Signature.sequence("origin-is-caller", "tx_origin", "ORIGIN CALLER EQ"));
+        
+        assertTrue(match(signatures, "ORIGIN POP CALLER EQ STOP").isEmpty());
+    }
+    
+    @Test
+    void hitsAreReportedInRegistrationOrder() {
+        List<Signature> signatures = List.of(
+            Signature.sequence("selfdestruct", "selfdestruct", "SELFDESTRUCT"),
+            Signature.sequence("delegatecall", "delegatecall", "DELEGATECALL"));
+        
+        List<SignatureMatcher.Hit> hits = SignatureMatcher.compile(signatures)
+            .match(Disassembly.of(Assembler.assemble("DELEGATECALL DELEGATECALL SELFDESTRUCT")));
+        
+        assertEquals(List.of("selfdestruct", "delegatecall"), hits.stream().map(h -> h.signature().id()).toList());
+        assertEquals(2, hits.get(1).count());
+    }
+    
+    /**
+     * Hundreds of signatures against random code must agree with a naive scan per signature
+     */
+    @Test
+    void agreesWithNaiveScanForManySignatures() {
+        Random random = new Random(42);
+        String[] alphabet = {"CALLER", "ORIGIN", "EQ", "CALL", "DELEGATECALL", "SSTORE", "SLOAD", "POP", "ISZERO"};
+        List<Signature> signatures = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            int length = 1 + random.nextInt(4);
+            StringBuilder mnemonics = new StringBuilder();
+            for (int k = 0; k < length; k++) mnemonics.append(alphabet[random.nextInt(alphabet.length)]).append(' ');
+            signatures.add(Signature.sequence("seq-" + i, "test", mnemonics.toString()));
+        }
+        List<String> selectors = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            String selector = String.format("0x%08x", random.nextInt());
+            selectors.add(selector);
+            signatures.add(Signature.selector("sel-" + i, "test", selector));
+        }
+        
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            if (random.nextInt(10) == 0) {
+                source.append("PUSH4 ").append(selectors.get(random.nextInt(selectors.size()))).append(' ');
+            } else {
+                source.append(alphabet[random.nextInt(alphabet.length)]).append(' ');
+            }
+        }
+        Disassembly code = Disassembly.of(Assembler.assemble(source.toString()));
+        
+        Map<String, int[]> expected = new HashMap<>();
+        for (Signature signature : signatures) {
+            int count = 0;
+            int firstPc = -1;
+            for (int i = 0; i < code.size(); i++) {
+                boolean matched;
+                if (signature.kind() == Signature.Kind.SELECTOR) {
+                    matched = code.opcode(i) == Opcodes.PUSH4 && (int) code.pushLong(i) == signature.selector();
+                } else {
+                    int[] ops = signature.opcodes();
+                    matched = i + ops.length <= code.size();
+                    for (int k = 0; matched && k < ops.length; k++) matched = code.opcode(i + k) == ops[k];
+                }
+                if (matched && count++ == 0) firstPc = code.pc(i);
+            }
+            if (count > 0) expected.put(signature.id(), new int[] {count, firstPc});
+        }
+        
+        Map<String, int[]> actual = new HashMap<>();
+        for (SignatureMatcher.Hit hit : SignatureMatcher.compile(signatures).match(code)) {
+            actual.put(hit.signature().id(), new int[] {hit.count(), hit.firstPc()});
+        }
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((id, value) -> assertArrayEquals(value, actual.get(id), id));
+    }
+}
@@ -81,16 +81,115 @@ CREATE TABLE api_usage_logs (
     error_message TEXT
 );
 
+-- ===== PROTECTION TABLES =====
+
+-- Real-time protection settings, one row per protected contract. Survives disconnects;
+-- last_alert_id keeps alert ids increasing when a contract moves to another replica.
+-- owner_customer_id is the subscriber allowed to change rules and alert flags.
+CREATE TABLE protection_configs (
+    contract_address VARCHAR(42) PRIMARY KEY,
+    owner_customer_id BIGINT REFERENCES api_customers(id) ON DELETE SET NULL,
+    alert_on_sandwich BOOLEAN NOT NULL DEFAULT TRUE,
+    alert_on_frontrun BOOLEAN NOT NULL DEFAULT TRUE,
+    alert_on_unusual_gas BOOLEAN NOT NULL DEFAULT TRUE,
+    auto_protect BOOLEAN NOT NULL DEFAULT FALSE,
+    last_alert_id BIGINT NOT NULL DEFAULT 0,
+    rules JSONB NOT NULL DEFAULT '[]',
+    enabled_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP DEFAULT NOW()
+);
+
+-- Which API customers rely on each protected contract; the config goes with its last subscriber
+CREATE TABLE protection_subscribers (
+    customer_id BIGINT NOT NULL REFERENCES api_customers(id) ON DELETE CASCADE,
+    contract_address VARCHAR(42) NOT NULL REFERENCES protection_configs(contract_address) ON DELETE CASCADE,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (customer_id, contract_address)
+);
+
+CREATE INDEX idx_protection_subscribers_address ON protection_subscribers(contract_address, created_at);
+
+-- ===== SCANNER TABLES =====
+
+-- Bytecode-only scan results keyed by keccak256 of the runtime code, shared by every
+-- contract deployed with the same code (clones, factory tokens)
+CREATE TABLE bytecode_analyses (
+    code_hash VARCHAR(66) PRIMARY KEY,
+    analyzer_version INTEGER NOT NULL,
+    analysis JSONB NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    last_used_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_bytecode_analyses_last_used ON bytecode_analyses(last_used_at);
+
+-- Scan ids for every replica, handed out in blocks of 100 (ContractScanRepository.SCAN_ID_BLOCK)
+CREATE SEQUENCE contract_scan_id_seq INCREMENT BY 100;
+
+-- Finished contract scans, newest kept in memory by the scanner. The result JSON omits the
+-- per-function breakdown, which stays with the bytecode analysis for code_hash
+CREATE TABLE contract_scans (
+    scan_id BIGINT PRIMARY KEY,
+    contract_address VARCHAR(42) NOT NULL,
+    code_hash VARCHAR(66),
+    status VARCHAR(20) NOT NULL,
+    risk_level VARCHAR(20),
+    risk_score INTEGER,
+    result JSONB NOT NULL,
+    completed_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+-- Scan history of an address, newest first
+CREATE INDEX idx_contract_scans_address ON contract_scans(contract_address, scan_id DESC);
+
+-- Contracts rescanned when their code or proxy implementation changes; state is shared by all watchers
+CREATE TABLE watched_contracts (
+    contract_address VARCHAR(42) PRIMARY KEY,
+    code_hash VARCHAR(66),
+    proxy_kind VARCHAR(20),
+    implementation_address VARCHAR(42),
+    beacon_address VARCHAR(42),
+    last_scan_id BIGINT,
+    last_error VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP DEFAULT NOW()
+);
+
+-- Which API customers watch which contracts
+CREATE TABLE contract_watchers (
+    customer_id BIGINT NOT NULL REFERENCES api_customers(id) ON DELETE CASCADE,
+    contract_address VARCHAR(42) NOT NULL REFERENCES watched_contracts(contract_address) ON DELETE CASCADE,
+    subscription_tier VARCHAR(20),
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (customer_id, contract_address)
+);
+
+CREATE INDEX idx_contract_watchers_address ON contract_watchers(contract_address);
+
 -- ===== INDEXES FOR PERFORMANCE =====
 
 -- MEV Transactions indexes
 CREATE INDEX idx_mev_transactions_timestamp ON mev_transactions(block_timestamp);
-CREATE INDEX idx_mev_transactions_from_address ON mev_transactions(from_address);
-CREATE INDEX idx_mev_transactions_mev_type ON mev_transactions(mev_type);
-CREATE INDEX idx_mev_transactions_dex_name ON mev_transactions(dex_name);
-CREATE INDEX idx_mev_transactions_block_number ON mev_transactions(block_number);
 CREATE INDEX idx_mev_transactions_net_profit ON mev_transactions(net_profit_usd DESC);
 
+-- Keyset pagination for /api/v1/mev/events: every search orders by (block_number, id) DESC.
+-- The primary keyset index covers the full event projection so unfiltered pages are index-only scans;
+-- each filter column leads its own (filter, block_number, id) index so a filtered page seeks directly
+-- to the cursor position instead of scanning and discarding earlier rows.
+CREATE INDEX idx_mev_transactions_block_id ON mev_transactions(block_number DESC, id DESC)
+    INCLUDE (transaction_hash, block_timestamp, from_address, to_address, mev_type,
+             extracted_value_usd, gas_price, dex_name, token_pair, victim_address);
+CREATE INDEX idx_mev_transactions_type_block_id ON mev_transactions(mev_type, block_number DESC, id DESC)
+    INCLUDE (extracted_value_usd, from_address, dex_name);
+CREATE INDEX idx_mev_transactions_from_block_id ON mev_transactions(from_address, block_number DESC, id DESC)
+    INCLUDE (mev_type, extracted_value_usd);
+CREATE INDEX idx_mev_transactions_victim_block_id ON mev_transactions(victim_address, block_number DESC, id DESC)
+    WHERE victim_address IS NOT NULL;
+CREATE INDEX idx_mev_transactions_dex_block_id ON mev_transactions(dex_name, block_number DESC, id DESC)
+    INCLUDE (mev_type, extracted_value_usd);
+CREATE INDEX idx_mev_transactions_pair_block_id ON mev_transactions(token_pair, block_number DESC, id DESC)
+    INCLUDE (mev_type, extracted_value_usd);
+
 -- API usage indexes
 CREATE INDEX idx_api_usage_logs_customer_id ON api_usage_logs(customer_id);
 CREATE INDEX idx_api_usage_logs_timestamp ON api_usage_logs(request_timestamp);